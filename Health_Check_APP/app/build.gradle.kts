@@ -29,6 +29,14 @@ android {
         sourceCompatibility = JavaVersion.VERSION_11
         targetCompatibility = JavaVersion.VERSION_11
     }
+    testOptions {
+        // Local unit tests exercise storage and sync code that logs through android.util.Log
+        unitTests.isReturnDefaultValues = true
+        // Benchmarks only run when asked for with -Pbenchmarks
+        unitTests.all {
+            it.systemProperty("benchmarks", project.hasProperty("benchmarks"))
+        }
+    }
 }
 
 dependencies {
@@ -42,6 +50,8 @@ dependencies {
     implementation(libs.mqtt.client)
     implementation(libs.mqtt.android.service)
     testImplementation(libs.junit)
+    // The JVM implementation of org.json, since android.jar only has stubs of it
+    testImplementation(libs.json)
     androidTestImplementation(libs.ext.junit)
     androidTestImplementation(libs.espresso.core)
 }
\ No newline at end of file
@@ -1,20 +1,44 @@
 package com.example.health_check_app;
 
+import android.content.Context;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.TextView;
 import androidx.annotation.NonNull;
+import androidx.core.content.ContextCompat;
 import androidx.recyclerview.widget.RecyclerView;
 import com.example.health_check_app.models.AlertRecord;
+import com.example.health_check_app.rules.Alert;
 import java.util.List;
 
 public class AlertLogAdapter extends RecyclerView.Adapter<AlertLogAdapter.ViewHolder> {
     
     private List<AlertRecord> alertRecords;
+    private OnAlertClickListener clickListener;
+    private final Context context;
+    private final String[] typeLabels = new String[Alert.Type.values().length];
+    private final int colorWarning;
+    private final int colorDanger;
     
-    public AlertLogAdapter(List<AlertRecord> alertRecords) {
+    public interface OnAlertClickListener {
+        void onAlertClick(AlertRecord record);
+    }
+    
+    public AlertLogAdapter(Context context, List<AlertRecord> alertRecords) {
+        this.context = context;
         this.alertRecords = alertRecords;
+        typeLabels[Alert.Type.FALL.ordinal()] = context.getString(R.string.alert_type_fall);
+        typeLabels[Alert.Type.FEVER.ordinal()] = context.getString(R.string.body_temperature);
+        typeLabels[Alert.Type.HIGH_HEART_RATE.ordinal()] = context.getString(R.string.heart_rate);
+        typeLabels[Alert.Type.UNUSUAL_HEART_RATE.ordinal()] = context.getString(R.string.alert_type_unusual_heart_rate);
+        typeLabels[Alert.Type.UNUSUAL_TEMPERATURE.ordinal()] = context.getString(R.string.alert_type_unusual_temperature);
+        colorWarning = ContextCompat.getColor(context, R.color.status_warning);
+        colorDanger = ContextCompat.getColor(context, R.color.status_danger);
+    }
+    
+    public void setOnAlertClickListener(OnAlertClickListener listener) {
+        this.clickListener = listener;
     }
     
     @NonNull
@@ -29,8 +53,30 @@ public class AlertLogAdapter extends RecyclerView.Adapter<AlertLogAdapter.ViewHo
     public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
         AlertRecord record = alertRecords.get(position);
         holder.timeText.setText("[" + record.getTime() + "]");
-        holder.typeText.setText(record.getType());
-        holder.messageText.setText(record.getMessage());
+        holder.typeText.setText(typeLabels[record.getType().ordinal()]);
+        holder.typeText.setTextColor(record.getSeverity() == Alert.Severity.CRITICAL ? colorDanger : colorWarning);
+        holder.messageText.setText(message(record));
+        holder.itemView.setOnClickListener(v -> {
+            if (clickListener != null) {
+                clickListener.onAlertClick(record);
+            }
+        });
+    }
+    
+    private String message(AlertRecord record) {
+        switch (record.getType()) {
+            case FALL:
+                return context.getString(R.string.alert_log_fall);
+            case FEVER:
+                return context.getString(R.string.alert_log_fever, record.getValue());
+            case UNUSUAL_TEMPERATURE:
+                return context.getString(R.string.alert_log_unusual_temperature, record.getValue());
+            case UNUSUAL_HEART_RATE:
+                return context.getString(R.string.alert_log_unusual_heart_rate, Math.round(record.getValue()));
+            case HIGH_HEART_RATE:
+            default:
+                return context.getString(R.string.alert_log_heart_rate, Math.round(record.getValue()));
+        }
     }
     
     @Override
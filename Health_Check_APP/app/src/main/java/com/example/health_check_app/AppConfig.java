@@ -1,16 +1,22 @@
 package com.example.health_check_app;
 
 import android.content.Context;
-import android.content.SharedPreferences;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
+// Typed view of one ConfigStore snapshot: getters read memory only and keep returning the
+// values as of when this was made. Setters change the shared settings, which later snapshots
+// and ConfigStore listeners see at once.
 public class AppConfig {
-    private static final String PREFS_NAME = "HealthCheckSettings";
-    
     // MQTT Configuration Keys
     private static final String KEY_MQTT_BROKER = "mqtt_broker";
     private static final String KEY_MQTT_USERNAME = "mqtt_username";
     private static final String KEY_MQTT_PASSWORD = "mqtt_password";
     
+    // History Sync Keys
+    private static final String KEY_SYNC_ENDPOINT = "sync_endpoint";
+    
     // Threshold Keys
     private static final String KEY_HEART_RATE_MAX = "heartRateMax";
     private static final String KEY_TEMPERATURE_MAX = "temperatureMax";
@@ -18,74 +24,174 @@ public class AppConfig {
     // Feature Keys
     private static final String KEY_SEDENTARY_REMINDER = "sedentaryReminder";
     private static final String KEY_VIBRATION_FEEDBACK = "vibrationFeedback";
+    private static final String KEY_SESSION_RECORDING = "sessionRecording";
+    private static final String KEY_PERSONAL_BASELINE = "personalBaseline";
+    
+    // Storage Retention Keys
+    private static final String KEY_RAW_RETENTION_DAYS = "rawRetentionDays";
+    private static final String KEY_MINUTE_RETENTION_DAYS = "minuteRetentionDays";
     
     // Default Values
     private static final String DEFAULT_MQTT_BROKER = "tcp://iot-instance.aliyuncs.com:1883";
     private static final int DEFAULT_HEART_RATE_MAX = 100;
     private static final float DEFAULT_TEMPERATURE_MAX = 37.3f;
+    private static final int DEFAULT_RAW_RETENTION_DAYS = 7;
+    private static final int DEFAULT_MINUTE_RETENTION_DAYS = 180;
     
-    private SharedPreferences prefs;
+    private final ConfigStore store;
+    private final Map<String, Object> values;
     
     public AppConfig(Context context) {
-        prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        this(ConfigStore.getInstance(context));
+    }
+    
+    private AppConfig(ConfigStore store) {
+        this(store, store.values());
+    }
+    
+    AppConfig(ConfigStore store, Map<String, Object> values) {
+        this.store = store;
+        this.values = values;
     }
     
     // MQTT Configuration
     public String getMqttBroker() {
-        return prefs.getString(KEY_MQTT_BROKER, DEFAULT_MQTT_BROKER);
+        return getString(KEY_MQTT_BROKER, DEFAULT_MQTT_BROKER);
     }
     
     public void setMqttBroker(String broker) {
-        prefs.edit().putString(KEY_MQTT_BROKER, broker).apply();
+        store.put(KEY_MQTT_BROKER, broker);
+    }
+    
+    // The broker setting may hold several endpoints separated by commas or whitespace
+    public List<String> getMqttBrokers() {
+        List<String> brokers = new ArrayList<>();
+        for (String broker : getMqttBroker().split("[,\\s]+")) {
+            if (!broker.isEmpty()) {
+                brokers.add(broker);
+            }
+        }
+        if (brokers.isEmpty()) {
+            brokers.add(DEFAULT_MQTT_BROKER);
+        }
+        return brokers;
+    }
+    
+    public void setMqttBrokers(List<String> brokers) {
+        setMqttBroker(String.join(",", brokers));
     }
     
     public String getMqttUsername() {
-        return prefs.getString(KEY_MQTT_USERNAME, "");
+        return getString(KEY_MQTT_USERNAME, "");
     }
     
     public void setMqttUsername(String username) {
-        prefs.edit().putString(KEY_MQTT_USERNAME, username).apply();
+        store.put(KEY_MQTT_USERNAME, username);
     }
     
     public String getMqttPassword() {
-        return prefs.getString(KEY_MQTT_PASSWORD, "");
+        return getString(KEY_MQTT_PASSWORD, "");
     }
     
     public void setMqttPassword(String password) {
-        prefs.edit().putString(KEY_MQTT_PASSWORD, password).apply();
+        store.put(KEY_MQTT_PASSWORD, password);
+    }
+    
+    // History Sync (empty endpoint disables uploads)
+    public String getSyncEndpoint() {
+        return getString(KEY_SYNC_ENDPOINT, "");
+    }
+    
+    public void setSyncEndpoint(String endpoint) {
+        store.put(KEY_SYNC_ENDPOINT, endpoint);
     }
     
     // Threshold Configuration
     public int getHeartRateMax() {
-        return prefs.getInt(KEY_HEART_RATE_MAX, DEFAULT_HEART_RATE_MAX);
+        return getInt(KEY_HEART_RATE_MAX, DEFAULT_HEART_RATE_MAX);
     }
     
     public void setHeartRateMax(int value) {
-        prefs.edit().putInt(KEY_HEART_RATE_MAX, value).apply();
+        store.put(KEY_HEART_RATE_MAX, value);
     }
     
     public float getTemperatureMax() {
-        return prefs.getFloat(KEY_TEMPERATURE_MAX, DEFAULT_TEMPERATURE_MAX);
+        return getFloat(KEY_TEMPERATURE_MAX, DEFAULT_TEMPERATURE_MAX);
     }
     
     public void setTemperatureMax(float value) {
-        prefs.edit().putFloat(KEY_TEMPERATURE_MAX, value).apply();
+        store.put(KEY_TEMPERATURE_MAX, value);
     }
     
     // Feature Switches
     public boolean isSedentaryReminderEnabled() {
-        return prefs.getBoolean(KEY_SEDENTARY_REMINDER, false);
+        return getBoolean(KEY_SEDENTARY_REMINDER, false);
     }
     
     public void setSedentaryReminderEnabled(boolean enabled) {
-        prefs.edit().putBoolean(KEY_SEDENTARY_REMINDER, enabled).apply();
+        store.put(KEY_SEDENTARY_REMINDER, enabled);
     }
     
     public boolean isVibrationFeedbackEnabled() {
-        return prefs.getBoolean(KEY_VIBRATION_FEEDBACK, true);
+        return getBoolean(KEY_VIBRATION_FEEDBACK, true);
     }
     
     public void setVibrationFeedbackEnabled(boolean enabled) {
-        prefs.edit().putBoolean(KEY_VIBRATION_FEEDBACK, enabled).apply();
+        store.put(KEY_VIBRATION_FEEDBACK, enabled);
+    }
+    
+    // Alerts on readings far from the wearer's own norm, besides the fixed thresholds
+    public boolean isPersonalBaselineEnabled() {
+        return getBoolean(KEY_PERSONAL_BASELINE, true);
+    }
+    
+    public void setPersonalBaselineEnabled(boolean enabled) {
+        store.put(KEY_PERSONAL_BASELINE, enabled);
+    }
+    
+    // Records inbound MQTT traffic under files/recordings for replay when diagnosing alerts
+    public boolean isSessionRecordingEnabled() {
+        return getBoolean(KEY_SESSION_RECORDING, false);
+    }
+    
+    public void setSessionRecordingEnabled(boolean enabled) {
+        store.put(KEY_SESSION_RECORDING, enabled);
+    }
+    
+    // Storage Retention (daily aggregates are kept forever)
+    public int getRawRetentionDays() {
+        return getInt(KEY_RAW_RETENTION_DAYS, DEFAULT_RAW_RETENTION_DAYS);
+    }
+    
+    public void setRawRetentionDays(int days) {
+        store.put(KEY_RAW_RETENTION_DAYS, days);
+    }
+    
+    public int getMinuteRetentionDays() {
+        return getInt(KEY_MINUTE_RETENTION_DAYS, DEFAULT_MINUTE_RETENTION_DAYS);
+    }
+    
+    public void setMinuteRetentionDays(int days) {
+        store.put(KEY_MINUTE_RETENTION_DAYS, days);
+    }
+    
+    private String getString(String key, String defaultValue) {
+        Object value = values.get(key);
+        return value instanceof String ? (String) value : defaultValue;
+    }
+    
+    private int getInt(String key, int defaultValue) {
+        Object value = values.get(key);
+        return value instanceof Integer ? (Integer) value : defaultValue;
+    }
+    
+    private float getFloat(String key, float defaultValue) {
+        Object value = values.get(key);
+        return value instanceof Float ? (Float) value : defaultValue;
+    }
+    
+    private boolean getBoolean(String key, boolean defaultValue) {
+        Object value = values.get(key);
+        return value instanceof Boolean ? (Boolean) value : defaultValue;
     }
-}
+}
\ No newline at end of file
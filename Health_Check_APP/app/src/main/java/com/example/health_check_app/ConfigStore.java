@@ -0,0 +1,163 @@
+package com.example.health_check_app;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+// The app's settings, read from SharedPreferences once per process and kept in memory as an
+// immutable map that each change replaces whole, so a reader sees every setting from the same
+// moment and never touches the disk. Listeners hear of a change as soon as it is made; the
+// preferences file is written after changes settle, with only the keys that changed.
+public class ConfigStore {
+    private static final String TAG = "ConfigStore";
+    static final String PREFS_NAME = "HealthCheckSettings";
+    // A burst of changes, e.g. a slider being dragged, is written once this long after the last
+    static final long WRITE_DELAY_MS = 500;
+    
+    private static ConfigStore instance;
+    
+    public interface Listener {
+        // Called on the thread that made the change, with a snapshot that includes it.
+        // Snapshots arrive one at a time and never older than one already delivered; a change
+        // overtaken by another before its turn is only heard of through the newer snapshot.
+        void onConfigChanged(AppConfig config);
+    }
+    
+    private final SharedPreferences prefs;
+    private final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final ScheduledThreadPoolExecutor writer;
+    private volatile Map<String, Object> values;
+    // Changes not yet written, by key; guarded by this
+    private final Map<String, Object> unwritten = new HashMap<>();
+    private ScheduledFuture<?> pendingWrite;
+    // Bumped by every change; guarded by this
+    private long version;
+    // Version of the last snapshot handed to listeners; guarded by notifyLock
+    private final Object notifyLock = new Object();
+    private long notifiedVersion;
+    
+    ConfigStore(SharedPreferences prefs) {
+        this.prefs = prefs;
+        values = Collections.unmodifiableMap(new HashMap<>(prefs.getAll()));
+        writer = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "config-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        writer.setRemoveOnCancelPolicy(true);
+    }
+    
+    public static synchronized ConfigStore getInstance(Context context) {
+        if (instance == null) {
+            instance = new ConfigStore(context.getApplicationContext()
+                .getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE));
+        }
+        return instance;
+    }
+    
+    // The settings as of now; later changes do not alter it
+    public AppConfig get() {
+        return new AppConfig(this, values);
+    }
+    
+    Map<String, Object> values() {
+        return values;
+    }
+    
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+    
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+    
+    // value is an Integer, Long, Float, Boolean or String, as SharedPreferences stores it
+    void put(String key, Object value) {
+        synchronized (this) {
+            if (Objects.equals(values.get(key), value)) {
+                return;
+            }
+            Map<String, Object> changed = new HashMap<>(values);
+            changed.put(key, value);
+            values = Collections.unmodifiableMap(changed);
+            unwritten.put(key, value);
+            if (pendingWrite != null) {
+                pendingWrite.cancel(false);
+            }
+            pendingWrite = writer.schedule(this::write, WRITE_DELAY_MS, TimeUnit.MILLISECONDS);
+            version++;
+        }
+        notifyListeners();
+    }
+    
+    // Hands the newest snapshot to the listeners, unless it has been already. Changes made at
+    // the same time on other threads wait their turn here rather than race each other.
+    private void notifyListeners() {
+        synchronized (notifyLock) {
+            AppConfig config;
+            long latest;
+            synchronized (this) {
+                config = get();
+                latest = version;
+            }
+            if (latest <= notifiedVersion) {
+                return;
+            }
+            notifiedVersion = latest;
+            for (Listener listener : listeners) {
+                listener.onConfigChanged(config);
+                if (notifiedVersion != latest) {
+                    // The listener made a change, and everyone has heard of it already
+                    return;
+                }
+            }
+        }
+    }
+    
+    // Writes pending changes now, e.g. before the process may be killed in the background
+    public synchronized void flush() {
+        if (pendingWrite != null) {
+            pendingWrite.cancel(false);
+            pendingWrite = writer.schedule(this::write, 0, TimeUnit.MILLISECONDS);
+        }
+    }
+    
+    private void write() {
+        Map<String, Object> changes;
+        synchronized (this) {
+            pendingWrite = null;
+            if (unwritten.isEmpty()) {
+                return;
+            }
+            changes = new HashMap<>(unwritten);
+            unwritten.clear();
+        }
+        SharedPreferences.Editor editor = prefs.edit();
+        for (Map.Entry<String, Object> change : changes.entrySet()) {
+            Object value = change.getValue();
+            if (value instanceof Integer) {
+                editor.putInt(change.getKey(), (Integer) value);
+            } else if (value instanceof Long) {
+                editor.putLong(change.getKey(), (Long) value);
+            } else if (value instanceof Float) {
+                editor.putFloat(change.getKey(), (Float) value);
+            } else if (value instanceof Boolean) {
+                editor.putBoolean(change.getKey(), (Boolean) value);
+            } else {
+                editor.putString(change.getKey(), (String) value);
+            }
+        }
+        if (!editor.commit()) {
+            Log.e(TAG, "Failed to write settings " + changes.keySet());
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,250 @@
+package com.example.health_check_app;
+
+import android.content.Context;
+import android.os.Debug;
+import android.view.View;
+import android.widget.TextView;
+import androidx.core.content.ContextCompat;
+import com.example.health_check_app.models.SensorData;
+import com.example.health_check_app.models.VitalsSnapshot;
+
+// Renders vitals snapshots onto the dashboard cards. Each field remembers the value it last
+// showed and its view is only touched when that value changes; numbers are formatted into
+// per-field char buffers and colors are resolved once, so a steady stream allocates nothing.
+public class DashboardRenderer {
+    // Silence longer than this breaks the sparklines instead of joining across it
+    private static final long SPARKLINE_GAP_MS = 10_000;
+    
+    private static final char[] PERCENT = {'%'};
+    private static final char[] CELSIUS = {'°', 'C'};
+    
+    private final TextField heartRate;
+    private final TextField bloodOxygen;
+    private final TextField bodyTemperature;
+    private final TextField environmentTemperature;
+    private final TextField humidity;
+    private final TextField steps;
+    private final TextField battery;
+    private final TextView heartRateStatus;
+    private final TextView motionStatus;
+    private final SparklineView heartRateTrend;
+    private final SparklineView bloodOxygenTrend;
+    private final SparklineView bodyTemperatureTrend;
+    
+    private final int colorNormal;
+    private final int colorWarning;
+    private final int colorDanger;
+    private final int colorTextPrimary;
+    
+    private final char[] stepsSuffix;
+    private final FrameStats stats = new FrameStats();
+    
+    private int heartRateMax = 100;
+    private int shownHeartRateStatus = -1;
+    private SensorData.MotionStatus shownMotionStatus;
+    private long trendTimestamp = Long.MIN_VALUE;
+    private boolean trackAllocations;
+    private int updated;
+    private int skipped;
+    
+    public DashboardRenderer(Context context, View root) {
+        heartRate = new TextField(root.findViewById(R.id.heartRateValue));
+        bloodOxygen = new TextField(root.findViewById(R.id.bloodOxygenValue));
+        bodyTemperature = new TextField(root.findViewById(R.id.bodyTemperatureValue));
+        environmentTemperature = new TextField(root.findViewById(R.id.environmentTemperature));
+        humidity = new TextField(root.findViewById(R.id.environmentHumidity));
+        steps = new TextField(root.findViewById(R.id.stepsValue));
+        battery = new TextField(root.findViewById(R.id.batteryLevel));
+        heartRateStatus = root.findViewById(R.id.heartRateStatus);
+        motionStatus = root.findViewById(R.id.motionStatusValue);
+        heartRateTrend = setupTrend(root.findViewById(R.id.heartRateTrend),
+            ContextCompat.getColor(context, R.color.chart_heart_rate), 10f);
+        bloodOxygenTrend = setupTrend(root.findViewById(R.id.bloodOxygenTrend),
+            ContextCompat.getColor(context, R.color.chart_blood_oxygen), 4f);
+        bodyTemperatureTrend = setupTrend(root.findViewById(R.id.bodyTemperatureTrend),
+            ContextCompat.getColor(context, R.color.chart_temperature), 0.5f);
+        
+        colorNormal = ContextCompat.getColor(context, R.color.status_normal);
+        colorWarning = ContextCompat.getColor(context, R.color.status_warning);
+        colorDanger = ContextCompat.getColor(context, R.color.status_danger);
+        colorTextPrimary = ContextCompat.getColor(context, R.color.text_primary);
+        stepsSuffix = (" " + context.getString(R.string.steps)).toCharArray();
+        
+        root.getViewTreeObserver().addOnGlobalLayoutListener(stats::onLayout);
+    }
+    
+    private SparklineView setupTrend(SparklineView view, int color, float minSpan) {
+        view.setLineColor(color);
+        view.setMinSpan(minSpan);
+        view.setStats(stats);
+        return view;
+    }
+    
+    public FrameStats getStats() {
+        return stats;
+    }
+    
+    // Counts allocations made while rendering (uses the debug allocation counter)
+    @SuppressWarnings("deprecation")
+    public void setAllocationTracking(boolean enabled) {
+        if (enabled && !trackAllocations) {
+            Debug.startAllocCounting();
+        } else if (!enabled && trackAllocations) {
+            Debug.stopAllocCounting();
+        }
+        trackAllocations = enabled;
+    }
+    
+    public void setHeartRateMax(int heartRateMax) {
+        if (heartRateMax != this.heartRateMax) {
+            this.heartRateMax = heartRateMax;
+            shownHeartRateStatus = -1;
+        }
+    }
+    
+    @SuppressWarnings("deprecation")
+    public void render(VitalsSnapshot data) {
+        long started = System.nanoTime();
+        int allocationsBefore = trackAllocations ? Debug.getThreadAllocCount() : 0;
+        updated = 0;
+        skipped = 0;
+        
+        // Heart Rate
+        if (data.getHeartRate() > 0) {
+            showInt(heartRate, data.getHeartRate(), null);
+            showHeartRateStatus(data.getHeartRate());
+        } else {
+            showMissing(heartRate);
+        }
+        
+        // Blood Oxygen
+        if (data.getBloodOxygen() > 0) {
+            showInt(bloodOxygen, data.getBloodOxygen(), null);
+        } else {
+            showMissing(bloodOxygen);
+        }
+        
+        // Body Temperature
+        if (data.getBodyTemperature() > 0) {
+            showTenths(bodyTemperature, data.getBodyTemperature(), null);
+        } else {
+            showMissing(bodyTemperature);
+        }
+        
+        // Environment keeps its last reading when a sample has none
+        if (data.getEnvironmentTemperature() > 0) {
+            showTenths(environmentTemperature, data.getEnvironmentTemperature(), CELSIUS);
+        }
+        if (data.getHumidity() > 0) {
+            showInt(humidity, data.getHumidity(), PERCENT);
+        }
+        
+        showMotionStatus(data.getMotionStatus());
+        showInt(steps, data.getSteps(), stepsSuffix);
+        
+        if (data.getBatteryLevel() > 0) {
+            showInt(battery, data.getBatteryLevel(), PERCENT);
+        }
+        
+        // A battery-only change republishes the last sample; the trends take each sample once
+        if (data.getTimestamp() != trendTimestamp && data.getTimestamp() > 0) {
+            if (trendTimestamp != Long.MIN_VALUE && data.getTimestamp() - trendTimestamp > SPARKLINE_GAP_MS) {
+                heartRateTrend.addGap();
+                bloodOxygenTrend.addGap();
+                bodyTemperatureTrend.addGap();
+            }
+            trendTimestamp = data.getTimestamp();
+            addTrend(heartRateTrend, data.getHeartRate());
+            addTrend(bloodOxygenTrend, data.getBloodOxygen());
+            addTrend(bodyTemperatureTrend, data.getBodyTemperature());
+        }
+        
+        if (trackAllocations) {
+            stats.onAllocations(Debug.getThreadAllocCount() - allocationsBefore);
+        }
+        stats.onFrame(System.nanoTime() - started, updated, skipped);
+    }
+    
+    private static void addTrend(SparklineView trend, float value) {
+        if (value > 0) {
+            trend.add(value);
+        } else {
+            trend.addGap();
+        }
+    }
+    
+    private void showHeartRateStatus(int value) {
+        int status = value < 60 ? 0 : value > heartRateMax ? 2 : 1;
+        if (status == shownHeartRateStatus) {
+            skipped++;
+            return;
+        }
+        shownHeartRateStatus = status;
+        updated++;
+        if (status == 0) {
+            heartRateStatus.setText(R.string.too_slow);
+            heartRateStatus.setTextColor(colorWarning);
+        } else if (status == 2) {
+            heartRateStatus.setText(R.string.too_fast);
+            heartRateStatus.setTextColor(colorDanger);
+        } else {
+            heartRateStatus.setText(R.string.normal);
+            heartRateStatus.setTextColor(colorNormal);
+        }
+    }
+    
+    private void showMotionStatus(SensorData.MotionStatus status) {
+        if (status == null || status == shownMotionStatus) {
+            skipped++;
+            return;
+        }
+        shownMotionStatus = status;
+        updated++;
+        switch (status) {
+            case SEDENTARY:
+                motionStatus.setText(R.string.sedentary);
+                motionStatus.setTextColor(colorTextPrimary);
+                break;
+            case WALKING:
+                motionStatus.setText(R.string.walking);
+                motionStatus.setTextColor(colorNormal);
+                break;
+            case FALL_DETECTED:
+                motionStatus.setText(R.string.fall_detected);
+                motionStatus.setTextColor(colorDanger);
+                break;
+        }
+    }
+    
+    private void showMissing(TextField field) {
+        if (field.shown == TextField.MISSING) {
+            skipped++;
+            return;
+        }
+        field.setMissing();
+        field.publish(TextField.MISSING);
+        updated++;
+    }
+    
+    private void showInt(TextField field, int value, char[] suffix) {
+        if (field.shown == value) {
+            skipped++;
+            return;
+        }
+        field.setInt(value, suffix);
+        field.publish(value);
+        updated++;
+    }
+    
+    // One decimal place, like "%.1f"
+    private void showTenths(TextField field, float value, char[] suffix) {
+        long tenths = TextField.toTenths(value);
+        if (field.shown == tenths) {
+            skipped++;
+            return;
+        }
+        field.setTenths(tenths, suffix);
+        field.publish(tenths);
+        updated++;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,40 @@
+package com.example.health_check_app;
+
+// Fixed-capacity ring of floats, oldest first; a full ring overwrites its oldest value.
+// NaN marks a gap. Appending is O(1) and nothing is allocated after construction.
+final class FloatRing {
+    private final float[] values;
+    private int start;
+    private int size;
+    
+    FloatRing(int capacity) {
+        values = new float[capacity];
+    }
+    
+    void add(float value) {
+        if (size < values.length) {
+            values[(start + size++) % values.length] = value;
+        } else {
+            values[start] = value;
+            start = (start + 1) % values.length;
+        }
+    }
+    
+    // i-th value from the oldest
+    float get(int i) {
+        return values[(start + i) % values.length];
+    }
+    
+    int size() {
+        return size;
+    }
+    
+    int capacity() {
+        return values.length;
+    }
+    
+    void clear() {
+        start = 0;
+        size = 0;
+    }
+}
\ No newline at end of file
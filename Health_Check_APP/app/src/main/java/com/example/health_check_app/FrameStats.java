@@ -0,0 +1,105 @@
+package com.example.health_check_app;
+
+// Counters for dashboard renders, written on the UI thread only
+public class FrameStats {
+    private long frames;
+    private long viewUpdates;
+    private long viewSkips;
+    private long layoutPasses;
+    private long totalRenderNanos;
+    private long maxRenderNanos;
+    private long allocations = -1;
+    private long sparklineDraws;
+    private long totalSparklineNanos;
+    private long maxSparklineNanos;
+    
+    void onFrame(long renderNanos, int updated, int skipped) {
+        frames++;
+        viewUpdates += updated;
+        viewSkips += skipped;
+        totalRenderNanos += renderNanos;
+        if (renderNanos > maxRenderNanos) {
+            maxRenderNanos = renderNanos;
+        }
+    }
+    
+    void onAllocations(int count) {
+        allocations = Math.max(allocations, 0) + count;
+    }
+    
+    void onLayout() {
+        layoutPasses++;
+    }
+    
+    void onSparklineDraw(long drawNanos) {
+        sparklineDraws++;
+        totalSparklineNanos += drawNanos;
+        if (drawNanos > maxSparklineNanos) {
+            maxSparklineNanos = drawNanos;
+        }
+    }
+    
+    public long getFrames() {
+        return frames;
+    }
+    
+    public long getViewUpdates() {
+        return viewUpdates;
+    }
+    
+    // Views whose value was unchanged and were left alone
+    public long getViewSkips() {
+        return viewSkips;
+    }
+    
+    public long getLayoutPasses() {
+        return layoutPasses;
+    }
+    
+    public long getAverageRenderNanos() {
+        return frames == 0 ? 0 : totalRenderNanos / frames;
+    }
+    
+    public long getMaxRenderNanos() {
+        return maxRenderNanos;
+    }
+    
+    public long getSparklineDraws() {
+        return sparklineDraws;
+    }
+    
+    public long getAverageSparklineNanos() {
+        return sparklineDraws == 0 ? 0 : totalSparklineNanos / sparklineDraws;
+    }
+    
+    public long getMaxSparklineNanos() {
+        return maxSparklineNanos;
+    }
+    
+    // Objects allocated on the UI thread while rendering, or -1 when not tracked
+    public long getAllocations() {
+        return allocations;
+    }
+    
+    public void reset() {
+        frames = 0;
+        viewUpdates = 0;
+        viewSkips = 0;
+        layoutPasses = 0;
+        totalRenderNanos = 0;
+        maxRenderNanos = 0;
+        sparklineDraws = 0;
+        totalSparklineNanos = 0;
+        maxSparklineNanos = 0;
+        allocations = allocations < 0 ? -1 : 0;
+    }
+    
+    @Override
+    public String toString() {
+        return "frames=" + frames + " updated=" + viewUpdates + " skipped=" + viewSkips
+            + " layouts=" + layoutPasses + " avgUs=" + getAverageRenderNanos() / 1000
+            + " maxUs=" + maxRenderNanos / 1000 + " allocations=" + allocations
+            + " sparklines=" + sparklineDraws + " sparklineAvgUs=" + getAverageSparklineNanos() / 1000
+            + " sparklineMaxUs=" + maxSparklineNanos / 1000;
+    }
+}
\ No newline at end of file
@@ -1,29 +1,60 @@
 package com.example.health_check_app;
 
+import android.content.Context;
 import android.graphics.Color;
 import android.os.Bundle;
+import android.util.Log;
+import android.view.Menu;
 import android.view.MenuItem;
 import android.widget.RadioGroup;
+import android.widget.Toast;
+import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 import com.example.health_check_app.models.AlertRecord;
+import com.example.health_check_app.analytics.AnalyticsReport;
+import com.example.health_check_app.analytics.HistoryAnalytics;
+import com.example.health_check_app.export.ExportFormat;
+import com.example.health_check_app.export.HistoryExporter;
+import com.example.health_check_app.models.Metric;
+import com.example.health_check_app.rules.Alert;
+import com.example.health_check_app.storage.AlertQuery;
+import com.example.health_check_app.storage.AlertStore;
+import com.example.health_check_app.storage.ChartCache;
+import com.example.health_check_app.storage.Series;
+import com.example.health_check_app.storage.VitalsQuery;
+import com.example.health_check_app.storage.VitalsStore;
 import com.github.mikephil.charting.charts.LineChart;
 import com.github.mikephil.charting.components.Description;
 import com.github.mikephil.charting.components.XAxis;
 import com.github.mikephil.charting.data.Entry;
 import com.github.mikephil.charting.data.LineData;
 import com.github.mikephil.charting.data.LineDataSet;
+import com.github.mikephil.charting.formatter.ValueFormatter;
+import com.google.android.material.chip.ChipGroup;
 import com.google.android.material.tabs.TabLayout;
+import java.io.File;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class HistoryActivity extends AppCompatActivity {
+    private static final String TAG = "HistoryActivity";
     
     private TabLayout tabLayout;
     private LineChart chart;
     private RadioGroup timeRangeGroup;
     private RecyclerView alertLogRecyclerView;
+    private ChipGroup alertFilterChips;
+    private ChipGroup alertRangeChips;
     
     private List<AlertRecord> alertRecords;
     private AlertLogAdapter alertLogAdapter;
@@ -31,6 +62,48 @@ public class HistoryActivity extends AppCompatActivity {
     private static final int TAB_HEART_RATE = 0;
     private static final int TAB_BLOOD_OXYGEN = 1;
     private static final int TAB_TEMPERATURE = 2;
+    
+    private static final long HOUR_MS = 60 * 60 * 1000L;
+    private static final long DAY_MS = 24 * HOUR_MS;
+    private static final long ALERT_WINDOW_MS = 5 * 60 * 1000L;
+    private static final int MAX_CHART_POINTS = 500;
+    private static final int MAX_ALERT_ROWS = 500;
+    private static final int NIGHT_START_HOUR = 22;
+    private static final int NIGHT_END_HOUR = 6;
+    
+    // The windows behind the range buttons, kept ready in ChartCache
+    private static final Metric[] CHART_METRICS = {Metric.HEART_RATE, Metric.BLOOD_OXYGEN, Metric.BODY_TEMPERATURE};
+    private static final long[] CHART_RANGES_MS = {HOUR_MS, DAY_MS, 7 * DAY_MS, 30 * DAY_MS};
+    
+    private VitalsStore vitalsStore;
+    private AlertStore alertStore;
+    private VitalsQuery vitalsQuery;
+    private ChartCache chartCache;
+    private ExecutorService queryExecutor;
+    private ExecutorService exportExecutor;
+    private HistoryExporter activeExporter;
+    private int loadGeneration;
+    private int alertGeneration;
+    
+    // Currently displayed time window; rangeMs is the trailing window of the checked range
+    // button, or 0 while an alert's window is shown
+    private long rangeStart;
+    private long rangeEnd;
+    private long rangeMs;
+    // x values on the chart are minutes since the start of the shown series
+    private long chartOrigin;
+    // Chart data last built per tab and the range it shows. Trailing windows stay live: new
+    // buckets from ChartCache are put into the tab's data set while the screen is resumed, so
+    // switching tabs shows it again as is.
+    private final LineData[] tabLineData = new LineData[3];
+    private final SlidingLineDataSet[] tabLiveData = new SlidingLineDataSet[3];
+    private final long[] tabRangeMs = new long[3];
+    private final long[] tabOrigin = new long[3];
+    private ChartCache.BucketListener liveListener;
+    
+    public static void prefetchCharts(Context context) {
+        ChartCache.getInstance(context).prefetch(CHART_METRICS, CHART_RANGES_MS);
+    }
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -42,13 +115,36 @@ public class HistoryActivity extends AppCompatActivity {
             getSupportActionBar().setDisplayHomeAsUpEnabled(true);
         }
         
+        vitalsStore = VitalsStore.getInstance(this);
+        alertStore = AlertStore.getInstance(this);
+        vitalsQuery = new VitalsQuery(vitalsStore);
+        chartCache = ChartCache.getInstance(this);
+        queryExecutor = Executors.newSingleThreadExecutor();
+        exportExecutor = Executors.newSingleThreadExecutor();
+        
         initializeViews();
         setupChart();
         setupAlertLog();
         setupListeners();
         
-        // Load initial data
-        loadChartData(TAB_HEART_RATE, true);
+        // The chart is loaded in onResume
+        selectRange(timeRangeGroup.getCheckedRadioButtonId());
+    }
+    
+    @Override
+    protected void onResume() {
+        super.onResume();
+        startLive();
+        showChart(tabLayout.getSelectedTabPosition());
+    }
+    
+    @Override
+    protected void onPause() {
+        super.onPause();
+        // Buckets are missed from here on, so the live data is rebuilt from the cache on return
+        stopLive();
+        Arrays.fill(tabLineData, null);
+        Arrays.fill(tabLiveData, null);
     }
     
     private void initializeViews() {
@@ -56,6 +152,8 @@ public class HistoryActivity extends AppCompatActivity {
         chart = findViewById(R.id.chart);
         timeRangeGroup = findViewById(R.id.timeRangeGroup);
         alertLogRecyclerView = findViewById(R.id.alertLogRecyclerView);
+        alertFilterChips = findViewById(R.id.alertFilterChips);
+        alertRangeChips = findViewById(R.id.alertRangeChips);
     }
     
     private void setupChart() {
@@ -68,29 +166,90 @@ public class HistoryActivity extends AppCompatActivity {
         description.setText("");
         chart.setDescription(description);
         
+        chart.setNoDataText(getString(R.string.no_history_data));
+        
         XAxis xAxis = chart.getXAxis();
         xAxis.setPosition(XAxis.XAxisPosition.BOTTOM);
         xAxis.setGranularity(1f);
+        xAxis.setValueFormatter(new ValueFormatter() {
+            private final SimpleDateFormat timeFormat = new SimpleDateFormat("HH:mm", Locale.getDefault());
+            private final SimpleDateFormat dateFormat = new SimpleDateFormat("MM-dd", Locale.getDefault());
+            
+            @Override
+            public String getFormattedValue(float value) {
+                long time = chartOrigin + (long) (value * 60000f);
+                SimpleDateFormat format = rangeEnd - rangeStart > 2 * DAY_MS ? dateFormat : timeFormat;
+                return format.format(new Date(time));
+            }
+        });
     }
     
     private void setupAlertLog() {
         alertRecords = new ArrayList<>();
-        // Sample data
-        alertRecords.add(new AlertRecord("心率", "心率过高: 120 BPM"));
-        alertRecords.add(new AlertRecord("体温", "体温异常: 38.2°C"));
-        alertRecords.add(new AlertRecord("跌倒", "检测到跌倒"));
-        
-        alertLogAdapter = new AlertLogAdapter(alertRecords);
+        alertLogAdapter = new AlertLogAdapter(this, alertRecords);
+        alertLogAdapter.setOnAlertClickListener(this::showAlertWindow);
         alertLogRecyclerView.setLayoutManager(new LinearLayoutManager(this));
         alertLogRecyclerView.setAdapter(alertLogAdapter);
+        loadAlertLog();
+    }
+    
+    private void loadAlertLog() {
+        AlertQuery query = buildAlertQuery();
+        int generation = ++alertGeneration;
+        queryExecutor.execute(() -> {
+            List<AlertRecord> loaded;
+            try {
+                loaded = alertStore.query(query);
+            } catch (IOException e) {
+                Log.e(TAG, "Failed to read alerts: " + e.getMessage());
+                return;
+            }
+            runOnUiThread(() -> {
+                // A newer filter was chosen while this one ran
+                if (generation != alertGeneration) {
+                    return;
+                }
+                alertRecords.clear();
+                alertRecords.addAll(loaded);
+                alertLogAdapter.notifyDataSetChanged();
+            });
+        });
+    }
+    
+    // Unchecked type chips mean no type filter, so the panel opens showing every alert
+    private AlertQuery buildAlertQuery() {
+        List<Integer> checked = alertFilterChips.getCheckedChipIds();
+        EnumSet<Alert.Type> types = EnumSet.noneOf(Alert.Type.class);
+        if (checked.contains(R.id.chipFall)) types.add(Alert.Type.FALL);
+        if (checked.contains(R.id.chipFever)) types.addAll(EnumSet.of(Alert.Type.FEVER, Alert.Type.UNUSUAL_TEMPERATURE));
+        if (checked.contains(R.id.chipHeartRate)) types.addAll(EnumSet.of(Alert.Type.HIGH_HEART_RATE, Alert.Type.UNUSUAL_HEART_RATE));
+        
+        AlertQuery query = new AlertQuery().limit(MAX_ALERT_ROWS);
+        if (!types.isEmpty()) {
+            query.ofTypes(types);
+        }
+        if (checked.contains(R.id.chipCritical)) {
+            query.atLeast(Alert.Severity.CRITICAL);
+        }
+        if (checked.contains(R.id.chipNight)) {
+            query.duringHours(NIGHT_START_HOUR, NIGHT_END_HOUR);
+        }
+        
+        List<Integer> range = alertRangeChips.getCheckedChipIds();
+        long now = System.currentTimeMillis();
+        if (range.contains(R.id.chipRange7Days)) {
+            query.between(now - 7 * DAY_MS, Long.MAX_VALUE);
+        } else if (range.contains(R.id.chipRange30Days)) {
+            query.between(now - 30 * DAY_MS, Long.MAX_VALUE);
+        }
+        return query;
     }
     
     private void setupListeners() {
         tabLayout.addOnTabSelectedListener(new TabLayout.OnTabSelectedListener() {
             @Override
             public void onTabSelected(TabLayout.Tab tab) {
-                boolean is24Hours = timeRangeGroup.getCheckedRadioButtonId() == R.id.radio24Hours;
-                loadChartData(tab.getPosition(), is24Hours);
+                showChart(tab.getPosition());
             }
             
             @Override
@@ -100,47 +259,183 @@ public class HistoryActivity extends AppCompatActivity {
             public void onTabReselected(TabLayout.Tab tab) {}
         });
         
+        alertFilterChips.setOnCheckedStateChangeListener((group, checkedIds) -> loadAlertLog());
+        alertRangeChips.setOnCheckedStateChangeListener((group, checkedIds) -> loadAlertLog());
+        
         timeRangeGroup.setOnCheckedChangeListener((group, checkedId) -> {
-            boolean is24Hours = checkedId == R.id.radio24Hours;
-            loadChartData(tabLayout.getSelectedTabPosition(), is24Hours);
+            // Cleared when jumping to an alert's window
+            if (checkedId == -1) {
+                return;
+            }
+            selectRange(checkedId);
+            startLive();
+            showChart(tabLayout.getSelectedTabPosition());
         });
     }
     
-    private void loadChartData(int tabPosition, boolean is24Hours) {
-        List<Entry> entries = new ArrayList<>();
-        String label;
-        int color;
+    private void selectRange(int checkedId) {
+        long duration;
+        if (checkedId == R.id.radio24Hours) {
+            duration = DAY_MS;
+        } else if (checkedId == R.id.radio7Days) {
+            duration = 7 * DAY_MS;
+        } else if (checkedId == R.id.radio30Days) {
+            duration = 30 * DAY_MS;
+        } else {
+            duration = HOUR_MS;
+        }
+        rangeMs = duration;
+        rangeEnd = System.currentTimeMillis();
+        rangeStart = rangeEnd - duration;
+    }
+    
+    private void showAlertWindow(AlertRecord record) {
+        rangeStart = record.getTimestamp() - ALERT_WINDOW_MS;
+        rangeEnd = record.getTimestamp() + ALERT_WINDOW_MS;
+        rangeMs = 0;
+        stopLive();
+        timeRangeGroup.clearCheck();
         
-        // Generate sample data
-        int dataPoints = is24Hours ? 48 : 12; // 30min intervals for 24h, 5min for 1h
+        int tab = tabForAlert(record);
+        if (tab != tabLayout.getSelectedTabPosition() && tabLayout.getTabAt(tab) != null) {
+            // Selecting the tab reloads the chart with the new window
+            tabLayout.getTabAt(tab).select();
+        } else {
+            showChart(tabLayout.getSelectedTabPosition());
+        }
+    }
+    
+    private int tabForAlert(AlertRecord record) {
+        return tabForMetric(record.getMetric());
+    }
+    
+    private int tabForMetric(Metric metric) {
+        if (metric == Metric.BODY_TEMPERATURE) {
+            return TAB_TEMPERATURE;
+        } else if (metric == Metric.BLOOD_OXYGEN) {
+            return TAB_BLOOD_OXYGEN;
+        }
+        return TAB_HEART_RATE;
+    }
+    
+    private Metric metricForTab(int tabPosition) {
+        switch (tabPosition) {
+            case TAB_HEART_RATE:
+                return Metric.HEART_RATE;
+            case TAB_BLOOD_OXYGEN:
+                return Metric.BLOOD_OXYGEN;
+            case TAB_TEMPERATURE:
+                return Metric.BODY_TEMPERATURE;
+            default:
+                return null;
+        }
+    }
+    
+    private void showChart(int tabPosition) {
+        if (rangeMs > 0) {
+            showCachedChart(tabPosition);
+        } else {
+            loadChartData(tabPosition, rangeStart, rangeEnd);
+        }
+    }
+    
+    // Trailing windows come from ChartCache: a hit is drawn at once, a miss is read in the
+    // background and cached
+    private void showCachedChart(int tabPosition) {
+        Metric metric = metricForTab(tabPosition);
+        if (metric == null) {
+            return;
+        }
+        int generation = ++loadGeneration;
+        if (tabLiveData[tabPosition] != null && tabRangeMs[tabPosition] == rangeMs) {
+            chartOrigin = tabOrigin[tabPosition];
+            if (tabLiveData[tabPosition].getEntryCount() == 0) {
+                chart.clear();
+            } else {
+                chart.setData(tabLineData[tabPosition]);
+                chart.invalidate();
+            }
+            return;
+        }
+        Series cached = chartCache.peek(metric, rangeMs, System.currentTimeMillis());
+        if (cached != null) {
+            showSeries(tabPosition, cached);
+            return;
+        }
+        chartCache.load(metric, rangeMs).thenAccept(series -> runOnUiThread(() -> {
+            if (generation == loadGeneration && !isFinishing()) {
+                showSeries(tabPosition, series);
+            }
+        }));
+    }
+    
+    private void loadChartData(int tabPosition, long from, long to) {
+        Metric metric = metricForTab(tabPosition);
+        if (metric == null) {
+            return;
+        }
+        int generation = ++loadGeneration;
         
+        // Stored history is read off the main thread; stale results are dropped
+        queryExecutor.execute(() -> {
+            Series series;
+            try {
+                vitalsStore.sync();
+                series = vitalsQuery.query(metric, from, to, MAX_CHART_POINTS);
+            } catch (IOException e) {
+                Log.e(TAG, "Failed to query history: " + e.getMessage());
+                return;
+            }
+            runOnUiThread(() -> {
+                if (generation == loadGeneration && !isFinishing()) {
+                    showSeries(tabPosition, series);
+                }
+            });
+        });
+    }
+    
+    private void showSeries(int tabPosition, Series series) {
+        String label;
+        int color;
         switch (tabPosition) {
             case TAB_HEART_RATE:
                 label = getString(R.string.heart_rate);
                 color = getColor(R.color.chart_heart_rate);
-                for (int i = 0; i < dataPoints; i++) {
-                    entries.add(new Entry(i, 60 + (float)(Math.random() * 40)));
-                }
                 break;
             case TAB_BLOOD_OXYGEN:
                 label = getString(R.string.blood_oxygen);
                 color = getColor(R.color.chart_blood_oxygen);
-                for (int i = 0; i < dataPoints; i++) {
-                    entries.add(new Entry(i, 95 + (float)(Math.random() * 5)));
-                }
                 break;
             case TAB_TEMPERATURE:
                 label = getString(R.string.body_temperature);
                 color = getColor(R.color.chart_temperature);
-                for (int i = 0; i < dataPoints; i++) {
-                    entries.add(new Entry(i, 36.0f + (float)(Math.random() * 2)));
-                }
                 break;
             default:
                 return;
         }
         
-        LineDataSet dataSet = new LineDataSet(entries, label);
+        boolean live = rangeMs > 0;
+        if (series.size() == 0 && !live) {
+            chart.clear();
+            return;
+        }
+        chartOrigin = series.getFrom();
+        
+        long[] timestamps = series.getTimestamps();
+        float[] values = series.getValues();
+        List<Entry> entries = new ArrayList<>(series.size());
+        for (int i = 0; i < series.size(); i++) {
+            entries.add(new Entry((timestamps[i] - series.getFrom()) / 60000f, values[i]));
+        }
+        
+        LineDataSet dataSet;
+        if (live) {
+            // Room for the whole window plus the partial buckets at either end
+            int capacity = (int) (rangeMs / series.getBucketMs()) + 2;
+            dataSet = new SlidingLineDataSet(entries, label, capacity, rangeMs / 60000f);
+        } else {
+            dataSet = new LineDataSet(entries, label);
+        }
         dataSet.setColor(color);
         dataSet.setCircleColor(color);
         dataSet.setLineWidth(2f);
@@ -149,16 +444,217 @@ public class HistoryActivity extends AppCompatActivity {
         dataSet.setMode(LineDataSet.Mode.CUBIC_BEZIER);
         
         LineData lineData = new LineData(dataSet);
+        tabLineData[tabPosition] = lineData;
+        tabLiveData[tabPosition] = live ? (SlidingLineDataSet) dataSet : null;
+        tabRangeMs[tabPosition] = rangeMs;
+        tabOrigin[tabPosition] = chartOrigin;
+        if (series.size() == 0) {
+            chart.clear();
+            return;
+        }
         chart.setData(lineData);
         chart.invalidate();
     }
     
+    // Follows the cache's buckets for the checked range, for every tab
+    private void startLive() {
+        stopLive();
+        if (rangeMs == 0) {
+            return;
+        }
+        long range = rangeMs;
+        liveListener = (metric, bucketStart, bucketMs, mean) ->
+            runOnUiThread(() -> onLiveBucket(range, metric, bucketStart, mean));
+        chartCache.watch(range, liveListener);
+    }
+    
+    private void stopLive() {
+        if (liveListener != null) {
+            chartCache.unwatch(liveListener);
+            liveListener = null;
+        }
+    }
+    
+    // Puts a new or updated bucket into the tab's live data. Only the y bounds of the data set
+    // are refreshed, in constant time; the visible tab is redrawn and, if its newest point was
+    // in view, scrolled along so that it stays in view.
+    private void onLiveBucket(long range, Metric metric, long bucketStart, float mean) {
+        int tab = tabForMetric(metric);
+        SlidingLineDataSet dataSet = tabLiveData[tab];
+        if (range != rangeMs || dataSet == null || tabRangeMs[tab] != range || isFinishing()) {
+            return;
+        }
+        boolean visible = tab == tabLayout.getSelectedTabPosition();
+        boolean following = visible
+            && (dataSet.getEntryCount() == 0 || chart.getHighestVisibleX() >= dataSet.getXMax());
+        if (!dataSet.put((bucketStart - tabOrigin[tab]) / 60000f, mean) || !visible) {
+            return;
+        }
+        LineData lineData = tabLineData[tab];
+        if (chart.getData() != lineData) {
+            // First point of a window that was empty
+            chartOrigin = tabOrigin[tab];
+            chart.setData(lineData);
+        } else {
+            lineData.notifyDataChanged();
+            chart.notifyDataSetChanged();
+        }
+        if (following && !chart.isFullyZoomedOut()) {
+            chart.moveViewToX(dataSet.getXMax() - chart.getVisibleXRange());
+        }
+        chart.invalidate();
+    }
+    
+    private void chooseExportFormat() {
+        String[] formats = {
+            getString(R.string.export_format_csv),
+            getString(R.string.export_format_columnar)
+        };
+        new AlertDialog.Builder(this)
+            .setTitle(R.string.export_history)
+            .setItems(formats, (dialog, which) ->
+                startExport(which == 0 ? ExportFormat.CSV : ExportFormat.COLUMNAR))
+            .show();
+    }
+    
+    private void startExport(ExportFormat format) {
+        HistoryExporter exporter = new HistoryExporter(vitalsStore, alertStore);
+        activeExporter = exporter;
+        AlertDialog progressDialog = new AlertDialog.Builder(this)
+            .setTitle(R.string.export_history)
+            .setMessage(getString(R.string.export_progress, 0))
+            .setNegativeButton(R.string.cancel, (dialog, which) -> exporter.cancel())
+            .setCancelable(false)
+            .show();
+        
+        File baseDir = getExternalFilesDir(null);
+        File directory = new File(baseDir != null ? baseDir : getFilesDir(), "exports");
+        String baseName = "health_" + new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.US).format(new Date());
+        long from = rangeStart;
+        long to = rangeEnd;
+        
+        exportExecutor.execute(() -> exporter.export(from, to, format, directory, baseName,
+            new HistoryExporter.ProgressListener() {
+                @Override
+                public void onProgress(int percent) {
+                    runOnUiThread(() -> progressDialog.setMessage(getString(R.string.export_progress, percent)));
+                }
+                
+                @Override
+                public void onComplete(List<File> files) {
+                    finishExport(progressDialog, getString(R.string.export_done, directory.getAbsolutePath()));
+                }
+                
+                @Override
+                public void onCancelled() {
+                    finishExport(progressDialog, getString(R.string.export_cancelled));
+                }
+                
+                @Override
+                public void onError(String error) {
+                    finishExport(progressDialog, getString(R.string.export_failed, error));
+                }
+            }));
+    }
+    
+    private void chooseReportRange() {
+        String[] ranges = {getString(R.string.report_week), getString(R.string.report_month)};
+        new AlertDialog.Builder(this)
+            .setTitle(R.string.health_report)
+            .setItems(ranges, (dialog, which) -> showReport(ranges[which], which == 0 ? 7 * DAY_MS : 30 * DAY_MS))
+            .show();
+    }
+    
+    private void showReport(String title, long windowMs) {
+        AlertDialog progressDialog = new AlertDialog.Builder(this)
+            .setTitle(title)
+            .setMessage(R.string.report_progress)
+            .setCancelable(false)
+            .show();
+        long to = System.currentTimeMillis();
+        
+        // The analysis fans out over the fork-join pool; this thread only waits for it
+        exportExecutor.execute(() -> {
+            String message;
+            try {
+                vitalsStore.sync();
+                AnalyticsReport report = new HistoryAnalytics(vitalsStore).analyze(to - windowMs, to);
+                message = formatReport(report);
+            } catch (IOException e) {
+                Log.e(TAG, "Failed to analyze history: " + e.getMessage());
+                message = getString(R.string.report_failed, e.getMessage());
+            }
+            String summary = message;
+            runOnUiThread(() -> {
+                if (isFinishing()) {
+                    return;
+                }
+                progressDialog.dismiss();
+                new AlertDialog.Builder(this)
+                    .setTitle(title)
+                    .setMessage(summary)
+                    .setPositiveButton(android.R.string.ok, null)
+                    .show();
+            });
+        });
+    }
+    
+    private String formatReport(AnalyticsReport report) {
+        return getString(R.string.report_summary,
+            formatFigure(report.getAverageRestingHeartRate(), "%.0f"),
+            formatFigure(report.getRestingTrendPerWeek(), "%+.1f"),
+            report.getTotalSteps(),
+            report.getTotalActiveMinutes(),
+            report.getTotalDipEpisodes(),
+            formatFigure(report.getLowestSpo2(), "%.0f"),
+            formatFigure(report.getBodyVsEnvironmentTemperature(), "%.2f"),
+            formatFigure(report.getBodyVsHumidity(), "%.2f"),
+            formatFigure(report.getStepsVsActiveMinutes(), "%.2f"));
+    }
+    
+    // Figures without enough data behind them are NaN
+    private static String formatFigure(double value, String format) {
+        return Double.isNaN(value) ? "--" : String.format(Locale.getDefault(), format, value);
+    }
+    
+    private void finishExport(AlertDialog progressDialog, String message) {
+        runOnUiThread(() -> {
+            activeExporter = null;
+            if (!isFinishing()) {
+                progressDialog.dismiss();
+                Toast.makeText(this, message, Toast.LENGTH_LONG).show();
+            }
+        });
+    }
+    
+    @Override
+    public boolean onCreateOptionsMenu(Menu menu) {
+        getMenuInflater().inflate(R.menu.history_menu, menu);
+        return true;
+    }
+    
     @Override
     public boolean onOptionsItemSelected(MenuItem item) {
         if (item.getItemId() == android.R.id.home) {
             finish();
             return true;
+        } else if (item.getItemId() == R.id.action_export) {
+            chooseExportFormat();
+            return true;
+        } else if (item.getItemId() == R.id.action_report) {
+            chooseReportRange();
+            return true;
         }
         return super.onOptionsItemSelected(item);
     }
-}
+    
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (activeExporter != null) {
+            activeExporter.cancel();
+        }
+        queryExecutor.shutdownNow();
+        exportExecutor.shutdown();
+    }
+}
\ No newline at end of file
@@ -1,9 +1,15 @@
 package com.example.health_check_app;
 
+import android.content.BroadcastReceiver;
+import android.content.Context;
 import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.pm.ApplicationInfo;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.PowerManager;
+import android.util.Log;
 import android.view.MenuItem;
 import android.widget.ImageView;
 import android.widget.TextView;
@@ -11,40 +17,82 @@ import android.widget.Toast;
 import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.content.ContextCompat;
+import com.example.health_check_app.models.AlertRecord;
 import com.example.health_check_app.models.SensorData;
 import com.example.health_check_app.mqtt.MqttManager;
+import com.example.health_check_app.pipeline.SamplePipeline;
+import com.example.health_check_app.rules.Alert;
+import com.example.health_check_app.rules.AlertCooldown;
+import com.example.health_check_app.rules.BaselineModel;
+import com.example.health_check_app.rules.RuleEngine;
+import com.example.health_check_app.rules.SedentaryMonitor;
+import com.example.health_check_app.rules.StaleDataMonitor;
+import com.example.health_check_app.state.VitalsState;
+import com.example.health_check_app.storage.AlertStore;
+import com.example.health_check_app.storage.ChartCache;
+import com.example.health_check_app.storage.VitalsStore;
+import com.example.health_check_app.sync.HistoryUploader;
+import com.example.health_check_app.sync.UploadCheckpoint;
+import com.example.health_check_app.timer.TimerService;
+import com.example.health_check_app.trace.FlightRecorder;
+import com.example.health_check_app.trace.TraceEvent;
 import com.google.android.material.bottomnavigation.BottomNavigationView;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class MainActivity extends AppCompatActivity {
+    private static final String TAG = "MainActivity";
+    private static final long SYNC_INTERVAL_MS = 60 * 60 * 1000L;
+    // The device publishes every second; this much silence means the stream has stalled
+    private static final long STALE_DATA_MS = 15 * 1000L;
+    // The personal baseline is saved this often, about ten minutes of samples, and on pause
+    private static final int BASELINE_SAVE_SAMPLES = 600;
     
-    private TextView heartRateValue;
-    private TextView heartRateStatus;
-    private TextView bloodOxygenValue;
-    private TextView bodyTemperatureValue;
-    private TextView environmentTemperature;
-    private TextView environmentHumidity;
-    private TextView motionStatusValue;
-    private TextView stepsValue;
     private TextView connectionStatus;
     private ImageView connectionIcon;
-    private TextView batteryLevel;
     private ImageView heartRateIcon;
+    private DashboardRenderer dashboardRenderer;
     
     private FloatingActionButton startMeasureFab;
     private BottomNavigationView bottomNavigation;
     
-    private SensorData currentData;
+    private VitalsState vitalsState;
+    private VitalsState.Subscription vitalsSubscription;
     private boolean isConnected = false;
     private Handler uiUpdateHandler;
-    private Runnable uiUpdateRunnable;
+    private SedentaryMonitor sedentaryMonitor;
+    private StaleDataMonitor staleDataMonitor;
+    private AlertCooldown alertCooldown;
     
     private MqttManager mqttManager;
+    private VitalsStore vitalsStore;
+    private ChartCache chartCache;
+    private AlertStore alertStore;
+    private HistoryUploader historyUploader;
+    private String syncEndpoint = "";
+    private boolean recordingSession;
+    private SamplePipeline samplePipeline;
+    private BroadcastReceiver screenReceiver;
     
-    // Thresholds (will be loaded from preferences in SettingsActivity)
-    private int heartRateMaxThreshold = 100;
-    private float temperatureMaxThreshold = 37.3f;
+    private ConfigStore configStore;
+    private final ConfigStore.Listener configListener = this::applySettings;
     private boolean vibrationEnabled = true;
+    private final RuleEngine ruleEngine = new RuleEngine();
+    private BaselineModel baselineModel;
+    private File baselineFile;
+    private int samplesSinceBaselineSave;
+    private final ExecutorService baselineWriter = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "baseline-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -54,32 +102,47 @@ public class MainActivity extends AppCompatActivity {
         initializeViews();
         setupListeners();
         setupUIUpdater();
+        setupTimers();
+        setupBaseline();
+        setupSettings();
+        vitalsStore = VitalsStore.getInstance(this);
+        chartCache = ChartCache.getInstance(this);
+        alertStore = AlertStore.getInstance(this);
+        vitalsState = VitalsState.getInstance();
+        setupPipeline();
         setupMqtt();
+        applyHistorySync(configStore.get());
+        applySessionRecording(configStore.get());
         
-        // Initialize with default data
-        currentData = new SensorData();
-        updateUI(currentData);
+        // Initialize with the latest known data
+        dashboardRenderer.render(vitalsState.get());
+        
+        // Read the history charts once the dashboard is up, so the history screen opens from cache
+        Looper.myQueue().addIdleHandler(() -> {
+            HistoryActivity.prefetchCharts(this);
+            return false;
+        });
     }
     
     private void initializeViews() {
-        heartRateValue = findViewById(R.id.heartRateValue);
-        heartRateStatus = findViewById(R.id.heartRateStatus);
-        bloodOxygenValue = findViewById(R.id.bloodOxygenValue);
-        bodyTemperatureValue = findViewById(R.id.bodyTemperatureValue);
-        environmentTemperature = findViewById(R.id.environmentTemperature);
-        environmentHumidity = findViewById(R.id.environmentHumidity);
-        motionStatusValue = findViewById(R.id.motionStatusValue);
-        stepsValue = findViewById(R.id.stepsValue);
         connectionStatus = findViewById(R.id.connectionStatus);
         connectionIcon = findViewById(R.id.connectionIcon);
-        batteryLevel = findViewById(R.id.batteryLevel);
         heartRateIcon = findViewById(R.id.heartRateIcon);
+        dashboardRenderer = new DashboardRenderer(this, findViewById(R.id.main));
+        dashboardRenderer.setAllocationTracking(
+            (getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0);
         
         startMeasureFab = findViewById(R.id.startMeasureFab);
         bottomNavigation = findViewById(R.id.bottomNavigation);
     }
     
     private void setupListeners() {
+        // Long-press on the status dumps the flight recorder, for attaching to bug reports
+        connectionStatus.setOnLongClickListener(v -> {
+            dumpFlightRecorder("manual", true);
+            return true;
+        });
+        
         startMeasureFab.setOnClickListener(v -> {
             // Send command to microcontroller to start measurement
             startMeasurement();
@@ -92,6 +155,9 @@ public class MainActivity extends AppCompatActivity {
             } else if (itemId == R.id.nav_history) {
                 startActivity(new Intent(MainActivity.this, HistoryActivity.class));
                 return true;
+            } else if (itemId == R.id.nav_ward) {
+                startActivity(new Intent(MainActivity.this, WardActivity.class));
+                return true;
             } else if (itemId == R.id.nav_settings) {
                 startActivity(new Intent(MainActivity.this, SettingsActivity.class));
                 return true;
@@ -102,16 +168,75 @@ public class MainActivity extends AppCompatActivity {
     
     private void setupUIUpdater() {
         uiUpdateHandler = new Handler(Looper.getMainLooper());
-        uiUpdateRunnable = new Runnable() {
+    }
+    
+    // Periodic work runs on the shared timer wheel instead of polling the main thread
+    private void setupTimers() {
+        TimerService timers = TimerService.getInstance();
+        alertCooldown = new AlertCooldown(timers);
+        sedentaryMonitor = new SedentaryMonitor(timers, SedentaryMonitor.DEFAULT_LIMIT_MS,
+            minutes -> runOnUiThread(() -> showSedentaryReminder(minutes)));
+        staleDataMonitor = new StaleDataMonitor(timers, STALE_DATA_MS, new StaleDataMonitor.Listener() {
+            @Override
+            public void onStale(long silentMs) {
+                Log.w(TAG, "No sensor data for " + silentMs + " ms");
+                FlightRecorder.getInstance().record(TraceEvent.DATA_STALE, silentMs);
+                // Without samples there is no telling whether the wearer is still sitting
+                sedentaryMonitor.reset();
+                runOnUiThread(() -> showDataStale(true));
+            }
+            
+            @Override
+            public void onFresh() {
+                runOnUiThread(() -> showDataStale(false));
+            }
+        });
+    }
+    
+    private void setupBaseline() {
+        baselineModel = new BaselineModel(TimeZone.getDefault());
+        baselineFile = new File(getFilesDir(), "baseline.bin");
+        baselineWriter.execute(() -> {
+            try {
+                if (!baselineModel.load(baselineFile)) {
+                    Log.d(TAG, "Learning a new personal baseline");
+                }
+            } catch (IOException e) {
+                Log.e(TAG, "Failed to load personal baseline: " + e.getMessage());
+            }
+        });
+    }
+    
+    private void saveBaseline() {
+        baselineWriter.execute(() -> {
+            try {
+                baselineModel.save(baselineFile);
+            } catch (IOException e) {
+                Log.e(TAG, "Failed to save personal baseline: " + e.getMessage());
+            }
+        });
+    }
+    
+    // Samples arrive on MqttManager's ingest thread and are judged on the alerts lane; only
+    // raised alerts reach the UI thread. With the screen off the rest of the work is batched.
+    private void setupPipeline() {
+        samplePipeline = new SamplePipeline(ruleEngine, vitalsStore, chartCache, vitalsState,
+            TimerService.getInstance(), new File(getFilesDir(), "ingest-spill"),
+            (data, alerts) -> runOnUiThread(() -> handleAlerts(alerts)));
+        PowerManager powerManager = (PowerManager) getSystemService(POWER_SERVICE);
+        samplePipeline.setBatching(powerManager != null && !powerManager.isInteractive());
+        screenReceiver = new BroadcastReceiver() {
             @Override
-            public void run() {
-                // UI updates are now handled by MQTT callbacks
-                // This handler is kept for potential periodic updates
-                
-                // Schedule next update
-                uiUpdateHandler.postDelayed(this, 1000);
+            public void onReceive(Context context, Intent intent) {
+                boolean screenOff = Intent.ACTION_SCREEN_OFF.equals(intent.getAction());
+                Log.d(TAG, "Pipeline: " + samplePipeline.getStats());
+                Log.d(TAG, "Lanes:\n" + samplePipeline.getLaneStats());
+                samplePipeline.setBatching(screenOff);
             }
         };
+        IntentFilter filter = new IntentFilter(Intent.ACTION_SCREEN_OFF);
+        filter.addAction(Intent.ACTION_SCREEN_ON);
+        registerReceiver(screenReceiver, filter);
     }
     
     private void setupMqtt() {
@@ -144,19 +269,18 @@ public class MainActivity extends AppCompatActivity {
         mqttManager.setDataListener(new MqttManager.MqttDataListener() {
             @Override
             public void onSensorDataReceived(SensorData data) {
-                runOnUiThread(() -> {
-                    currentData = data;
-                    updateUI(data);
-                    checkThresholds(data);
-                });
+                staleDataMonitor.onSample();
+                sedentaryMonitor.onSample(data);
+                samplePipeline.onSample(data);
+                if (++samplesSinceBaselineSave >= BASELINE_SAVE_SAMPLES) {
+                    samplesSinceBaselineSave = 0;
+                    saveBaseline();
+                }
             }
             
             @Override
             public void onBatteryLevelReceived(int level) {
-                runOnUiThread(() -> {
-                    currentData.setBatteryLevel(level);
-                    batteryLevel.setText(String.format("%d%%", level));
-                });
+                vitalsState.publishBatteryLevel(level);
             }
         });
         
@@ -165,118 +289,130 @@ public class MainActivity extends AppCompatActivity {
         // mqttManager.connect("username", "password");
     }
     
-    private void startMeasurement() {
-        if (!isConnected) {
-            Toast.makeText(this, "设备未连接", Toast.LENGTH_SHORT).show();
+    // The uploader is rebuilt whenever the endpoint changes; an empty endpoint turns sync off
+    private synchronized void applyHistorySync(AppConfig config) {
+        String endpoint = config.getSyncEndpoint();
+        if (endpoint.equals(syncEndpoint)) {
             return;
         }
-        
-        Toast.makeText(this, "开始测量...", Toast.LENGTH_SHORT).show();
-        // Send MQTT command to microcontroller
-        mqttManager.publishCommand("START_MEASURE");
+        syncEndpoint = endpoint;
+        if (historyUploader != null) {
+            historyUploader.stop();
+            historyUploader = null;
+        }
+        if (endpoint.isEmpty()) {
+            return;
+        }
+        try {
+            historyUploader = new HistoryUploader(vitalsStore, new URL(endpoint),
+                new UploadCheckpoint(new File(getFilesDir(), "upload.checkpoint")));
+            historyUploader.start(SYNC_INTERVAL_MS);
+        } catch (MalformedURLException e) {
+            Log.e(TAG, "Invalid sync endpoint: " + endpoint);
+        }
     }
     
-    private void updateUI(SensorData data) {
-        // Heart Rate
-        if (data.getHeartRate() > 0) {
-            heartRateValue.setText(String.valueOf(data.getHeartRate()));
-            updateHeartRateStatus(data.getHeartRate());
-        } else {
-            heartRateValue.setText("--");
-        }
-        
-        // Blood Oxygen
-        if (data.getBloodOxygen() > 0) {
-            bloodOxygenValue.setText(String.valueOf(data.getBloodOxygen()));
-        } else {
-            bloodOxygenValue.setText("--");
+    // Each time recording is turned on it starts a new file
+    private synchronized void applySessionRecording(AppConfig config) {
+        boolean enabled = config.isSessionRecordingEnabled();
+        if (enabled == recordingSession) {
+            return;
         }
-        
-        // Body Temperature
-        if (data.getBodyTemperature() > 0) {
-            bodyTemperatureValue.setText(String.format("%.1f", data.getBodyTemperature()));
-        } else {
-            bodyTemperatureValue.setText("--");
+        recordingSession = enabled;
+        if (!enabled) {
+            mqttManager.stopRecording();
+            return;
         }
-        
-        // Environment
-        if (data.getEnvironmentTemperature() > 0) {
-            environmentTemperature.setText(String.format("%.1f°C", data.getEnvironmentTemperature()));
+        File file = new File(getFilesDir(), "recordings/session-" + System.currentTimeMillis() + ".hcsr");
+        try {
+            mqttManager.startRecording(file);
+        } catch (IOException e) {
+            Log.e(TAG, "Cannot record session: " + e.getMessage());
+            recordingSession = false;
         }
-        if (data.getHumidity() > 0) {
-            environmentHumidity.setText(String.format("%d%%", data.getHumidity()));
+    }
+    
+    private void startMeasurement() {
+        if (!isConnected) {
+            Toast.makeText(this, "设备未连接", Toast.LENGTH_SHORT).show();
+            return;
         }
         
-        // Motion Status
-        if (data.getMotionStatus() != null) {
-            switch (data.getMotionStatus()) {
-                case SEDENTARY:
-                    motionStatusValue.setText(R.string.sedentary);
-                    motionStatusValue.setTextColor(ContextCompat.getColor(this, R.color.text_primary));
+        Toast.makeText(this, "开始测量...", Toast.LENGTH_SHORT).show();
+        // Send MQTT command to microcontroller and wait for it to confirm
+        startMeasureFab.setEnabled(false);
+        mqttManager.sendCommand("START_MEASURE", MqttManager.DEFAULT_COMMAND_TIMEOUT_MS)
+            .whenComplete((result, error) -> runOnUiThread(() -> {
+                startMeasureFab.setEnabled(true);
+                if (error == null && result.isOk()) {
+                    Toast.makeText(this, getString(R.string.measure_started, result.getRoundTripMs()),
+                        Toast.LENGTH_SHORT).show();
+                } else {
+                    Toast.makeText(this, R.string.measure_failed, Toast.LENGTH_SHORT).show();
+                }
+            }));
+    }
+    
+    private void handleAlerts(List<Alert> alerts) {
+        for (Alert alert : alerts) {
+            alertStore.append(new AlertRecord(alert));
+            FlightRecorder recorder = FlightRecorder.getInstance();
+            int type = recorder.intern(alert.getType().name());
+            if (!alertCooldown.shouldRaise(alert)) {
+                recorder.record(TraceEvent.ALERT_SUPPRESSED, type, alert.getSeverity().ordinal());
+                continue;
+            }
+            recorder.record(TraceEvent.ALERT_RAISED, type, alert.getSeverity().ordinal());
+            // Keep what led up to the alert; the cooldown bounds how often this happens
+            dumpFlightRecorder("alert-" + alert.getType().name().toLowerCase(), false);
+            switch (alert.getType()) {
+                case FALL:
+                    showAlertDialog(getString(R.string.alert_title), getString(R.string.alert_fall));
                     break;
-                case WALKING:
-                    motionStatusValue.setText(R.string.walking);
-                    motionStatusValue.setTextColor(ContextCompat.getColor(this, R.color.status_normal));
+                case FEVER:
+                    showAlertDialog(getString(R.string.alert_title), getString(R.string.alert_fever));
                     break;
-                case FALL_DETECTED:
-                    motionStatusValue.setText(R.string.fall_detected);
-                    motionStatusValue.setTextColor(ContextCompat.getColor(this, R.color.status_danger));
+                case HIGH_HEART_RATE:
+                    showAlertDialog(getString(R.string.alert_title), getString(R.string.alert_high_heart_rate));
+                    break;
+                case UNUSUAL_HEART_RATE:
+                    showAlertDialog(getString(R.string.alert_title), getString(R.string.alert_unusual_heart_rate));
+                    break;
+                case UNUSUAL_TEMPERATURE:
+                    showAlertDialog(getString(R.string.alert_title), getString(R.string.alert_unusual_temperature));
                     break;
             }
-        }
-        
-        // Steps
-        stepsValue.setText(String.format("%d 步数", data.getSteps()));
-        
-        // Battery
-        if (data.getBatteryLevel() > 0) {
-            batteryLevel.setText(String.format("%d%%", data.getBatteryLevel()));
+            if (vibrationEnabled) {
+                vibratePhone();
+            }
+            // Send command to microcontroller to trigger buzzer
+            mqttManager.publishCommand(alert.getType().getCommand());
         }
     }
     
-    private void updateHeartRateStatus(int heartRate) {
-        if (heartRate < 60) {
-            heartRateStatus.setText(R.string.too_slow);
-            heartRateStatus.setTextColor(ContextCompat.getColor(this, R.color.status_warning));
-        } else if (heartRate > heartRateMaxThreshold) {
-            heartRateStatus.setText(R.string.too_fast);
-            heartRateStatus.setTextColor(ContextCompat.getColor(this, R.color.status_danger));
-        } else {
-            heartRateStatus.setText(R.string.normal);
-            heartRateStatus.setTextColor(ContextCompat.getColor(this, R.color.status_normal));
+    private void dumpFlightRecorder(String reason, boolean notify) {
+        File dir = new File(getFilesDir(), "flight");
+        FlightRecorder.getInstance().dumpAsync(dir, reason);
+        if (notify) {
+            Toast.makeText(this, getString(R.string.flight_dump_saved, dir.getPath()), Toast.LENGTH_LONG).show();
         }
     }
     
-    private void checkThresholds(SensorData data) {
-        // Check for fall detection
-        if (data.getMotionStatus() == SensorData.MotionStatus.FALL_DETECTED) {
-            showAlertDialog(getString(R.string.alert_title), getString(R.string.alert_fall));
-            if (vibrationEnabled) {
-                vibratePhone();
-            }
-            // Send command to microcontroller to trigger buzzer
-            mqttManager.publishCommand("ALARM_FALL");
+    private void showSedentaryReminder(long minutes) {
+        Toast.makeText(this, getString(R.string.sedentary_reminder_message, minutes), Toast.LENGTH_LONG).show();
+        if (vibrationEnabled) {
+            vibratePhone();
         }
-        
-        // Check for high temperature
-        if (data.getBodyTemperature() > temperatureMaxThreshold) {
-            showAlertDialog(getString(R.string.alert_title), getString(R.string.alert_fever));
-            if (vibrationEnabled) {
-                vibratePhone();
-            }
-            // Send command to microcontroller to trigger buzzer
-            mqttManager.publishCommand("ALARM_FEVER");
-        }
-        
-        // Check for high heart rate
-        if (data.getHeartRate() > heartRateMaxThreshold) {
-            showAlertDialog(getString(R.string.alert_title), getString(R.string.alert_high_heart_rate));
-            if (vibrationEnabled) {
-                vibratePhone();
-            }
-            // Send command to microcontroller to trigger buzzer
-            mqttManager.publishCommand("ALARM_HEART_RATE");
+    }
+    
+    private void showDataStale(boolean stale) {
+        if (!isConnected) {
+            return;
         }
+        connectionStatus.setText(stale ? R.string.data_stale : R.string.connected);
+        int color = ContextCompat.getColor(this, stale ? R.color.status_warning : R.color.status_connected);
+        connectionStatus.setTextColor(color);
+        connectionIcon.setColorFilter(color);
     }
     
     private void showAlertDialog(String title, String message) {
@@ -308,34 +444,65 @@ public class MainActivity extends AppCompatActivity {
         }
     }
     
-    private void loadSettings() {
-        android.content.SharedPreferences prefs = getSharedPreferences("HealthCheckSettings", MODE_PRIVATE);
-        heartRateMaxThreshold = prefs.getInt("heartRateMax", 100);
-        temperatureMaxThreshold = prefs.getFloat("temperatureMax", 37.3f);
-        vibrationEnabled = prefs.getBoolean("vibrationFeedback", true);
+    // Settings are pushed here the moment they change, not read again on resume
+    private void setupSettings() {
+        configStore = ConfigStore.getInstance(this);
+        applySettings(configStore.get());
+        configStore.addListener(configListener);
+    }
+    
+    // The rules take new limits from the next sample on, whichever thread delivers it
+    private void applySettings(AppConfig config) {
+        ruleEngine.setThresholds(config.getHeartRateMax(), config.getTemperatureMax());
+        ruleEngine.setBaseline(config.isPersonalBaselineEnabled() ? baselineModel : null);
+        sedentaryMonitor.setEnabled(config.isSedentaryReminderEnabled());
+        // Before onCreate has set up MQTT it applies the settings of that moment itself
+        if (mqttManager != null) {
+            applyHistorySync(config);
+            applySessionRecording(config);
+        }
+        runOnUiThread(() -> {
+            vibrationEnabled = config.isVibrationFeedbackEnabled();
+            dashboardRenderer.setHeartRateMax(config.getHeartRateMax());
+            if (vitalsState != null) {
+                dashboardRenderer.render(vitalsState.get());
+            }
+        });
     }
     
     @Override
     protected void onResume() {
         super.onResume();
         bottomNavigation.setSelectedItemId(R.id.nav_monitor);
-        loadSettings();
-        // Start UI updates
-        uiUpdateHandler.post(uiUpdateRunnable);
+        vitalsSubscription = vitalsState.subscribe(uiUpdateHandler::post, dashboardRenderer::render);
     }
     
     @Override
     protected void onPause() {
         super.onPause();
-        // Stop UI updates
-        uiUpdateHandler.removeCallbacks(uiUpdateRunnable);
+        vitalsSubscription.cancel();
+        Log.d(TAG, "Dashboard: " + dashboardRenderer.getStats());
+        dashboardRenderer.getStats().reset();
+        vitalsStore.flush();
+        saveBaseline();
     }
     
     @Override
     protected void onDestroy() {
         super.onDestroy();
+        configStore.removeListener(configListener);
+        sedentaryMonitor.reset();
+        staleDataMonitor.stop();
         if (mqttManager != null) {
-            mqttManager.disconnect();
+            mqttManager.close();
+        }
+        synchronized (this) {
+            if (historyUploader != null) {
+                historyUploader.stop();
+            }
         }
+        unregisterReceiver(screenReceiver);
+        samplePipeline.setBatching(false);
+        samplePipeline.close();
     }
 }
@@ -1,12 +1,15 @@
 package com.example.health_check_app;
 
 import android.os.Bundle;
+import android.text.format.Formatter;
 import android.view.MenuItem;
 import android.widget.Button;
 import android.widget.SeekBar;
 import android.widget.TextView;
 import android.widget.Toast;
 import androidx.appcompat.app.AppCompatActivity;
+import com.example.health_check_app.storage.Tier;
+import com.example.health_check_app.storage.VitalsStore;
 import com.google.android.material.switchmaterial.SwitchMaterial;
 
 public class SettingsActivity extends AppCompatActivity {
@@ -19,7 +22,10 @@ public class SettingsActivity extends AppCompatActivity {
     private TextView temperatureMaxValue;
     private SwitchMaterial sedentaryReminderSwitch;
     private SwitchMaterial vibrationFeedbackSwitch;
+    private SwitchMaterial personalBaselineSwitch;
+    private TextView storageUsageValue;
     
+    private AppConfig config;
     private int heartRateMax = 100;
     private float temperatureMax = 37.3f;
 
@@ -33,9 +39,11 @@ public class SettingsActivity extends AppCompatActivity {
             getSupportActionBar().setDisplayHomeAsUpEnabled(true);
         }
         
+        config = new AppConfig(this);
         initializeViews();
-        setupListeners();
         loadSettings();
+        setupListeners();
+        showStorageUsage();
     }
     
     private void initializeViews() {
@@ -47,6 +55,8 @@ public class SettingsActivity extends AppCompatActivity {
         temperatureMaxValue = findViewById(R.id.temperatureMaxValue);
         sedentaryReminderSwitch = findViewById(R.id.sedentaryReminderSwitch);
         vibrationFeedbackSwitch = findViewById(R.id.vibrationFeedbackSwitch);
+        personalBaselineSwitch = findViewById(R.id.personalBaselineSwitch);
+        storageUsageValue = findViewById(R.id.storageUsageValue);
     }
     
     private void setupListeners() {
@@ -67,15 +77,17 @@ public class SettingsActivity extends AppCompatActivity {
             public void onProgressChanged(SeekBar seekBar, int progress, boolean fromUser) {
                 heartRateMax = progress + 60; // Min value 60
                 heartRateMaxValue.setText(String.valueOf(heartRateMax));
+                // Applies while dragging; ConfigStore writes it once the slider settles
+                if (fromUser) {
+                    config.setHeartRateMax(heartRateMax);
+                }
             }
             
             @Override
             public void onStartTrackingTouch(SeekBar seekBar) {}
             
             @Override
-            public void onStopTrackingTouch(SeekBar seekBar) {
-                saveSettings();
-            }
+            public void onStopTrackingTouch(SeekBar seekBar) {}
         });
         
         temperatureMaxSeekBar.setOnSeekBarChangeListener(new SeekBar.OnSeekBarChangeListener() {
@@ -83,38 +95,43 @@ public class SettingsActivity extends AppCompatActivity {
             public void onProgressChanged(SeekBar seekBar, int progress, boolean fromUser) {
                 temperatureMax = 35.0f + (progress / 10.0f); // Min 35.0, increments of 0.1
                 temperatureMaxValue.setText(String.format("%.1f", temperatureMax));
+                if (fromUser) {
+                    config.setTemperatureMax(temperatureMax);
+                }
             }
             
             @Override
             public void onStartTrackingTouch(SeekBar seekBar) {}
             
             @Override
-            public void onStopTrackingTouch(SeekBar seekBar) {
-                saveSettings();
-            }
+            public void onStopTrackingTouch(SeekBar seekBar) {}
         });
         
         sedentaryReminderSwitch.setOnCheckedChangeListener((buttonView, isChecked) -> {
-            saveSettings();
+            config.setSedentaryReminderEnabled(isChecked);
             Toast.makeText(this, 
                 isChecked ? "久坐提醒已开启" : "久坐提醒已关闭", 
                 Toast.LENGTH_SHORT).show();
         });
         
         vibrationFeedbackSwitch.setOnCheckedChangeListener((buttonView, isChecked) -> {
-            saveSettings();
+            config.setVibrationFeedbackEnabled(isChecked);
             Toast.makeText(this, 
                 isChecked ? "震动反馈已开启" : "震动反馈已关闭", 
                 Toast.LENGTH_SHORT).show();
         });
+        
+        personalBaselineSwitch.setOnCheckedChangeListener((buttonView, isChecked) -> {
+            config.setPersonalBaselineEnabled(isChecked);
+            Toast.makeText(this, 
+                isChecked ? "个人基线警报已开启" : "个人基线警报已关闭", 
+                Toast.LENGTH_SHORT).show();
+        });
     }
     
     private void loadSettings() {
-        // Load from SharedPreferences
-        android.content.SharedPreferences prefs = getSharedPreferences("HealthCheckSettings", MODE_PRIVATE);
-        
-        heartRateMax = prefs.getInt("heartRateMax", 100);
-        temperatureMax = prefs.getFloat("temperatureMax", 37.3f);
+        heartRateMax = config.getHeartRateMax();
+        temperatureMax = config.getTemperatureMax();
         
         heartRateMaxSeekBar.setProgress(heartRateMax - 60);
         temperatureMaxSeekBar.setProgress((int)((temperatureMax - 35.0f) * 10));
@@ -122,20 +139,23 @@ public class SettingsActivity extends AppCompatActivity {
         heartRateMaxValue.setText(String.valueOf(heartRateMax));
         temperatureMaxValue.setText(String.format("%.1f", temperatureMax));
         
-        sedentaryReminderSwitch.setChecked(prefs.getBoolean("sedentaryReminder", false));
-        vibrationFeedbackSwitch.setChecked(prefs.getBoolean("vibrationFeedback", true));
+        sedentaryReminderSwitch.setChecked(config.isSedentaryReminderEnabled());
+        vibrationFeedbackSwitch.setChecked(config.isVibrationFeedbackEnabled());
+        personalBaselineSwitch.setChecked(config.isPersonalBaselineEnabled());
     }
     
-    private void saveSettings() {
-        android.content.SharedPreferences prefs = getSharedPreferences("HealthCheckSettings", MODE_PRIVATE);
-        android.content.SharedPreferences.Editor editor = prefs.edit();
-        
-        editor.putInt("heartRateMax", heartRateMax);
-        editor.putFloat("temperatureMax", temperatureMax);
-        editor.putBoolean("sedentaryReminder", sedentaryReminderSwitch.isChecked());
-        editor.putBoolean("vibrationFeedback", vibrationFeedbackSwitch.isChecked());
-        
-        editor.apply();
+    @Override
+    protected void onPause() {
+        super.onPause();
+        ConfigStore.getInstance(this).flush();
+    }
+    
+    private void showStorageUsage() {
+        VitalsStore store = VitalsStore.getInstance(this);
+        storageUsageValue.setText(getString(R.string.storage_usage,
+            Formatter.formatShortFileSize(this, store.getUsage(Tier.RAW).getBytes()),
+            Formatter.formatShortFileSize(this, store.getUsage(Tier.MINUTE).getBytes()),
+            Formatter.formatShortFileSize(this, store.getUsage(Tier.DAILY).getBytes())));
     }
     
     @Override
@@ -0,0 +1,157 @@
+package com.example.health_check_app;
+
+import com.github.mikephil.charting.data.Entry;
+import com.github.mikephil.charting.data.LineDataSet;
+import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.RandomAccess;
+
+// Line data for a trailing window that new points are appended to while it is on screen.
+// Entries live in a fixed-capacity ring; each new point drops those older than the window,
+// or the oldest once the ring is full. The stock data set rescans every entry for its bounds
+// whenever one is removed, so here the y bounds are kept by monotonic queues of the entries
+// before the last one (the last is an open bucket whose mean still moves), making an append
+// or an update O(1) amortized. Call from the UI thread.
+public class SlidingLineDataSet extends LineDataSet {
+    private final EntryRing entries;
+    private final float windowX;
+    // Candidates for the minimum and maximum, oldest first, with rising and falling y
+    private ArrayDeque<Entry> lows;
+    private ArrayDeque<Entry> highs;
+    
+    // windowX is the window's width in x units; entries must be in rising x
+    public SlidingLineDataSet(List<Entry> initial, String label, int capacity, float windowX) {
+        this(new EntryRing(Math.max(capacity, initial.size())), label, windowX);
+        for (Entry entry : initial) {
+            put(entry.getX(), entry.getY());
+        }
+    }
+    
+    private SlidingLineDataSet(EntryRing entries, String label, float windowX) {
+        super(entries, label);
+        this.entries = entries;
+        this.windowX = windowX;
+        lows = new ArrayDeque<>();
+        highs = new ArrayDeque<>();
+    }
+    
+    // Appends a point past the last one, or moves the last one if x is the same. Returns
+    // false, changing nothing, for a point before the last.
+    public boolean put(float x, float y) {
+        int size = entries.size();
+        if (size > 0) {
+            Entry last = entries.get(size - 1);
+            if (x < last.getX()) {
+                return false;
+            }
+            if (x == last.getX()) {
+                last.setY(y);
+                calcMinMax();
+                return true;
+            }
+            close(last);
+        }
+        while (entries.size() > 0
+                && (entries.size() == entries.capacity() || entries.get(0).getX() < x - windowX)) {
+            Entry dropped = entries.removeFirst();
+            if (lows.peekFirst() == dropped) {
+                lows.pollFirst();
+            }
+            if (highs.peekFirst() == dropped) {
+                highs.pollFirst();
+            }
+        }
+        entries.add(new Entry(x, y));
+        calcMinMax();
+        return true;
+    }
+    
+    // The last entry is final once one comes after it
+    private void close(Entry entry) {
+        while (!lows.isEmpty() && lows.peekLast().getY() >= entry.getY()) {
+            lows.pollLast();
+        }
+        lows.addLast(entry);
+        while (!highs.isEmpty() && highs.peekLast().getY() <= entry.getY()) {
+            highs.pollLast();
+        }
+        highs.addLast(entry);
+    }
+    
+    @Override
+    public void calcMinMax() {
+        // The base constructor asks before the queues exist, for an empty ring
+        if (lows == null || entries.isEmpty()) {
+            super.calcMinMax();
+            return;
+        }
+        Entry last = entries.get(entries.size() - 1);
+        mYMin = lows.isEmpty() ? last.getY() : Math.min(lows.peekFirst().getY(), last.getY());
+        mYMax = highs.isEmpty() ? last.getY() : Math.max(highs.peekFirst().getY(), last.getY());
+        mXMin = entries.get(0).getX();
+        mXMax = last.getX();
+    }
+    
+    @Override
+    public void clear() {
+        lows.clear();
+        highs.clear();
+        super.clear();
+    }
+    
+    // Fixed-capacity list of entries, oldest first, with O(1) access at both ends
+    private static final class EntryRing extends AbstractList<Entry> implements RandomAccess {
+        private final Entry[] slots;
+        private int start;
+        private int size;
+        
+        EntryRing(int capacity) {
+            slots = new Entry[Math.max(1, capacity)];
+        }
+        
+        int capacity() {
+            return slots.length;
+        }
+        
+        @Override
+        public Entry get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index " + index + ", size " + size);
+            }
+            return slots[(start + index) % slots.length];
+        }
+        
+        @Override
+        public int size() {
+            return size;
+        }
+        
+        @Override
+        public boolean add(Entry entry) {
+            if (size == slots.length) {
+                throw new IllegalStateException("Ring is full");
+            }
+            slots[(start + size++) % slots.length] = entry;
+            modCount++;
+            return true;
+        }
+        
+        Entry removeFirst() {
+            Entry first = slots[start];
+            slots[start] = null;
+            start = (start + 1) % slots.length;
+            size--;
+            modCount++;
+            return first;
+        }
+        
+        @Override
+        public void clear() {
+            while (size > 0) {
+                removeFirst();
+            }
+            start = 0;
+        }
+    }
+}
\ No newline at end of file
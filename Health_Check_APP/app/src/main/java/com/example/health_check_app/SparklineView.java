@@ -0,0 +1,174 @@
+package com.example.health_check_app;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.util.AttributeSet;
+import android.view.View;
+
+// Trend line of the last readings of one vital for a dashboard card. Readings go into a float
+// ring in O(1) and the view is invalidated at most once per frame, however fast they come; the
+// line is rebuilt in one reused Path when drawn, scaled to the range it shows. With more
+// readings than pixel columns each column is drawn as the range of its readings. Nothing is
+// allocated after construction. Call from the UI thread.
+public class SparklineView extends View {
+    public static final int DEFAULT_CAPACITY = 300;
+    
+    private final Paint linePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Path path = new Path();
+    private FloatRing readings = new FloatRing(DEFAULT_CAPACITY);
+    // Keeps a flat line from filling the height with noise, in the vital's units
+    private float minSpan = 1f;
+    private boolean invalidatePending;
+    private FrameStats stats;
+    
+    public SparklineView(Context context) {
+        this(context, null);
+    }
+    
+    public SparklineView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        linePaint.setStyle(Paint.Style.STROKE);
+        linePaint.setStrokeWidth(2f * getResources().getDisplayMetrics().density);
+        linePaint.setStrokeJoin(Paint.Join.ROUND);
+        linePaint.setStrokeCap(Paint.Cap.ROUND);
+    }
+    
+    public void setLineColor(int color) {
+        linePaint.setColor(color);
+        invalidate();
+    }
+    
+    public void setCapacity(int capacity) {
+        if (capacity != readings.capacity()) {
+            readings = new FloatRing(capacity);
+            invalidate();
+        }
+    }
+    
+    public void setMinSpan(float minSpan) {
+        this.minSpan = minSpan;
+    }
+    
+    // Draw times are added to the dashboard's frame counters
+    void setStats(FrameStats stats) {
+        this.stats = stats;
+    }
+    
+    public void add(float value) {
+        readings.add(value);
+        requestFrame();
+    }
+    
+    // Breaks the line, e.g. while the sensor has no reading
+    public void addGap() {
+        readings.add(Float.NaN);
+        requestFrame();
+    }
+    
+    public void clear() {
+        readings.clear();
+        requestFrame();
+    }
+    
+    private void requestFrame() {
+        if (!invalidatePending) {
+            invalidatePending = true;
+            postInvalidateOnAnimation();
+        }
+    }
+    
+    @Override
+    protected void onDraw(Canvas canvas) {
+        invalidatePending = false;
+        long started = System.nanoTime();
+        int count = readings.size();
+        float min = Float.POSITIVE_INFINITY;
+        float max = Float.NEGATIVE_INFINITY;
+        for (int i = 0; i < count; i++) {
+            float value = readings.get(i);
+            if (value < min) {
+                min = value;
+            }
+            if (value > max) {
+                max = value;
+            }
+        }
+        if (min > max) {
+            // Nothing but gaps (NaN compares false)
+            return;
+        }
+        if (max - min < minSpan) {
+            float middle = (min + max) / 2;
+            min = middle - minSpan / 2;
+            max = middle + minSpan / 2;
+        }
+        
+        float inset = linePaint.getStrokeWidth();
+        float left = getPaddingLeft() + inset;
+        float top = getPaddingTop() + inset;
+        float width = getWidth() - getPaddingRight() - inset - left;
+        float height = getHeight() - getPaddingBottom() - inset - top;
+        // The newest reading sits at the right edge; a ring that is not full yet starts midway
+        float step = width / Math.max(1, readings.capacity() - 1);
+        float x0 = left + (readings.capacity() - count) * step;
+        float scale = height / (max - min);
+        
+        path.rewind();
+        boolean drawing = false;
+        int columns = Math.max(1, (int) width);
+        if (count <= columns) {
+            for (int i = 0; i < count; i++) {
+                float value = readings.get(i);
+                if (Float.isNaN(value)) {
+                    drawing = false;
+                    continue;
+                }
+                float x = x0 + i * step;
+                float y = top + (max - value) * scale;
+                if (drawing) {
+                    path.lineTo(x, y);
+                } else {
+                    path.moveTo(x, y);
+                    drawing = true;
+                }
+            }
+        } else {
+            // One vertical stroke per pixel column spanning its readings
+            int i = 0;
+            while (i < count) {
+                float x = x0 + i * step;
+                int column = (int) (x - left);
+                float low = Float.POSITIVE_INFINITY;
+                float high = Float.NEGATIVE_INFINITY;
+                for (; i < count && (int) (x0 + i * step - left) == column; i++) {
+                    float value = readings.get(i);
+                    if (value < low) {
+                        low = value;
+                    }
+                    if (value > high) {
+                        high = value;
+                    }
+                }
+                if (low > high) {
+                    drawing = false;
+                    continue;
+                }
+                float yHigh = top + (max - high) * scale;
+                float yLow = top + (max - low) * scale;
+                if (drawing) {
+                    path.lineTo(x, yHigh);
+                } else {
+                    path.moveTo(x, yHigh);
+                    drawing = true;
+                }
+                path.lineTo(x, yLow);
+            }
+        }
+        canvas.drawPath(path, linePaint);
+        if (stats != null) {
+            stats.onSparklineDraw(System.nanoTime() - started);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,96 @@
+package com.example.health_check_app;
+
+import android.widget.TextView;
+
+// A TextView with the value it currently shows and a reusable text buffer
+final class TextField {
+    static final long UNSET = Long.MIN_VALUE;
+    // Shown key for the "--" placeholder
+    static final long MISSING = UNSET + 1;
+    private static final char[] PLACEHOLDER = {'-', '-'};
+    
+    final TextView view;
+    final char[] buffer = new char[32];
+    int length;
+    long shown = UNSET;
+    
+    TextField(TextView view) {
+        this.view = view;
+    }
+    
+    void append(char c) {
+        buffer[length++] = c;
+    }
+    
+    void append(char[] chars) {
+        for (char c : chars) {
+            buffer[length++] = c;
+        }
+    }
+    
+    // Digits are taken from the negative side so Long.MIN_VALUE needs no special case
+    void appendInt(long value) {
+        if (value < 0) {
+            append('-');
+        }
+        int start = length;
+        do {
+            buffer[length++] = (char) ('0' + Math.abs(value % 10));
+            value /= 10;
+        } while (value != 0);
+        // Digits were written least significant first
+        for (int i = start, j = length - 1; i < j; i++, j--) {
+            char c = buffer[i];
+            buffer[i] = buffer[j];
+            buffer[j] = c;
+        }
+    }
+    
+    // One decimal place, like "%.1f" of tenths / 10
+    void appendTenths(long tenths) {
+        if (tenths < 0) {
+            append('-');
+        }
+        appendInt(Math.abs(tenths / 10));
+        append('.');
+        append((char) ('0' + Math.abs(tenths % 10)));
+    }
+    
+    void setInt(long value, char[] suffix) {
+        length = 0;
+        appendInt(value);
+        if (suffix != null) {
+            append(suffix);
+        }
+    }
+    
+    void setTenths(long tenths, char[] suffix) {
+        length = 0;
+        appendTenths(tenths);
+        if (suffix != null) {
+            append(suffix);
+        }
+    }
+    
+    void setMissing() {
+        length = 0;
+        append(PLACEHOLDER);
+    }
+    
+    // Rounds half away from zero, as "%.1f" does; value * 10 is exact in a double
+    static long toTenths(float value) {
+        long tenths = Math.round(Math.abs(value * 10.0));
+        return value < 0 ? -tenths : tenths;
+    }
+    
+    // TextView keeps wrapping the same buffer, so this does not copy or allocate
+    void publish(long key) {
+        shown = key;
+        view.setText(buffer, 0, length);
+    }
+    
+    @Override
+    public String toString() {
+        return new String(buffer, 0, length);
+    }
+}
\ No newline at end of file
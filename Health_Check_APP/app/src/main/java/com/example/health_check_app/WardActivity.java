@@ -0,0 +1,124 @@
+package com.example.health_check_app;
+
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.view.Choreographer;
+import android.view.MenuItem;
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.recyclerview.widget.GridLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.recyclerview.widget.SimpleItemAnimator;
+import com.example.health_check_app.models.SensorData;
+import com.example.health_check_app.rules.RuleEngine;
+import com.example.health_check_app.ward.SimulatedFleet;
+import com.example.health_check_app.ward.WardModel;
+import com.example.health_check_app.ward.WardUpdateQueue;
+
+// Caregiver view with one tile per resident. Samples from every device are conflated in a
+// WardUpdateQueue and applied once per frame, within a time budget, from a Choreographer
+// callback; whatever does not fit is left for the next frame rather than delaying this one.
+public class WardActivity extends AppCompatActivity {
+    private static final String TAG = "WardActivity";
+    
+    private static final int FLEET_SIZE = 200;
+    private static final int TILE_MIN_WIDTH_DP = 120;
+    // Leaves most of a 60 Hz frame for RecyclerView's own layout and binding
+    private static final long FRAME_BUDGET_NANOS = 4_000_000L;
+    
+    private final Handler uiHandler = new Handler(Looper.getMainLooper());
+    private final WardModel model = new WardModel();
+    private final RuleEngine ruleEngine = new RuleEngine();
+    private final FrameStats stats = new FrameStats();
+    private final WardUpdateQueue.Consumer applySample = this::applySample;
+    private WardUpdateQueue updates;
+    private SimulatedFleet fleet;
+    private WardAdapter adapter;
+    private boolean frameScheduled;
+    private int appliedThisFrame;
+    
+    private final Choreographer.FrameCallback frameCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            frameScheduled = false;
+            long started = System.nanoTime();
+            appliedThisFrame = 0;
+            boolean drained = updates.drain(applySample, started + FRAME_BUDGET_NANOS);
+            // Devices left for the next frame are reported as skipped
+            stats.onFrame(System.nanoTime() - started, appliedThisFrame, drained ? 0 : updates.size());
+            if (!drained) {
+                scheduleFrame();
+            }
+        }
+    };
+    
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_ward);
+        
+        if (getSupportActionBar() != null) {
+            getSupportActionBar().setDisplayHomeAsUpEnabled(true);
+        }
+        
+        AppConfig config = new AppConfig(this);
+        ruleEngine.setThresholds(config.getHeartRateMax(), config.getTemperatureMax());
+        
+        RecyclerView grid = findViewById(R.id.wardGrid);
+        int columns = Math.max(2, getResources().getConfiguration().screenWidthDp / TILE_MIN_WIDTH_DP);
+        grid.setLayoutManager(new GridLayoutManager(this, columns));
+        grid.setHasFixedSize(true);
+        // Vitals change every second; cross-fading each change would redraw tiles twice
+        RecyclerView.ItemAnimator animator = grid.getItemAnimator();
+        if (animator instanceof SimpleItemAnimator) {
+            ((SimpleItemAnimator) animator).setSupportsChangeAnimations(false);
+        }
+        adapter = new WardAdapter(this, model);
+        model.setListener(adapter);
+        grid.setAdapter(adapter);
+        
+        updates = new WardUpdateQueue(() -> uiHandler.post(this::scheduleFrame));
+        fleet = new SimulatedFleet(FLEET_SIZE, System.currentTimeMillis(), updates::offer);
+    }
+    
+    private void scheduleFrame() {
+        if (!frameScheduled) {
+            frameScheduled = true;
+            Choreographer.getInstance().postFrameCallback(frameCallback);
+        }
+    }
+    
+    private void applySample(String deviceId, SensorData data) {
+        model.apply(deviceId, data, !ruleEngine.evaluate(data).isEmpty());
+        appliedThisFrame++;
+    }
+    
+    @Override
+    protected void onResume() {
+        super.onResume();
+        stats.reset();
+        fleet.start();
+    }
+    
+    @Override
+    protected void onPause() {
+        super.onPause();
+        fleet.stop();
+        Choreographer.getInstance().removeFrameCallback(frameCallback);
+        frameScheduled = false;
+        updates.clear();
+        Log.d(TAG, "Ward frames: " + stats + " conflated=" + updates.getConflatedCount()
+            + " fullBinds=" + adapter.getFullBinds() + " partialBinds=" + adapter.getPartialBinds()
+            + " alerting=" + model.getAlertCount() + "/" + model.size());
+    }
+    
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+        if (item.getItemId() == android.R.id.home) {
+            finish();
+            return true;
+        }
+        return super.onOptionsItemSelected(item);
+    }
+}
\ No newline at end of file
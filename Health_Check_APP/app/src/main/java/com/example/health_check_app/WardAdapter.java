@@ -0,0 +1,167 @@
+package com.example.health_check_app;
+
+import android.content.Context;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+import androidx.annotation.NonNull;
+import androidx.cardview.widget.CardView;
+import androidx.core.content.ContextCompat;
+import androidx.recyclerview.widget.RecyclerView;
+import com.example.health_check_app.models.SensorData;
+import com.example.health_check_app.ward.PatientTile;
+import com.example.health_check_app.ward.WardModel;
+import java.util.List;
+
+// Patient tiles for the ward grid. Model changes are forwarded with the tile's change mask
+// as payload, so a rebind only touches the views of vitals that actually changed.
+public class WardAdapter extends RecyclerView.Adapter<WardAdapter.ViewHolder> implements WardModel.Listener {
+    private static final char[] BPM = {' ', 'B', 'P', 'M'};
+    private static final char[] PERCENT = {'%'};
+    private static final char[] CELSIUS = {'°', 'C'};
+    
+    private final WardModel model;
+    private final int colorNormal;
+    private final int colorDanger;
+    private final int colorTextPrimary;
+    private final int colorCard;
+    private final int colorCardAlert;
+    private final String sedentary;
+    private final String walking;
+    private final String fallDetected;
+    private long fullBinds;
+    private long partialBinds;
+    
+    public WardAdapter(Context context, WardModel model) {
+        this.model = model;
+        colorNormal = ContextCompat.getColor(context, R.color.status_normal);
+        colorDanger = ContextCompat.getColor(context, R.color.status_danger);
+        colorTextPrimary = ContextCompat.getColor(context, R.color.text_primary);
+        colorCard = ContextCompat.getColor(context, R.color.card_background);
+        colorCardAlert = ContextCompat.getColor(context, R.color.tile_alert_background);
+        sedentary = context.getString(R.string.sedentary);
+        walking = context.getString(R.string.walking);
+        fallDetected = context.getString(R.string.fall_detected);
+        setHasStableIds(true);
+    }
+    
+    @Override
+    public long getItemId(int position) {
+        return model.get(position).getId();
+    }
+    
+    @Override
+    public int getItemCount() {
+        return model.size();
+    }
+    
+    @NonNull
+    @Override
+    public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext())
+            .inflate(R.layout.item_patient_tile, parent, false);
+        return new ViewHolder(view);
+    }
+    
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+        fullBinds++;
+        PatientTile tile = model.get(position);
+        holder.name.setText(tile.getDeviceId());
+        bind(holder, tile, PatientTile.CHANGED_ALL);
+    }
+    
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.isEmpty()) {
+            onBindViewHolder(holder, position);
+            return;
+        }
+        // Several changes to the same tile between layouts arrive as separate payloads
+        int changes = 0;
+        for (int i = 0; i < payloads.size(); i++) {
+            changes |= (Integer) payloads.get(i);
+        }
+        partialBinds++;
+        bind(holder, model.get(position), changes);
+    }
+    
+    private void bind(ViewHolder holder, PatientTile tile, int changes) {
+        if ((changes & PatientTile.CHANGED_HEART_RATE) != 0) {
+            TextField field = holder.heartRate;
+            field.setInt(tile.getHeartRate(), BPM);
+            field.publish(tile.getHeartRate());
+        }
+        if ((changes & PatientTile.CHANGED_BLOOD_OXYGEN) != 0) {
+            TextField field = holder.bloodOxygen;
+            field.setInt(tile.getBloodOxygen(), PERCENT);
+            field.publish(tile.getBloodOxygen());
+        }
+        if ((changes & PatientTile.CHANGED_TEMPERATURE) != 0) {
+            TextField field = holder.temperature;
+            field.setTenths(tile.getTemperatureTenths(), CELSIUS);
+            field.publish(tile.getTemperatureTenths());
+        }
+        if ((changes & PatientTile.CHANGED_MOTION) != 0) {
+            SensorData.MotionStatus status = tile.getMotionStatus();
+            if (status == SensorData.MotionStatus.FALL_DETECTED) {
+                holder.motion.setText(fallDetected);
+                holder.motion.setTextColor(colorDanger);
+            } else if (status == SensorData.MotionStatus.WALKING) {
+                holder.motion.setText(walking);
+                holder.motion.setTextColor(colorNormal);
+            } else {
+                holder.motion.setText(sedentary);
+                holder.motion.setTextColor(colorTextPrimary);
+            }
+        }
+        if ((changes & PatientTile.CHANGED_ALERT) != 0) {
+            holder.card.setCardBackgroundColor(tile.isAlerting() ? colorCardAlert : colorCard);
+            holder.name.setTextColor(tile.isAlerting() ? colorDanger : colorTextPrimary);
+        }
+    }
+    
+    // Integer.valueOf caches small values, so masks below 128 are passed without allocating
+    @Override
+    public void onTileChanged(int position, int changes) {
+        notifyItemChanged(position, changes);
+    }
+    
+    @Override
+    public void onTileMoved(int from, int to) {
+        notifyItemMoved(from, to);
+    }
+    
+    @Override
+    public void onTileInserted(int position) {
+        notifyItemInserted(position);
+    }
+    
+    public long getFullBinds() {
+        return fullBinds;
+    }
+    
+    public long getPartialBinds() {
+        return partialBinds;
+    }
+    
+    static class ViewHolder extends RecyclerView.ViewHolder {
+        final CardView card;
+        final TextView name;
+        final TextField heartRate;
+        final TextField bloodOxygen;
+        final TextField temperature;
+        final TextView motion;
+        
+        ViewHolder(View itemView) {
+            super(itemView);
+            card = (CardView) itemView;
+            name = itemView.findViewById(R.id.tileName);
+            heartRate = new TextField(itemView.findViewById(R.id.tileHeartRate));
+            bloodOxygen = new TextField(itemView.findViewById(R.id.tileBloodOxygen));
+            temperature = new TextField(itemView.findViewById(R.id.tileTemperature));
+            motion = itemView.findViewById(R.id.tileMotion);
+        }
+    }
+}
\ No newline at end of file
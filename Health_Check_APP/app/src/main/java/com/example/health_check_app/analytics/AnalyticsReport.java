@@ -0,0 +1,158 @@
+package com.example.health_check_app.analytics;
+
+// Results of one HistoryAnalytics run. Daily figures are indexed by local day from the day
+// containing the start of the range; night i is the night ending on the morning of day i, so
+// there is one more night than days. Missing values are NaN.
+public class AnalyticsReport {
+    private final long from;
+    private final long to;
+    private final long firstDayStart;
+    private final float[] restingHeartRate;
+    private final long[] steps;
+    private final int[] activeMinutes;
+    private final float[] lowestSpo2;
+    private final int[] dipEpisodes;
+    private final double bodyVsEnvironmentTemperature;
+    private final double bodyVsHumidity;
+    private final double stepsVsActiveMinutes;
+    private final double restingTrendPerWeek;
+    
+    AnalyticsReport(long from, long to, long zoneOffsetMs, PartialReport partial) {
+        this.from = from;
+        this.to = to;
+        int firstDay = partial.dayOf(from);
+        int days = partial.dayOf(to - 1) - firstDay + 1;
+        this.firstDayStart = firstDay * PartialReport.DAY_MS - zoneOffsetMs;
+        int shift = firstDay - partial.getFirstDay();
+        restingHeartRate = new float[days];
+        steps = new long[days];
+        activeMinutes = new int[days];
+        lowestSpo2 = new float[days + 1];
+        dipEpisodes = new int[days + 1];
+        Moments trend = new Moments();
+        Moments activity = new Moments();
+        for (int i = 0; i <= days; i++) {
+            lowestSpo2[i] = partial.lowestSpo2(i + shift);
+            dipEpisodes[i] = partial.dipEpisodes(i + shift);
+            if (i == days) {
+                break;
+            }
+            restingHeartRate[i] = partial.restingHeartRate(i + shift);
+            steps[i] = partial.steps(i + shift);
+            activeMinutes[i] = partial.activeMinutes(i + shift);
+            if (!Float.isNaN(restingHeartRate[i])) {
+                trend.add(i, restingHeartRate[i], 1);
+            }
+            if (steps[i] > 0 || activeMinutes[i] > 0) {
+                activity.add(activeMinutes[i], steps[i], 1);
+            }
+        }
+        bodyVsEnvironmentTemperature = partial.bodyVsEnvironment.correlation();
+        bodyVsHumidity = partial.bodyVsHumidity.correlation();
+        stepsVsActiveMinutes = activity.correlation();
+        restingTrendPerWeek = trend.slope() * 7;
+    }
+    
+    public long getFrom() {
+        return from;
+    }
+    
+    public long getTo() {
+        return to;
+    }
+    
+    public int getDays() {
+        return steps.length;
+    }
+    
+    public long getDayStart(int day) {
+        return firstDayStart + day * PartialReport.DAY_MS;
+    }
+    
+    // Mean heart rate while sedentary
+    public float getRestingHeartRate(int day) {
+        return restingHeartRate[day];
+    }
+    
+    public long getSteps(int day) {
+        return steps[day];
+    }
+    
+    public int getActiveMinutes(int day) {
+        return activeMinutes[day];
+    }
+    
+    // Lowest SpO2 between 22:00 and 06:00
+    public float getLowestSpo2(int night) {
+        return lowestSpo2[night];
+    }
+    
+    // Runs of night-time readings below 90% SpO2
+    public int getDipEpisodes(int night) {
+        return dipEpisodes[night];
+    }
+    
+    public double getBodyVsEnvironmentTemperature() {
+        return bodyVsEnvironmentTemperature;
+    }
+    
+    public double getBodyVsHumidity() {
+        return bodyVsHumidity;
+    }
+    
+    // Across days, how closely step counts follow active minutes
+    public double getStepsVsActiveMinutes() {
+        return stepsVsActiveMinutes;
+    }
+    
+    // Change of the resting heart rate in bpm per week, fitted over the days that have one
+    public double getRestingTrendPerWeek() {
+        return restingTrendPerWeek;
+    }
+    
+    public float getAverageRestingHeartRate() {
+        double sum = 0;
+        int days = 0;
+        for (float rate : restingHeartRate) {
+            if (!Float.isNaN(rate)) {
+                sum += rate;
+                days++;
+            }
+        }
+        return days > 0 ? (float) (sum / days) : Float.NaN;
+    }
+    
+    public long getTotalSteps() {
+        long total = 0;
+        for (long day : steps) {
+            total += day;
+        }
+        return total;
+    }
+    
+    public int getTotalActiveMinutes() {
+        int total = 0;
+        for (int day : activeMinutes) {
+            total += day;
+        }
+        return total;
+    }
+    
+    public int getTotalDipEpisodes() {
+        int total = 0;
+        for (int night : dipEpisodes) {
+            total += night;
+        }
+        return total;
+    }
+    
+    public float getLowestSpo2() {
+        float lowest = Float.NaN;
+        for (float night : lowestSpo2) {
+            if (!Float.isNaN(night) && (Float.isNaN(lowest) || night < lowest)) {
+                lowest = night;
+            }
+        }
+        return lowest;
+    }
+}
\ No newline at end of file
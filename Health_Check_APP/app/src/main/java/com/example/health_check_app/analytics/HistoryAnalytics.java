@@ -0,0 +1,93 @@
+package com.example.health_check_app.analytics;
+
+import com.example.health_check_app.storage.RecordScanner;
+import com.example.health_check_app.storage.VitalsStore;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+// Weekly and monthly reports over stored history: resting heart rate and its trend, nightly
+// SpO2 dips, body temperature against room temperature and humidity, steps against active
+// minutes. The range is split at local midnights into stretches of leafDays days that are
+// scanned in parallel on a fork-join pool, each streaming its records through one block
+// buffer, and the partial results are merged pairwise. Memory use is a buffer per worker plus
+// a few numbers per day, however long the range.
+public class HistoryAnalytics {
+    public static final int DEFAULT_LEAF_DAYS = 1;
+    
+    private final HistorySource source;
+    private final long zoneOffsetMs;
+    private final ForkJoinPool pool;
+    private final int leafDays;
+    
+    public HistoryAnalytics(VitalsStore store) {
+        this((from, to, visitor) -> new RecordScanner(store).scan(from, to, visitor),
+            store.getZoneOffsetMs(), ForkJoinPool.commonPool(), DEFAULT_LEAF_DAYS);
+    }
+    
+    public HistoryAnalytics(HistorySource source, long zoneOffsetMs, ForkJoinPool pool, int leafDays) {
+        this.source = source;
+        this.zoneOffsetMs = zoneOffsetMs;
+        this.pool = pool;
+        this.leafDays = Math.max(1, leafDays);
+    }
+    
+    // Blocks until done; call off the main thread
+    public AnalyticsReport analyze(long from, long to) throws IOException {
+        if (to <= from) {
+            throw new IllegalArgumentException("Empty range");
+        }
+        int firstDay = PartialReport.dayOf(from, zoneOffsetMs);
+        int endDay = PartialReport.dayOf(to - 1, zoneOffsetMs) + 1;
+        try {
+            PartialReport result = pool.invoke(new Stretch(from, to, firstDay, endDay));
+            return new AnalyticsReport(from, to, zoneOffsetMs, result);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+    
+    // Days [firstDay, endDay) of the range, clipped to [from, to)
+    private class Stretch extends RecursiveTask<PartialReport> {
+        private final long from;
+        private final long to;
+        private final int firstDay;
+        private final int endDay;
+        
+        Stretch(long from, long to, int firstDay, int endDay) {
+            this.from = from;
+            this.to = to;
+            this.firstDay = firstDay;
+            this.endDay = endDay;
+        }
+        
+        @Override
+        protected PartialReport compute() {
+            if (endDay - firstDay <= leafDays) {
+                return scan();
+            }
+            int middle = (firstDay + endDay) >>> 1;
+            Stretch earlier = new Stretch(from, to, firstDay, middle);
+            Stretch later = new Stretch(from, to, middle, endDay);
+            earlier.fork();
+            PartialReport laterResult = later.compute();
+            PartialReport result = earlier.join();
+            result.merge(laterResult);
+            return result;
+        }
+        
+        private PartialReport scan() {
+            // The night after the last day is filed under the day after it
+            PartialReport partial = new PartialReport(zoneOffsetMs, firstDay, endDay);
+            long start = Math.max(from, firstDay * PartialReport.DAY_MS - zoneOffsetMs);
+            long end = Math.min(to, endDay * PartialReport.DAY_MS - zoneOffsetMs);
+            try {
+                source.scan(start, end, partial);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return partial;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,12 @@
+package com.example.health_check_app.analytics;
+
+import com.example.health_check_app.storage.RecordScanner;
+import java.io.IOException;
+
+// Where the analytics read history from: VitalsStore in the app, generated data in benchmarks.
+// Called from several threads at once for disjoint ranges, so every call needs its own scan
+// state.
+public interface HistorySource {
+    // Visits every record in [from, to) in time order, as RecordScanner.scan does
+    void scan(long from, long to, RecordScanner.Visitor visitor) throws IOException;
+}
\ No newline at end of file
@@ -0,0 +1,70 @@
+package com.example.health_check_app.analytics;
+
+// Weighted running means, variances and covariance of (x, y) pairs. Updated one pair at a
+// time and merged pairwise (Chan et al.), so partial results from different threads combine
+// without revisiting the data and without the cancellation of naive sums of squares.
+public final class Moments {
+    private double weight;
+    private double meanX;
+    private double meanY;
+    private double m2x;
+    private double m2y;
+    private double cxy;
+    
+    public void add(double x, double y, double w) {
+        if (w <= 0) {
+            return;
+        }
+        double total = weight + w;
+        double dx = x - meanX;
+        double dy = y - meanY;
+        meanX += dx * w / total;
+        meanY += dy * w / total;
+        m2x += w * dx * (x - meanX);
+        m2y += w * dy * (y - meanY);
+        cxy += w * dx * (y - meanY);
+        weight = total;
+    }
+    
+    public void merge(Moments other) {
+        if (other.weight == 0) {
+            return;
+        }
+        if (weight == 0) {
+            weight = other.weight;
+            meanX = other.meanX;
+            meanY = other.meanY;
+            m2x = other.m2x;
+            m2y = other.m2y;
+            cxy = other.cxy;
+            return;
+        }
+        double total = weight + other.weight;
+        double dx = other.meanX - meanX;
+        double dy = other.meanY - meanY;
+        double scale = weight * other.weight / total;
+        meanX += dx * other.weight / total;
+        meanY += dy * other.weight / total;
+        m2x += other.m2x + dx * dx * scale;
+        m2y += other.m2y + dy * dy * scale;
+        cxy += other.cxy + dx * dy * scale;
+        weight = total;
+    }
+    
+    public double getWeight() {
+        return weight;
+    }
+    
+    // Pearson correlation; NaN unless both variables vary
+    public double correlation() {
+        if (m2x <= 0 || m2y <= 0) {
+            return Double.NaN;
+        }
+        return cxy / Math.sqrt(m2x * m2y);
+    }
+    
+    // Least-squares slope of y over x; NaN unless x varies
+    public double slope() {
+        return m2x > 0 ? cxy / m2x : Double.NaN;
+    }
+}
\ No newline at end of file
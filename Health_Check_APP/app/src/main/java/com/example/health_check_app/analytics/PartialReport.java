@@ -0,0 +1,320 @@
+package com.example.health_check_app.analytics;
+
+import com.example.health_check_app.models.Metric;
+import com.example.health_check_app.models.SensorData;
+import com.example.health_check_app.storage.RawRecord;
+import com.example.health_check_app.storage.RecordScanner;
+import com.example.health_check_app.storage.Rollup;
+import com.example.health_check_app.storage.Tier;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+// Aggregates of one contiguous stretch of history: per local day totals plus the two
+// correlations. Everything that spans records (step counter deltas, active minutes, runs of
+// low SpO2) also keeps its state at both ends, so merge() can stitch two adjacent stretches
+// exactly as if they had been scanned in one pass. Days are counted from the epoch in local
+// time; nights are filed under the day they end on.
+final class PartialReport implements RecordScanner.Visitor {
+    static final long MINUTE_MS = 60 * 1000L;
+    static final long HOUR_MS = 60 * MINUTE_MS;
+    static final long DAY_MS = 24 * HOUR_MS;
+    static final int NIGHT_START_HOUR = 22;
+    static final int NIGHT_END_HOUR = 6;
+    static final float SPO2_DIP_PERCENT = 90f;
+    
+    private static final byte SEDENTARY = (byte) SensorData.MotionStatus.SEDENTARY.ordinal();
+    private static final byte WALKING = (byte) SensorData.MotionStatus.WALKING.ordinal();
+    
+    private final long zoneOffsetMs;
+    
+    // Per day, for days firstDay .. firstDay + length - 1
+    private int firstDay;
+    private double[] restSums;
+    private long[] restCounts;
+    private long[] steps;
+    private int[] activeMinutes;
+    private float[] lowestSpo2;
+    private int[] dipEpisodes;
+    
+    final Moments bodyVsEnvironment = new Moments();
+    final Moments bodyVsHumidity = new Moments();
+    
+    // Step counter at both ends; NaN until a reading is seen
+    private float firstStepsLow = Float.NaN;
+    private long firstStepsTime;
+    private float lastStepsHigh = Float.NaN;
+    // Minute index of the first and last active minute, -1 if none
+    private long firstActiveMinute = -1;
+    private long lastActiveMinute = -1;
+    // SpO2 readings at both ends: whether they were night-time dips, and when the first was
+    private boolean sawSpo2;
+    private boolean firstSpo2Dip;
+    private long firstSpo2Time;
+    private boolean lastSpo2Dip;
+    
+    PartialReport(long zoneOffsetMs, int firstDay, int lastDay) {
+        this.zoneOffsetMs = zoneOffsetMs;
+        allocate(firstDay, lastDay - firstDay + 1);
+    }
+    
+    private void allocate(int first, int length) {
+        firstDay = first;
+        restSums = new double[length];
+        restCounts = new long[length];
+        steps = new long[length];
+        activeMinutes = new int[length];
+        lowestSpo2 = new float[length];
+        Arrays.fill(lowestSpo2, Float.NaN);
+        dipEpisodes = new int[length];
+    }
+    
+    static int dayOf(long timestamp, long zoneOffsetMs) {
+        return (int) Math.floorDiv(timestamp + zoneOffsetMs, DAY_MS);
+    }
+    
+    int dayOf(long timestamp) {
+        return dayOf(timestamp, zoneOffsetMs);
+    }
+    
+    // The night a timestamp belongs to, by the day it ends on, or Integer.MIN_VALUE by day
+    int nightOf(long timestamp) {
+        long local = timestamp + zoneOffsetMs;
+        long hour = Math.floorMod(local, DAY_MS) / HOUR_MS;
+        if (hour < NIGHT_START_HOUR && hour >= NIGHT_END_HOUR) {
+            return Integer.MIN_VALUE;
+        }
+        return (int) Math.floorDiv(local + (24 - NIGHT_START_HOUR) * HOUR_MS, DAY_MS);
+    }
+    
+    int getFirstDay() {
+        return firstDay;
+    }
+    
+    int getLength() {
+        return steps.length;
+    }
+    
+    @Override
+    public boolean onRecord(Tier tier, ByteBuffer records, int offset) {
+        if (tier == Tier.RAW) {
+            addRaw(records, offset);
+        } else {
+            addRollup(tier, records, offset);
+        }
+        return true;
+    }
+    
+    private void addRaw(ByteBuffer records, int offset) {
+        long timestamp = RawRecord.timestamp(records, offset);
+        int day = dayOf(timestamp) - firstDay;
+        byte motion = RawRecord.motion(records, offset);
+        float heartRate = RawRecord.value(records, offset, Metric.HEART_RATE);
+        if (motion == SEDENTARY && Metric.HEART_RATE.isPresent(heartRate)) {
+            restSums[day] += heartRate;
+            restCounts[day]++;
+        }
+        float counter = RawRecord.value(records, offset, Metric.STEPS);
+        if (counter > 0) {
+            addSteps(timestamp, day, counter, counter);
+        }
+        if (motion == WALKING) {
+            addActiveMinute(timestamp, day);
+        }
+        float spo2 = RawRecord.value(records, offset, Metric.BLOOD_OXYGEN);
+        if (Metric.BLOOD_OXYGEN.isPresent(spo2)) {
+            addSpo2(timestamp, spo2);
+        }
+        float body = RawRecord.value(records, offset, Metric.BODY_TEMPERATURE);
+        if (Metric.BODY_TEMPERATURE.isPresent(body)) {
+            float environment = RawRecord.value(records, offset, Metric.ENVIRONMENT_TEMPERATURE);
+            if (Metric.ENVIRONMENT_TEMPERATURE.isPresent(environment)) {
+                bodyVsEnvironment.add(environment, body, 1);
+            }
+            float humidity = RawRecord.value(records, offset, Metric.HUMIDITY);
+            if (Metric.HUMIDITY.isPresent(humidity)) {
+                bodyVsHumidity.add(humidity, body, 1);
+            }
+        }
+    }
+    
+    // Rollups lose motion and sample order, so they stand in with what they keep: a minute
+    // without new steps counts as resting, one with new steps as active, and its lowest SpO2
+    // decides whether it was a dip. Daily rollups are too coarse for all three.
+    private void addRollup(Tier tier, ByteBuffer records, int offset) {
+        long timestamp = Rollup.bucketStart(records, offset);
+        int day = dayOf(timestamp) - firstDay;
+        boolean minute = tier == Tier.MINUTE;
+        boolean counted = Rollup.count(records, offset, Metric.STEPS) > 0
+            && Rollup.max(records, offset, Metric.STEPS) > 0;
+        float stepsLow = Rollup.min(records, offset, Metric.STEPS);
+        float stepsHigh = Rollup.max(records, offset, Metric.STEPS);
+        if (counted) {
+            addSteps(timestamp, day, stepsLow, stepsHigh);
+        }
+        int heartRates = Rollup.count(records, offset, Metric.HEART_RATE);
+        if (minute && counted && stepsHigh == stepsLow && heartRates > 0) {
+            restSums[day] += (double) Rollup.mean(records, offset, Metric.HEART_RATE) * heartRates;
+            restCounts[day] += heartRates;
+        }
+        if (minute && counted && stepsHigh > stepsLow) {
+            addActiveMinute(timestamp, day);
+        }
+        if (minute && Rollup.count(records, offset, Metric.BLOOD_OXYGEN) > 0) {
+            addSpo2(timestamp, Rollup.min(records, offset, Metric.BLOOD_OXYGEN));
+        }
+        int bodies = Rollup.count(records, offset, Metric.BODY_TEMPERATURE);
+        if (bodies > 0) {
+            float body = Rollup.mean(records, offset, Metric.BODY_TEMPERATURE);
+            int environments = Rollup.count(records, offset, Metric.ENVIRONMENT_TEMPERATURE);
+            if (environments > 0) {
+                bodyVsEnvironment.add(Rollup.mean(records, offset, Metric.ENVIRONMENT_TEMPERATURE), body,
+                    Math.min(bodies, environments));
+            }
+            int humidities = Rollup.count(records, offset, Metric.HUMIDITY);
+            if (humidities > 0) {
+                bodyVsHumidity.add(Rollup.mean(records, offset, Metric.HUMIDITY), body,
+                    Math.min(bodies, humidities));
+            }
+        }
+    }
+    
+    // The counter only grows within a day; a drop means it was reset and restarted from zero
+    private void addSteps(long timestamp, int day, float low, float high) {
+        if (Float.isNaN(firstStepsLow)) {
+            firstStepsLow = low;
+            firstStepsTime = timestamp;
+        } else {
+            steps[day] += stepsBetween(lastStepsHigh, low);
+        }
+        steps[day] += (long) (high - low);
+        lastStepsHigh = high;
+    }
+    
+    private static long stepsBetween(float previous, float next) {
+        return (long) (next >= previous ? next - previous : next);
+    }
+    
+    private void addActiveMinute(long timestamp, int day) {
+        long minute = Math.floorDiv(timestamp, MINUTE_MS);
+        if (minute == lastActiveMinute) {
+            return;
+        }
+        if (firstActiveMinute < 0) {
+            firstActiveMinute = minute;
+        }
+        lastActiveMinute = minute;
+        activeMinutes[day]++;
+    }
+    
+    // A run of night-time dips is one episode; any other reading ends the run
+    private void addSpo2(long timestamp, float spo2) {
+        int night = nightOf(timestamp);
+        boolean dip = false;
+        if (night != Integer.MIN_VALUE) {
+            int index = night - firstDay;
+            if (Float.isNaN(lowestSpo2[index]) || spo2 < lowestSpo2[index]) {
+                lowestSpo2[index] = spo2;
+            }
+            dip = spo2 < SPO2_DIP_PERCENT;
+            if (dip && !lastSpo2Dip) {
+                dipEpisodes[index]++;
+            }
+        }
+        if (!sawSpo2) {
+            sawSpo2 = true;
+            firstSpo2Dip = dip;
+            firstSpo2Time = timestamp;
+        }
+        lastSpo2Dip = dip;
+    }
+    
+    // Appends the stretch that immediately follows this one
+    void merge(PartialReport next) {
+        int first = Math.min(firstDay, next.firstDay);
+        int end = Math.max(firstDay + getLength(), next.firstDay + next.getLength());
+        if (first != firstDay || end != firstDay + getLength()) {
+            int oldFirst = firstDay;
+            double[] oldRestSums = restSums;
+            long[] oldRestCounts = restCounts;
+            long[] oldSteps = steps;
+            int[] oldActiveMinutes = activeMinutes;
+            float[] oldLowestSpo2 = lowestSpo2;
+            int[] oldDipEpisodes = dipEpisodes;
+            allocate(first, end - first);
+            addDays(oldFirst, oldRestSums, oldRestCounts, oldSteps, oldActiveMinutes, oldLowestSpo2,
+                oldDipEpisodes);
+        }
+        addDays(next.firstDay, next.restSums, next.restCounts, next.steps, next.activeMinutes,
+            next.lowestSpo2, next.dipEpisodes);
+        
+        if (!Float.isNaN(next.firstStepsLow)) {
+            if (Float.isNaN(firstStepsLow)) {
+                firstStepsLow = next.firstStepsLow;
+                firstStepsTime = next.firstStepsTime;
+            } else {
+                steps[dayOf(next.firstStepsTime) - firstDay] += stepsBetween(lastStepsHigh, next.firstStepsLow);
+            }
+            lastStepsHigh = next.lastStepsHigh;
+        }
+        if (next.firstActiveMinute >= 0) {
+            if (next.firstActiveMinute == lastActiveMinute) {
+                activeMinutes[dayOf(next.firstActiveMinute * MINUTE_MS) - firstDay]--;
+            }
+            if (firstActiveMinute < 0) {
+                firstActiveMinute = next.firstActiveMinute;
+            }
+            lastActiveMinute = next.lastActiveMinute;
+        }
+        if (next.sawSpo2) {
+            if (!sawSpo2) {
+                sawSpo2 = true;
+                firstSpo2Dip = next.firstSpo2Dip;
+                firstSpo2Time = next.firstSpo2Time;
+            } else if (lastSpo2Dip && next.firstSpo2Dip) {
+                // One episode running across the seam, counted by both sides
+                dipEpisodes[nightOf(next.firstSpo2Time) - firstDay]--;
+            }
+            lastSpo2Dip = next.lastSpo2Dip;
+        }
+        bodyVsEnvironment.merge(next.bodyVsEnvironment);
+        bodyVsHumidity.merge(next.bodyVsHumidity);
+    }
+    
+    private void addDays(int otherFirst, double[] otherRestSums, long[] otherRestCounts, long[] otherSteps,
+            int[] otherActiveMinutes, float[] otherLowestSpo2, int[] otherDipEpisodes) {
+        int shift = otherFirst - firstDay;
+        for (int i = 0; i < otherSteps.length; i++) {
+            int day = i + shift;
+            restSums[day] += otherRestSums[i];
+            restCounts[day] += otherRestCounts[i];
+            steps[day] += otherSteps[i];
+            activeMinutes[day] += otherActiveMinutes[i];
+            dipEpisodes[day] += otherDipEpisodes[i];
+            float lowest = otherLowestSpo2[i];
+            if (!Float.isNaN(lowest) && (Float.isNaN(lowestSpo2[day]) || lowest < lowestSpo2[day])) {
+                lowestSpo2[day] = lowest;
+            }
+        }
+    }
+    
+    // Mean resting heart rate of the day, NaN if there was no resting reading
+    float restingHeartRate(int index) {
+        return restCounts[index] > 0 ? (float) (restSums[index] / restCounts[index]) : Float.NaN;
+    }
+    
+    long steps(int index) {
+        return steps[index];
+    }
+    
+    int activeMinutes(int index) {
+        return activeMinutes[index];
+    }
+    
+    float lowestSpo2(int index) {
+        return lowestSpo2[index];
+    }
+    
+    int dipEpisodes(int index) {
+        return dipEpisodes[index];
+    }
+}
\ No newline at end of file
@@ -0,0 +1,185 @@
+package com.example.health_check_app.export;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+// Buffered writer over a channel with allocation-free number and date formatting,
+// so exports run in a fixed amount of memory however many rows they write.
+public class ChannelWriter implements Closeable {
+    private static final int BUFFER_BYTES = 64 * 1024;
+    private static final long DAY_MS = 24 * 60 * 60 * 1000L;
+    private static final long[] POWERS_OF_TEN = {1, 10, 100, 1000, 10000};
+    
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+    private final byte[] digits = new byte[20];
+    private long bytesWritten;
+    
+    public ChannelWriter(WritableByteChannel channel) {
+        this.channel = channel;
+    }
+    
+    public long getBytesWritten() {
+        return bytesWritten + buffer.position();
+    }
+    
+    private void ensure(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+    
+    public void flush() throws IOException {
+        buffer.flip();
+        bytesWritten += buffer.remaining();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+    
+    public void putByte(int value) throws IOException {
+        ensure(1);
+        buffer.put((byte) value);
+    }
+    
+    public void putInt(int value) throws IOException {
+        ensure(4);
+        buffer.putInt(value);
+    }
+    
+    public void putLong(long value) throws IOException {
+        ensure(8);
+        buffer.putLong(value);
+    }
+    
+    public void putFloat(float value) throws IOException {
+        ensure(4);
+        buffer.putFloat(value);
+    }
+    
+    // Unsigned LEB128
+    public void putVarLong(long value) throws IOException {
+        ensure(10);
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+    
+    public void putAscii(String text) throws IOException {
+        for (int i = 0; i < text.length(); i++) {
+            putByte(text.charAt(i));
+        }
+    }
+    
+    // Only used for rare, short strings such as alert messages
+    public void putUtf8(String text) throws IOException {
+        putBytes(text.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    public void putBytes(byte[] bytes) throws IOException {
+        int offset = 0;
+        while (offset < bytes.length) {
+            ensure(1);
+            int length = Math.min(buffer.remaining(), bytes.length - offset);
+            buffer.put(bytes, offset, length);
+            offset += length;
+        }
+    }
+    
+    // CSV field, quoted when it contains separators or quotes
+    public void putCsvText(String text) throws IOException {
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0) {
+            putUtf8(text);
+            return;
+        }
+        putByte('"');
+        putUtf8(text.replace("\"", "\"\""));
+        putByte('"');
+    }
+    
+    public void putDecimal(long value) throws IOException {
+        ensure(20);
+        if (value < 0) {
+            buffer.put((byte) '-');
+            value = -value;
+        }
+        int count = 0;
+        do {
+            digits[count++] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value > 0);
+        while (count > 0) {
+            buffer.put(digits[--count]);
+        }
+    }
+    
+    public void putDecimal(float value, int decimals) throws IOException {
+        if (Float.isNaN(value) || Float.isInfinite(value)) {
+            return;
+        }
+        long scale = POWERS_OF_TEN[decimals];
+        long scaled = Math.round(Math.abs((double) value) * scale);
+        if (value < 0 && scaled != 0) {
+            putByte('-');
+        }
+        putDecimal(scaled / scale);
+        if (decimals > 0) {
+            putByte('.');
+            long fraction = scaled % scale;
+            for (long place = scale / 10; place > 0; place /= 10) {
+                putByte((int) ('0' + fraction / place % 10));
+            }
+        }
+    }
+    
+    // yyyy-MM-dd HH:mm:ss in the given UTC offset
+    public void putDateTime(long epochMs, long zoneOffsetMs) throws IOException {
+        long local = epochMs + zoneOffsetMs;
+        long days = Math.floorDiv(local, DAY_MS);
+        long secondOfDay = Math.floorMod(local, DAY_MS) / 1000;
+        
+        // Civil date from days since 1970-01-01 (proleptic Gregorian)
+        long z = days + 719468;
+        long era = Math.floorDiv(z, 146097);
+        long dayOfEra = z - era * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long mp = (5 * dayOfYear + 2) / 153;
+        long day = dayOfYear - (153 * mp + 2) / 5 + 1;
+        long month = mp < 10 ? mp + 3 : mp - 9;
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        
+        putPadded(year, 4);
+        putByte('-');
+        putPadded(month, 2);
+        putByte('-');
+        putPadded(day, 2);
+        putByte(' ');
+        putPadded(secondOfDay / 3600, 2);
+        putByte(':');
+        putPadded(secondOfDay / 60 % 60, 2);
+        putByte(':');
+        putPadded(secondOfDay % 60, 2);
+    }
+    
+    private void putPadded(long value, int width) throws IOException {
+        for (long place = POWERS_OF_TEN[width - 1]; place > 0; place /= 10) {
+            putByte((int) ('0' + value / place % 10));
+        }
+    }
+    
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,146 @@
+package com.example.health_check_app.export;
+
+import com.example.health_check_app.models.AlertRecord;
+import com.example.health_check_app.models.Metric;
+import com.example.health_check_app.storage.RawRecord;
+import com.example.health_check_app.storage.Rollup;
+import com.example.health_check_app.storage.Tier;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+// Compact columnar layout, big-endian:
+//   header:    "HCVC" | version (1) | metric count (1)
+//   row group: 'G' | tier ordinal (1) | rows (4) | first timestamp (8)
+//              | rows - 1 timestamp deltas (unsigned varint, ms)
+//              | per metric: rows float32 (NaN = missing; rollups hold bucket means,
+//                the step counter its last reading)
+//              | rows sample counts (varint) | rows motion ordinal or fall count (1)
+//              | rows battery (1)
+//   alerts:    'A' | count (4) | count x (timestamp (8) | type name (UTF-8, length varint)
+//              | severity name (UTF-8, length varint) | value float32)
+//   trailer:   'E'
+// Row groups hold at most ROWS_PER_GROUP rows of a single tier, so encoding memory is fixed.
+public class ColumnarEncoder implements ExportEncoder {
+    private static final int VERSION = 2;
+    private static final int ROWS_PER_GROUP = 4096;
+    private static final int ALERTS_PER_GROUP = 256;
+    
+    private static final Metric[] METRICS = Metric.values();
+    
+    private final ChannelWriter writer;
+    private final long[] timestamps = new long[ROWS_PER_GROUP];
+    private final float[][] values = new float[Metric.COUNT][ROWS_PER_GROUP];
+    private final int[] samples = new int[ROWS_PER_GROUP];
+    private final byte[] motion = new byte[ROWS_PER_GROUP];
+    private final byte[] battery = new byte[ROWS_PER_GROUP];
+    private final AlertRecord[] alerts = new AlertRecord[ALERTS_PER_GROUP];
+    private Tier groupTier;
+    private int rows;
+    private int alertCount;
+    
+    public ColumnarEncoder(ChannelWriter writer) throws IOException {
+        this.writer = writer;
+        writer.putAscii("HCVC");
+        writer.putByte(VERSION);
+        writer.putByte(Metric.COUNT);
+    }
+    
+    @Override
+    public void writeVital(Tier tier, ByteBuffer records, int offset) throws IOException {
+        if (tier != groupTier || rows == ROWS_PER_GROUP) {
+            flushGroup();
+            groupTier = tier;
+        }
+        timestamps[rows] = records.getLong(offset);
+        if (tier == Tier.RAW) {
+            for (Metric metric : METRICS) {
+                float value = RawRecord.value(records, offset, metric);
+                values[metric.ordinal()][rows] = metric.isPresent(value) ? value : Float.NaN;
+            }
+            samples[rows] = 1;
+            motion[rows] = RawRecord.motion(records, offset);
+            battery[rows] = (byte) RawRecord.battery(records, offset);
+        } else {
+            for (Metric metric : METRICS) {
+                values[metric.ordinal()][rows] = Rollup.count(records, offset, metric) > 0
+                    ? Rollup.value(records, offset, metric) : Float.NaN;
+            }
+            samples[rows] = Rollup.samples(records, offset);
+            motion[rows] = (byte) Math.min(Rollup.falls(records, offset), Byte.MAX_VALUE);
+            battery[rows] = 0;
+        }
+        rows++;
+    }
+    
+    private void flushGroup() throws IOException {
+        if (rows == 0) {
+            return;
+        }
+        writer.putByte('G');
+        writer.putByte(groupTier.ordinal());
+        writer.putInt(rows);
+        writer.putLong(timestamps[0]);
+        for (int i = 1; i < rows; i++) {
+            writer.putVarLong(timestamps[i] - timestamps[i - 1]);
+        }
+        for (int m = 0; m < Metric.COUNT; m++) {
+            float[] column = values[m];
+            for (int i = 0; i < rows; i++) {
+                writer.putFloat(column[i]);
+            }
+        }
+        for (int i = 0; i < rows; i++) {
+            writer.putVarLong(samples[i]);
+        }
+        for (int i = 0; i < rows; i++) {
+            writer.putByte(motion[i]);
+        }
+        for (int i = 0; i < rows; i++) {
+            writer.putByte(battery[i]);
+        }
+        rows = 0;
+    }
+    
+    @Override
+    public void writeAlert(AlertRecord record) throws IOException {
+        flushGroup();
+        alerts[alertCount++] = record;
+        if (alertCount == ALERTS_PER_GROUP) {
+            flushAlerts();
+        }
+    }
+    
+    private void flushAlerts() throws IOException {
+        if (alertCount == 0) {
+            return;
+        }
+        writer.putByte('A');
+        writer.putInt(alertCount);
+        for (int i = 0; i < alertCount; i++) {
+            writer.putLong(alerts[i].getTimestamp());
+            putString(alerts[i].getType().name());
+            putString(alerts[i].getSeverity().name());
+            writer.putFloat(alerts[i].getValue());
+            alerts[i] = null;
+        }
+        alertCount = 0;
+    }
+    
+    private void putString(String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        writer.putVarLong(bytes.length);
+        writer.putBytes(bytes);
+    }
+    
+    @Override
+    public void close() throws IOException {
+        try {
+            flushGroup();
+            flushAlerts();
+            writer.putByte('E');
+        } finally {
+            writer.close();
+        }
+    }
+}
\ No newline at end of file
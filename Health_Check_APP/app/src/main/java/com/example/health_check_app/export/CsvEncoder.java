@@ -0,0 +1,110 @@
+package com.example.health_check_app.export;
+
+import com.example.health_check_app.models.AlertRecord;
+import com.example.health_check_app.models.Metric;
+import com.example.health_check_app.models.SensorData;
+import com.example.health_check_app.storage.RawRecord;
+import com.example.health_check_app.storage.Rollup;
+import com.example.health_check_app.storage.Tier;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.TimeZone;
+
+// One row per raw sample or rollup bucket. Rollup rows carry per-bucket means (the step counter's
+// last reading), the number of samples they summarize and the number of falls; missing readings
+// are left empty.
+class CsvEncoder implements ExportEncoder {
+    private static final byte[] UTF8_BOM = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+    private static final String VITALS_HEADER = "time,resolution,samples,heart_rate,blood_oxygen,"
+        + "body_temperature,environment_temperature,humidity,steps,motion,falls,battery\n";
+    private static final String ALERTS_HEADER = "time,type,severity,value\n";
+    
+    private static final Metric[] METRICS = Metric.values();
+    private static final SensorData.MotionStatus[] MOTIONS = SensorData.MotionStatus.values();
+    
+    private final ChannelWriter vitals;
+    private final ChannelWriter alerts;
+    private final TimeZone timeZone;
+    
+    CsvEncoder(ChannelWriter vitals, ChannelWriter alerts, TimeZone timeZone) throws IOException {
+        this.vitals = vitals;
+        this.alerts = alerts;
+        this.timeZone = timeZone;
+        writeHeader(vitals, VITALS_HEADER);
+        writeHeader(alerts, ALERTS_HEADER);
+    }
+    
+    private static void writeHeader(ChannelWriter writer, String header) throws IOException {
+        for (byte b : UTF8_BOM) {
+            writer.putByte(b);
+        }
+        writer.putAscii(header);
+    }
+    
+    @Override
+    public void writeVital(Tier tier, ByteBuffer records, int offset) throws IOException {
+        long timestamp = records.getLong(offset);
+        vitals.putDateTime(timestamp, timeZone.getOffset(timestamp));
+        vitals.putByte(',');
+        if (tier == Tier.RAW) {
+            vitals.putAscii("raw,1");
+            for (Metric metric : METRICS) {
+                vitals.putByte(',');
+                float value = RawRecord.value(records, offset, metric);
+                if (metric.isPresent(value)) {
+                    vitals.putDecimal(value, decimals(metric));
+                }
+            }
+            int motion = RawRecord.motion(records, offset);
+            vitals.putByte(',');
+            if (motion >= 0 && motion < MOTIONS.length) {
+                vitals.putAscii(MOTIONS[motion].name());
+            }
+            vitals.putByte(',');
+            vitals.putDecimal(motion == SensorData.MotionStatus.FALL_DETECTED.ordinal() ? 1 : 0);
+            vitals.putByte(',');
+            int battery = RawRecord.battery(records, offset);
+            if (battery > 0) {
+                vitals.putDecimal(battery);
+            }
+        } else {
+            vitals.putAscii(tier == Tier.MINUTE ? "1min," : "1d,");
+            vitals.putDecimal(Rollup.samples(records, offset));
+            for (Metric metric : METRICS) {
+                vitals.putByte(',');
+                if (Rollup.count(records, offset, metric) > 0) {
+                    vitals.putDecimal(Rollup.value(records, offset, metric), decimals(metric) + 1);
+                }
+            }
+            vitals.putAscii(",,");
+            vitals.putDecimal(Rollup.falls(records, offset));
+            vitals.putByte(',');
+        }
+        vitals.putByte('\n');
+    }
+    
+    private static int decimals(Metric metric) {
+        return metric == Metric.BODY_TEMPERATURE || metric == Metric.ENVIRONMENT_TEMPERATURE ? 1 : 0;
+    }
+    
+    @Override
+    public void writeAlert(AlertRecord record) throws IOException {
+        alerts.putDateTime(record.getTimestamp(), timeZone.getOffset(record.getTimestamp()));
+        alerts.putByte(',');
+        alerts.putAscii(record.getType().name());
+        alerts.putByte(',');
+        alerts.putAscii(record.getSeverity().name());
+        alerts.putByte(',');
+        alerts.putDecimal(record.getValue(), record.getMetric() == Metric.BODY_TEMPERATURE ? 1 : 0);
+        alerts.putByte('\n');
+    }
+    
+    @Override
+    public void close() throws IOException {
+        try {
+            vitals.close();
+        } finally {
+            alerts.close();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,14 @@
+package com.example.health_check_app.export;
+
+import com.example.health_check_app.models.AlertRecord;
+import com.example.health_check_app.storage.Tier;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+// Receives vitals first, in time order, then alerts
+public interface ExportEncoder extends Closeable {
+    void writeVital(Tier tier, ByteBuffer records, int offset) throws IOException;
+    
+    void writeAlert(AlertRecord record) throws IOException;
+}
\ No newline at end of file
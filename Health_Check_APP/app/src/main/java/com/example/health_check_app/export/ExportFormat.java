@@ -0,0 +1,8 @@
+package com.example.health_check_app.export;
+
+public enum ExportFormat {
+    // <name>_vitals.csv and <name>_alerts.csv, UTF-8 with BOM so spreadsheet apps detect it
+    CSV,
+    // Single <name>.hcv file, see ColumnarEncoder for the layout
+    COLUMNAR
+}
\ No newline at end of file
@@ -0,0 +1,141 @@
+package com.example.health_check_app.export;
+
+import com.example.health_check_app.storage.AlertStore;
+import com.example.health_check_app.storage.RecordScanner;
+import com.example.health_check_app.storage.VitalsStore;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TimeZone;
+
+// Streams a time range of stored vitals and alerts to files without materializing them:
+// records flow block by block from the segment files through a fixed-size encoder buffer.
+// export() blocks, so run it on a background thread; cancel() may be called from any thread.
+public class HistoryExporter {
+    public interface ProgressListener {
+        void onProgress(int percent);
+        void onComplete(List<File> files);
+        void onCancelled();
+        void onError(String error);
+    }
+    
+    // Vitals dominate the work; alerts take the last few percent
+    private static final int VITALS_PROGRESS = 95;
+    
+    private final VitalsStore vitalsStore;
+    private final AlertStore alertStore;
+    private volatile boolean cancelled;
+    private int lastPercent = -1;
+    
+    public HistoryExporter(VitalsStore vitalsStore, AlertStore alertStore) {
+        this.vitalsStore = vitalsStore;
+        this.alertStore = alertStore;
+    }
+    
+    public void cancel() {
+        cancelled = true;
+    }
+    
+    public void export(long from, long to, ExportFormat format, File directory, String baseName,
+                       ProgressListener listener) {
+        List<File> files = new ArrayList<>();
+        if (format == ExportFormat.CSV) {
+            files.add(new File(directory, baseName + "_vitals.csv"));
+            files.add(new File(directory, baseName + "_alerts.csv"));
+        } else {
+            files.add(new File(directory, baseName + ".hcv"));
+        }
+        
+        boolean completed = false;
+        try {
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                throw new IOException("Cannot create " + directory);
+            }
+            vitalsStore.sync();
+            completed = run(from, to, openEncoder(format, files), listener);
+        } catch (IOException e) {
+            deleteAll(files);
+            listener.onError(e.getMessage());
+            return;
+        }
+        if (completed) {
+            reportProgress(100, listener);
+            listener.onComplete(files);
+        } else {
+            deleteAll(files);
+            listener.onCancelled();
+        }
+    }
+    
+    private ExportEncoder openEncoder(ExportFormat format, List<File> files) throws IOException {
+        if (format == ExportFormat.CSV) {
+            return new CsvEncoder(open(files.get(0)), open(files.get(1)), TimeZone.getDefault());
+        }
+        return new ColumnarEncoder(open(files.get(0)));
+    }
+    
+    private static ChannelWriter open(File file) throws IOException {
+        return new ChannelWriter(new FileOutputStream(file).getChannel());
+    }
+    
+    private boolean run(long from, long to, ExportEncoder encoder, ProgressListener listener)
+            throws IOException {
+        try (ExportEncoder out = encoder) {
+            RecordScanner scanner = new RecordScanner(vitalsStore);
+            long totalBytes = Math.max(1, scanner.estimateBytes(from, to));
+            IOException[] failure = new IOException[1];
+            boolean finished = scanner.scan(from, to, (tier, records, offset) -> {
+                if (cancelled) {
+                    return false;
+                }
+                try {
+                    out.writeVital(tier, records, offset);
+                } catch (IOException e) {
+                    failure[0] = e;
+                    return false;
+                }
+                reportProgress((int) (scanner.getBytesRead() * VITALS_PROGRESS / totalBytes), listener);
+                return true;
+            });
+            if (failure[0] != null) {
+                throw failure[0];
+            }
+            if (!finished) {
+                return false;
+            }
+            
+            finished = alertStore.read(from, to, record -> {
+                if (cancelled) {
+                    return false;
+                }
+                try {
+                    out.writeAlert(record);
+                } catch (IOException e) {
+                    failure[0] = e;
+                    return false;
+                }
+                return true;
+            });
+            if (failure[0] != null) {
+                throw failure[0];
+            }
+            return finished;
+        }
+    }
+    
+    private void reportProgress(int percent, ProgressListener listener) {
+        percent = Math.min(percent, 100);
+        if (percent != lastPercent) {
+            lastPercent = percent;
+            listener.onProgress(percent);
+        }
+    }
+    
+    private static void deleteAll(List<File> files) {
+        for (File file : files) {
+            file.delete();
+        }
+    }
+}
\ No newline at end of file
@@ -1,33 +1,55 @@
 package com.example.health_check_app.models;
 
+import com.example.health_check_app.rules.Alert;
+
+// A stored alert. Labels and messages are produced from the typed fields when displayed,
+// so the log stays searchable and follows the UI language.
 public class AlertRecord {
+    private final Alert.Type type;
+    private final Alert.Severity severity;
+    private final float value;
+    private final long timestamp;
     private String time;
-    private String type;
-    private String message;
-    private long timestamp;
     
-    public AlertRecord(String type, String message) {
+    public AlertRecord(Alert alert) {
+        this(alert.getType(), alert.getSeverity(), alert.getValue(), alert.getTimestamp());
+    }
+    
+    public AlertRecord(Alert.Type type, Alert.Severity severity, float value, long timestamp) {
         this.type = type;
-        this.message = message;
-        this.timestamp = System.currentTimeMillis();
-        this.time = formatTime(timestamp);
+        this.severity = severity;
+        this.value = value;
+        this.timestamp = timestamp;
     }
     
     private String formatTime(long timestamp) {
-        java.text.SimpleDateFormat sdf = new java.text.SimpleDateFormat("HH:mm", java.util.Locale.getDefault());
+        java.text.SimpleDateFormat sdf = new java.text.SimpleDateFormat("MM-dd HH:mm", java.util.Locale.getDefault());
         return sdf.format(new java.util.Date(timestamp));
     }
     
+    // Formatted on first use; queries can return thousands of records that are never shown
     public String getTime() {
+        if (time == null) {
+            time = formatTime(timestamp);
+        }
         return time;
     }
     
-    public String getType() {
+    public Alert.Type getType() {
         return type;
     }
     
-    public String getMessage() {
-        return message;
+    public Alert.Severity getSeverity() {
+        return severity;
+    }
+    
+    // The reading that triggered the alert: BPM, °C, or 1 for a fall
+    public float getValue() {
+        return value;
+    }
+    
+    public Metric getMetric() {
+        return type.getMetric();
     }
     
     public long getTimestamp() {
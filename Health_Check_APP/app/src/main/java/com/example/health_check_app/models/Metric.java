@@ -0,0 +1,40 @@
+package com.example.health_check_app.models;
+
+public enum Metric {
+    HEART_RATE,
+    BLOOD_OXYGEN,
+    BODY_TEMPERATURE,
+    ENVIRONMENT_TEMPERATURE,
+    HUMIDITY,
+    STEPS;
+    
+    public static final int COUNT = values().length;
+    
+    public float valueOf(SensorData data) {
+        switch (this) {
+            case HEART_RATE:
+                return data.getHeartRate();
+            case BLOOD_OXYGEN:
+                return data.getBloodOxygen();
+            case BODY_TEMPERATURE:
+                return data.getBodyTemperature();
+            case ENVIRONMENT_TEMPERATURE:
+                return data.getEnvironmentTemperature();
+            case HUMIDITY:
+                return data.getHumidity();
+            case STEPS:
+            default:
+                return data.getSteps();
+        }
+    }
+    
+    // Sensors report 0 for a missing reading; steps are cumulative so 0 is a real value
+    public boolean isPresent(float value) {
+        return this == STEPS ? value >= 0 : value > 0;
+    }
+    
+    // Counters only grow between resets, so a mean of their readings means nothing
+    public boolean isCumulative() {
+        return this == STEPS;
+    }
+}
\ No newline at end of file
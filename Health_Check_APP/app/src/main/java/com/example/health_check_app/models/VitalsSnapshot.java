@@ -0,0 +1,90 @@
+package com.example.health_check_app.models;
+
+// Immutable view of the latest vitals. A new instance is published for every change, so
+// readers on any thread see a consistent set of values without locking.
+public final class VitalsSnapshot {
+    public static final VitalsSnapshot EMPTY = new VitalsSnapshot(0, 0, 0, 0f, 0f, 0,
+        SensorData.MotionStatus.SEDENTARY, 0, 0, 0L);
+    
+    private final long version;
+    private final int heartRate;
+    private final int bloodOxygen;
+    private final float bodyTemperature;
+    private final float environmentTemperature;
+    private final int humidity;
+    private final SensorData.MotionStatus motionStatus;
+    private final int steps;
+    private final int batteryLevel;
+    private final long timestamp;
+    
+    private VitalsSnapshot(long version, int heartRate, int bloodOxygen, float bodyTemperature,
+                           float environmentTemperature, int humidity,
+                           SensorData.MotionStatus motionStatus, int steps, int batteryLevel,
+                           long timestamp) {
+        this.version = version;
+        this.heartRate = heartRate;
+        this.bloodOxygen = bloodOxygen;
+        this.bodyTemperature = bodyTemperature;
+        this.environmentTemperature = environmentTemperature;
+        this.humidity = humidity;
+        this.motionStatus = motionStatus;
+        this.steps = steps;
+        this.batteryLevel = batteryLevel;
+        this.timestamp = timestamp;
+    }
+    
+    // Next snapshot for a new sample. Samples without a battery reading keep the last known level.
+    public VitalsSnapshot withSample(SensorData data) {
+        return new VitalsSnapshot(version + 1, data.getHeartRate(), data.getBloodOxygen(),
+            data.getBodyTemperature(), data.getEnvironmentTemperature(), data.getHumidity(),
+            data.getMotionStatus() != null ? data.getMotionStatus() : SensorData.MotionStatus.SEDENTARY,
+            data.getSteps(), data.getBatteryLevel() > 0 ? data.getBatteryLevel() : batteryLevel,
+            data.getTimestamp());
+    }
+    
+    public VitalsSnapshot withBatteryLevel(int level) {
+        return new VitalsSnapshot(version + 1, heartRate, bloodOxygen, bodyTemperature,
+            environmentTemperature, humidity, motionStatus, steps, level, timestamp);
+    }
+    
+    // Increases by one with every published change; 0 for the empty snapshot
+    public long getVersion() {
+        return version;
+    }
+    
+    public int getHeartRate() {
+        return heartRate;
+    }
+    
+    public int getBloodOxygen() {
+        return bloodOxygen;
+    }
+    
+    public float getBodyTemperature() {
+        return bodyTemperature;
+    }
+    
+    public float getEnvironmentTemperature() {
+        return environmentTemperature;
+    }
+    
+    public int getHumidity() {
+        return humidity;
+    }
+    
+    public SensorData.MotionStatus getMotionStatus() {
+        return motionStatus;
+    }
+    
+    public int getSteps() {
+        return steps;
+    }
+    
+    public int getBatteryLevel() {
+        return batteryLevel;
+    }
+    
+    public long getTimestamp() {
+        return timestamp;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,36 @@
+package com.example.health_check_app.mqtt;
+
+import java.util.Random;
+
+// Exponential backoff with "equal jitter": attempt n waits between half and all of
+// min(max, base * 2^n), so clients that lost the same broker don't retry in lockstep
+public class Backoff {
+    private final long baseMs;
+    private final long maxMs;
+    private final Random random;
+    private int attempts;
+    
+    public Backoff(long baseMs, long maxMs, Random random) {
+        this.baseMs = baseMs;
+        this.maxMs = maxMs;
+        this.random = random;
+    }
+    
+    public synchronized long nextDelayMs() {
+        long ceiling = maxMs;
+        if (attempts < 62 && baseMs <= maxMs >> Math.min(attempts, 62)) {
+            ceiling = Math.min(maxMs, baseMs << attempts);
+        }
+        attempts++;
+        long half = ceiling / 2;
+        return half + (long) (random.nextDouble() * (ceiling - half + 1));
+    }
+    
+    public synchronized void reset() {
+        attempts = 0;
+    }
+    
+    public synchronized int getAttempts() {
+        return attempts;
+    }
+}
\ No newline at end of file
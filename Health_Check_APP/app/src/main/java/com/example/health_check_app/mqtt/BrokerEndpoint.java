@@ -0,0 +1,122 @@
+package com.example.health_check_app.mqtt;
+
+import java.net.URI;
+
+// One configured broker and what the probes have measured about it
+public class BrokerEndpoint {
+    // Weight of the newest probe in the latency averages
+    private static final double SMOOTHING = 0.3;
+    
+    private final String uri;
+    private final String host;
+    private final int port;
+    private final boolean tls;
+    
+    private boolean probed;
+    private boolean healthy = true;
+    private double connectMs;
+    private double roundTripMs;
+    private double commandRoundTripMs;
+    private long commandCount;
+    private int consecutiveFailures;
+    private long lastFailureAt;
+    
+    public BrokerEndpoint(String uri) {
+        URI parsed = URI.create(uri);
+        String scheme = parsed.getScheme() != null ? parsed.getScheme() : "tcp";
+        this.uri = uri;
+        this.host = parsed.getHost();
+        this.tls = scheme.equals("ssl") || scheme.equals("tls");
+        this.port = parsed.getPort() > 0 ? parsed.getPort() : tls ? 8883 : 1883;
+        if (host == null) {
+            throw new IllegalArgumentException("Invalid broker URI: " + uri);
+        }
+    }
+    
+    public String getUri() {
+        return uri;
+    }
+    
+    public String getHost() {
+        return host;
+    }
+    
+    public int getPort() {
+        return port;
+    }
+    
+    public boolean isTls() {
+        return tls;
+    }
+    
+    public synchronized void onProbeSuccess(long connectMs, long roundTripMs) {
+        if (!probed) {
+            this.connectMs = connectMs;
+            this.roundTripMs = roundTripMs;
+            probed = true;
+        } else {
+            this.connectMs = SMOOTHING * connectMs + (1 - SMOOTHING) * this.connectMs;
+            this.roundTripMs = SMOOTHING * roundTripMs + (1 - SMOOTHING) * this.roundTripMs;
+        }
+        healthy = true;
+        consecutiveFailures = 0;
+    }
+    
+    // Time from publishing a command to the device's reply while connected through this broker
+    public synchronized void onCommandRoundTrip(long roundTripMs) {
+        commandRoundTripMs = commandCount == 0 ? roundTripMs
+            : SMOOTHING * roundTripMs + (1 - SMOOTHING) * commandRoundTripMs;
+        commandCount++;
+    }
+    
+    // A failed probe, connect attempt or dropped connection
+    public synchronized void onFailure(long now) {
+        healthy = false;
+        consecutiveFailures++;
+        lastFailureAt = now;
+    }
+    
+    public synchronized boolean isHealthy() {
+        return healthy;
+    }
+    
+    public synchronized boolean isProbed() {
+        return probed;
+    }
+    
+    // Smoothed connect plus round-trip time; unprobed endpoints rank after measured ones
+    public synchronized double getLatencyMs() {
+        return probed ? connectMs + roundTripMs : Double.MAX_VALUE;
+    }
+    
+    public synchronized double getConnectMs() {
+        return connectMs;
+    }
+    
+    public synchronized double getRoundTripMs() {
+        return roundTripMs;
+    }
+    
+    public synchronized double getCommandRoundTripMs() {
+        return commandRoundTripMs;
+    }
+    
+    public synchronized long getCommandCount() {
+        return commandCount;
+    }
+    
+    public synchronized int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+    
+    public synchronized long getLastFailureAt() {
+        return lastFailureAt;
+    }
+    
+    @Override
+    public synchronized String toString() {
+        return uri + (healthy ? " healthy " : " down ") + (probed
+            ? Math.round(connectMs) + "+" + Math.round(roundTripMs) + "ms" : "unprobed")
+            + (commandCount > 0 ? " command " + Math.round(commandRoundTripMs) + "ms" : "");
+    }
+}
\ No newline at end of file
@@ -0,0 +1,201 @@
+package com.example.health_check_app.mqtt;
+
+import android.util.Log;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Drives the MQTT connection across the configured brokers: connects to the fastest healthy
+// endpoint and, when that attempt fails or the connection drops, moves to the next best one
+// after a jittered exponential backoff. Replaces Paho's fixed-interval automatic reconnect.
+// It also acts on the selector's periodic probes: a broker the probes find down is left for a
+// healthy one even while its session still looks open, and one that has become much slower
+// than another healthy broker is swapped for it.
+public class BrokerFailover {
+    private static final String TAG = "BrokerFailover";
+    // A healthy broker has to be this much faster than the current one to be moved to, so
+    // probe noise between brokers of similar speed doesn't bounce the connection between them
+    static final double SWITCH_RATIO = 0.5;
+    
+    public interface Connector {
+        // Starts connecting; exactly one of the callback methods must be called eventually
+        void connect(BrokerEndpoint endpoint, ConnectCallback callback);
+        
+        void disconnect();
+    }
+    
+    public interface ConnectCallback {
+        void onConnected();
+        void onFailed(Throwable cause);
+    }
+    
+    public interface Listener {
+        // Only for the attempt still current; a connection from an abandoned one is closed
+        // without being reported
+        void onConnected(BrokerEndpoint endpoint);
+        // attempt counts failures since the last successful connection, starting at 1
+        void onRetryScheduled(BrokerEndpoint failed, int attempt, long delayMs);
+    }
+    
+    private final BrokerSelector selector;
+    private final Connector connector;
+    private final Backoff backoff;
+    private final ScheduledExecutorService scheduler;
+    private Listener listener;
+    
+    private BrokerEndpoint current;
+    private BrokerEndpoint lastFailed;
+    // Bumped on every attempt and on stop, so callbacks from abandoned attempts are ignored
+    private long generation;
+    private boolean running;
+    
+    public BrokerFailover(BrokerSelector selector, Connector connector, Backoff backoff,
+                          ScheduledExecutorService scheduler) {
+        this.selector = selector;
+        this.connector = connector;
+        this.backoff = backoff;
+        this.scheduler = scheduler;
+        selector.setProbeListener(this::onProbed);
+    }
+    
+    public synchronized void setListener(Listener listener) {
+        this.listener = listener;
+    }
+    
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        scheduler.execute(this::attempt);
+    }
+    
+    public void stop() {
+        synchronized (this) {
+            running = false;
+            generation++;
+            current = null;
+        }
+        connector.disconnect();
+    }
+    
+    public synchronized BrokerEndpoint getCurrent() {
+        return current;
+    }
+    
+    // Called when an established connection is lost
+    public synchronized void onConnectionLost() {
+        if (!running || current == null) {
+            return;
+        }
+        BrokerEndpoint lost = current;
+        current = null;
+        generation++;
+        fail(lost);
+    }
+    
+    // After each round of probes, on the probing thread. The connection is closed before the
+    // next attempt is scheduled, so closing can't catch the new connection instead.
+    void onProbed() {
+        BrokerEndpoint leaving;
+        boolean down;
+        long switching;
+        synchronized (this) {
+            if (!running || current == null) {
+                return;
+            }
+            BrokerEndpoint alternative = selector.pickBest(current);
+            if (alternative == null || alternative == current || !alternative.isHealthy()) {
+                // Nowhere better to go; an open session is kept even if its probe failed
+                return;
+            }
+            down = !current.isHealthy();
+            if (!down && alternative.getLatencyMs() >= current.getLatencyMs() * SWITCH_RATIO) {
+                return;
+            }
+            leaving = current;
+            current = null;
+            switching = ++generation;
+        }
+        connector.disconnect();
+        synchronized (this) {
+            // Stopped meanwhile
+            if (switching != generation || !running) {
+                return;
+            }
+            if (down) {
+                Log.w(TAG, "Leaving " + leaving.getUri() + ", which failed its probe");
+                fail(leaving);
+            } else {
+                Log.d(TAG, "Moving from " + leaving + " to a faster broker");
+                lastFailed = null;
+                scheduler.execute(this::attempt);
+            }
+        }
+    }
+    
+    // The endpoint and attempt are picked under the lock, but the connector is called without
+    // it: a connector that blocks or calls back on this thread must not hold up stop() or the
+    // callbacks of an attempt, which the generation check already guards
+    private void attempt() {
+        BrokerEndpoint endpoint;
+        long attempt;
+        synchronized (this) {
+            if (!running) {
+                return;
+            }
+            endpoint = selector.pickBest(lastFailed);
+            attempt = ++generation;
+        }
+        Log.d(TAG, "Connecting to " + endpoint);
+        connector.connect(endpoint, new ConnectCallback() {
+            @Override
+            public void onConnected() {
+                onAttemptConnected(attempt, endpoint);
+            }
+            
+            @Override
+            public void onFailed(Throwable cause) {
+                Log.w(TAG, "Connect to " + endpoint.getUri() + " failed: "
+                    + (cause != null ? cause.getMessage() : "unknown"));
+                onAttemptFailed(attempt, endpoint);
+            }
+        });
+    }
+    
+    private void onAttemptConnected(long attempt, BrokerEndpoint endpoint) {
+        synchronized (this) {
+            if (attempt == generation && running) {
+                current = endpoint;
+                lastFailed = null;
+                backoff.reset();
+                if (listener != null) {
+                    listener.onConnected(endpoint);
+                }
+                return;
+            }
+            if (running) {
+                return;
+            }
+        }
+        // Stopped while this attempt was under way, after stop() had disconnected
+        connector.disconnect();
+    }
+    
+    private synchronized void onAttemptFailed(long attempt, BrokerEndpoint endpoint) {
+        if (attempt != generation || !running) {
+            return;
+        }
+        generation++;
+        fail(endpoint);
+    }
+    
+    private void fail(BrokerEndpoint endpoint) {
+        endpoint.onFailure(System.currentTimeMillis());
+        lastFailed = endpoint;
+        long delayMs = backoff.nextDelayMs();
+        if (listener != null) {
+            listener.onRetryScheduled(endpoint, backoff.getAttempts(), delayMs);
+        }
+        scheduler.schedule(this::attempt, delayMs, TimeUnit.MILLISECONDS);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,93 @@
+package com.example.health_check_app.mqtt;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import javax.net.ssl.SSLSocket;
+
+// Lightweight broker health check: opens a socket, sends a bare MQTT 3.1.1 CONNECT and waits
+// for the CONNACK. Any CONNACK, even one refusing the probe's anonymous login, proves the
+// broker is serving, and the two phases give separate connect and round-trip latencies.
+// TLS probes share the app's TlsTransport, so they also keep its session cache warm.
+public class BrokerProber {
+    private static final int PACKET_CONNACK = 0x20;
+    private static final byte[] DISCONNECT = {(byte) 0xE0, 0};
+    
+    private final int timeoutMs;
+    private final TlsTransport tlsTransport;
+    
+    public BrokerProber(int timeoutMs) {
+        this(timeoutMs, new TlsTransport(new DnsCache()));
+    }
+    
+    public BrokerProber(int timeoutMs, TlsTransport tlsTransport) {
+        this.timeoutMs = timeoutMs;
+        this.tlsTransport = tlsTransport;
+    }
+    
+    // Probes the endpoint and records the outcome on it. Returns true if it is healthy.
+    public boolean probe(BrokerEndpoint endpoint) {
+        long started = System.nanoTime();
+        try (Socket socket = new Socket()) {
+            socket.connect(tlsTransport.resolve(endpoint), timeoutMs);
+            socket.setSoTimeout(timeoutMs);
+            socket.setTcpNoDelay(true);
+            Socket stream = socket;
+            if (endpoint.isTls()) {
+                SSLSocket ssl = tlsTransport.layer(socket, endpoint.getHost(), endpoint.getPort());
+                tlsTransport.handshake(ssl, (System.nanoTime() - started) / 1_000_000);
+                stream = ssl;
+            }
+            long connected = System.nanoTime();
+            OutputStream out = stream.getOutputStream();
+            out.write(connectPacket("probe-" + Long.toHexString(connected)));
+            out.flush();
+            InputStream in = stream.getInputStream();
+            if ((in.read() & 0xF0) != PACKET_CONNACK || in.read() != 2) {
+                throw new IOException("Not an MQTT broker");
+            }
+            in.read();
+            if (in.read() < 0) {
+                throw new IOException("Truncated CONNACK");
+            }
+            long acknowledged = System.nanoTime();
+            out.write(DISCONNECT);
+            out.flush();
+            endpoint.onProbeSuccess((connected - started) / 1_000_000,
+                (acknowledged - connected) / 1_000_000);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            // The broker may have moved; look it up afresh next time
+            tlsTransport.getDnsCache().invalidate(endpoint.getHost());
+            endpoint.onFailure(System.currentTimeMillis());
+            return false;
+        }
+    }
+    
+    static byte[] connectPacket(String clientId) {
+        byte[] id = clientId.getBytes(StandardCharsets.UTF_8);
+        int remaining = 10 + 2 + id.length;
+        byte[] packet = new byte[2 + remaining];
+        int i = 0;
+        packet[i++] = 0x10;
+        // Probe client ids are short, so the remaining length fits in one byte
+        packet[i++] = (byte) remaining;
+        packet[i++] = 0;
+        packet[i++] = 4;
+        packet[i++] = 'M';
+        packet[i++] = 'Q';
+        packet[i++] = 'T';
+        packet[i++] = 'T';
+        // Protocol level 4 (3.1.1), clean session, 10 s keep-alive
+        packet[i++] = 4;
+        packet[i++] = 0x02;
+        packet[i++] = 0;
+        packet[i++] = 10;
+        packet[i++] = (byte) (id.length >> 8);
+        packet[i++] = (byte) id.length;
+        System.arraycopy(id, 0, packet, i, id.length);
+        return packet;
+    }
+}
\ No newline at end of file
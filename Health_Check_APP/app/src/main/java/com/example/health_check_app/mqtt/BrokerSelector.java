@@ -0,0 +1,124 @@
+package com.example.health_check_app.mqtt;
+
+import android.util.Log;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Keeps every configured broker probed in the background and picks the fastest healthy one
+public class BrokerSelector {
+    private static final String TAG = "BrokerSelector";
+    
+    public interface ProbeListener {
+        // Called on the probing thread once a round of probes has updated every endpoint
+        void onProbed();
+    }
+    
+    private final List<BrokerEndpoint> endpoints;
+    private final BrokerProber prober;
+    private final ExecutorService probeExecutor = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "broker-probe");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private ScheduledExecutorService scheduler;
+    private volatile ProbeListener probeListener;
+    
+    public BrokerSelector(List<String> uris, BrokerProber prober) {
+        List<BrokerEndpoint> parsed = new ArrayList<>();
+        for (String uri : uris) {
+            try {
+                parsed.add(new BrokerEndpoint(uri));
+            } catch (IllegalArgumentException e) {
+                Log.e(TAG, "Ignoring broker: " + e.getMessage());
+            }
+        }
+        if (parsed.isEmpty()) {
+            throw new IllegalArgumentException("No valid broker endpoints");
+        }
+        this.endpoints = Collections.unmodifiableList(parsed);
+        this.prober = prober;
+    }
+    
+    public void setProbeListener(ProbeListener listener) {
+        this.probeListener = listener;
+    }
+    
+    public List<BrokerEndpoint> getEndpoints() {
+        return endpoints;
+    }
+    
+    // Re-probes every intervalMs; call probeAll() first for an initial measurement
+    public void start(long intervalMs) {
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "broker-selector");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::probeAll, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+    
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+    
+    // Stops probing for good, including any probe still running; the selector can't be restarted
+    public void close() {
+        stop();
+        probeExecutor.shutdownNow();
+    }
+    
+    // Probes every endpoint in parallel, so one unresponsive broker doesn't delay the others,
+    // and waits for the results
+    public void probeAll() {
+        List<Callable<Boolean>> probes = new ArrayList<>();
+        for (BrokerEndpoint endpoint : endpoints) {
+            probes.add(() -> prober.probe(endpoint));
+        }
+        try {
+            probeExecutor.invokeAll(probes);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        Log.d(TAG, "Brokers: " + endpoints);
+        ProbeListener listener = probeListener;
+        if (listener != null) {
+            listener.onProbed();
+        }
+    }
+    
+    // Fastest healthy endpoint other than the excluded one (which just failed, if any).
+    // When none is healthy, the one that has been down the longest is retried first.
+    public BrokerEndpoint pickBest(BrokerEndpoint exclude) {
+        BrokerEndpoint best = null;
+        for (BrokerEndpoint endpoint : endpoints) {
+            if (endpoint != exclude && endpoint.isHealthy()
+                    && (best == null || endpoint.getLatencyMs() < best.getLatencyMs())) {
+                best = endpoint;
+            }
+        }
+        if (best != null) {
+            return best;
+        }
+        for (BrokerEndpoint endpoint : endpoints) {
+            if (endpoint != exclude
+                    && (best == null || endpoint.getLastFailureAt() < best.getLastFailureAt())) {
+                best = endpoint;
+            }
+        }
+        if (best == null) {
+            // A single configured broker is retried even though it just failed
+            best = exclude;
+        }
+        return best;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,42 @@
+package com.example.health_check_app.mqtt;
+
+// The device's reply to one command
+public class CommandResult {
+    private final String id;
+    private final String command;
+    private final String status;
+    private final String message;
+    private final long roundTripMs;
+    
+    public CommandResult(String id, String command, String status, String message, long roundTripMs) {
+        this.id = id;
+        this.command = command;
+        this.status = status;
+        this.message = message;
+        this.roundTripMs = roundTripMs;
+    }
+    
+    public String getId() {
+        return id;
+    }
+    
+    public String getCommand() {
+        return command;
+    }
+    
+    public String getStatus() {
+        return status;
+    }
+    
+    public boolean isOk() {
+        return "ok".equalsIgnoreCase(status);
+    }
+    
+    public String getMessage() {
+        return message;
+    }
+    
+    public long getRoundTripMs() {
+        return roundTripMs;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,136 @@
+package com.example.health_check_app.mqtt;
+
+import com.example.health_check_app.timer.TimerService;
+import com.example.health_check_app.timer.TimerWheel;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+
+// Tracks commands awaiting a reply from the device. Every command gets a correlation id; any
+// number up to MAX_IN_FLIGHT may be outstanding at once and replies can arrive in any order.
+// Deadlines are timers on the app-wide TimerService, so a reply costs one O(1) cancel and
+// timeouts fire on its thread, up to one tick late.
+public class CommandRpc {
+    public static final int MAX_IN_FLIGHT = 16;
+    
+    public interface RoundTripListener {
+        void onRoundTrip(long roundTripMs);
+    }
+    
+    // One outstanding command
+    public static final class Call {
+        private final String id;
+        private final String command;
+        private final long sentAtNanos;
+        private final CompletableFuture<CommandResult> future = new CompletableFuture<>();
+        private TimerWheel.Timer timeout;
+        
+        private Call(String id, String command, long sentAtNanos) {
+            this.id = id;
+            this.command = command;
+            this.sentAtNanos = sentAtNanos;
+        }
+        
+        public String getId() {
+            return id;
+        }
+        
+        // Completes with the reply, or exceptionally on timeout or failure
+        public CompletableFuture<CommandResult> getFuture() {
+            return future;
+        }
+    }
+    
+    private final Map<String, Call> pending = new HashMap<>();
+    private final TimerService timers;
+    // Distinguishes this session's ids from replies to an earlier process
+    private final String idPrefix = Long.toString(System.currentTimeMillis() % 1_000_000_000L, 36);
+    private long nextId;
+    private boolean closed;
+    private RoundTripListener roundTripListener;
+    
+    public CommandRpc(TimerService timers) {
+        this.timers = timers;
+    }
+    
+    public synchronized void setRoundTripListener(RoundTripListener listener) {
+        this.roundTripListener = listener;
+    }
+    
+    public synchronized int getInFlightCount() {
+        return pending.size();
+    }
+    
+    // Registers a command under a new correlation id, or returns null when too many are in
+    // flight or the RPC is closed
+    public synchronized Call begin(String command, long timeoutMs) {
+        if (closed || pending.size() >= MAX_IN_FLIGHT) {
+            return null;
+        }
+        String id = idPrefix + "-" + (++nextId);
+        Call call = new Call(id, command, System.nanoTime());
+        pending.put(id, call);
+        call.timeout = timers.schedule(() -> expire(id, timeoutMs), timeoutMs);
+        return call;
+    }
+    
+    // Matches a reply to its command. Returns false for unknown or already expired ids.
+    public boolean complete(String id, String status, String message) {
+        Call call;
+        RoundTripListener listener;
+        synchronized (this) {
+            call = pending.remove(id);
+            if (call == null) {
+                return false;
+            }
+            timers.cancel(call.timeout);
+            listener = roundTripListener;
+        }
+        long roundTripMs = (System.nanoTime() - call.sentAtNanos) / 1_000_000;
+        if (listener != null) {
+            listener.onRoundTrip(roundTripMs);
+        }
+        call.future.complete(new CommandResult(id, call.command, status, message, roundTripMs));
+        return true;
+    }
+    
+    // Fails one command, e.g. when it could not be published
+    public void fail(String id, Throwable cause) {
+        Call call;
+        synchronized (this) {
+            call = pending.remove(id);
+            if (call == null) {
+                return;
+            }
+            timers.cancel(call.timeout);
+        }
+        call.future.completeExceptionally(cause);
+    }
+    
+    public void failAll(Throwable cause) {
+        Call[] calls;
+        synchronized (this) {
+            calls = pending.values().toArray(new Call[0]);
+            pending.clear();
+            for (Call call : calls) {
+                timers.cancel(call.timeout);
+            }
+        }
+        for (Call call : calls) {
+            call.future.completeExceptionally(cause);
+        }
+    }
+    
+    // Fails whatever is pending and cancels its timers; later commands are refused
+    public void close() {
+        synchronized (this) {
+            closed = true;
+        }
+        failAll(new IllegalStateException("Closed"));
+    }
+    
+    private void expire(String id, long timeoutMs) {
+        fail(id, new TimeoutException("No reply within " + timeoutMs + " ms"));
+    }
+}
\ No newline at end of file
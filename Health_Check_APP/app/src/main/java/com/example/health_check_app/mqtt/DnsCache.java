@@ -0,0 +1,109 @@
+package com.example.health_check_app.mqtt;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Remembers broker host lookups so reconnects and probes skip DNS. An entry is reused for its
+// TTL, refreshed after that, and a stale entry is still served when the refresh fails, since
+// a broker that moved is far rarer than a resolver that is briefly unreachable.
+public class DnsCache {
+    public static final long DEFAULT_TTL_MS = 5 * 60 * 1000L;
+    
+    public interface Resolver {
+        InetAddress resolve(String host) throws UnknownHostException;
+    }
+    
+    private static final class Entry {
+        final InetAddress address;
+        final long resolvedAt;
+        
+        Entry(InetAddress address, long resolvedAt) {
+            this.address = address;
+            this.resolvedAt = resolvedAt;
+        }
+    }
+    
+    private final Resolver resolver;
+    private final long ttlMs;
+    private final Map<String, Entry> entries = new HashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong staleHits = new AtomicLong();
+    private volatile long lastLookupMs;
+    
+    public DnsCache() {
+        this(InetAddress::getByName, DEFAULT_TTL_MS);
+    }
+    
+    public DnsCache(Resolver resolver, long ttlMs) {
+        this.resolver = resolver;
+        this.ttlMs = ttlMs;
+    }
+    
+    public InetAddress lookup(String host) throws UnknownHostException {
+        return lookup(host, System.currentTimeMillis());
+    }
+    
+    public InetAddress lookup(String host, long now) throws UnknownHostException {
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(host);
+        }
+        if (entry != null && now - entry.resolvedAt < ttlMs) {
+            hits.incrementAndGet();
+            return entry.address;
+        }
+        // Resolved outside the lock so one slow host does not hold up the others
+        long started = System.nanoTime();
+        InetAddress address;
+        try {
+            address = resolver.resolve(host);
+        } catch (UnknownHostException e) {
+            if (entry == null) {
+                throw e;
+            }
+            staleHits.incrementAndGet();
+            return entry.address;
+        }
+        lastLookupMs = (System.nanoTime() - started) / 1_000_000;
+        misses.incrementAndGet();
+        synchronized (entries) {
+            entries.put(host, new Entry(address, now));
+        }
+        return address;
+    }
+    
+    // Forgets a host, e.g. after connecting to its cached address failed
+    public void invalidate(String host) {
+        synchronized (entries) {
+            entries.remove(host);
+        }
+    }
+    
+    public long getHits() {
+        return hits.get();
+    }
+    
+    public long getMisses() {
+        return misses.get();
+    }
+    
+    // Lookups answered from an expired entry because the resolver failed
+    public long getStaleHits() {
+        return staleHits.get();
+    }
+    
+    // Duration of the most recent lookup that went to the resolver
+    public long getLastLookupMs() {
+        return lastLookupMs;
+    }
+    
+    @Override
+    public String toString() {
+        return "hits=" + getHits() + " misses=" + getMisses() + " stale=" + getStaleHits()
+            + " lastLookup=" + getLastLookupMs() + "ms";
+    }
+}
\ No newline at end of file
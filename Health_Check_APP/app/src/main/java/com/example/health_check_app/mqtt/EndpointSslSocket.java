@@ -0,0 +1,330 @@
+package com.example.health_check_app.mqtt;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.net.SocketException;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.List;
+import javax.net.ssl.HandshakeCompletedListener;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSocket;
+
+// The unconnected socket Paho asks the factory for. Paho connects it to the address from the
+// URI, which TlsTransport made an IP literal, and then sets SNI and host name checks for that
+// IP. Once the TCP connect is done this socket layers TLS for the broker's real host name
+// instead and rewrites later parameter changes to match, so certificate checks, SNI and the
+// session cache all key on the host name. Settings made before the connect are kept on an
+// unconnected template socket and carried over.
+class EndpointSslSocket extends SSLSocket {
+    private final TlsTransport transport;
+    private final String host;
+    private final Socket plain = new Socket();
+    private final SSLSocket template;
+    private final List<HandshakeCompletedListener> pendingListeners = new ArrayList<>();
+    private volatile SSLSocket ssl;
+    private long connectMs;
+    
+    EndpointSslSocket(TlsTransport transport, String host) throws IOException {
+        this.transport = transport;
+        this.host = host;
+        try {
+            template = (SSLSocket) transport.getContext().getSocketFactory().createSocket();
+        } catch (GeneralSecurityException e) {
+            throw new SocketException("TLS unavailable: " + e.getMessage());
+        }
+    }
+    
+    private SSLSocket current() {
+        SSLSocket connected = ssl;
+        return connected != null ? connected : template;
+    }
+    
+    private SSLSocket connected() throws SocketException {
+        SSLSocket connected = ssl;
+        if (connected == null) {
+            throw new SocketException("Socket is not connected");
+        }
+        return connected;
+    }
+    
+    @Override
+    public void connect(SocketAddress endpoint) throws IOException {
+        connect(endpoint, 0);
+    }
+    
+    @Override
+    public synchronized void connect(SocketAddress endpoint, int timeout) throws IOException {
+        long started = System.nanoTime();
+        plain.connect(endpoint, timeout);
+        connectMs = (System.nanoTime() - started) / 1_000_000;
+        SSLSocket layered = transport.layer(plain, host, plain.getPort());
+        layered.setSSLParameters(TlsTransport.forHost(template.getSSLParameters(), host));
+        layered.setSoTimeout(plain.getSoTimeout());
+        for (HandshakeCompletedListener listener : pendingListeners) {
+            layered.addHandshakeCompletedListener(listener);
+        }
+        pendingListeners.clear();
+        ssl = layered;
+    }
+    
+    @Override
+    public void startHandshake() throws IOException {
+        transport.handshake(connected(), connectMs);
+    }
+    
+    @Override
+    public void setSSLParameters(SSLParameters parameters) {
+        current().setSSLParameters(TlsTransport.forHost(parameters, host));
+    }
+    
+    @Override
+    public SSLParameters getSSLParameters() {
+        return current().getSSLParameters();
+    }
+    
+    @Override
+    public SSLSession getSession() {
+        return current().getSession();
+    }
+    
+    @Override
+    public String[] getSupportedCipherSuites() {
+        return current().getSupportedCipherSuites();
+    }
+    
+    @Override
+    public String[] getEnabledCipherSuites() {
+        return current().getEnabledCipherSuites();
+    }
+    
+    @Override
+    public void setEnabledCipherSuites(String[] suites) {
+        current().setEnabledCipherSuites(suites);
+    }
+    
+    @Override
+    public String[] getSupportedProtocols() {
+        return current().getSupportedProtocols();
+    }
+    
+    @Override
+    public String[] getEnabledProtocols() {
+        return current().getEnabledProtocols();
+    }
+    
+    @Override
+    public void setEnabledProtocols(String[] protocols) {
+        current().setEnabledProtocols(protocols);
+    }
+    
+    @Override
+    public synchronized void addHandshakeCompletedListener(HandshakeCompletedListener listener) {
+        if (ssl != null) {
+            ssl.addHandshakeCompletedListener(listener);
+        } else {
+            pendingListeners.add(listener);
+        }
+    }
+    
+    @Override
+    public synchronized void removeHandshakeCompletedListener(HandshakeCompletedListener listener) {
+        if (ssl != null) {
+            ssl.removeHandshakeCompletedListener(listener);
+        } else {
+            pendingListeners.remove(listener);
+        }
+    }
+    
+    @Override
+    public void setUseClientMode(boolean mode) {
+        current().setUseClientMode(mode);
+    }
+    
+    @Override
+    public boolean getUseClientMode() {
+        return current().getUseClientMode();
+    }
+    
+    @Override
+    public void setNeedClientAuth(boolean need) {
+        current().setNeedClientAuth(need);
+    }
+    
+    @Override
+    public boolean getNeedClientAuth() {
+        return current().getNeedClientAuth();
+    }
+    
+    @Override
+    public void setWantClientAuth(boolean want) {
+        current().setWantClientAuth(want);
+    }
+    
+    @Override
+    public boolean getWantClientAuth() {
+        return current().getWantClientAuth();
+    }
+    
+    @Override
+    public void setEnableSessionCreation(boolean flag) {
+        current().setEnableSessionCreation(flag);
+    }
+    
+    @Override
+    public boolean getEnableSessionCreation() {
+        return current().getEnableSessionCreation();
+    }
+    
+    @Override
+    public InputStream getInputStream() throws IOException {
+        return connected().getInputStream();
+    }
+    
+    @Override
+    public OutputStream getOutputStream() throws IOException {
+        return connected().getOutputStream();
+    }
+    
+    // Read timeouts go to the TLS socket once it exists; some providers track them there
+    @Override
+    public void setSoTimeout(int timeout) throws SocketException {
+        SSLSocket connected = ssl;
+        if (connected != null) {
+            connected.setSoTimeout(timeout);
+        } else {
+            plain.setSoTimeout(timeout);
+        }
+    }
+    
+    @Override
+    public int getSoTimeout() throws SocketException {
+        SSLSocket connected = ssl;
+        return connected != null ? connected.getSoTimeout() : plain.getSoTimeout();
+    }
+    
+    @Override
+    public void setTcpNoDelay(boolean on) throws SocketException {
+        plain.setTcpNoDelay(on);
+    }
+    
+    @Override
+    public boolean getTcpNoDelay() throws SocketException {
+        return plain.getTcpNoDelay();
+    }
+    
+    @Override
+    public void setKeepAlive(boolean on) throws SocketException {
+        plain.setKeepAlive(on);
+    }
+    
+    @Override
+    public boolean getKeepAlive() throws SocketException {
+        return plain.getKeepAlive();
+    }
+    
+    @Override
+    public void setSoLinger(boolean on, int linger) throws SocketException {
+        plain.setSoLinger(on, linger);
+    }
+    
+    @Override
+    public int getSoLinger() throws SocketException {
+        return plain.getSoLinger();
+    }
+    
+    @Override
+    public void bind(SocketAddress bindpoint) throws IOException {
+        plain.bind(bindpoint);
+    }
+    
+    @Override
+    public InetAddress getInetAddress() {
+        return plain.getInetAddress();
+    }
+    
+    @Override
+    public InetAddress getLocalAddress() {
+        return plain.getLocalAddress();
+    }
+    
+    @Override
+    public int getPort() {
+        return plain.getPort();
+    }
+    
+    @Override
+    public int getLocalPort() {
+        return plain.getLocalPort();
+    }
+    
+    @Override
+    public SocketAddress getRemoteSocketAddress() {
+        return plain.getRemoteSocketAddress();
+    }
+    
+    @Override
+    public SocketAddress getLocalSocketAddress() {
+        return plain.getLocalSocketAddress();
+    }
+    
+    @Override
+    public boolean isConnected() {
+        return plain.isConnected();
+    }
+    
+    @Override
+    public boolean isBound() {
+        return plain.isBound();
+    }
+    
+    @Override
+    public boolean isClosed() {
+        SSLSocket connected = ssl;
+        return connected != null ? connected.isClosed() : plain.isClosed();
+    }
+    
+    @Override
+    public void shutdownInput() throws IOException {
+        connected().shutdownInput();
+    }
+    
+    @Override
+    public void shutdownOutput() throws IOException {
+        connected().shutdownOutput();
+    }
+    
+    @Override
+    public boolean isInputShutdown() {
+        return current().isInputShutdown() || plain.isInputShutdown();
+    }
+    
+    @Override
+    public boolean isOutputShutdown() {
+        return current().isOutputShutdown() || plain.isOutputShutdown();
+    }
+    
+    @Override
+    public synchronized void close() throws IOException {
+        SSLSocket connected = ssl;
+        try {
+            if (connected != null) {
+                connected.close();
+            }
+        } finally {
+            plain.close();
+            template.close();
+        }
+    }
+    
+    @Override
+    public String toString() {
+        return "EndpointSslSocket[" + host + ", " + (ssl != null ? plain.getRemoteSocketAddress()
+            : "unconnected") + "]";
+    }
+}
\ No newline at end of file
@@ -1,30 +1,78 @@
 package com.example.health_check_app.mqtt;
 
 import android.content.Context;
+import android.os.Handler;
+import android.os.HandlerThread;
 import android.util.Log;
+import com.example.health_check_app.AppConfig;
 import org.eclipse.paho.android.service.MqttAndroidClient;
 import org.eclipse.paho.client.mqttv3.*;
 import com.example.health_check_app.models.SensorData;
+import com.example.health_check_app.timer.TimerService;
+import com.example.health_check_app.trace.FlightRecorder;
+import com.example.health_check_app.trace.TraceEvent;
 import org.json.JSONException;
 import org.json.JSONObject;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 
 public class MqttManager {
     private static final String TAG = "MqttManager";
     
-    // MQTT Broker configuration for Alibaba Cloud IoT
-    // These should be replaced with actual credentials
-    private static final String MQTT_BROKER = "tcp://iot-instance.aliyuncs.com:1883";
+    // Brokers come from AppConfig; the fastest healthy one is used and the others are fallbacks
     private static final String CLIENT_ID = "health_check_app_";
+    private static final int PROBE_TIMEOUT_MS = 3000;
+    private static final long PROBE_INTERVAL_MS = 60 * 1000L;
+    private static final long RETRY_BASE_MS = 250;
+    private static final long RETRY_MAX_MS = 30 * 1000L;
     
     // Topics
     private static final String TOPIC_SENSOR_DATA = "sensor/data";
     private static final String TOPIC_DEVICE_COMMAND = "device/command";
     private static final String TOPIC_DEVICE_STATUS = "device/status";
+    private static final String TOPIC_DEVICE_RESPONSE = "device/response";
     
-    private MqttAndroidClient mqttClient;
+    public static final long DEFAULT_COMMAND_TIMEOUT_MS = 5000;
+    
+    private volatile MqttAndroidClient mqttClient;
     private Context context;
-    private MqttConnectionListener connectionListener;
-    private MqttDataListener dataListener;
+    private final String clientId;
+    private final BrokerSelector brokerSelector;
+    private final BrokerFailover brokerFailover;
+    private final ScheduledExecutorService failoverScheduler;
+    private final TlsTransport tlsTransport = new TlsTransport(new DnsCache());
+    private final CommandRpc commandRpc = new CommandRpc(TimerService.getInstance());
+    // Per-message events go to the flight recorder; the log keeps the rare lifecycle ones
+    private final FlightRecorder flightRecorder = FlightRecorder.getInstance();
+    private final int sensorDataTopicId;
+    private final int deviceStatusTopicId;
+    private final int deviceResponseTopicId;
+    private String username;
+    private String password;
+    private volatile MqttConnectionListener connectionListener;
+    private volatile MqttDataListener dataListener;
+    
+    // MqttAndroidClient calls back on the main looper, so every message still costs the main
+    // thread one hand-off. Parsing, the sequence windows and the listeners run on this thread.
+    private final HandlerThread ingestThread = startIngestThread();
+    private final Handler ingestHandler = new Handler(ingestThread.getLooper());
+    
+    // Sensor messages carry a per-device "seq", and a boot "epoch" if the firmware reports one;
+    // one window per device drops redeliveries
+    private final Map<String, SequenceWindow<SensorData>> sequenceWindows = new HashMap<>();
+    private final SequenceStats sequenceStats = new SequenceStats();
+    private final Runnable expireTask = () -> expireHeldMessages(System.currentTimeMillis());
+    
+    // While a recording is replayed, live messages are ignored and time comes from the recording
+    private volatile boolean replaying;
+    private volatile SessionRecorder recorder;
     
     public interface MqttConnectionListener {
         void onConnected();
@@ -38,10 +86,70 @@ public class MqttManager {
     }
     
     public MqttManager(Context context) {
+        this(context, new AppConfig(context).getMqttBrokers());
+    }
+    
+    public MqttManager(Context context, List<String> brokers) {
         this.context = context;
-        String clientId = CLIENT_ID + System.currentTimeMillis();
-        mqttClient = new MqttAndroidClient(context, MQTT_BROKER, clientId);
-        setupCallbacks();
+        this.clientId = CLIENT_ID + System.currentTimeMillis();
+        // Interned once so messageArrived doesn't look the topic up per message
+        sensorDataTopicId = flightRecorder.intern(TOPIC_SENSOR_DATA);
+        deviceStatusTopicId = flightRecorder.intern(TOPIC_DEVICE_STATUS);
+        deviceResponseTopicId = flightRecorder.intern(TOPIC_DEVICE_RESPONSE);
+        brokerSelector = new BrokerSelector(brokers, new BrokerProber(PROBE_TIMEOUT_MS, tlsTransport));
+        failoverScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "mqtt-failover");
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (BrokerEndpoint endpoint : brokerSelector.getEndpoints()) {
+            if (endpoint.isTls()) {
+                // Ready before the first probe or connect needs it
+                failoverScheduler.execute(tlsTransport::warmUp);
+                break;
+            }
+        }
+        brokerFailover = new BrokerFailover(brokerSelector, new PahoConnector(),
+            new Backoff(RETRY_BASE_MS, RETRY_MAX_MS, new Random()), failoverScheduler);
+        // Command round trips go into the metrics of the broker they travelled through
+        commandRpc.setRoundTripListener(roundTripMs -> {
+            BrokerEndpoint current = brokerFailover.getCurrent();
+            if (current != null) {
+                current.onCommandRoundTrip(roundTripMs);
+            }
+        });
+        brokerFailover.setListener(new BrokerFailover.Listener() {
+            @Override
+            public void onConnected(BrokerEndpoint endpoint) {
+                Log.d(TAG, "Using broker " + endpoint);
+                flightRecorder.record(TraceEvent.CONNECTED, flightRecorder.intern(endpoint.getUri()),
+                    endpoint.isTls() ? tlsTransport.getStats().getLastConnectMs() : -1);
+                MqttAndroidClient client = mqttClient;
+                if (client != null) {
+                    subscribeToTopics(client);
+                }
+                if (connectionListener != null) {
+                    connectionListener.onConnected();
+                }
+            }
+            
+            @Override
+            public void onRetryScheduled(BrokerEndpoint failed, int attempt, long delayMs) {
+                Log.d(TAG, "Retry " + attempt + " in " + delayMs + " ms after " + failed.getUri());
+                flightRecorder.record(TraceEvent.RETRY_SCHEDULED, attempt, delayMs);
+                // Report the first failure only; later retries would just repeat it
+                if (attempt == 1 && connectionListener != null) {
+                    connectionListener.onConnectionFailed(failed.getUri());
+                }
+            }
+        });
+    }
+    
+    private static HandlerThread startIngestThread() {
+        HandlerThread thread = new HandlerThread("mqtt-ingest");
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
     }
     
     public void setConnectionListener(MqttConnectionListener listener) {
@@ -52,71 +160,199 @@ public class MqttManager {
         this.dataListener = listener;
     }
     
-    private void setupCallbacks() {
-        mqttClient.setCallback(new MqttCallback() {
+    public SequenceStats getSequenceStats() {
+        return sequenceStats;
+    }
+    
+    // Full versus resumed handshake counts and connect times for TLS brokers, probes included
+    public TlsStats getTlsStats() {
+        return tlsTransport.getStats();
+    }
+    
+    public DnsCache getDnsCache() {
+        return tlsTransport.getDnsCache();
+    }
+    
+    // Starts writing every inbound message to the file, replacing any current recording
+    public void startRecording(File file) throws IOException {
+        stopRecording();
+        recorder = new SessionRecorder(file, System.currentTimeMillis());
+        Log.d(TAG, "Recording session to " + file);
+    }
+    
+    public void stopRecording() {
+        SessionRecorder current = recorder;
+        recorder = null;
+        if (current != null) {
+            try {
+                current.close();
+            } catch (IOException e) {
+                Log.e(TAG, "Failed to close recording: " + e.getMessage());
+            }
+        }
+    }
+    
+    // Replays start and end with empty sequence windows so earlier traffic can't affect them
+    synchronized void setReplaying(boolean replaying) {
+        this.replaying = replaying;
+        sequenceWindows.clear();
+        ingestHandler.removeCallbacks(expireTask);
+    }
+    
+    // Replay time source: releases held messages whose deadline is at or before now
+    void advanceClock(long now) {
+        expireHeldMessages(now);
+    }
+    
+    public BrokerEndpoint getCurrentBroker() {
+        return brokerFailover.getCurrent();
+    }
+    
+    private void setupCallbacks(MqttAndroidClient client) {
+        client.setCallback(new MqttCallback() {
             @Override
             public void connectionLost(Throwable cause) {
-                Log.d(TAG, "Connection lost: " + cause.getMessage());
+                if (client != mqttClient) {
+                    return;
+                }
+                Log.d(TAG, "Connection lost: " + (cause != null ? cause.getMessage() : "closed"));
+                BrokerEndpoint current = brokerFailover.getCurrent();
+                flightRecorder.record(TraceEvent.CONNECTION_LOST,
+                    current != null ? flightRecorder.intern(current.getUri()) : -1);
                 if (connectionListener != null) {
                     connectionListener.onDisconnected();
                 }
+                brokerFailover.onConnectionLost();
             }
             
             @Override
             public void messageArrived(String topic, MqttMessage message) {
-                Log.d(TAG, "Message arrived from topic: " + topic);
-                handleMessage(topic, new String(message.getPayload()));
+                long arrivalTime = System.currentTimeMillis();
+                ingestHandler.post(() -> {
+                    flightRecorder.record(TraceEvent.MESSAGE_ARRIVED, topicId(topic),
+                        message.getPayload().length);
+                    SessionRecorder recorder = MqttManager.this.recorder;
+                    if (recorder != null) {
+                        recorder.record(topic, message.getPayload(), arrivalTime);
+                    }
+                    if (replaying) {
+                        return;
+                    }
+                    handleMessage(topic, new String(message.getPayload()), arrivalTime);
+                });
             }
             
             @Override
             public void deliveryComplete(IMqttDeliveryToken token) {
-                Log.d(TAG, "Message delivery complete");
+                flightRecorder.record(TraceEvent.DELIVERY_COMPLETE, token.getMessageId());
             }
         });
     }
     
     public void connect(String username, String password) {
-        try {
-            MqttConnectOptions options = new MqttConnectOptions();
-            options.setUserName(username);
-            options.setPassword(password.toCharArray());
-            options.setAutomaticReconnect(true);
-            options.setCleanSession(true);
-            options.setConnectionTimeout(10);
-            options.setKeepAliveInterval(20);
-            
-            mqttClient.connect(options, null, new IMqttActionListener() {
-                @Override
-                public void onSuccess(IMqttToken asyncActionToken) {
-                    Log.d(TAG, "Connected to MQTT broker");
-                    subscribeToTopics();
-                    if (connectionListener != null) {
-                        connectionListener.onConnected();
-                    }
+        this.username = username;
+        this.password = password;
+        // Measure every broker once before the first connection picks one
+        failoverScheduler.execute(brokerSelector::probeAll);
+        brokerSelector.start(PROBE_INTERVAL_MS);
+        brokerFailover.start();
+    }
+    
+    // Connects Paho to one endpoint at a time; each attempt gets a fresh client because a
+    // client is bound to a single server URI. Paho is given the broker's cached address rather
+    // than its host name, and for TLS a socket factory that still handshakes as the host name.
+    private class PahoConnector implements BrokerFailover.Connector {
+        @Override
+        public void connect(BrokerEndpoint endpoint, BrokerFailover.ConnectCallback callback) {
+            closeClient();
+            String uri;
+            try {
+                uri = tlsTransport.connectUri(endpoint);
+            } catch (IOException e) {
+                Log.e(TAG, "Cannot resolve " + endpoint.getHost() + ": " + e.getMessage());
+                callback.onFailed(e);
+                return;
+            }
+            MqttAndroidClient client = new MqttAndroidClient(context, uri, clientId);
+            mqttClient = client;
+            setupCallbacks(client);
+            try {
+                MqttConnectOptions options = new MqttConnectOptions();
+                if (endpoint.isTls()) {
+                    options.setSocketFactory(tlsTransport.socketFactory(endpoint));
                 }
+                options.setUserName(username);
+                options.setPassword(password.toCharArray());
+                // Reconnects are driven by BrokerFailover so they can move to another broker
+                options.setAutomaticReconnect(false);
+                options.setCleanSession(true);
+                options.setConnectionTimeout(10);
+                options.setKeepAliveInterval(20);
                 
-                @Override
-                public void onFailure(IMqttToken asyncActionToken, Throwable exception) {
-                    Log.e(TAG, "Failed to connect: " + exception.getMessage());
-                    if (connectionListener != null) {
-                        connectionListener.onConnectionFailed(exception.getMessage());
+                client.connect(options, null, new IMqttActionListener() {
+                    @Override
+                    public void onSuccess(IMqttToken asyncActionToken) {
+                        Log.d(TAG, "Connected to MQTT broker " + endpoint.getUri()
+                            + (endpoint.isTls() ? ", TLS " + tlsTransport.getStats() : ""));
+                        // Subscribing and reporting wait for BrokerFailover to accept the
+                        // connection; one from an abandoned attempt is closed instead
+                        callback.onConnected();
                     }
-                }
-            });
-        } catch (MqttException e) {
-            Log.e(TAG, "Exception during connection: " + e.getMessage());
-            if (connectionListener != null) {
-                connectionListener.onConnectionFailed(e.getMessage());
+                    
+                    @Override
+                    public void onFailure(IMqttToken asyncActionToken, Throwable exception) {
+                        Log.e(TAG, "Failed to connect: " + exception.getMessage());
+                        // The broker may have moved; look it up afresh on the next attempt
+                        tlsTransport.getDnsCache().invalidate(endpoint.getHost());
+                        callback.onFailed(exception);
+                    }
+                });
+            } catch (MqttException e) {
+                Log.e(TAG, "Exception during connection: " + e.getMessage());
+                callback.onFailed(e);
             }
         }
+        
+        @Override
+        public void disconnect() {
+            closeClient();
+        }
     }
     
-    private void subscribeToTopics() {
+    private void closeClient() {
+        MqttAndroidClient client = mqttClient;
+        mqttClient = null;
+        if (client == null) {
+            return;
+        }
         try {
-            mqttClient.subscribe(TOPIC_SENSOR_DATA, 1, null, new IMqttActionListener() {
+            if (client.isConnected()) {
+                client.disconnect();
+            }
+        } catch (MqttException e) {
+            Log.e(TAG, "Error disconnecting: " + e.getMessage());
+        }
+        client.unregisterResources();
+        client.close();
+    }
+    
+    private int topicId(String topic) {
+        if (topic.equals(TOPIC_SENSOR_DATA)) {
+            return sensorDataTopicId;
+        } else if (topic.equals(TOPIC_DEVICE_STATUS)) {
+            return deviceStatusTopicId;
+        } else if (topic.equals(TOPIC_DEVICE_RESPONSE)) {
+            return deviceResponseTopicId;
+        }
+        return flightRecorder.intern(topic);
+    }
+    
+    private void subscribeToTopics(MqttAndroidClient client) {
+        try {
+            client.subscribe(TOPIC_SENSOR_DATA, 1, null, new IMqttActionListener() {
                 @Override
                 public void onSuccess(IMqttToken asyncActionToken) {
-                    Log.d(TAG, "Subscribed to sensor data topic");
+                    flightRecorder.record(TraceEvent.SUBSCRIBED, sensorDataTopicId);
                 }
                 
                 @Override
@@ -125,20 +361,34 @@ public class MqttManager {
                 }
             });
             
-            mqttClient.subscribe(TOPIC_DEVICE_STATUS, 1);
+            client.subscribe(TOPIC_DEVICE_STATUS, 1);
+            client.subscribe(TOPIC_DEVICE_RESPONSE, 1);
         } catch (MqttException e) {
             Log.e(TAG, "Exception during subscription: " + e.getMessage());
         }
     }
     
-    private void handleMessage(String topic, String payload) {
+    // Entry point for every inbound message, live or replayed; arrivalTime stamps the samples
+    public void handleMessage(String topic, String payload, long arrivalTime) {
         try {
             JSONObject json = new JSONObject(payload);
             
             if (topic.equals(TOPIC_SENSOR_DATA)) {
                 SensorData data = parseSensorData(json);
-                if (dataListener != null) {
-                    dataListener.onSensorDataReceived(data);
+                data.setTimestamp(arrivalTime);
+                long seq = json.optLong("seq", -1);
+                if (seq < 0) {
+                    // Devices without sequence numbers are passed through as before
+                    deliverSensorData(data);
+                } else {
+                    offerSensorData(json.optString("deviceId", ""), json.optLong("epoch", -1), seq, data,
+                        arrivalTime);
+                }
+            } else if (topic.equals(TOPIC_DEVICE_RESPONSE)) {
+                String id = json.optString("id", "");
+                String status = json.optString("status", "ok");
+                if (!commandRpc.complete(id, status, json.optString("message", ""))) {
+                    flightRecorder.record(TraceEvent.COMMAND_REPLY_UNMATCHED, callNumber(id));
                 }
             } else if (topic.equals(TOPIC_DEVICE_STATUS)) {
                 if (json.has("battery")) {
@@ -153,6 +403,45 @@ public class MqttManager {
         }
     }
     
+    private void deliverSensorData(SensorData data) {
+        flightRecorder.record(TraceEvent.SAMPLE_DELIVERED, data.getHeartRate(),
+            Math.round(data.getBodyTemperature() * 10));
+        if (dataListener != null) {
+            dataListener.onSensorDataReceived(data);
+        }
+    }
+    
+    private synchronized void offerSensorData(String deviceId, long epoch, long seq, SensorData data,
+                                              long arrivalTime) {
+        SequenceWindow<SensorData> window = sequenceWindows.get(deviceId);
+        if (window == null) {
+            window = new SequenceWindow<>(this::deliverSensorData, sequenceStats);
+            sequenceWindows.put(deviceId, window);
+        }
+        long duplicates = sequenceStats.getDuplicates();
+        window.offer(epoch, seq, data, arrivalTime);
+        if (sequenceStats.getDuplicates() != duplicates) {
+            flightRecorder.record(TraceEvent.DUPLICATE_DROPPED, flightRecorder.intern(deviceId), seq);
+        }
+        expireHeldMessages(arrivalTime);
+    }
+    
+    // Releases messages held past their deadline and, for live traffic, re-arms the timer
+    // for the next one. A replay calls advanceClock() instead of relying on the timer.
+    private synchronized void expireHeldMessages(long now) {
+        long nextDeadline = Long.MAX_VALUE;
+        for (SequenceWindow<SensorData> window : sequenceWindows.values()) {
+            long deadline = window.expire(now);
+            if (deadline >= 0 && deadline < nextDeadline) {
+                nextDeadline = deadline;
+            }
+        }
+        ingestHandler.removeCallbacks(expireTask);
+        if (nextDeadline != Long.MAX_VALUE && !replaying) {
+            ingestHandler.postDelayed(expireTask, nextDeadline - now);
+        }
+    }
+    
     private SensorData parseSensorData(JSONObject json) throws JSONException {
         SensorData data = new SensorData();
         
@@ -198,15 +487,54 @@ public class MqttManager {
         }
     }
     
+    // Fire-and-forget variant; the reply is only recorded
     public void publishCommand(String command) {
-        if (!mqttClient.isConnected()) {
-            Log.w(TAG, "Cannot publish: not connected");
-            return;
+        sendCommand(command, DEFAULT_COMMAND_TIMEOUT_MS).whenComplete((result, error) -> {
+            if (error != null) {
+                flightRecorder.record(TraceEvent.COMMAND_FAILED, flightRecorder.intern(command), -1);
+            } else {
+                flightRecorder.record(TraceEvent.COMMAND_COMPLETED, callNumber(result.getId()),
+                    result.getRoundTripMs());
+            }
+        });
+    }
+    
+    // The counter after the last '-' of a call id, which is enough to pair events in a
+    // recording; -1 if there is none
+    private static long callNumber(String id) {
+        long number = 0;
+        int start = id.lastIndexOf('-') + 1;
+        if (start == 0 || start == id.length()) {
+            return -1;
+        }
+        for (int i = start; i < id.length(); i++) {
+            char c = id.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            number = number * 10 + (c - '0');
+        }
+        return number;
+    }
+    
+    // Publishes a command with a correlation id and completes when the device replies on
+    // device/response with the same id, or exceptionally after timeoutMs. Several commands
+    // may be in flight at once.
+    public CompletableFuture<CommandResult> sendCommand(String command, long timeoutMs) {
+        MqttAndroidClient mqttClient = this.mqttClient;
+        if (mqttClient == null || !mqttClient.isConnected()) {
+            return failedCommand(new IllegalStateException("Not connected"));
+        }
+        CommandRpc.Call call = commandRpc.begin(command, timeoutMs);
+        if (call == null) {
+            return failedCommand(new IllegalStateException("Too many commands in flight"));
         }
         
         try {
             JSONObject json = new JSONObject();
             json.put("command", command);
+            json.put("id", call.getId());
+            json.put("replyTo", TOPIC_DEVICE_RESPONSE);
             json.put("timestamp", System.currentTimeMillis());
             
             MqttMessage message = new MqttMessage(json.toString().getBytes());
@@ -216,31 +544,52 @@ public class MqttManager {
             mqttClient.publish(TOPIC_DEVICE_COMMAND, message, null, new IMqttActionListener() {
                 @Override
                 public void onSuccess(IMqttToken asyncActionToken) {
-                    Log.d(TAG, "Command published: " + command);
+                    flightRecorder.record(TraceEvent.COMMAND_PUBLISHED, flightRecorder.intern(command),
+                        callNumber(call.getId()));
                 }
                 
                 @Override
                 public void onFailure(IMqttToken asyncActionToken, Throwable exception) {
                     Log.e(TAG, "Failed to publish command: " + exception.getMessage());
+                    flightRecorder.record(TraceEvent.COMMAND_FAILED, flightRecorder.intern(command),
+                        callNumber(call.getId()));
+                    commandRpc.fail(call.getId(), exception);
                 }
             });
         } catch (Exception e) {
             Log.e(TAG, "Error publishing command: " + e.getMessage());
+            commandRpc.fail(call.getId(), e);
         }
+        return call.getFuture();
+    }
+    
+    private static CompletableFuture<CommandResult> failedCommand(Throwable cause) {
+        CompletableFuture<CommandResult> future = new CompletableFuture<>();
+        future.completeExceptionally(cause);
+        return future;
     }
     
     public void disconnect() {
-        if (mqttClient != null && mqttClient.isConnected()) {
-            try {
-                mqttClient.disconnect();
-                Log.d(TAG, "Disconnected from MQTT broker");
-            } catch (MqttException e) {
-                Log.e(TAG, "Error disconnecting: " + e.getMessage());
-            }
-        }
+        stopRecording();
+        commandRpc.failAll(new IllegalStateException("Disconnected"));
+        brokerSelector.stop();
+        // Stopping the failover closes the current client
+        brokerFailover.stop();
+        Log.d(TAG, "Disconnected from MQTT broker");
+        flightRecorder.record(TraceEvent.DISCONNECTED);
+    }
+    
+    // Disconnects and stops every thread this manager started; it can't be used afterwards
+    public void close() {
+        disconnect();
+        commandRpc.close();
+        brokerSelector.close();
+        failoverScheduler.shutdownNow();
+        ingestThread.quitSafely();
     }
     
     public boolean isConnected() {
-        return mqttClient != null && mqttClient.isConnected();
+        MqttAndroidClient client = mqttClient;
+        return client != null && client.isConnected();
     }
 }
@@ -0,0 +1,84 @@
+package com.example.health_check_app.mqtt;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Counters shared by all sequence windows; safe to read from any thread
+public class SequenceStats {
+    private final AtomicLong duplicates = new AtomicLong();
+    private final AtomicLong reordered = new AtomicLong();
+    private final AtomicLong late = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong resets = new AtomicLong();
+    private final AtomicLong stale = new AtomicLong();
+    private volatile int maxReorderDepth;
+    
+    void onDuplicate() {
+        duplicates.incrementAndGet();
+    }
+    
+    // A message arrived depth positions ahead of the next expected one and is being held
+    void onHeld(int depth) {
+        reordered.incrementAndGet();
+        if (depth > maxReorderDepth) {
+            maxReorderDepth = depth;
+        }
+    }
+    
+    void onLate() {
+        late.incrementAndGet();
+    }
+    
+    void onSkipped(long count) {
+        skipped.addAndGet(count);
+    }
+    
+    void onReset() {
+        resets.incrementAndGet();
+    }
+    
+    void onStale(long count) {
+        stale.addAndGet(count);
+    }
+    
+    // Redelivered messages that were dropped
+    public long getDuplicates() {
+        return duplicates.get();
+    }
+    
+    // Messages that arrived ahead of a gap and were held back to restore order
+    public long getReordered() {
+        return reordered.get();
+    }
+    
+    // Largest distance seen between a held message and the gap before it
+    public int getMaxReorderDepth() {
+        return maxReorderDepth;
+    }
+    
+    // Messages that arrived after their gap was given up on; delivered out of order
+    public long getLate() {
+        return late.get();
+    }
+    
+    // Sequence numbers never received before the window moved past them
+    public long getSkipped() {
+        return skipped.get();
+    }
+    
+    // Times a device restarted its sequence counter
+    public long getResets() {
+        return resets.get();
+    }
+    
+    // Messages from far below the window that were dropped as old redeliveries
+    public long getStale() {
+        return stale.get();
+    }
+    
+    @Override
+    public String toString() {
+        return "duplicates=" + getDuplicates() + " reordered=" + getReordered()
+            + " maxDepth=" + getMaxReorderDepth() + " late=" + getLate()
+            + " skipped=" + getSkipped() + " resets=" + getResets() + " stale=" + getStale();
+    }
+}
\ No newline at end of file
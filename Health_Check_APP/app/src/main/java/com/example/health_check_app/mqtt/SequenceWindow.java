@@ -0,0 +1,273 @@
+package com.example.health_check_app.mqtt;
+
+// Per-device sliding window over message sequence numbers. QoS 1 is at-least-once, so
+// redeliveries after a reconnect are dropped here, and messages that arrive slightly out of
+// order are held until the gap fills or MAX_HOLD_MS passes. Memory is fixed: a bitset of
+// 2 * WINDOW received flags plus WINDOW held slots, indexed by sequence number modulo size.
+// A device that reports a boot epoch restarts the window whenever the epoch changes. Otherwise
+// a message from below the window, or a jump back to the start of the counter, is an old
+// redelivery or the first of a device that restarted its counter; only RESET_RUN consecutive
+// ones in a row are taken as a restart. A run cut short is settled after RESET_RUN_HOLD_MS.
+public class SequenceWindow<T> {
+    public static final int WINDOW = 64;
+    public static final long MAX_HOLD_MS = 500;
+    public static final int RESET_RUN = 4;
+    // Redeliveries after a reconnect reach back about as far as the client's in-flight limit;
+    // a restarted counter that jumps back further to below LOW_SEQ may start a run
+    public static final int LOW_SEQ = 8;
+    public static final int RESTART_JUMP = 16;
+    // Devices send about once a second, so a run needs a few seconds to complete
+    public static final long RESET_RUN_HOLD_MS = 10_000;
+    
+    private static final int BITS = 2 * WINDOW;
+    
+    public interface Sink<T> {
+        void deliver(T message);
+    }
+    
+    private final Sink<T> sink;
+    private final SequenceStats stats;
+    // Received flags for sequence numbers in [next - WINDOW, next + WINDOW)
+    private final long[] received = new long[BITS / 64];
+    private final Object[] held = new Object[WINDOW];
+    private final long[] heldAt = new long[WINDOW];
+    private long next = -1;
+    private long epoch = -1;
+    private int heldCount;
+    // Messages from below the window that could be the start of a restarted counter
+    private final Object[] resetRun = new Object[RESET_RUN - 1];
+    private long resetRunFirst;
+    private long resetRunAt;
+    private int resetRunLength;
+    
+    public SequenceWindow(Sink<T> sink, SequenceStats stats) {
+        this.sink = sink;
+        this.stats = stats;
+    }
+    
+    // For devices that do not report a boot epoch
+    public synchronized void offer(long seq, T message, long now) {
+        offer(-1, seq, message, now);
+    }
+    
+    // epoch identifies the device's boot, or is negative when the device does not report one
+    public synchronized void offer(long epoch, long seq, T message, long now) {
+        if (epoch >= 0 && epoch != this.epoch) {
+            if (this.epoch >= 0 && next >= 0) {
+                // A new boot restarts the counter, whatever number it starts from
+                if (resetRunLength > 0) {
+                    dropResetRun();
+                }
+                stats.onReset();
+                restart(seq);
+            }
+            this.epoch = epoch;
+        }
+        if (next < 0) {
+            restart(seq);
+        } else if (isResetCandidate(seq)) {
+            if (!extendResetRun(seq, message, now)) {
+                return;
+            }
+            // The device restarted its counter: start over from the first of the run
+            restartFromResetRun(now);
+        } else if (seq >= next + WINDOW) {
+            // Far ahead (e.g. after a long disconnect): release what is held and slide up to it
+            if (seq - next < 2 * WINDOW) {
+                while (next <= seq - WINDOW) {
+                    advance();
+                }
+            } else {
+                while (heldCount > 0) {
+                    advance();
+                }
+                stats.onSkipped(seq - next);
+                restart(seq);
+            }
+        }
+        if (resetRunLength > 0 && seq >= next - WINDOW) {
+            // The counter carries on, so the run was old redeliveries
+            dropResetRun();
+        }
+        accept(seq, message, now);
+    }
+    
+    private void accept(long seq, T message, long now) {
+        if (isReceived(seq)) {
+            stats.onDuplicate();
+            return;
+        }
+        setReceived(seq);
+        if (seq < next) {
+            // Its gap was already given up on; late data is still real data
+            stats.onLate();
+            sink.deliver(message);
+            return;
+        }
+        if (seq == next) {
+            sink.deliver(message);
+            next++;
+            clearTop();
+            drainInOrder();
+            return;
+        }
+        int slot = (int) (seq % WINDOW);
+        held[slot] = message;
+        heldAt[slot] = now;
+        heldCount++;
+        stats.onHeld((int) (seq - next));
+    }
+    
+    // Releases held messages whose gap has been open for MAX_HOLD_MS and settles a reset run
+    // that stayed incomplete for RESET_RUN_HOLD_MS. Returns the time of the next deadline, or
+    // -1 if nothing is held.
+    public synchronized long expire(long now) {
+        long runDeadline = -1;
+        if (resetRunLength > 0) {
+            if (now - resetRunAt < RESET_RUN_HOLD_MS) {
+                runDeadline = resetRunAt + RESET_RUN_HOLD_MS;
+            } else if (resetRunFirst < LOW_SEQ) {
+                // Nothing contradicted a counter that went back to its start: the device
+                // restarted and has sent fewer than RESET_RUN messages since
+                restartFromResetRun(now);
+            } else {
+                dropResetRun();
+            }
+        }
+        while (heldCount > 0) {
+            long oldest = oldestHeldAt();
+            if (now - oldest < MAX_HOLD_MS) {
+                long deadline = oldest + MAX_HOLD_MS;
+                return runDeadline >= 0 ? Math.min(runDeadline, deadline) : deadline;
+            }
+            // Skip the missing sequence numbers up to the first held message
+            while (held[(int) (next % WINDOW)] == null) {
+                stats.onSkipped(1);
+                next++;
+                clearTop();
+            }
+            drainInOrder();
+        }
+        return runDeadline;
+    }
+    
+    // Below the window, or an already received number after a jump back to the start of the
+    // counter, or the next one of a run that began like that
+    private boolean isResetCandidate(long seq) {
+        if (seq < next - WINDOW) {
+            return true;
+        }
+        if (seq >= next || !isReceived(seq)) {
+            return false;
+        }
+        if (resetRunLength > 0 && seq == resetRunFirst + resetRunLength) {
+            return true;
+        }
+        return seq < LOW_SEQ && next - seq >= RESTART_JUMP;
+    }
+    
+    // Adds a candidate message to the run. Returns true if it completes the run, i.e. the
+    // counter restarted; otherwise the message is kept until that is known.
+    private boolean extendResetRun(long seq, T message, long now) {
+        if (resetRunLength > 0 && seq != resetRunFirst + resetRunLength) {
+            dropResetRun();
+        }
+        if (resetRunLength == 0) {
+            resetRunFirst = seq;
+            resetRunAt = now;
+        }
+        if (resetRunLength == RESET_RUN - 1) {
+            return true;
+        }
+        resetRun[resetRunLength++] = message;
+        return false;
+    }
+    
+    private void restartFromResetRun(long now) {
+        stats.onReset();
+        long first = resetRunFirst;
+        int length = resetRunLength;
+        resetRunLength = 0;
+        restart(first);
+        for (int i = 0; i < length; i++) {
+            @SuppressWarnings("unchecked")
+            T earlier = (T) resetRun[i];
+            resetRun[i] = null;
+            accept(first + i, earlier, now);
+        }
+    }
+    
+    private void dropResetRun() {
+        for (int i = 0; i < resetRunLength; i++) {
+            resetRun[i] = null;
+        }
+        stats.onStale(resetRunLength);
+        resetRunLength = 0;
+    }
+    
+    private void restart(long seq) {
+        while (heldCount > 0) {
+            advance();
+        }
+        for (int i = 0; i < received.length; i++) {
+            received[i] = 0;
+        }
+        next = seq;
+    }
+    
+    // Moves the window up by one, delivering the message at the bottom if it was held
+    private void advance() {
+        int slot = (int) (next % WINDOW);
+        if (held[slot] != null) {
+            deliverHeld(slot);
+        } else if (!isReceived(next)) {
+            stats.onSkipped(1);
+        }
+        next++;
+        clearTop();
+    }
+    
+    private void drainInOrder() {
+        int slot = (int) (next % WINDOW);
+        while (held[slot] != null) {
+            deliverHeld(slot);
+            next++;
+            clearTop();
+            slot = (int) (next % WINDOW);
+        }
+    }
+    
+    @SuppressWarnings("unchecked")
+    private void deliverHeld(int slot) {
+        T message = (T) held[slot];
+        held[slot] = null;
+        heldCount--;
+        sink.deliver(message);
+    }
+    
+    private long oldestHeldAt() {
+        long oldest = Long.MAX_VALUE;
+        for (int i = 0; i < WINDOW; i++) {
+            if (held[i] != null && heldAt[i] < oldest) {
+                oldest = heldAt[i];
+            }
+        }
+        return oldest;
+    }
+    
+    // The bit for next + WINDOW - 1 last held next - WINDOW - 1, which just left the window
+    private void clearTop() {
+        int bit = (int) ((next + WINDOW - 1) % BITS);
+        received[bit >>> 6] &= ~(1L << bit);
+    }
+    
+    private boolean isReceived(long seq) {
+        int bit = (int) (seq % BITS);
+        return (received[bit >>> 6] & (1L << bit)) != 0;
+    }
+    
+    private void setReceived(long seq) {
+        int bit = (int) (seq % BITS);
+        received[bit >>> 6] |= 1L << bit;
+    }
+}
\ No newline at end of file
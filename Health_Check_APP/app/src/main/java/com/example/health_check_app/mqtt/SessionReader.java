@@ -0,0 +1,101 @@
+package com.example.health_check_app.mqtt;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+// Reads a SessionRecorder file one message at a time
+public class SessionReader implements Closeable {
+    private final DataInputStream in;
+    private final long startTime;
+    private final List<String> topics = new ArrayList<>();
+    private long arrivalTime;
+    private String topic;
+    private byte[] payload;
+    
+    public SessionReader(File file) throws IOException {
+        in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 64 * 1024));
+        byte[] magic = new byte[4];
+        in.readFully(magic);
+        if (!SessionRecorder.MAGIC.equals(new String(magic, StandardCharsets.US_ASCII))
+                || in.readUnsignedByte() != SessionRecorder.VERSION) {
+            in.close();
+            throw new IOException("Not a session recording: " + file);
+        }
+        startTime = in.readLong();
+        arrivalTime = startTime;
+    }
+    
+    public long getStartTime() {
+        return startTime;
+    }
+    
+    // Advances to the next message; false at the end of the recording. A record cut short by
+    // a crash while recording ends the recording too.
+    public boolean next() throws IOException {
+        try {
+            long delta = readVarLong(true);
+            if (delta < 0) {
+                return false;
+            }
+            int id = (int) readVarLong(false);
+            if (id == topics.size()) {
+                byte[] name = new byte[(int) readVarLong(false)];
+                in.readFully(name);
+                topics.add(new String(name, StandardCharsets.UTF_8));
+            } else if (id > topics.size()) {
+                throw new IOException("Corrupt recording: topic " + id);
+            }
+            byte[] bytes = new byte[(int) readVarLong(false)];
+            in.readFully(bytes);
+            arrivalTime += delta;
+            topic = topics.get(id);
+            payload = bytes;
+            return true;
+        } catch (EOFException e) {
+            return false;
+        }
+    }
+    
+    public long getArrivalTime() {
+        return arrivalTime;
+    }
+    
+    public String getTopic() {
+        return topic;
+    }
+    
+    public byte[] getPayload() {
+        return payload;
+    }
+    
+    private long readVarLong(boolean eofAllowed) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                if (eofAllowed && shift == 0) {
+                    return -1;
+                }
+                throw new EOFException();
+            }
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Corrupt recording: varint too long");
+    }
+    
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,119 @@
+package com.example.health_check_app.mqtt;
+
+import android.util.Log;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+// Records raw inbound MQTT messages for later replay. File layout, big-endian:
+//   header: "HCSR" | version (1) | start time (8, epoch ms)
+//   record: arrival delta from previous record (varint, ms) | topic id (varint)
+//           | [topic name, only the first time an id appears: length varint + UTF-8]
+//           | payload length (varint) | payload bytes
+// Writes happen on a background thread so the MQTT callback never waits for the disk.
+public class SessionRecorder implements Closeable {
+    private static final String TAG = "SessionRecorder";
+    
+    static final String MAGIC = "HCSR";
+    static final int VERSION = 1;
+    
+    private final File file;
+    private final DataOutputStream out;
+    private final ExecutorService writer;
+    private final Map<String, Integer> topicIds = new HashMap<>();
+    private long lastArrival;
+    private long messages;
+    
+    public SessionRecorder(File file, long startTime) throws IOException {
+        File dir = file.getParentFile();
+        if (dir != null && !dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create " + dir);
+        }
+        this.file = file;
+        this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 64 * 1024));
+        this.lastArrival = startTime;
+        out.writeBytes(MAGIC);
+        out.writeByte(VERSION);
+        out.writeLong(startTime);
+        writer = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "session-recorder");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    public File getFile() {
+        return file;
+    }
+    
+    // The payload array must not be modified afterwards
+    public void record(String topic, byte[] payload, long arrivalTime) {
+        writer.execute(() -> {
+            try {
+                write(topic, payload, arrivalTime);
+            } catch (IOException e) {
+                Log.e(TAG, "Failed to record message: " + e.getMessage());
+            }
+        });
+    }
+    
+    private void write(String topic, byte[] payload, long arrivalTime) throws IOException {
+        // Arrival times are kept non-decreasing so deltas stay unsigned
+        long arrival = Math.max(arrivalTime, lastArrival);
+        writeVarLong(arrival - lastArrival);
+        lastArrival = arrival;
+        Integer id = topicIds.get(topic);
+        if (id == null) {
+            id = topicIds.size();
+            topicIds.put(topic, id);
+            writeVarLong(id);
+            byte[] name = topic.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(name.length);
+            out.write(name);
+        } else {
+            writeVarLong(id);
+        }
+        writeVarLong(payload.length);
+        out.write(payload);
+        messages++;
+    }
+    
+    private void writeVarLong(long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+    
+    public long getMessageCount() {
+        return messages;
+    }
+    
+    // Writes everything recorded so far and closes the file
+    @Override
+    public void close() throws IOException {
+        writer.execute(() -> {
+            try {
+                out.close();
+            } catch (IOException e) {
+                Log.e(TAG, "Failed to close recording: " + e.getMessage());
+            }
+        });
+        writer.shutdown();
+        try {
+            writer.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,72 @@
+package com.example.health_check_app.mqtt;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+// Feeds a recording back through MqttManager.handleMessage in recorded order. Everything
+// downstream sees the recorded arrival times instead of the wall clock, so a replay produces
+// the same result at any speed. Pacing only changes how long the replay takes.
+public class SessionReplayer {
+    public static final double MAX_SPEED = 1000;
+    
+    private final File recording;
+    private volatile boolean cancelled;
+    
+    public static class Result {
+        public long messages;
+        public long payloadBytes;
+        public long firstArrival;
+        public long lastArrival;
+        public long elapsedNanos;
+        
+        public double getMessagesPerSecond() {
+            return elapsedNanos == 0 ? 0 : messages * 1e9 / elapsedNanos;
+        }
+    }
+    
+    public SessionReplayer(File recording) {
+        this.recording = recording;
+    }
+    
+    public void cancel() {
+        cancelled = true;
+    }
+    
+    // speed is a multiple of real time up to MAX_SPEED; 0 replays as fast as possible.
+    // Blocks until the replay finishes, so call it off the main thread.
+    public Result replay(MqttManager manager, double speed) throws IOException, InterruptedException {
+        if (speed < 0 || speed > MAX_SPEED) {
+            throw new IllegalArgumentException("Speed must be 0 or up to " + MAX_SPEED + "x");
+        }
+        Result result = new Result();
+        manager.setReplaying(true);
+        long started = System.nanoTime();
+        try (SessionReader reader = new SessionReader(recording)) {
+            result.firstArrival = reader.getStartTime();
+            while (!cancelled && reader.next()) {
+                long arrival = reader.getArrivalTime();
+                if (speed > 0) {
+                    long dueNanos = started + (long) ((arrival - result.firstArrival) * 1_000_000 / speed);
+                    long waitNanos = dueNanos - System.nanoTime();
+                    if (waitNanos > 0) {
+                        Thread.sleep(waitNanos / 1_000_000, (int) (waitNanos % 1_000_000));
+                    }
+                }
+                // Time passes before the message arrives, as it did live
+                manager.advanceClock(arrival);
+                manager.handleMessage(reader.getTopic(),
+                    new String(reader.getPayload(), StandardCharsets.UTF_8), arrival);
+                result.messages++;
+                result.payloadBytes += reader.getPayload().length;
+                result.lastArrival = arrival;
+            }
+            // Let anything still held for reordering run out its deadline
+            manager.advanceClock(result.lastArrival + SequenceWindow.MAX_HOLD_MS);
+        } finally {
+            manager.setReplaying(false);
+        }
+        result.elapsedNanos = System.nanoTime() - started;
+        return result;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,75 @@
+package com.example.health_check_app.mqtt;
+
+// Connect timings of TLS broker connections, split by whether the handshake resumed a cached
+// session. Connect time covers the TCP connect plus the handshake. Safe to read from any thread.
+public class TlsStats {
+    private long fullHandshakes;
+    private long resumedHandshakes;
+    private long failures;
+    private long fullConnectMsTotal;
+    private long resumedConnectMsTotal;
+    private long fullHandshakeMsTotal;
+    private long resumedHandshakeMsTotal;
+    private long lastConnectMs = -1;
+    private boolean lastResumed;
+    
+    synchronized void onHandshake(boolean resumed, long connectMs, long handshakeMs) {
+        if (resumed) {
+            resumedHandshakes++;
+            resumedConnectMsTotal += connectMs;
+            resumedHandshakeMsTotal += handshakeMs;
+        } else {
+            fullHandshakes++;
+            fullConnectMsTotal += connectMs;
+            fullHandshakeMsTotal += handshakeMs;
+        }
+        lastConnectMs = connectMs + handshakeMs;
+        lastResumed = resumed;
+    }
+    
+    synchronized void onFailure() {
+        failures++;
+    }
+    
+    public synchronized long getFullHandshakes() {
+        return fullHandshakes;
+    }
+    
+    public synchronized long getResumedHandshakes() {
+        return resumedHandshakes;
+    }
+    
+    public synchronized long getFailures() {
+        return failures;
+    }
+    
+    // Average TCP connect plus handshake time, or -1 before the first such connection
+    public synchronized long getAverageConnectMs(boolean resumed) {
+        long count = resumed ? resumedHandshakes : fullHandshakes;
+        long total = resumed ? resumedConnectMsTotal + resumedHandshakeMsTotal
+            : fullConnectMsTotal + fullHandshakeMsTotal;
+        return count == 0 ? -1 : total / count;
+    }
+    
+    public synchronized long getAverageHandshakeMs(boolean resumed) {
+        long count = resumed ? resumedHandshakes : fullHandshakes;
+        long total = resumed ? resumedHandshakeMsTotal : fullHandshakeMsTotal;
+        return count == 0 ? -1 : total / count;
+    }
+    
+    public synchronized long getLastConnectMs() {
+        return lastConnectMs;
+    }
+    
+    public synchronized boolean isLastResumed() {
+        return lastResumed;
+    }
+    
+    @Override
+    public synchronized String toString() {
+        return "full=" + fullHandshakes + " (" + getAverageConnectMs(false) + "ms)"
+            + " resumed=" + resumedHandshakes + " (" + getAverageConnectMs(true) + "ms)"
+            + " failures=" + failures + " last=" + lastConnectMs + "ms"
+            + (lastResumed ? " resumed" : "");
+    }
+}
\ No newline at end of file
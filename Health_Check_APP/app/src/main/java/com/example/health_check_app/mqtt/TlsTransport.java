@@ -0,0 +1,234 @@
+package com.example.health_check_app.mqtt;
+
+import android.util.Log;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.UnknownHostException;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateFactory;
+import java.util.Collections;
+import javax.net.ssl.SNIHostName;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.TrustManagerFactory;
+
+// Shared TLS setup for broker connections. One SSLContext is built ahead of the first connect
+// and kept for the app's lifetime, so its client session cache lets reconnects and probes
+// resume earlier sessions (session IDs or tickets, whichever the broker offers) instead of
+// repeating the full certificate exchange. Broker hosts are resolved through a DnsCache.
+public class TlsTransport {
+    private static final String TAG = "TlsTransport";
+    private static final int SESSION_CACHE_SIZE = 32;
+    private static final int SESSION_TIMEOUT_S = 24 * 60 * 60;
+    
+    private final KeyStore trustStore;
+    private final DnsCache dnsCache;
+    private final TlsStats stats = new TlsStats();
+    private SSLContext context;
+    
+    public TlsTransport(DnsCache dnsCache) {
+        this(null, dnsCache);
+    }
+    
+    // A null trust store means the system CAs
+    public TlsTransport(KeyStore trustStore, DnsCache dnsCache) {
+        this.trustStore = trustStore;
+        this.dnsCache = dnsCache;
+    }
+    
+    // Trust store holding every certificate in a PEM or DER stream, e.g. a private broker CA
+    public static KeyStore loadCertificates(InputStream in) throws IOException, GeneralSecurityException {
+        KeyStore store = KeyStore.getInstance(KeyStore.getDefaultType());
+        store.load(null, null);
+        int i = 0;
+        for (Certificate certificate : CertificateFactory.getInstance("X.509").generateCertificates(in)) {
+            store.setCertificateEntry("ca" + i++, certificate);
+        }
+        return store;
+    }
+    
+    public DnsCache getDnsCache() {
+        return dnsCache;
+    }
+    
+    public TlsStats getStats() {
+        return stats;
+    }
+    
+    // Loads the trust store and initialises the TLS provider so the first connect does not pay
+    // for it. Meant for a background thread; safe to call more than once.
+    public void warmUp() {
+        long started = System.nanoTime();
+        try {
+            getContext().createSSLEngine();
+            Log.d(TAG, "TLS ready in " + (System.nanoTime() - started) / 1_000_000 + " ms");
+        } catch (GeneralSecurityException e) {
+            Log.e(TAG, "TLS warm-up failed: " + e.getMessage());
+        }
+    }
+    
+    synchronized SSLContext getContext() throws GeneralSecurityException {
+        if (context == null) {
+            TrustManagerFactory trust = TrustManagerFactory.getInstance(
+                TrustManagerFactory.getDefaultAlgorithm());
+            trust.init(trustStore);
+            SSLContext created = SSLContext.getInstance("TLS");
+            created.init(null, trust.getTrustManagers(), null);
+            SSLSessionContext sessions = created.getClientSessionContext();
+            sessions.setSessionCacheSize(SESSION_CACHE_SIZE);
+            sessions.setSessionTimeout(SESSION_TIMEOUT_S);
+            context = created;
+        }
+        return context;
+    }
+    
+    // The endpoint's URI with the host replaced by its cached address, so the lookup Paho does
+    // on the host itself returns immediately
+    public String connectUri(BrokerEndpoint endpoint) throws UnknownHostException {
+        InetAddress address = dnsCache.lookup(endpoint.getHost());
+        String host = address.getHostAddress();
+        if (address instanceof Inet6Address) {
+            int scope = host.indexOf('%');
+            host = "[" + (scope >= 0 ? host.substring(0, scope) : host) + "]";
+        }
+        return (endpoint.isTls() ? "ssl://" : "tcp://") + host + ":" + endpoint.getPort();
+    }
+    
+    public InetSocketAddress resolve(BrokerEndpoint endpoint) throws UnknownHostException {
+        return new InetSocketAddress(dnsCache.lookup(endpoint.getHost()), endpoint.getPort());
+    }
+    
+    // Factory for Paho. Its sockets get connected to whatever address Paho resolved, but
+    // handshake as the endpoint's host name.
+    public SSLSocketFactory socketFactory(BrokerEndpoint endpoint) {
+        return new EndpointSocketFactory(this, endpoint.getHost());
+    }
+    
+    // Wraps a connected socket in TLS for the host. The handshake has not started yet.
+    SSLSocket layer(Socket plain, String host, int port) throws IOException {
+        SSLSocket ssl;
+        try {
+            ssl = (SSLSocket) getContext().getSocketFactory().createSocket(plain, host, port, true);
+        } catch (GeneralSecurityException e) {
+            throw new SSLException("TLS unavailable", e);
+        }
+        ssl.setSSLParameters(forHost(ssl.getSSLParameters(), host));
+        return ssl;
+    }
+    
+    // Runs the handshake and records it; connectMs is how long the TCP connect took before it
+    void handshake(SSLSocket ssl, long connectMs) throws IOException {
+        long startedAt = System.currentTimeMillis();
+        long started = System.nanoTime();
+        try {
+            ssl.startHandshake();
+        } catch (IOException e) {
+            stats.onFailure();
+            throw e;
+        }
+        long handshakeMs = (System.nanoTime() - started) / 1_000_000;
+        // A resumed session keeps the creation time of the handshake that first established it
+        boolean resumed = ssl.getSession().getCreationTime() < startedAt;
+        stats.onHandshake(resumed, connectMs, handshakeMs);
+    }
+    
+    // Points SNI and certificate host name checks at the host. Applied to every parameter
+    // change, since callers that only see the IP address would otherwise aim them at the IP.
+    static SSLParameters forHost(SSLParameters parameters, String host) {
+        if (isIpLiteral(host)) {
+            parameters.setServerNames(Collections.emptyList());
+        } else {
+            parameters.setServerNames(Collections.singletonList(new SNIHostName(host)));
+        }
+        parameters.setEndpointIdentificationAlgorithm("HTTPS");
+        return parameters;
+    }
+    
+    private static boolean isIpLiteral(String host) {
+        return host.indexOf(':') >= 0 || host.matches("[0-9.]+");
+    }
+    
+    private static class EndpointSocketFactory extends SSLSocketFactory {
+        private final TlsTransport transport;
+        private final String host;
+        
+        EndpointSocketFactory(TlsTransport transport, String host) {
+            this.transport = transport;
+            this.host = host;
+        }
+        
+        private SSLSocketFactory delegate() {
+            try {
+                return transport.getContext().getSocketFactory();
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("TLS unavailable", e);
+            }
+        }
+        
+        @Override
+        public Socket createSocket() throws IOException {
+            return new EndpointSslSocket(transport, host);
+        }
+        
+        @Override
+        public Socket createSocket(String ignored, int port) throws IOException {
+            Socket socket = createSocket();
+            socket.connect(new InetSocketAddress(transport.dnsCache.lookup(host), port));
+            return socket;
+        }
+        
+        @Override
+        public Socket createSocket(String ignored, int port, InetAddress localAddress, int localPort)
+            throws IOException {
+            Socket socket = createSocket();
+            socket.bind(new InetSocketAddress(localAddress, localPort));
+            socket.connect(new InetSocketAddress(transport.dnsCache.lookup(host), port));
+            return socket;
+        }
+        
+        @Override
+        public Socket createSocket(InetAddress address, int port) throws IOException {
+            Socket socket = createSocket();
+            socket.connect(new InetSocketAddress(address, port));
+            return socket;
+        }
+        
+        @Override
+        public Socket createSocket(InetAddress address, int port, InetAddress localAddress, int localPort)
+            throws IOException {
+            Socket socket = createSocket();
+            socket.bind(new InetSocketAddress(localAddress, localPort));
+            socket.connect(new InetSocketAddress(address, port));
+            return socket;
+        }
+        
+        @Override
+        public Socket createSocket(Socket socket, String ignored, int port, boolean autoClose)
+            throws IOException {
+            if (!autoClose) {
+                throw new IOException("Layered broker sockets always own the underlying socket");
+            }
+            return transport.layer(socket, host, port);
+        }
+        
+        @Override
+        public String[] getDefaultCipherSuites() {
+            return delegate().getDefaultCipherSuites();
+        }
+        
+        @Override
+        public String[] getSupportedCipherSuites() {
+            return delegate().getSupportedCipherSuites();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,51 @@
+package com.example.health_check_app.pipeline;
+
+import com.example.health_check_app.models.SensorData;
+import java.util.function.Consumer;
+
+// Keeps only the newest sample: one not yet taken is replaced, so a consumer that only shows
+// the latest readings falls behind by at most one sample, however fast they come
+final class ConflatingLane extends Lane {
+    private final Consumer<SensorData> consumer;
+    private SensorData latest;
+    private long conflated;
+    
+    ConflatingLane(String name, Consumer<SensorData> consumer) {
+        super(name);
+        this.consumer = consumer;
+    }
+    
+    @Override
+    boolean offer(SensorData data) {
+        synchronized (this) {
+            if (latest != null) {
+                conflated++;
+            }
+            latest = data;
+            onOffered(1);
+        }
+        return requestDrain();
+    }
+    
+    @Override
+    protected void drain() {
+        SensorData data;
+        synchronized (this) {
+            data = latest;
+            latest = null;
+        }
+        if (data != null) {
+            consumer.accept(data);
+        }
+    }
+    
+    @Override
+    synchronized int depth() {
+        return latest == null ? 0 : 1;
+    }
+    
+    @Override
+    protected synchronized String describePolicy() {
+        return ", " + conflated + " conflated";
+    }
+}
\ No newline at end of file
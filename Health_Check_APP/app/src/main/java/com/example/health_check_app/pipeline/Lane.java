@@ -0,0 +1,90 @@
+package com.example.health_check_app.pipeline;
+
+import com.example.health_check_app.models.SensorData;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// One consumer's queue between the delivering thread and the consumer's own worker thread.
+// Offering never waits for the consumer; how a backlog is held - conflated, prioritised or
+// spilled to disk - is up to the subclass. The worker is woken once per backlog, not per
+// sample, and takes everything queued when it runs.
+abstract class Lane {
+    private final String name;
+    private final ExecutorService worker;
+    private final AtomicBoolean drainPending = new AtomicBoolean();
+    
+    // Counters, guarded by this
+    private long offered;
+    private long wakeups;
+    private int maxDepth;
+    
+    Lane(String name) {
+        this.name = name;
+        worker = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "ingest-" + name);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    // Never blocks on the consumer. Returns true if it woke the worker.
+    abstract boolean offer(SensorData data);
+    
+    // Hands everything queued to the consumer, on the worker thread
+    protected abstract void drain();
+    
+    abstract int depth();
+    
+    // Wakes the worker unless it is already due to run. Returns true if it woke it.
+    final boolean requestDrain() {
+        if (!drainPending.compareAndSet(false, true)) {
+            return false;
+        }
+        synchronized (this) {
+            wakeups++;
+        }
+        try {
+            worker.execute(() -> {
+                // Cleared first, so a sample offered during the drain wakes the worker again
+                drainPending.set(false);
+                drain();
+            });
+        } catch (RejectedExecutionException e) {
+            // Closed; what is queued stays there
+            drainPending.set(false);
+            return false;
+        }
+        return true;
+    }
+    
+    protected synchronized void onOffered(int depth) {
+        offered++;
+        maxDepth = Math.max(maxDepth, depth);
+    }
+    
+    // Lets the worker finish what is queued and run onClosed(), then stops it
+    void close() {
+        try {
+            worker.execute(this::onClosed);
+        } catch (RejectedExecutionException e) {
+            return;
+        }
+        worker.shutdown();
+    }
+    
+    // On the worker, after the last drain
+    protected void onClosed() {
+    }
+    
+    // Counters particular to the policy, e.g. ", 12 conflated"
+    protected abstract String describePolicy();
+    
+    @Override
+    public synchronized String toString() {
+        return String.format(Locale.US, "%s: depth %d (max %d), %d in, %d wakeups%s",
+            name, depth(), maxDepth, offered, wakeups, describePolicy());
+    }
+}
\ No newline at end of file
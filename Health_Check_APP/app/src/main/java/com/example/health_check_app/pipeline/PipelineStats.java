@@ -0,0 +1,106 @@
+package com.example.health_check_app.pipeline;
+
+import java.util.Locale;
+
+// Work done by the sample pipeline, split by mode so the screen-on and screen-off paths can be
+// compared per hour. Wakeups are the times the pipeline woke another thread: a lane worker,
+// an alert posted to the UI, or a batch pass on the timer thread. CPU time is
+// thread time spent in the pipeline and what it calls, the part of the energy bill it controls.
+// High-water marks are the most samples the alert and storage lanes held in memory at once.
+// Safe to read from any thread.
+public class PipelineStats {
+    private final long[] samples = new long[2];
+    private final long[] wakeups = new long[2];
+    private final long[] batches = new long[2];
+    private final long[] cpuNanos = new long[2];
+    private final long[] modeMs = new long[2];
+    private int alertHighWater;
+    private int storageHighWater;
+    
+    synchronized void onSample(boolean batching, long cpu, int wakes) {
+        int mode = batching ? 1 : 0;
+        samples[mode]++;
+        cpuNanos[mode] += cpu;
+        wakeups[mode] += wakes;
+    }
+    
+    // Work done for samples on a lane worker, and the wakeups it caused
+    synchronized void onWork(boolean batching, long cpu, int wakes) {
+        int mode = batching ? 1 : 0;
+        cpuNanos[mode] += cpu;
+        wakeups[mode] += wakes;
+    }
+    
+    synchronized void onQueueDepths(int alerts, int storage) {
+        alertHighWater = Math.max(alertHighWater, alerts);
+        storageHighWater = Math.max(storageHighWater, storage);
+    }
+    
+    synchronized void onBatch() {
+        batches[1]++;
+    }
+    
+    // Batch work outside onSample: a timed pass, which woke the timer thread, or a catch-up
+    synchronized void onBatchWork(long cpu, boolean wakeup) {
+        cpuNanos[1] += cpu;
+        if (wakeup) {
+            wakeups[1]++;
+        }
+    }
+    
+    synchronized void onModeTime(boolean batching, long elapsedMs) {
+        modeMs[batching ? 1 : 0] += elapsedMs;
+    }
+    
+    public synchronized long getSamples(boolean batching) {
+        return samples[batching ? 1 : 0];
+    }
+    
+    public synchronized long getWakeups(boolean batching) {
+        return wakeups[batching ? 1 : 0];
+    }
+    
+    public synchronized long getBatches() {
+        return batches[1];
+    }
+    
+    public synchronized int getAlertQueueHighWater() {
+        return alertHighWater;
+    }
+    
+    public synchronized int getStorageQueueHighWater() {
+        return storageHighWater;
+    }
+    
+    public synchronized double getWakeupsPerHour(boolean batching) {
+        return perHour(wakeups[batching ? 1 : 0], modeMs[batching ? 1 : 0]);
+    }
+    
+    public synchronized double getCpuMsPerHour(boolean batching) {
+        return perHour(cpuNanos[batching ? 1 : 0] / 1e6, modeMs[batching ? 1 : 0]);
+    }
+    
+    private static double perHour(double amount, long ms) {
+        return ms == 0 ? 0 : amount * 3_600_000.0 / ms;
+    }
+    
+    public synchronized void reset() {
+        for (long[] counters : new long[][] {samples, wakeups, batches, cpuNanos, modeMs}) {
+            counters[0] = 0;
+            counters[1] = 0;
+        }
+        alertHighWater = 0;
+        storageHighWater = 0;
+    }
+    
+    @Override
+    public synchronized String toString() {
+        return String.format(Locale.US,
+            "screen on: %d samples, %.0f wakeups/h, cpu %.1f ms/h; "
+                + "screen off: %d samples in %d batches, %.0f wakeups/h, cpu %.1f ms/h; "
+                + "queue high-water: alerts %d, storage %d",
+            samples[0], getWakeupsPerHour(false), getCpuMsPerHour(false),
+            samples[1], batches[1], getWakeupsPerHour(true), getCpuMsPerHour(true),
+            alertHighWater, storageHighWater);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,97 @@
+package com.example.health_check_app.pipeline;
+
+import com.example.health_check_app.models.SensorData;
+import java.util.ArrayDeque;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+// Loses nothing and takes urgent samples first: one offered while a backlog is worked through
+// is handled next, ahead of the rest, which keep their order. Urgent samples have a queue of
+// their own that never refuses one; they are rare. The rest are held up to capacity in memory
+// and spilled to a journal past that, like a SpillingLane, so a stalled consumer costs disk
+// rather than memory.
+final class PriorityLane extends Lane {
+    private final Predicate<SensorData> urgency;
+    private final Consumer<SensorData> consumer;
+    private final ArrayDeque<SensorData> urgent = new ArrayDeque<>();
+    private final SpillBuffer normal;
+    private long urgentCount;
+    // The normal samples being worked through; worker only
+    private SpillBuffer.Batch batch;
+    private int position;
+    
+    PriorityLane(String name, int capacity, SpillJournal journal, Predicate<SensorData> urgency,
+                 Consumer<SensorData> consumer) {
+        super(name);
+        this.urgency = urgency;
+        this.consumer = consumer;
+        normal = new SpillBuffer(name, capacity, journal);
+        if (!normal.isEmpty()) {
+            requestDrain();
+        }
+    }
+    
+    @Override
+    boolean offer(SensorData data) {
+        if (urgency.test(data)) {
+            synchronized (this) {
+                urgent.addLast(data);
+                urgentCount++;
+                onOffered(urgent.size() + normal.depth());
+            }
+        } else {
+            int depth = normal.offer(data);
+            synchronized (this) {
+                onOffered(urgent.size() + depth);
+            }
+        }
+        return requestDrain();
+    }
+    
+    @Override
+    protected void drain() {
+        while (true) {
+            SensorData next;
+            synchronized (this) {
+                next = urgent.pollFirst();
+            }
+            if (next == null) {
+                if (batch == null || position == batch.samples.size()) {
+                    if (batch != null) {
+                        normal.finished(batch);
+                    }
+                    batch = normal.poll();
+                    position = 0;
+                    if (batch == null) {
+                        return;
+                    }
+                    continue;
+                }
+                next = batch.samples.get(position++);
+            }
+            consumer.accept(next);
+        }
+    }
+    
+    @Override
+    synchronized int depth() {
+        return urgent.size() + normal.depth();
+    }
+    
+    // Works through memory and journal before the worker stops
+    @Override
+    void close() {
+        requestDrain();
+        super.close();
+    }
+    
+    @Override
+    protected void onClosed() {
+        normal.close();
+    }
+    
+    @Override
+    protected synchronized String describePolicy() {
+        return ", " + urgentCount + " urgent" + normal.describe();
+    }
+}
@@ -0,0 +1,200 @@
+package com.example.health_check_app.pipeline;
+
+import android.os.Debug;
+import com.example.health_check_app.models.SensorData;
+import com.example.health_check_app.rules.Alert;
+import com.example.health_check_app.rules.RuleEngine;
+import com.example.health_check_app.state.VitalsState;
+import com.example.health_check_app.storage.ChartCache;
+import com.example.health_check_app.storage.VitalsStore;
+import com.example.health_check_app.timer.TimerService;
+import com.example.health_check_app.timer.TimerWheel;
+import java.io.File;
+import java.util.List;
+
+// Routes every sample from the device. The delivering thread only hands each sample to a lane
+// per consumer and returns, so a slow consumer or a burst of backlog after a reconnect never
+// holds it up; each lane has its own worker and its own policy for a backlog:
+// - alerts: lossless while the process lives, with fall samples ahead of the rest, run as
+//   each sample arrives whatever the mode; past a bounded queue the others spill to a
+//   journal on disk. A later pipeline discards what an earlier one left rather than replay
+//   it: an alert raised hours late would sound the device's buzzer for a reading long gone.
+// - storage and chart cache: lossless, with a bounded queue that spills to a journal on disk
+// - dashboard state: only the latest sample, as only the latest readings are shown
+// While the screen is on, storage and dashboard also get every sample at once. With it off
+// nobody sees the dashboard, so the storage worker is left asleep and woken for one pass per
+// BATCH_WINDOW_MS of samples, with one storage flush and one dashboard publish per pass.
+// Turning the screen on catches up at once.
+public class SamplePipeline {
+    public static final long BATCH_WINDOW_MS = 60_000;
+    // A burst, e.g. a replayed backlog after a reconnect, is passed on early
+    static final int MAX_BATCH_SAMPLES = 600;
+    // Samples the storage lane keeps in memory, over an hour at one a second, before spilling
+    static final int STORAGE_QUEUE_CAPACITY = 4096;
+    // The alert rules keep up with any sensor rate, so only a stalled consumer fills this
+    static final int ALERT_QUEUE_CAPACITY = 1024;
+    
+    public interface AlertListener {
+        // Called on the alerts lane's worker thread, in arrival order but for falls, which
+        // jump a backlog
+        void onAlerts(SensorData data, List<Alert> alerts);
+    }
+    
+    private final RuleEngine rules;
+    private final VitalsStore store;
+    private final ChartCache chartCache;
+    private final TimerService timers;
+    private final AlertListener alertListener;
+    private final PipelineStats stats = new PipelineStats();
+    private final PriorityLane alertLane;
+    private final SpillingLane storageLane;
+    private final ConflatingLane dashboardLane;
+    
+    private volatile boolean batching;
+    private int batchSize;
+    private SensorData lastBatched;
+    private long modeSince;
+    private TimerWheel.Timer passTimer;
+    private int generation;
+    
+    // Storage and alert overflow are journalled under spillDir; a storage backlog left there by
+    // an earlier run goes first
+    public SamplePipeline(RuleEngine rules, VitalsStore store, ChartCache chartCache, VitalsState state,
+                          TimerService timers, File spillDir, AlertListener alertListener) {
+        this.rules = rules;
+        this.store = store;
+        this.chartCache = chartCache;
+        this.timers = timers;
+        this.alertListener = alertListener;
+        modeSince = timers.now();
+        alertLane = new PriorityLane("alerts", ALERT_QUEUE_CAPACITY,
+            new SpillJournal(new File(spillDir, "alerts"), false),
+            data -> data.getMotionStatus() == SensorData.MotionStatus.FALL_DETECTED, this::evaluate);
+        storageLane = new SpillingLane("storage", STORAGE_QUEUE_CAPACITY, new SpillJournal(spillDir),
+            this::handOn);
+        dashboardLane = new ConflatingLane("dashboard", state::publishSample);
+    }
+    
+    // Never waits for a consumer
+    public void onSample(SensorData data) {
+        long started = Debug.threadCpuTimeNanos();
+        int wakeups = alertLane.offer(data) ? 1 : 0;
+        boolean batched;
+        synchronized (this) {
+            batched = batching;
+            if (storageLane.offer(data)) {
+                wakeups++;
+            }
+            if (batched) {
+                lastBatched = data;
+                if (++batchSize >= MAX_BATCH_SAMPLES) {
+                    passOn();
+                } else if (passTimer == null) {
+                    int armed = ++generation;
+                    passTimer = timers.schedule(() -> onPassDue(armed), BATCH_WINDOW_MS);
+                }
+            } else if (dashboardLane.offer(data)) {
+                wakeups++;
+            }
+        }
+        stats.onSample(batched, Debug.threadCpuTimeNanos() - started, wakeups);
+        stats.onQueueDepths(alertLane.depth(), storageLane.depth());
+    }
+    
+    // Screen off: defer everything but the alert rules. Screen on: catch up and go per sample.
+    public synchronized void setBatching(boolean batching) {
+        if (this.batching == batching) {
+            return;
+        }
+        long now = timers.now();
+        stats.onModeTime(this.batching, now - modeSince);
+        modeSince = now;
+        this.batching = batching;
+        // Batch passes flush storage themselves; per sample, the store's own timer does
+        store.setPeriodicFlush(!batching);
+        storageLane.setAutoDrain(!batching);
+        if (!batching) {
+            passOn();
+        }
+    }
+    
+    public boolean isBatching() {
+        return batching;
+    }
+    
+    // Counters up to now, including the time spent in the current mode
+    public synchronized PipelineStats getStats() {
+        long now = timers.now();
+        stats.onModeTime(batching, now - modeSince);
+        modeSince = now;
+        return stats;
+    }
+    
+    // Queue depths, wakeups and per-policy counts such as spilled samples, one lane per line
+    public String getLaneStats() {
+        return alertLane + "\n" + storageLane + "\n" + dashboardLane;
+    }
+    
+    // Lets the lanes finish what they hold, spilled samples included, then stops their workers
+    public void close() {
+        alertLane.close();
+        storageLane.close();
+        dashboardLane.close();
+    }
+    
+    private void onPassDue(int armed) {
+        long started = Debug.threadCpuTimeNanos();
+        synchronized (this) {
+            // A pass already made early, or by the screen coming on, leaves nothing due
+            if (armed != generation) {
+                return;
+            }
+            passTimer = null;
+            passOn();
+        }
+        stats.onBatchWork(Debug.threadCpuTimeNanos() - started, true);
+    }
+    
+    // Wakes the storage worker for the queued samples, which it takes in arrival order
+    private void passOn() {
+        timers.cancel(passTimer);
+        passTimer = null;
+        generation++;
+        if (batchSize == 0) {
+            return;
+        }
+        batchSize = 0;
+        int wakeups = storageLane.requestDrain() ? 1 : 0;
+        stats.onBatch();
+        // The snapshot only holds the latest readings, so publishing the last one is enough
+        if (dashboardLane.offer(lastBatched)) {
+            wakeups++;
+        }
+        lastBatched = null;
+        stats.onWork(true, 0, wakeups);
+    }
+    
+    // On the alerts worker
+    private void evaluate(SensorData data) {
+        long started = Debug.threadCpuTimeNanos();
+        List<Alert> alerts = rules.evaluate(data);
+        if (!alerts.isEmpty()) {
+            alertListener.onAlerts(data, alerts);
+        }
+        stats.onWork(batching, Debug.threadCpuTimeNanos() - started, alerts.isEmpty() ? 0 : 1);
+    }
+    
+    // On the storage worker
+    private void handOn(List<SensorData> samples) {
+        long started = Debug.threadCpuTimeNanos();
+        for (SensorData data : samples) {
+            store.append(data);
+            chartCache.onSample(data);
+        }
+        boolean batched = batching;
+        if (batched) {
+            store.flush();
+        }
+        stats.onWork(batched, Debug.threadCpuTimeNanos() - started, 0);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,197 @@
+package com.example.health_check_app.pipeline;
+
+import android.util.Log;
+import com.example.health_check_app.models.SensorData;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// A lane's backlog, oldest first, holding at most capacity samples in a queue. Past that,
+// samples go to an overflow list and from there, on a spill thread of their own, to a journal
+// on disk; they keep going there until everything spilled has been read back, so samples come
+// out in arrival order. Offering only ever touches memory, so the delivering thread never
+// waits for the disk. The journal is locked while in use, before this.
+final class SpillBuffer {
+    private static final String TAG = "SpillBuffer";
+    // Samples the spill thread moves per turn of the journal lock
+    private static final int SPILL_CHUNK = 256;
+    
+    // Samples read back from the journal keep their file until finished() removes it
+    static final class Batch {
+        final List<SensorData> samples;
+        final File file;
+        
+        Batch(List<SensorData> samples, File file) {
+            this.samples = samples;
+            this.file = file;
+        }
+    }
+    
+    private final int capacity;
+    private final SpillJournal journal;
+    private final ExecutorService spiller;
+    private final AtomicBoolean spillPending = new AtomicBoolean();
+    private final ArrayDeque<SensorData> queue = new ArrayDeque<>();
+    private final ArrayDeque<SensorData> overflow = new ArrayDeque<>();
+    private boolean spilling;
+    private long spilled;
+    private long unspilled;
+    
+    SpillBuffer(String name, int capacity, SpillJournal journal) {
+        this.capacity = capacity;
+        this.journal = journal;
+        spiller = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "ingest-" + name + "-spill");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // A backlog left by an earlier process or a released journal goes first
+        spilling = !journal.isEmpty();
+    }
+    
+    // Returns the number of samples in memory afterwards
+    int offer(SensorData data) {
+        boolean spill;
+        int depth;
+        synchronized (this) {
+            spill = spilling || queue.size() >= capacity;
+            if (spill) {
+                spilling = true;
+                overflow.addLast(data);
+            } else {
+                queue.addLast(data);
+            }
+            depth = queue.size() + overflow.size();
+        }
+        if (spill && spillPending.compareAndSet(false, true)) {
+            try {
+                spiller.execute(this::spill);
+            } catch (RejectedExecutionException e) {
+                // Closed; the overflow stays in memory for the last drain
+                spillPending.set(false);
+            }
+        }
+        return depth;
+    }
+    
+    // On the spill thread: moves the overflow to the journal
+    private void spill() {
+        spillPending.set(false);
+        while (true) {
+            synchronized (journal) {
+                List<SensorData> chunk = new ArrayList<>();
+                synchronized (this) {
+                    while (chunk.size() < SPILL_CHUNK && !overflow.isEmpty()) {
+                        chunk.add(overflow.pollFirst());
+                    }
+                }
+                if (chunk.isEmpty()) {
+                    return;
+                }
+                int written = 0;
+                try {
+                    for (SensorData data : chunk) {
+                        journal.append(data);
+                        written++;
+                    }
+                } catch (IOException e) {
+                    // Over capacity rather than lost: the rest wait in memory, in order
+                    Log.e(TAG, "Failed to spill samples: " + e.getMessage());
+                    synchronized (this) {
+                        for (int i = chunk.size() - 1; i >= written; i--) {
+                            overflow.addFirst(chunk.get(i));
+                        }
+                        spilled += written;
+                    }
+                    return;
+                }
+                synchronized (this) {
+                    spilled += written;
+                }
+            }
+        }
+    }
+    
+    // On the consumer's worker: the oldest samples, in arrival order, or null if there are none
+    Batch poll() {
+        synchronized (this) {
+            if (!queue.isEmpty()) {
+                // Anything queued is older than what was spilled
+                Batch batch = new Batch(new ArrayList<>(queue), null);
+                queue.clear();
+                return batch;
+            }
+            if (!spilling) {
+                return null;
+            }
+        }
+        synchronized (journal) {
+            File file = journal.next();
+            if (file == null) {
+                synchronized (this) {
+                    if (overflow.isEmpty()) {
+                        spilling = false;
+                        return null;
+                    }
+                    // Everything spilled is read back, and these are newer than all of it
+                    Batch batch = new Batch(new ArrayList<>(overflow), null);
+                    overflow.clear();
+                    return batch;
+                }
+            }
+            try {
+                return new Batch(SpillJournal.read(file), file);
+            } catch (IOException e) {
+                Log.e(TAG, "Lost spilled samples in " + file + ": " + e.getMessage());
+                return new Batch(Collections.emptyList(), file);
+            }
+        }
+    }
+    
+    // Once the samples of a batch from poll() are handed on
+    void finished(Batch batch) {
+        if (batch.file == null) {
+            return;
+        }
+        synchronized (journal) {
+            journal.remove(batch.file);
+        }
+        synchronized (this) {
+            unspilled += batch.samples.size();
+        }
+    }
+    
+    synchronized boolean isEmpty() {
+        return queue.isEmpty() && overflow.isEmpty() && !spilling;
+    }
+    
+    // Samples held in memory
+    synchronized int depth() {
+        return queue.size() + overflow.size();
+    }
+    
+    // After the last poll(): once any spill under way is written, the journal is released
+    void close() {
+        try {
+            spiller.execute(() -> {
+                synchronized (journal) {
+                    journal.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            return;
+        }
+        spiller.shutdown();
+    }
+    
+    synchronized String describe() {
+        return ", " + spilled + " spilled, " + unspilled + " read back";
+    }
+}
\ No newline at end of file
@@ -0,0 +1,168 @@
+package com.example.health_check_app.pipeline;
+
+import android.util.Log;
+import com.example.health_check_app.models.SensorData;
+import com.example.health_check_app.storage.RawRecord;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Samples a lane could not hold in memory, appended as raw records to files under one
+// directory and read back oldest first. A file is closed every SEGMENT_RECORDS samples so a
+// long backlog is read back a piece at a time. Each journal names its files after itself and
+// owns them until release(); on start a journal takes up every file whose owner is gone, so a
+// backlog survives a restart or a journal closed before it was read back, while the files of
+// a journal still draining in this process are left to it. Not thread-safe: SpillBuffer
+// locks it while in use.
+final class SpillJournal {
+    private static final String TAG = "SpillJournal";
+    static final int SEGMENT_RECORDS = 4096;
+    private static final String PREFIX = "spill-";
+    private static final String SUFFIX = ".bin";
+    // File names start with the process start time and the journal's number, so the files of
+    // earlier processes and journals sort first
+    private static final long PROCESS_START = System.currentTimeMillis();
+    private static final AtomicInteger nextJournal = new AtomicInteger();
+    // Name prefixes of the journals not yet released in this process
+    private static final Set<String> owners = new HashSet<>();
+    
+    private final File directory;
+    private final String owner;
+    private int nextFile;
+    private final ArrayDeque<File> sealed = new ArrayDeque<>();
+    private final ByteBuffer record = ByteBuffer.allocate(RawRecord.SIZE);
+    private File current;
+    private OutputStream out;
+    private int currentRecords;
+    
+    SpillJournal(File directory) {
+        this(directory, true);
+    }
+    
+    // Without keepOrphans, files whose owner is gone are deleted rather than taken up, for a
+    // backlog that is worthless once the process that queued it has moved on
+    SpillJournal(File directory, boolean keepOrphans) {
+        this.directory = directory;
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            Log.e(TAG, "Cannot create " + directory);
+        }
+        owner = PREFIX + String.format(Locale.US, "%013d-%05d-", PROCESS_START, nextJournal.getAndIncrement());
+        File[] files;
+        synchronized (owners) {
+            owners.add(owner);
+            files = directory.listFiles((dir, name) ->
+                name.startsWith(PREFIX) && name.endsWith(SUFFIX) && !isOwned(name));
+        }
+        if (files == null) {
+            return;
+        }
+        if (keepOrphans) {
+            Arrays.sort(files);
+            sealed.addAll(Arrays.asList(files));
+            return;
+        }
+        for (File file : files) {
+            Log.w(TAG, "Discarding " + file.length() / RawRecord.SIZE + " samples in " + file);
+            if (!file.delete()) {
+                Log.w(TAG, "Failed to delete " + file);
+            }
+        }
+    }
+    
+    // Callers hold owners
+    private static boolean isOwned(String name) {
+        for (String owner : owners) {
+            if (name.startsWith(owner)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    boolean isEmpty() {
+        return sealed.isEmpty() && out == null;
+    }
+    
+    void append(SensorData data) throws IOException {
+        if (out == null) {
+            File file = new File(directory, String.format(Locale.US, "%s%09d%s",
+                owner, nextFile++, SUFFIX));
+            out = new BufferedOutputStream(new FileOutputStream(file));
+            current = file;
+            currentRecords = 0;
+        }
+        record.clear();
+        RawRecord.write(record, data.getTimestamp(), data);
+        out.write(record.array(), 0, RawRecord.SIZE);
+        if (++currentRecords >= SEGMENT_RECORDS) {
+            seal();
+        }
+    }
+    
+    private void seal() {
+        try {
+            out.close();
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to close " + current + ": " + e.getMessage());
+        }
+        sealed.addLast(current);
+        out = null;
+        current = null;
+    }
+    
+    // The oldest file to read back, closing the one being written if nothing older is left;
+    // null once everything has been read back
+    File next() {
+        if (sealed.isEmpty() && out != null) {
+            seal();
+        }
+        return sealed.peekFirst();
+    }
+    
+    // Once the samples of a file from next() are handed on
+    void remove(File file) {
+        sealed.remove(file);
+        if (!file.delete()) {
+            Log.w(TAG, "Failed to delete " + file);
+        }
+    }
+    
+    // Gives up the files not yet read back, closing the one being written, to the next
+    // journal started on this directory
+    void release() {
+        if (out != null) {
+            seal();
+        }
+        synchronized (owners) {
+            owners.remove(owner);
+        }
+    }
+    
+    // A record torn by a crash mid-write, at the end of the file, is skipped
+    static List<SensorData> read(File file) throws IOException {
+        byte[] bytes = new byte[(int) file.length()];
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            in.readFully(bytes);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        int count = bytes.length / RawRecord.SIZE;
+        List<SensorData> samples = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            samples.add(RawRecord.read(buffer, i * RawRecord.SIZE));
+        }
+        return samples;
+    }
+}
\ No newline at end of file
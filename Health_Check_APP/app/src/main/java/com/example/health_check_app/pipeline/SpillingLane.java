@@ -0,0 +1,76 @@
+package com.example.health_check_app.pipeline;
+
+import com.example.health_check_app.models.SensorData;
+import java.util.List;
+
+// Loses nothing and holds at most capacity samples in memory; past that, samples are spilled
+// to a journal on disk, off the delivering thread, and the consumer still sees every sample
+// in arrival order. The consumer takes what is queued in batches. The worker can be left
+// asleep while samples accumulate, to be drained on request.
+final class SpillingLane extends Lane {
+    interface BatchConsumer {
+        void accept(List<SensorData> samples);
+    }
+    
+    private final SpillBuffer buffer;
+    private final BatchConsumer consumer;
+    private boolean autoDrain = true;
+    
+    SpillingLane(String name, int capacity, SpillJournal journal, BatchConsumer consumer) {
+        super(name);
+        this.buffer = new SpillBuffer(name, capacity, journal);
+        this.consumer = consumer;
+        if (!buffer.isEmpty()) {
+            requestDrain();
+        }
+    }
+    
+    @Override
+    boolean offer(SensorData data) {
+        int depth = buffer.offer(data);
+        boolean wake;
+        synchronized (this) {
+            onOffered(depth);
+            wake = autoDrain;
+        }
+        return wake && requestDrain();
+    }
+    
+    // Off: offers leave the worker asleep until requestDrain
+    synchronized void setAutoDrain(boolean autoDrain) {
+        this.autoDrain = autoDrain;
+    }
+    
+    @Override
+    protected void drain() {
+        SpillBuffer.Batch batch;
+        while ((batch = buffer.poll()) != null) {
+            if (!batch.samples.isEmpty()) {
+                consumer.accept(batch.samples);
+            }
+            buffer.finished(batch);
+        }
+    }
+    
+    @Override
+    int depth() {
+        return buffer.depth();
+    }
+    
+    // Drains memory and journal before the worker stops
+    @Override
+    void close() {
+        requestDrain();
+        super.close();
+    }
+    
+    @Override
+    protected void onClosed() {
+        buffer.close();
+    }
+    
+    @Override
+    protected String describePolicy() {
+        return buffer.describe();
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.health_check_app.rules;
+
+import com.example.health_check_app.models.Metric;
+
+// One rule firing for one sample
+public class Alert {
+    public enum Type {
+        FALL("ALARM_FALL", null),
+        FEVER("ALARM_FEVER", Metric.BODY_TEMPERATURE),
+        HIGH_HEART_RATE("ALARM_HEART_RATE", Metric.HEART_RATE),
+        // Far from the wearer's own norm for the time of day, in either direction. Stored by
+        // ordinal, so new types go last.
+        UNUSUAL_HEART_RATE("ALARM_HEART_RATE", Metric.HEART_RATE),
+        UNUSUAL_TEMPERATURE("ALARM_FEVER", Metric.BODY_TEMPERATURE);
+        
+        private final String command;
+        private final Metric metric;
+        
+        Type(String command, Metric metric) {
+            this.command = command;
+            this.metric = metric;
+        }
+        
+        // Command sent to the wearable to sound its buzzer
+        public String getCommand() {
+            return command;
+        }
+        
+        // The vital the value refers to, or null for events such as falls
+        public Metric getMetric() {
+            return metric;
+        }
+    }
+    
+    // Ordered from least to most urgent
+    public enum Severity {
+        WARNING,
+        CRITICAL
+    }
+    
+    private final Type type;
+    private final Severity severity;
+    private final float value;
+    private final long timestamp;
+    
+    public Alert(Type type, Severity severity, float value, long timestamp) {
+        this.type = type;
+        this.severity = severity;
+        this.value = value;
+        this.timestamp = timestamp;
+    }
+    
+    public Type getType() {
+        return type;
+    }
+    
+    public Severity getSeverity() {
+        return severity;
+    }
+    
+    // The reading that triggered the alert
+    public float getValue() {
+        return value;
+    }
+    
+    public long getTimestamp() {
+        return timestamp;
+    }
+    
+    @Override
+    public String toString() {
+        return type + "@" + timestamp + "=" + value + (severity == Severity.CRITICAL ? "!" : "");
+    }
+}
\ No newline at end of file
@@ -0,0 +1,68 @@
+package com.example.health_check_app.rules;
+
+import com.example.health_check_app.timer.TimerService;
+import com.example.health_check_app.timer.TimerWheel;
+import java.util.EnumMap;
+import java.util.Map;
+
+// Limits how often one alert type interrupts the user. Once an alert is raised, later alerts
+// of its type are held back until its cooldown timer fires, unless they are more severe.
+// Held-back alerts are still evaluated and stored; only the dialog, vibration and buzzer wait.
+public class AlertCooldown {
+    private static final long WARNING_COOLDOWN_MS = 5 * 60 * 1000L;
+    private static final long CRITICAL_COOLDOWN_MS = 60 * 1000L;
+    // A fall is reported by several consecutive samples; one after this is a new fall
+    private static final long FALL_COOLDOWN_MS = 30 * 1000L;
+    
+    private static final class Cooldown {
+        final Alert.Severity severity;
+        TimerWheel.Timer timer;
+        
+        Cooldown(Alert.Severity severity) {
+            this.severity = severity;
+        }
+    }
+    
+    private final TimerService timers;
+    private final Map<Alert.Type, Cooldown> active = new EnumMap<>(Alert.Type.class);
+    private long suppressed;
+    
+    public AlertCooldown(TimerService timers) {
+        this.timers = timers;
+    }
+    
+    // True if the alert should be presented; starts its type's cooldown
+    public synchronized boolean shouldRaise(Alert alert) {
+        Alert.Type type = alert.getType();
+        Cooldown current = active.get(type);
+        if (current != null && alert.getSeverity().compareTo(current.severity) <= 0) {
+            suppressed++;
+            return false;
+        }
+        if (current != null) {
+            timers.cancel(current.timer);
+        }
+        Cooldown cooldown = new Cooldown(alert.getSeverity());
+        cooldown.timer = timers.schedule(() -> expire(type, cooldown), cooldownMs(alert));
+        active.put(type, cooldown);
+        return true;
+    }
+    
+    private static long cooldownMs(Alert alert) {
+        if (alert.getType() == Alert.Type.FALL) {
+            return FALL_COOLDOWN_MS;
+        }
+        return alert.getSeverity() == Alert.Severity.CRITICAL ? CRITICAL_COOLDOWN_MS : WARNING_COOLDOWN_MS;
+    }
+    
+    // A cancelled timer may already be on its way to running, so only its own cooldown ends
+    private synchronized void expire(Alert.Type type, Cooldown cooldown) {
+        if (active.get(type) == cooldown) {
+            active.remove(type);
+        }
+    }
+    
+    public synchronized long getSuppressedCount() {
+        return suppressed;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,225 @@
+package com.example.health_check_app.rules;
+
+import com.example.health_check_app.models.Metric;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.TimeZone;
+
+// The wearer's own norm for each tracked vital by hour of the local day: a running mean and
+// variance per hour (Welford), updated in constant time per sample. A reading is unusual when
+// it lies several standard deviations from the norm for its hour, once that hour has seen
+// enough samples. The sample count saturates, so old days fade out and the norm follows slow
+// changes such as training, while unusual readings are kept out so an episode is not learned
+// as normal. They are tallied on the side instead: once an hour has seen RELEARN_WEIGHT more
+// unusual readings than ordinary ones, the wearer's norm has moved for good and the hour takes
+// the unusual readings as its new norm. The whole model is a few hundred numbers, persisted
+// between runs.
+public class BaselineModel {
+    private static final int VERSION = 2;
+    private static final long HOUR_MS = 60 * 60 * 1000L;
+    static final int HOURS = 24;
+    
+    // Vitals with a baseline, and the smallest spread assumed for each so a very steady
+    // history does not turn ordinary noise into many deviations
+    private static final Metric[] TRACKED = {Metric.HEART_RATE, Metric.BODY_TEMPERATURE};
+    private static final double[] MIN_DEVIATION = {3.0, 0.15};
+    
+    // An hour needs this many samples before it judges anything; at one sample a second
+    // that is a quarter of the hour on the first day
+    static final double MIN_WEIGHT = 900;
+    // Past this many samples each new one counts as 1/MAX_WEIGHT of the norm, about a
+    // week of that hour at one sample a second
+    static final double MAX_WEIGHT = 7 * 3600;
+    static final double WARNING_SCORE = 3.5;
+    static final double CRITICAL_SCORE = 5.0;
+    // Consecutive unusual readings needed before one is reported, so a lone noisy reading
+    // from a loose sensor stays quiet
+    static final int SUSTAINED_SAMPLES = 10;
+    // Surplus of unusual over ordinary readings in an hour that makes them its new norm, about
+    // a week of that hour at one sample a second; an episode of a few days stays unusual
+    static final double RELEARN_WEIGHT = 7 * 3600;
+    
+    private final TimeZone zone;
+    private final double[] weights = new double[TRACKED.length * HOURS];
+    private final double[] means = new double[TRACKED.length * HOURS];
+    private final double[] m2s = new double[TRACKED.length * HOURS];
+    // Unusual readings per hour, less one for each ordinary reading since
+    private final double[] shiftWeights = new double[TRACKED.length * HOURS];
+    private final double[] shiftMeans = new double[TRACKED.length * HOURS];
+    private final double[] shiftM2s = new double[TRACKED.length * HOURS];
+    private final int[] unusualRuns = new int[TRACKED.length];
+    
+    public BaselineModel(TimeZone zone) {
+        this.zone = zone;
+    }
+    
+    // Scores the reading against the norm for its hour and learns it unless it is unusual.
+    // Returns the severity of a sustained deviation, or null for an ordinary reading, an
+    // untracked vital or an hour still learning.
+    public synchronized Alert.Severity observe(Metric metric, float value, long timestamp) {
+        int tracked = indexOf(metric);
+        if (tracked < 0 || !metric.isPresent(value)) {
+            return null;
+        }
+        int bucket = tracked * HOURS + hourOf(timestamp);
+        double score = score(tracked, bucket, value);
+        if (score < WARNING_SCORE) {
+            unusualRuns[tracked] = 0;
+            learn(bucket, value);
+            unlearnShift(bucket);
+            return null;
+        }
+        if (learnShift(bucket, value)) {
+            // The norm has moved: the unusual readings become it
+            weights[bucket] = shiftWeights[bucket];
+            means[bucket] = shiftMeans[bucket];
+            m2s[bucket] = shiftM2s[bucket];
+            shiftWeights[bucket] = 0;
+            shiftM2s[bucket] = 0;
+            unusualRuns[tracked] = 0;
+            return null;
+        }
+        if (++unusualRuns[tracked] < SUSTAINED_SAMPLES) {
+            return null;
+        }
+        return score >= CRITICAL_SCORE ? Alert.Severity.CRITICAL : Alert.Severity.WARNING;
+    }
+    
+    // Standard deviations from the norm for the hour, or 0 while the hour is learning
+    private double score(int tracked, int bucket, float value) {
+        double weight = weights[bucket];
+        if (weight < MIN_WEIGHT) {
+            return 0;
+        }
+        double deviation = Math.max(Math.sqrt(m2s[bucket] / weight), MIN_DEVIATION[tracked]);
+        return Math.abs(value - means[bucket]) / deviation;
+    }
+    
+    private void learn(int bucket, double value) {
+        double weight = weights[bucket];
+        if (weight >= MAX_WEIGHT) {
+            // Scale the history down to make room, keeping its variance
+            m2s[bucket] *= (MAX_WEIGHT - 1) / weight;
+            weight = MAX_WEIGHT - 1;
+        }
+        double total = weight + 1;
+        double delta = value - means[bucket];
+        means[bucket] += delta / total;
+        m2s[bucket] += delta * (value - means[bucket]);
+        weights[bucket] = total;
+    }
+    
+    // Adds an unusual reading to the hour's tally. Returns true once the tally is large
+    // enough to replace the norm.
+    private boolean learnShift(int bucket, double value) {
+        double total = shiftWeights[bucket] + 1;
+        double delta = value - shiftMeans[bucket];
+        shiftMeans[bucket] += delta / total;
+        shiftM2s[bucket] += delta * (value - shiftMeans[bucket]);
+        shiftWeights[bucket] = total;
+        return total >= RELEARN_WEIGHT;
+    }
+    
+    // An ordinary reading takes one off the tally, keeping its mean and variance
+    private void unlearnShift(int bucket) {
+        double weight = shiftWeights[bucket];
+        if (weight <= 1) {
+            shiftWeights[bucket] = 0;
+            shiftMeans[bucket] = 0;
+            shiftM2s[bucket] = 0;
+            return;
+        }
+        shiftM2s[bucket] *= (weight - 1) / weight;
+        shiftWeights[bucket] = weight - 1;
+    }
+    
+    public synchronized double getMean(Metric metric, int hour) {
+        int tracked = indexOf(metric);
+        return tracked < 0 || weights[tracked * HOURS + hour] == 0 ? Double.NaN : means[tracked * HOURS + hour];
+    }
+    
+    public synchronized double getStandardDeviation(Metric metric, int hour) {
+        int tracked = indexOf(metric);
+        if (tracked < 0 || weights[tracked * HOURS + hour] == 0) {
+            return Double.NaN;
+        }
+        return Math.sqrt(m2s[tracked * HOURS + hour] / weights[tracked * HOURS + hour]);
+    }
+    
+    // Local hour of day, 0-23, on the clock in use at that time
+    int hourOf(long timestamp) {
+        return (int) Math.floorMod(timestamp + zone.getOffset(timestamp), HOURS * HOUR_MS) / (int) HOUR_MS;
+    }
+    
+    private static int indexOf(Metric metric) {
+        for (int i = 0; i < TRACKED.length; i++) {
+            if (TRACKED[i] == metric) {
+                return i;
+            }
+        }
+        return -1;
+    }
+    
+    // A missing file or one from another version leaves the model as it was, to be learned
+    // from scratch. A version 1 file has no tallies of unusual readings; they start empty.
+    public synchronized boolean load(File file) throws IOException {
+        if (!file.exists()) {
+            return false;
+        }
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            int version = in.readInt();
+            if ((version != 1 && version != VERSION) || in.readInt() != TRACKED.length || in.readInt() != HOURS) {
+                return false;
+            }
+            int columns = version == 1 ? 3 : 6;
+            double[] state = new double[weights.length * columns];
+            for (int i = 0; i < state.length; i++) {
+                state[i] = in.readDouble();
+            }
+            for (int i = 0; i < weights.length; i++) {
+                weights[i] = state[columns * i];
+                means[i] = state[columns * i + 1];
+                m2s[i] = state[columns * i + 2];
+                shiftWeights[i] = columns == 6 ? state[columns * i + 3] : 0;
+                shiftMeans[i] = columns == 6 ? state[columns * i + 4] : 0;
+                shiftM2s[i] = columns == 6 ? state[columns * i + 5] : 0;
+            }
+        }
+        return true;
+    }
+    
+    // Written to a temp file, synced and renamed so a crash never leaves it torn
+    public void save(File file) throws IOException {
+        double[] state = new double[weights.length * 6];
+        synchronized (this) {
+            for (int i = 0; i < weights.length; i++) {
+                state[6 * i] = weights[i];
+                state[6 * i + 1] = means[i];
+                state[6 * i + 2] = m2s[i];
+                state[6 * i + 3] = shiftWeights[i];
+                state[6 * i + 4] = shiftMeans[i];
+                state[6 * i + 5] = shiftM2s[i];
+            }
+        }
+        File temp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream stream = new FileOutputStream(temp);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream))) {
+            out.writeInt(VERSION);
+            out.writeInt(TRACKED.length);
+            out.writeInt(HOURS);
+            for (double number : state) {
+                out.writeDouble(number);
+            }
+            out.flush();
+            stream.getFD().sync();
+        }
+        if (!temp.renameTo(file)) {
+            throw new IOException("Cannot replace " + file);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,91 @@
+package com.example.health_check_app.rules;
+
+import com.example.health_check_app.models.Metric;
+import com.example.health_check_app.models.SensorData;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Alert rules applied to every sample. Pure logic with no Android dependencies, so recorded
+// sessions can be replayed through it in tests.
+public class RuleEngine {
+    // How far past the configured limit a reading becomes critical
+    private static final int CRITICAL_HEART_RATE_MARGIN = 30;
+    private static final float CRITICAL_TEMPERATURE_MARGIN = 1.5f;
+    
+    // Replaced whole, so a sample is never judged by one old and one new limit
+    private static final class Limits {
+        final int heartRateMax;
+        final float temperatureMax;
+        
+        Limits(int heartRateMax, float temperatureMax) {
+            this.heartRateMax = heartRateMax;
+            this.temperatureMax = temperatureMax;
+        }
+    }
+    
+    private volatile Limits limits = new Limits(100, 37.3f);
+    private volatile BaselineModel baseline;
+    
+    // Safe from any thread; applies from the next sample evaluated
+    public void setThresholds(int heartRateMax, float temperatureMax) {
+        limits = new Limits(heartRateMax, temperatureMax);
+    }
+    
+    // Also judges readings against the wearer's own norm; null turns that off
+    public void setBaseline(BaselineModel baseline) {
+        this.baseline = baseline;
+    }
+    
+    // Alerts raised by the sample, in the order they should be presented
+    public List<Alert> evaluate(SensorData data) {
+        List<Alert> alerts = Collections.emptyList();
+        Limits limits = this.limits;
+        if (data.getMotionStatus() == SensorData.MotionStatus.FALL_DETECTED) {
+            alerts = add(alerts, new Alert(Alert.Type.FALL, Alert.Severity.CRITICAL, 1f, data.getTimestamp()));
+        }
+        float temperature = data.getBodyTemperature();
+        boolean fever = temperature > limits.temperatureMax;
+        if (fever) {
+            Alert.Severity severity = temperature >= limits.temperatureMax + CRITICAL_TEMPERATURE_MARGIN
+                ? Alert.Severity.CRITICAL : Alert.Severity.WARNING;
+            alerts = add(alerts, new Alert(Alert.Type.FEVER, severity, temperature, data.getTimestamp()));
+        }
+        int heartRate = data.getHeartRate();
+        boolean highHeartRate = heartRate > limits.heartRateMax;
+        if (highHeartRate) {
+            Alert.Severity severity = heartRate >= limits.heartRateMax + CRITICAL_HEART_RATE_MARGIN
+                ? Alert.Severity.CRITICAL : Alert.Severity.WARNING;
+            alerts = add(alerts, new Alert(Alert.Type.HIGH_HEART_RATE, severity, heartRate, data.getTimestamp()));
+        }
+        BaselineModel baseline = this.baseline;
+        if (baseline != null && data.getMotionStatus() != SensorData.MotionStatus.FALL_DETECTED) {
+            alerts = checkBaseline(baseline, alerts, Metric.BODY_TEMPERATURE, temperature,
+                Alert.Type.UNUSUAL_TEMPERATURE, fever, data.getTimestamp());
+            alerts = checkBaseline(baseline, alerts, Metric.HEART_RATE, heartRate,
+                Alert.Type.UNUSUAL_HEART_RATE, highHeartRate, data.getTimestamp());
+        }
+        return alerts;
+    }
+    
+    // Every reading is shown to the model so it keeps learning, but a vital already over its
+    // fixed limit raises only that alert
+    private static List<Alert> checkBaseline(BaselineModel baseline, List<Alert> alerts,
+                                             Metric metric, float value, Alert.Type type,
+                                             boolean overLimit, long timestamp) {
+        Alert.Severity severity = baseline.observe(metric, value, timestamp);
+        if (severity == null || overLimit) {
+            return alerts;
+        }
+        return add(alerts, new Alert(type, severity, value, timestamp));
+    }
+    
+    // Most samples raise nothing, so the list is only allocated when needed
+    private static List<Alert> add(List<Alert> alerts, Alert alert) {
+        if (alerts.isEmpty()) {
+            alerts = new ArrayList<>(4);
+        }
+        alerts.add(alert);
+        return alerts;
+    }
+}
\ No newline at end of file
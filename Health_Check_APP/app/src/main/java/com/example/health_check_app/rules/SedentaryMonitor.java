@@ -0,0 +1,94 @@
+package com.example.health_check_app.rules;
+
+import com.example.health_check_app.models.SensorData;
+import com.example.health_check_app.timer.TimerService;
+import com.example.health_check_app.timer.TimerWheel;
+
+// Reminds the wearer to move after sitting still too long, judged from the motion status of
+// the sample stream. A timer is armed when they stop moving and cancelled when they move, so
+// the steady run of sedentary samples in between costs one comparison each. While they stay
+// still the reminder repeats every limit.
+public class SedentaryMonitor {
+    public static final long DEFAULT_LIMIT_MS = 60 * 60 * 1000L;
+    
+    public interface Listener {
+        // Called on the timer thread
+        void onSedentaryTooLong(long stillMinutes);
+    }
+    
+    private final TimerService timers;
+    private final long limitMs;
+    private final Listener listener;
+    private volatile boolean still;
+    private boolean enabled;
+    private TimerWheel.Timer timer;
+    private int generation;
+    private int reminders;
+    
+    public SedentaryMonitor(TimerService timers, long limitMs, Listener listener) {
+        this.timers = timers;
+        this.limitMs = limitMs;
+        this.listener = listener;
+    }
+    
+    public synchronized void setEnabled(boolean enabled) {
+        if (this.enabled == enabled) {
+            return;
+        }
+        this.enabled = enabled;
+        disarm();
+        if (enabled && still) {
+            arm();
+        }
+    }
+    
+    public void onSample(SensorData data) {
+        boolean sampleStill = data.getMotionStatus() == SensorData.MotionStatus.SEDENTARY;
+        if (sampleStill == still) {
+            return;
+        }
+        synchronized (this) {
+            if (sampleStill == still) {
+                return;
+            }
+            still = sampleStill;
+            disarm();
+            if (still && enabled) {
+                arm();
+            }
+        }
+    }
+    
+    // Forgets the current still period, e.g. when samples stop arriving
+    public synchronized void reset() {
+        still = false;
+        disarm();
+    }
+    
+    private void arm() {
+        int armed = ++generation;
+        timer = timers.schedule(() -> onLimitReached(armed), limitMs);
+    }
+    
+    private void disarm() {
+        timers.cancel(timer);
+        timer = null;
+        generation++;
+        reminders = 0;
+    }
+    
+    private void onLimitReached(int armed) {
+        long minutes;
+        synchronized (this) {
+            // A timer cancelled while already firing must not remind
+            if (armed != generation) {
+                return;
+            }
+            reminders++;
+            minutes = reminders * limitMs / 60_000;
+            int current = ++generation;
+            timer = timers.schedule(() -> onLimitReached(current), limitMs);
+        }
+        listener.onSedentaryTooLong(minutes);
+    }
+}
\ No newline at end of file
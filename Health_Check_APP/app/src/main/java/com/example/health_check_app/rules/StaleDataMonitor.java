@@ -0,0 +1,85 @@
+package com.example.health_check_app.rules;
+
+import com.example.health_check_app.timer.TimerService;
+import com.example.health_check_app.timer.TimerWheel;
+
+// Notices when samples stop arriving while the connection still looks up. Each sample only
+// records its arrival time; one timer checks at the end of the window and, if samples kept
+// coming, re-arms for the rest of the window from the newest one. So the stream costs at most
+// one timer per window rather than a cancel and reschedule per sample. Watching starts with
+// the first sample and resumes with the first one after a stale period.
+public class StaleDataMonitor {
+    public interface Listener {
+        // Called on the timer thread
+        void onStale(long silentMs);
+        // Called on the thread delivering the first sample after a stale period
+        void onFresh();
+    }
+    
+    private final TimerService timers;
+    private final long staleAfterMs;
+    private final Listener listener;
+    private volatile long lastSampleAt;
+    private volatile boolean armed;
+    private boolean stale;
+    private TimerWheel.Timer timer;
+    private int generation;
+    
+    public StaleDataMonitor(TimerService timers, long staleAfterMs, Listener listener) {
+        this.timers = timers;
+        this.staleAfterMs = staleAfterMs;
+        this.listener = listener;
+    }
+    
+    public void onSample() {
+        lastSampleAt = timers.now();
+        if (armed) {
+            return;
+        }
+        boolean recovered;
+        synchronized (this) {
+            if (armed) {
+                return;
+            }
+            armed = true;
+            recovered = stale;
+            stale = false;
+            schedule(staleAfterMs);
+        }
+        if (recovered) {
+            listener.onFresh();
+        }
+    }
+    
+    // Stops watching until the next sample
+    public synchronized void stop() {
+        timers.cancel(timer);
+        timer = null;
+        generation++;
+        armed = false;
+        stale = false;
+    }
+    
+    private void schedule(long delayMs) {
+        int current = ++generation;
+        timer = timers.schedule(() -> check(current), delayMs);
+    }
+    
+    private void check(int scheduled) {
+        long silentMs;
+        synchronized (this) {
+            if (scheduled != generation) {
+                return;
+            }
+            silentMs = timers.now() - lastSampleAt;
+            if (silentMs < staleAfterMs) {
+                schedule(staleAfterMs - silentMs);
+                return;
+            }
+            timer = null;
+            stale = true;
+            armed = false;
+        }
+        listener.onStale(silentMs);
+    }
+}
\ No newline at end of file
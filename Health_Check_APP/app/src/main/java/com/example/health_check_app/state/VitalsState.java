@@ -0,0 +1,111 @@
+package com.example.health_check_app.state;
+
+import com.example.health_check_app.models.SensorData;
+import com.example.health_check_app.models.VitalsSnapshot;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Process-wide holder of the latest VitalsSnapshot. Writers (the MQTT callback) swap in a new
+// immutable snapshot; readers call get() from any thread without locks. Subscribers are
+// notified on their own executor and conflated: however many snapshots are published while
+// a notification is queued, the subscriber runs once and sees the latest.
+public class VitalsState {
+    private static final VitalsState instance = new VitalsState();
+    
+    public interface Listener {
+        void onSnapshot(VitalsSnapshot snapshot);
+    }
+    
+    private final AtomicReference<VitalsSnapshot> current = new AtomicReference<>(VitalsSnapshot.EMPTY);
+    private final CopyOnWriteArrayList<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    
+    public static VitalsState getInstance() {
+        return instance;
+    }
+    
+    public VitalsSnapshot get() {
+        return current.get();
+    }
+    
+    public VitalsSnapshot publishSample(SensorData data) {
+        VitalsSnapshot previous;
+        VitalsSnapshot next;
+        do {
+            previous = current.get();
+            next = previous.withSample(data);
+        } while (!current.compareAndSet(previous, next));
+        notifySubscribers();
+        return next;
+    }
+    
+    public VitalsSnapshot publishBatteryLevel(int level) {
+        VitalsSnapshot previous;
+        VitalsSnapshot next;
+        do {
+            previous = current.get();
+            next = previous.withBatteryLevel(level);
+        } while (!current.compareAndSet(previous, next));
+        notifySubscribers();
+        return next;
+    }
+    
+    // The listener is called on the executor with the current snapshot right away, then on
+    // every change until the subscription is cancelled
+    public Subscription subscribe(Executor executor, Listener listener) {
+        Subscription subscription = new Subscription(executor, listener);
+        subscriptions.add(subscription);
+        subscription.schedule();
+        return subscription;
+    }
+    
+    private void notifySubscribers() {
+        for (Subscription subscription : subscriptions) {
+            subscription.schedule();
+        }
+    }
+    
+    public class Subscription {
+        private final Executor executor;
+        private final Listener listener;
+        private final AtomicBoolean queued = new AtomicBoolean();
+        private volatile boolean cancelled;
+        private long deliveredVersion = -1;
+        private volatile long conflated;
+        
+        private Subscription(Executor executor, Listener listener) {
+            this.executor = executor;
+            this.listener = listener;
+        }
+        
+        private void schedule() {
+            if (queued.compareAndSet(false, true)) {
+                executor.execute(this::deliver);
+            }
+        }
+        
+        private void deliver() {
+            queued.set(false);
+            VitalsSnapshot snapshot = current.get();
+            if (cancelled || snapshot.getVersion() == deliveredVersion) {
+                return;
+            }
+            if (deliveredVersion >= 0) {
+                conflated += snapshot.getVersion() - deliveredVersion - 1;
+            }
+            deliveredVersion = snapshot.getVersion();
+            listener.onSnapshot(snapshot);
+        }
+        
+        // Snapshots this subscriber skipped because a newer one was already published
+        public long getConflatedCount() {
+            return conflated;
+        }
+        
+        public void cancel() {
+            cancelled = true;
+            subscriptions.remove(this);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,157 @@
+package com.example.health_check_app.storage;
+
+import com.example.health_check_app.models.AlertRecord;
+import com.example.health_check_app.rules.Alert;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.TreeMap;
+
+// In-memory indexes over the alert log, keyed by record number (position in the file).
+// Type, severity and local hour of day are bitmaps; local days are posting lists of the
+// records that fall on them, with the zone's offset at each record's time so daylight saving
+// time moves them with the clock. A query intersects the relevant bitmaps with the union of the
+// days in range, then checks the exact time and value of the surviving records only.
+final class AlertIndex {
+    private static final long HOUR_MS = 60 * 60 * 1000L;
+    private static final long DAY_MS = 24 * HOUR_MS;
+    private static final Alert.Type[] TYPES = Alert.Type.values();
+    private static final Alert.Severity[] SEVERITIES = Alert.Severity.values();
+    
+    private final TimeZone zone;
+    private final BitSet[] byType = new BitSet[TYPES.length];
+    private final BitSet[] bySeverity = new BitSet[SEVERITIES.length];
+    private final BitSet[] byHour = new BitSet[24];
+    private final TreeMap<Long, Postings> byDay = new TreeMap<>();
+    
+    // Columns needed to check and rebuild matches without touching the file
+    private long[] timestamps = new long[256];
+    private float[] values = new float[256];
+    private byte[] types = new byte[256];
+    private byte[] severities = new byte[256];
+    private int size;
+    
+    private static final class Postings {
+        int[] records = new int[8];
+        int size;
+        
+        void add(int record) {
+            if (size == records.length) {
+                records = Arrays.copyOf(records, size * 2);
+            }
+            records[size++] = record;
+        }
+    }
+    
+    AlertIndex(TimeZone zone) {
+        this.zone = zone;
+        for (int i = 0; i < byType.length; i++) byType[i] = new BitSet();
+        for (int i = 0; i < bySeverity.length; i++) bySeverity[i] = new BitSet();
+        for (int i = 0; i < byHour.length; i++) byHour[i] = new BitSet();
+    }
+    
+    synchronized int size() {
+        return size;
+    }
+    
+    // Records are added in file order, so the record number is the current size
+    synchronized void add(long timestamp, Alert.Type type, Alert.Severity severity, float value) {
+        if (size == timestamps.length) {
+            int capacity = size * 2;
+            timestamps = Arrays.copyOf(timestamps, capacity);
+            values = Arrays.copyOf(values, capacity);
+            types = Arrays.copyOf(types, capacity);
+            severities = Arrays.copyOf(severities, capacity);
+        }
+        int record = size++;
+        timestamps[record] = timestamp;
+        values[record] = value;
+        types[record] = (byte) type.ordinal();
+        severities[record] = (byte) severity.ordinal();
+        byType[type.ordinal()].set(record);
+        bySeverity[severity.ordinal()].set(record);
+        long zoneOffsetMs = zone.getOffset(timestamp);
+        byHour[(int) (Math.floorMod(timestamp + zoneOffsetMs, DAY_MS) / HOUR_MS)].set(record);
+        long day = Tier.floor(timestamp, DAY_MS, zoneOffsetMs);
+        Postings postings = byDay.get(day);
+        if (postings == null) {
+            postings = new Postings();
+            byDay.put(day, postings);
+        }
+        postings.add(record);
+    }
+    
+    // Matches newest first. The log is in arrival order, which is time order apart from
+    // the odd late sample, so the newest matches are found by walking records backwards.
+    synchronized List<AlertRecord> query(AlertQuery query) {
+        if (size == 0 || query.to <= query.from || query.types.isEmpty() || query.limit <= 0) {
+            return Collections.emptyList();
+        }
+        BitSet hits = inRange(query.from, query.to);
+        if (query.types.size() < TYPES.length) {
+            BitSet selected = new BitSet(size);
+            for (Alert.Type type : query.types) {
+                selected.or(byType[type.ordinal()]);
+            }
+            hits.and(selected);
+        }
+        if (query.minSeverity.ordinal() > 0) {
+            BitSet selected = new BitSet(size);
+            for (int s = query.minSeverity.ordinal(); s < SEVERITIES.length; s++) {
+                selected.or(bySeverity[s]);
+            }
+            hits.and(selected);
+        }
+        if (query.hourMask != AlertQuery.ALL_HOURS) {
+            BitSet selected = new BitSet(size);
+            for (int hour = 0; hour < 24; hour++) {
+                if ((query.hourMask & (1 << hour)) != 0) {
+                    selected.or(byHour[hour]);
+                }
+            }
+            hits.and(selected);
+        }
+        
+        List<AlertRecord> matches = new ArrayList<>();
+        for (int record = hits.previousSetBit(size - 1); record >= 0 && matches.size() < query.limit;
+                record = hits.previousSetBit(record - 1)) {
+            long timestamp = timestamps[record];
+            if (timestamp < query.from || timestamp >= query.to || values[record] < query.minValue) {
+                continue;
+            }
+            matches.add(new AlertRecord(TYPES[types[record]], SEVERITIES[severities[record]],
+                values[record], timestamp));
+        }
+        // Puts late arrivals in their place among the matches
+        Collections.sort(matches, (a, b) -> Long.compare(b.getTimestamp(), a.getTimestamp()));
+        return matches;
+    }
+    
+    // Records on the local days overlapping [from, to). Days at the edges may hold records
+    // outside the range; query() drops those when it checks the exact time.
+    private BitSet inRange(long from, long to) {
+        BitSet hits = new BitSet(size);
+        long firstDay = byDay.firstKey();
+        long lastDay = byDay.lastKey();
+        // A day can last 25 hours when the clocks go back
+        if (from <= firstDay && to >= lastDay + DAY_MS + HOUR_MS) {
+            hits.set(0, size);
+            return hits;
+        }
+        // An hour earlier too, for a record keyed under the other offset on a changeover day
+        long start = Math.max(from, firstDay);
+        long fromDay = Tier.floor(start, DAY_MS, zone.getOffset(start)) - HOUR_MS;
+        long toDay = Math.min(to, lastDay + DAY_MS);
+        for (Map.Entry<Long, Postings> entry : byDay.subMap(fromDay, true, toDay, false).entrySet()) {
+            Postings postings = entry.getValue();
+            for (int i = 0; i < postings.size; i++) {
+                hits.set(postings.records[i]);
+            }
+        }
+        return hits;
+    }
+}
\ No newline at end of file
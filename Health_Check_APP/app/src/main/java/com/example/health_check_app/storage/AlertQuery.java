@@ -0,0 +1,59 @@
+package com.example.health_check_app.storage;
+
+import com.example.health_check_app.rules.Alert;
+import java.util.EnumSet;
+import java.util.Set;
+
+// Filter for AlertStore.query. Every condition is optional; an empty query matches all alerts.
+public class AlertQuery {
+    static final int ALL_HOURS = (1 << 24) - 1;
+    
+    long from = Long.MIN_VALUE;
+    long to = Long.MAX_VALUE;
+    Set<Alert.Type> types = EnumSet.allOf(Alert.Type.class);
+    Alert.Severity minSeverity = Alert.Severity.WARNING;
+    int hourMask = ALL_HOURS;
+    float minValue = Float.NEGATIVE_INFINITY;
+    int limit = Integer.MAX_VALUE;
+    
+    // from <= timestamp < to
+    public AlertQuery between(long from, long to) {
+        this.from = from;
+        this.to = to;
+        return this;
+    }
+    
+    public AlertQuery ofTypes(Set<Alert.Type> types) {
+        this.types = EnumSet.noneOf(Alert.Type.class);
+        this.types.addAll(types);
+        return this;
+    }
+    
+    public AlertQuery atLeast(Alert.Severity severity) {
+        this.minSeverity = severity;
+        return this;
+    }
+    
+    // Local hours of day from fromHour up to but excluding toHour, wrapping past midnight,
+    // so (22, 6) is the night
+    public AlertQuery duringHours(int fromHour, int toHour) {
+        int mask = 0;
+        for (int hour = fromHour; hour != toHour; hour = (hour + 1) % 24) {
+            mask |= 1 << hour;
+        }
+        this.hourMask = fromHour == toHour ? ALL_HOURS : mask;
+        return this;
+    }
+    
+    // Measured value at or above the given one, e.g. fevers from 38.5 °C
+    public AlertQuery minValue(float value) {
+        this.minValue = value;
+        return this;
+    }
+    
+    // Keep only the newest matches
+    public AlertQuery limit(int limit) {
+        this.limit = limit;
+        return this;
+    }
+}
\ No newline at end of file
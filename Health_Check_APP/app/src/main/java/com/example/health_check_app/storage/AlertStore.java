@@ -0,0 +1,261 @@
+package com.example.health_check_app.storage;
+
+import android.content.Context;
+import android.util.Log;
+import com.example.health_check_app.models.AlertRecord;
+import com.example.health_check_app.rules.Alert;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Append-only log of fired alerts as fixed-width records:
+//   timestamp (8) | type ordinal (1) | severity ordinal (1) | reserved (2) | value float32 (4)
+// All file access and index maintenance happen on one writer thread. The search index is
+// built from the log on the first query and kept current by every append after that.
+public class AlertStore {
+    private static final String TAG = "AlertStore";
+    private static final String FILE_NAME = "alerts.bin";
+    // Text log written by older versions: timestamp (8) | label (UTF) | message (UTF)
+    private static final String LEGACY_FILE_NAME = "alerts.log";
+    
+    static final int RECORD_SIZE = 16;
+    private static final int READ_RECORDS = 1024;
+    private static final Alert.Type[] TYPES = Alert.Type.values();
+    private static final Alert.Severity[] SEVERITIES = Alert.Severity.values();
+    private static final Pattern NUMBER = Pattern.compile("-?\\d+(\\.\\d+)?");
+    
+    private static AlertStore instance;
+    
+    private final File file;
+    private final TimeZone zone;
+    private final ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "alert-store");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile AlertIndex index;
+    private boolean repaired;
+    
+    public interface Visitor {
+        // Return false to stop reading
+        boolean onAlert(AlertRecord record);
+    }
+    
+    public static synchronized AlertStore getInstance(Context context) {
+        if (instance == null) {
+            File dir = context.getApplicationContext().getFilesDir();
+            instance = new AlertStore(new File(dir, FILE_NAME), TimeZone.getDefault());
+            instance.migrateLegacyLog(new File(dir, LEGACY_FILE_NAME));
+        }
+        return instance;
+    }
+    
+    // Hours and days in queries are those of the zone, daylight saving time included
+    public AlertStore(File file, TimeZone zone) {
+        this.file = file;
+        this.zone = zone;
+    }
+    
+    public void append(AlertRecord alert) {
+        writer.execute(() -> {
+            try {
+                write(alert);
+            } catch (IOException e) {
+                Log.e(TAG, "Failed to store alert: " + e.getMessage());
+            }
+        });
+    }
+    
+    private void write(AlertRecord alert) throws IOException {
+        if (!repaired) {
+            // Drop a torn record left behind by a crash mid-write, once per process
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(raf.length() - raf.length() % RECORD_SIZE);
+            }
+            repaired = true;
+        }
+        record.clear();
+        record.putLong(alert.getTimestamp());
+        record.put((byte) alert.getType().ordinal());
+        record.put((byte) alert.getSeverity().ordinal());
+        record.putShort((short) 0);
+        record.putFloat(alert.getValue());
+        try (FileOutputStream out = new FileOutputStream(file, true)) {
+            out.write(record.array());
+        }
+        AlertIndex current = index;
+        if (current != null) {
+            current.add(alert.getTimestamp(), alert.getType(), alert.getSeverity(), alert.getValue());
+        }
+    }
+    
+    // Streams alerts with from <= timestamp < to in the order they were recorded
+    public boolean read(long from, long to, Visitor visitor) throws IOException {
+        if (!file.exists()) {
+            return true;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(READ_RECORDS * RECORD_SIZE);
+        try (FileInputStream in = new FileInputStream(file);
+             FileChannel channel = in.getChannel()) {
+            boolean end = false;
+            while (!end) {
+                buffer.clear();
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer) < 0) {
+                        end = true;
+                        break;
+                    }
+                }
+                buffer.flip();
+                // A trailing partial record is one torn by a crash mid-write
+                for (int offset = 0; offset + RECORD_SIZE <= buffer.limit(); offset += RECORD_SIZE) {
+                    AlertRecord alert = decode(buffer, offset);
+                    if (alert == null) {
+                        continue;
+                    }
+                    long timestamp = alert.getTimestamp();
+                    if (timestamp >= from && timestamp < to && !visitor.onAlert(alert)) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+    
+    // Null for a record written by a newer version with a type this one doesn't know
+    private static AlertRecord decode(ByteBuffer buffer, int offset) {
+        int type = buffer.get(offset + 8);
+        int severity = buffer.get(offset + 9);
+        if (type < 0 || type >= TYPES.length || severity < 0 || severity >= SEVERITIES.length) {
+            return null;
+        }
+        return new AlertRecord(TYPES[type], SEVERITIES[severity], buffer.getFloat(offset + 12),
+            buffer.getLong(offset));
+    }
+    
+    // Newest matching alerts first. Waits for earlier appends, so it sees everything appended
+    // before the call. Call it off the main thread: the first query reads the whole log.
+    public List<AlertRecord> query(AlertQuery query) throws IOException {
+        AlertIndex current = index;
+        if (current == null) {
+            try {
+                current = writer.submit(this::buildIndex).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while indexing alerts");
+            } catch (ExecutionException e) {
+                throw new IOException("Failed to index alerts", e.getCause());
+            }
+        } else {
+            sync();
+        }
+        return current.query(query);
+    }
+    
+    private AlertIndex buildIndex() throws IOException {
+        if (index != null) {
+            return index;
+        }
+        long started = System.nanoTime();
+        AlertIndex built = new AlertIndex(zone);
+        read(Long.MIN_VALUE, Long.MAX_VALUE, alert -> {
+            built.add(alert.getTimestamp(), alert.getType(), alert.getSeverity(), alert.getValue());
+            return true;
+        });
+        index = built;
+        Log.d(TAG, "Indexed " + built.size() + " alerts in " + (System.nanoTime() - started) / 1000 + " us");
+        return built;
+    }
+    
+    // Waits until everything appended so far is written
+    public void sync() {
+        try {
+            writer.submit(() -> {}).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            Log.e(TAG, "Sync failed: " + e.getMessage());
+        }
+    }
+    
+    // Converts the text log of older versions, whose labels are the Chinese UI strings of
+    // the time, and removes it. Runs before any append so record order is kept.
+    private void migrateLegacyLog(File legacy) {
+        writer.execute(() -> {
+            if (!legacy.exists()) {
+                return;
+            }
+            // A finished migration whose legacy file could not be deleted leaves both behind
+            if (!file.exists() || file.length() == 0) {
+                int migrated = 0;
+                try (DataInputStream in = new DataInputStream(
+                        new BufferedInputStream(new FileInputStream(legacy)))) {
+                    while (true) {
+                        long timestamp;
+                        String label;
+                        String message;
+                        try {
+                            timestamp = in.readLong();
+                            label = in.readUTF();
+                            message = in.readUTF();
+                        } catch (EOFException e) {
+                            break;
+                        }
+                        AlertRecord alert = fromLegacy(timestamp, label, message);
+                        if (alert != null) {
+                            write(alert);
+                            migrated++;
+                        }
+                    }
+                } catch (IOException e) {
+                    Log.e(TAG, "Failed to migrate alert log: " + e.getMessage());
+                    return;
+                }
+                Log.d(TAG, "Migrated " + migrated + " alerts from " + legacy);
+            }
+            if (!legacy.delete()) {
+                Log.e(TAG, "Failed to delete " + legacy);
+            }
+        });
+    }
+    
+    static AlertRecord fromLegacy(long timestamp, String label, String message) {
+        Alert.Type type;
+        switch (label) {
+            case "跌倒":
+                return new AlertRecord(Alert.Type.FALL, Alert.Severity.CRITICAL, 1f, timestamp);
+            case "体温":
+                type = Alert.Type.FEVER;
+                break;
+            case "心率":
+                type = Alert.Type.HIGH_HEART_RATE;
+                break;
+            default:
+                return null;
+        }
+        // Old messages carried the reading, e.g. "体温异常: 38.2°C"; thresholds were not kept
+        Matcher matcher = NUMBER.matcher(message);
+        float value = matcher.find() ? Float.parseFloat(matcher.group()) : 0f;
+        return new AlertRecord(type, Alert.Severity.WARNING, value, timestamp);
+    }
+    
+    public long getSizeBytes() {
+        return file.length();
+    }
+}
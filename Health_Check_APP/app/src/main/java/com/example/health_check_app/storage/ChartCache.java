@@ -0,0 +1,266 @@
+package com.example.health_check_app.storage;
+
+import android.content.Context;
+import android.util.Log;
+import com.example.health_check_app.models.Metric;
+import com.example.health_check_app.models.SensorData;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Ready-to-chart series for the trailing windows the history screen shows, keyed by
+// (metric, range). Windows are read from storage once, on a low-priority background thread,
+// and from then on kept current by adding each new sample to its bucket, so opening the
+// screen or switching tabs needs no I/O. Entries are evicted least recently used first once
+// their estimated size exceeds the memory budget. A watcher is told of every bucket a new
+// sample changes in the windows of its range, so a chart on screen can follow along.
+public class ChartCache {
+    private static final String TAG = "ChartCache";
+    public static final int MAX_POINTS = 500;
+    private static final long DEFAULT_BUDGET_BYTES = 256 * 1024;
+    private static final Metric[] METRICS = Metric.values();
+    
+    private static ChartCache instance;
+    
+    public interface BucketListener {
+        // Called on the thread feeding samples, with the cache locked; post any real work.
+        // The bucket starting at bucketStart now averages mean.
+        void onBucket(Metric metric, long bucketStart, long bucketMs, float mean);
+    }
+    
+    private static final class Watcher {
+        final long rangeMs;
+        final BucketListener listener;
+        
+        Watcher(long rangeMs, BucketListener listener) {
+            this.rangeMs = rangeMs;
+            this.listener = listener;
+        }
+    }
+    
+    private final VitalsStore store;
+    private final int maxPoints;
+    private final long budgetBytes;
+    private final ExecutorService builder;
+    private final VitalsQuery query;
+    
+    private final LinkedHashMap<Long, ChartSnapshot> snapshots = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<Long, CompletableFuture<Series>> inFlight = new HashMap<>();
+    private long sizeBytes;
+    private long lastTimestamp;
+    // Samples that arrive while a window is being read, replayed onto it once it is installed
+    private final List<SensorData> pending = new ArrayList<>();
+    private final List<Long> pendingTimestamps = new ArrayList<>();
+    private int building;
+    private final List<Watcher> watchers = new ArrayList<>();
+    
+    private long hits;
+    private long misses;
+    private long evictions;
+    
+    public static synchronized ChartCache getInstance(Context context) {
+        if (instance == null) {
+            instance = new ChartCache(VitalsStore.getInstance(context), MAX_POINTS, DEFAULT_BUDGET_BYTES);
+        }
+        return instance;
+    }
+    
+    public ChartCache(VitalsStore store, int maxPoints, long budgetBytes) {
+        this.store = store;
+        this.maxPoints = maxPoints;
+        this.budgetBytes = budgetBytes;
+        this.query = new VitalsQuery(store);
+        this.builder = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "chart-cache");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+    }
+    
+    // Cached series for the window of rangeMs ending at now, or null; never touches the disk
+    public synchronized Series peek(Metric metric, long rangeMs, long now) {
+        ChartSnapshot snapshot = snapshots.get(key(metric, rangeMs));
+        if (snapshot == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return snapshot.series(now);
+    }
+    
+    // Cached series if there is one, otherwise one read from storage in the background and
+    // cached for next time
+    public synchronized CompletableFuture<Series> load(Metric metric, long rangeMs) {
+        long now = System.currentTimeMillis();
+        Series series = peek(metric, rangeMs, now);
+        if (series != null) {
+            return CompletableFuture.completedFuture(series);
+        }
+        return build(metric, rangeMs);
+    }
+    
+    // Reads every missing window in the background, e.g. while the app is idle
+    public synchronized void prefetch(Metric[] metrics, long[] rangesMs) {
+        for (Metric metric : metrics) {
+            for (long rangeMs : rangesMs) {
+                if (!snapshots.containsKey(key(metric, rangeMs))) {
+                    build(metric, rangeMs);
+                }
+            }
+        }
+    }
+    
+    // Feed every sample appended to the store, in the same order
+    public synchronized void onSample(SensorData data) {
+        // Same skew clamp as VitalsStore.append, so both agree on where a sample falls
+        long timestamp = data.getTimestamp();
+        if (timestamp < lastTimestamp && lastTimestamp - timestamp <= VitalsStore.MAX_SKEW_MS) {
+            timestamp = lastTimestamp;
+        }
+        lastTimestamp = timestamp;
+        for (Map.Entry<Long, ChartSnapshot> entry : snapshots.entrySet()) {
+            ChartSnapshot snapshot = entry.getValue();
+            Metric metric = metricOf(entry.getKey());
+            if (addSample(snapshot, metric, timestamp, data) && !watchers.isEmpty()) {
+                notifyWatchers(entry.getKey(), snapshot, metric, timestamp);
+            }
+        }
+        if (building > 0) {
+            pending.add(data);
+            pendingTimestamps.add(timestamp);
+        }
+    }
+    
+    // Follows the windows of rangeMs, for every metric, until unwatched
+    public synchronized void watch(long rangeMs, BucketListener listener) {
+        watchers.add(new Watcher(rangeMs, listener));
+    }
+    
+    public synchronized void unwatch(BucketListener listener) {
+        for (Iterator<Watcher> it = watchers.iterator(); it.hasNext(); ) {
+            if (it.next().listener == listener) {
+                it.remove();
+            }
+        }
+    }
+    
+    private void notifyWatchers(long key, ChartSnapshot snapshot, Metric metric, long timestamp) {
+        for (int i = 0; i < watchers.size(); i++) {
+            Watcher watcher = watchers.get(i);
+            if (key(metric, watcher.rangeMs) == key) {
+                long bucketMs = snapshot.getBucketMs();
+                watcher.listener.onBucket(metric, timestamp / bucketMs * bucketMs, bucketMs,
+                    snapshot.meanAt(timestamp));
+            }
+        }
+    }
+    
+    // Drops everything, e.g. after stored history was deleted
+    public synchronized void clear() {
+        snapshots.clear();
+        sizeBytes = 0;
+    }
+    
+    public synchronized long getHits() {
+        return hits;
+    }
+    
+    public synchronized long getMisses() {
+        return misses;
+    }
+    
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+    
+    public synchronized long getSizeBytes() {
+        return sizeBytes;
+    }
+    
+    @Override
+    public synchronized String toString() {
+        return snapshots.size() + " windows, " + sizeBytes / 1024 + " KB, "
+            + hits + " hits, " + misses + " misses, " + evictions + " evictions";
+    }
+    
+    private CompletableFuture<Series> build(Metric metric, long rangeMs) {
+        long key = key(metric, rangeMs);
+        CompletableFuture<Series> future = inFlight.get(key);
+        if (future != null) {
+            return future;
+        }
+        CompletableFuture<Series> result = new CompletableFuture<>();
+        inFlight.put(key, result);
+        building++;
+        builder.execute(() -> {
+            try {
+                ChartSnapshot snapshot = new ChartSnapshot(metric, rangeMs, maxPoints);
+                long synced = store.sync();
+                long now = System.currentTimeMillis();
+                snapshot.load(query, Math.max(now, synced), synced);
+                result.complete(install(key, snapshot, synced));
+            } catch (IOException | RuntimeException e) {
+                Log.e(TAG, "Failed to read " + metric + " history: " + e.getMessage());
+                result.completeExceptionally(e);
+            } finally {
+                finishBuild(key);
+            }
+        });
+        return result;
+    }
+    
+    private synchronized Series install(long key, ChartSnapshot snapshot, long synced) {
+        Metric metric = metricOf(key);
+        // Samples the read already saw are on disk up to synced; only later ones are added
+        for (int i = 0; i < pending.size(); i++) {
+            long timestamp = pendingTimestamps.get(i);
+            if (timestamp > synced) {
+                addSample(snapshot, metric, timestamp, pending.get(i));
+            }
+        }
+        ChartSnapshot previous = snapshots.put(key, snapshot);
+        if (previous != null) {
+            sizeBytes -= previous.sizeBytes();
+        }
+        sizeBytes += snapshot.sizeBytes();
+        Iterator<Map.Entry<Long, ChartSnapshot>> eldest = snapshots.entrySet().iterator();
+        while (sizeBytes > budgetBytes && snapshots.size() > 1) {
+            Map.Entry<Long, ChartSnapshot> entry = eldest.next();
+            if (entry.getKey() == key) {
+                continue;
+            }
+            sizeBytes -= entry.getValue().sizeBytes();
+            eldest.remove();
+            evictions++;
+        }
+        return snapshot.series(System.currentTimeMillis());
+    }
+    
+    private synchronized void finishBuild(long key) {
+        inFlight.remove(key);
+        if (--building == 0) {
+            pending.clear();
+            pendingTimestamps.clear();
+        }
+    }
+    
+    private static boolean addSample(ChartSnapshot snapshot, Metric metric, long timestamp, SensorData data) {
+        return snapshot.add(timestamp, metric.valueOf(data));
+    }
+    
+    private static long key(Metric metric, long rangeMs) {
+        return rangeMs * Metric.COUNT + metric.ordinal();
+    }
+    
+    private static Metric metricOf(long key) {
+        return METRICS[(int) (key % Metric.COUNT)];
+    }
+}
\ No newline at end of file
@@ -0,0 +1,126 @@
+package com.example.health_check_app.storage;
+
+import com.example.health_check_app.models.Metric;
+import java.io.IOException;
+
+// Bucketed sums and counts of one metric over a sliding window ending now. Buckets are
+// aligned to multiples of bucketMs and kept in a ring one longer than the window, so a new
+// sample touches one bucket and the window moving on only clears the buckets it leaves
+// behind. The Series handed out is rebuilt lazily after a change and shared until the next.
+// Not thread-safe; ChartCache synchronizes.
+class ChartSnapshot {
+    private final Metric metric;
+    private final long bucketMs;
+    private final double[] sums;
+    private final int[] counts;
+    // Absolute index (time / bucketMs) of the newest bucket; the ring holds the ones before it
+    private long lastBucket;
+    private Series series;
+    
+    ChartSnapshot(Metric metric, long rangeMs, int maxPoints) {
+        this.metric = metric;
+        this.bucketMs = Math.max(1, (rangeMs + maxPoints - 1) / maxPoints);
+        int buckets = (int) ((rangeMs + bucketMs - 1) / bucketMs) + 1;
+        sums = new double[buckets];
+        counts = new int[buckets];
+    }
+    
+    // Fills the window ending at now from storage, counting samples up to synced only
+    void load(VitalsQuery query, long now, long synced) throws IOException {
+        lastBucket = now / bucketMs;
+        Series stored = query.queryBuckets(metric, firstBucket() * bucketMs, bucketMs, sums.length, synced);
+        long[] timestamps = stored.getTimestamps();
+        float[] values = stored.getValues();
+        int[] pointCounts = stored.getCounts();
+        for (int i = 0; i < stored.size(); i++) {
+            int slot = slot(timestamps[i] / bucketMs);
+            counts[slot] = pointCounts[i];
+            sums[slot] = (double) values[i] * pointCounts[i];
+        }
+        series = null;
+    }
+    
+    // False if the value is missing or too old for the window
+    boolean add(long timestamp, float value) {
+        if (!metric.isPresent(value)) {
+            return false;
+        }
+        long bucket = timestamp / bucketMs;
+        slideTo(bucket);
+        if (bucket < firstBucket()) {
+            return false;
+        }
+        int slot = slot(bucket);
+        sums[slot] += value;
+        counts[slot]++;
+        series = null;
+        return true;
+    }
+    
+    long getBucketMs() {
+        return bucketMs;
+    }
+    
+    // Mean of the bucket holding timestamp, which must be in the window and have samples
+    float meanAt(long timestamp) {
+        int slot = slot(timestamp / bucketMs);
+        return (float) (sums[slot] / counts[slot]);
+    }
+    
+    Series series(long now) {
+        slideTo(now / bucketMs);
+        if (series != null) {
+            return series;
+        }
+        int points = 0;
+        for (int count : counts) {
+            if (count > 0) {
+                points++;
+            }
+        }
+        long[] timestamps = new long[points];
+        float[] values = new float[points];
+        int[] pointCounts = new int[points];
+        int p = 0;
+        for (long bucket = firstBucket(); bucket <= lastBucket; bucket++) {
+            int slot = slot(bucket);
+            if (counts[slot] > 0) {
+                timestamps[p] = bucket * bucketMs;
+                values[p] = (float) (sums[slot] / counts[slot]);
+                pointCounts[p] = counts[slot];
+                p++;
+            }
+        }
+        series = new Series(metric, firstBucket() * bucketMs, (lastBucket + 1) * bucketMs, bucketMs,
+            timestamps, values, pointCounts);
+        return series;
+    }
+    
+    // Rough heap footprint with a full series, for the cache's memory budget
+    long sizeBytes() {
+        return 128 + sums.length * (8L + 4L + 8L + 4L + 4L);
+    }
+    
+    private void slideTo(long bucket) {
+        if (bucket <= lastBucket) {
+            return;
+        }
+        // Buckets entering the window reuse the slots of those leaving it
+        long cleared = Math.min(bucket - lastBucket, sums.length);
+        for (long b = bucket - cleared + 1; b <= bucket; b++) {
+            int slot = slot(b);
+            sums[slot] = 0;
+            counts[slot] = 0;
+        }
+        lastBucket = bucket;
+        series = null;
+    }
+    
+    private long firstBucket() {
+        return lastBucket - sums.length + 1;
+    }
+    
+    private int slot(long bucket) {
+        return (int) Math.floorMod(bucket, (long) sums.length);
+    }
+}
\ No newline at end of file
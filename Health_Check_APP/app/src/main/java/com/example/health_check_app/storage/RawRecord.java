@@ -0,0 +1,66 @@
+package com.example.health_check_app.storage;
+
+import com.example.health_check_app.models.Metric;
+import com.example.health_check_app.models.SensorData;
+import java.nio.ByteBuffer;
+
+// Fixed-width on-disk layout of a raw sample:
+// timestamp (8) | one float per Metric (4 * COUNT) | motion ordinal (1) | battery (1) | reserved (2)
+public final class RawRecord {
+    public static final int SIZE = 8 + 4 * Metric.COUNT + 4;
+    
+    static final int OFFSET_VALUES = 8;
+    static final int OFFSET_MOTION = OFFSET_VALUES + 4 * Metric.COUNT;
+    static final int OFFSET_BATTERY = OFFSET_MOTION + 1;
+    
+    public static final byte MOTION_UNKNOWN = -1;
+    
+    private static final Metric[] METRICS = Metric.values();
+    private static final SensorData.MotionStatus[] MOTIONS = SensorData.MotionStatus.values();
+    
+    private RawRecord() {}
+    
+    public static void write(ByteBuffer buffer, long timestamp, SensorData data) {
+        buffer.putLong(timestamp);
+        for (Metric metric : METRICS) {
+            buffer.putFloat(metric.valueOf(data));
+        }
+        buffer.put(data.getMotionStatus() == null
+            ? MOTION_UNKNOWN : (byte) data.getMotionStatus().ordinal());
+        buffer.put((byte) data.getBatteryLevel());
+        buffer.putShort((short) 0);
+    }
+    
+    // The sample a record holds, as written
+    public static SensorData read(ByteBuffer buffer, int recordOffset) {
+        SensorData data = new SensorData();
+        data.setTimestamp(timestamp(buffer, recordOffset));
+        data.setHeartRate((int) value(buffer, recordOffset, Metric.HEART_RATE));
+        data.setBloodOxygen((int) value(buffer, recordOffset, Metric.BLOOD_OXYGEN));
+        data.setBodyTemperature(value(buffer, recordOffset, Metric.BODY_TEMPERATURE));
+        data.setEnvironmentTemperature(value(buffer, recordOffset, Metric.ENVIRONMENT_TEMPERATURE));
+        data.setHumidity((int) value(buffer, recordOffset, Metric.HUMIDITY));
+        data.setSteps((int) value(buffer, recordOffset, Metric.STEPS));
+        byte motion = motion(buffer, recordOffset);
+        data.setMotionStatus(motion == MOTION_UNKNOWN ? null : MOTIONS[motion]);
+        data.setBatteryLevel(battery(buffer, recordOffset));
+        return data;
+    }
+    
+    // Absolute accessors for a record starting at the given buffer position
+    public static long timestamp(ByteBuffer buffer, int recordOffset) {
+        return buffer.getLong(recordOffset);
+    }
+    
+    public static float value(ByteBuffer buffer, int recordOffset, Metric metric) {
+        return buffer.getFloat(recordOffset + OFFSET_VALUES + 4 * metric.ordinal());
+    }
+    
+    public static byte motion(ByteBuffer buffer, int recordOffset) {
+        return buffer.get(recordOffset + OFFSET_MOTION);
+    }
+    
+    public static int battery(ByteBuffer buffer, int recordOffset) {
+        return buffer.get(recordOffset + OFFSET_BATTERY) & 0xFF;
+    }
+}
\ No newline at end of file
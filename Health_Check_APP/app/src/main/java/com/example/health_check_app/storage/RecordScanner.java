@@ -0,0 +1,99 @@
+package com.example.health_check_app.storage;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+// Streams every stored record in [from, to) in time order, oldest tier first, one index block
+// at a time, so memory use is a single block buffer regardless of the range length.
+// Not thread-safe: use one instance per thread.
+public class RecordScanner {
+    public static final Tier[] COARSE_TO_FINE = {Tier.DAILY, Tier.MINUTE, Tier.RAW};
+    
+    public interface Visitor {
+        // Return false to stop the scan
+        boolean onRecord(Tier tier, ByteBuffer records, int offset);
+    }
+    
+    private final VitalsStore store;
+    private final ByteBuffer block;
+    private volatile long bytesRead;
+    
+    public RecordScanner(VitalsStore store) {
+        this.store = store;
+        int maxRecordSize = Math.max(RawRecord.SIZE, Rollup.SIZE);
+        this.block = ByteBuffer.allocate(SegmentIndex.BLOCK_RECORDS * maxRecordSize);
+    }
+    
+    // Upper bound on the bytes a scan of [from, to) reads, for progress reporting
+    public long estimateBytes(long from, long to) {
+        long total = 0;
+        for (Tier tier : COARSE_TO_FINE) {
+            long upper = store.coverageEnd(tier, to);
+            if (upper > from) {
+                for (Segment segment : store.getSegments(tier, from, upper)) {
+                    total += segment.getSizeBytes();
+                }
+            }
+        }
+        return total;
+    }
+    
+    public long getBytesRead() {
+        return bytesRead;
+    }
+    
+    // Returns false if the visitor stopped the scan
+    public boolean scan(long from, long to, Visitor visitor) throws IOException {
+        bytesRead = 0;
+        for (Tier tier : COARSE_TO_FINE) {
+            long upper = store.coverageEnd(tier, to);
+            if (upper <= from) {
+                continue;
+            }
+            for (Segment segment : store.getSegments(tier, from, upper)) {
+                if (!scanSegment(segment, from, upper, visitor)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+    
+    private boolean scanSegment(Segment segment, long lower, long upper, Visitor visitor) throws IOException {
+        SegmentIndex index = segment.getIndex();
+        int blocks = index.getSize();
+        int recordCount = segment.getRecordCount();
+        int recordSize = segment.getTier().getRecordSize();
+        try (RandomAccessFile file = new RandomAccessFile(segment.getFile(), "r");
+             FileChannel channel = file.getChannel()) {
+            for (int b = blocks == 0 ? 0 : index.findBlock(lower);
+                    b < blocks && index.getFirstTimestamp(b) < upper; b++) {
+                if (index.getLastTimestamp(b) < lower) {
+                    continue;
+                }
+                int startRecord = b * SegmentIndex.BLOCK_RECORDS;
+                int endRecord = Math.min(startRecord + SegmentIndex.BLOCK_RECORDS, recordCount);
+                block.clear();
+                block.limit(Math.max(0, (endRecord - startRecord) * recordSize));
+                long position = (long) startRecord * recordSize;
+                while (block.hasRemaining()) {
+                    if (channel.read(block, position + block.position()) < 0) {
+                        break;
+                    }
+                }
+                block.flip();
+                bytesRead += block.limit();
+                for (int offset = 0; offset + recordSize <= block.limit(); offset += recordSize) {
+                    long timestamp = block.getLong(offset);
+                    if (timestamp >= lower && timestamp < upper
+                            && !visitor.onRecord(segment.getTier(), block, offset)) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+}
\ No newline at end of file
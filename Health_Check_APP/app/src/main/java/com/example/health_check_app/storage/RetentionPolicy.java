@@ -0,0 +1,43 @@
+package com.example.health_check_app.storage;
+
+import com.example.health_check_app.AppConfig;
+
+// How long each tier keeps data before it is compacted into the next coarser one.
+// Daily aggregates have no limit.
+public class RetentionPolicy {
+    private static final long DAY_MS = 24 * 60 * 60 * 1000L;
+    
+    private final long rawRetentionMs;
+    private final long minuteRetentionMs;
+    
+    public RetentionPolicy(long rawRetentionMs, long minuteRetentionMs) {
+        this.rawRetentionMs = rawRetentionMs;
+        this.minuteRetentionMs = minuteRetentionMs;
+    }
+    
+    public static RetentionPolicy from(AppConfig config) {
+        return new RetentionPolicy(
+            config.getRawRetentionDays() * DAY_MS,
+            config.getMinuteRetentionDays() * DAY_MS);
+    }
+    
+    public long getRawRetentionMs() {
+        return rawRetentionMs;
+    }
+    
+    public long getMinuteRetentionMs() {
+        return minuteRetentionMs;
+    }
+    
+    // Segments of this tier ending before the returned time are due for compaction
+    public long compactBefore(Tier tier, long now) {
+        switch (tier) {
+            case RAW:
+                return now - rawRetentionMs;
+            case MINUTE:
+                return now - minuteRetentionMs;
+            default:
+                return Long.MIN_VALUE;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,150 @@
+package com.example.health_check_app.storage;
+
+import com.example.health_check_app.models.Metric;
+import com.example.health_check_app.models.SensorData;
+import java.nio.ByteBuffer;
+
+// Aggregate of all samples in one bucket. On-disk layout:
+// bucketStart (8) | samples (4) | falls (4) | per Metric: count (4) min (4) max (4) mean (4)
+// A cumulative metric keeps its last reading in the bucket in place of the mean.
+public final class Rollup {
+    public static final int SIZE = 16 + 16 * Metric.COUNT;
+    
+    private static final int OFFSET_SAMPLES = 8;
+    private static final int OFFSET_FALLS = 12;
+    private static final int OFFSET_METRICS = 16;
+    
+    private static final Metric[] METRICS = Metric.values();
+    private static final byte FALL_ORDINAL = (byte) SensorData.MotionStatus.FALL_DETECTED.ordinal();
+    
+    private long bucketStart;
+    private int samples;
+    private int falls;
+    private final int[] counts = new int[Metric.COUNT];
+    private final float[] mins = new float[Metric.COUNT];
+    private final float[] maxs = new float[Metric.COUNT];
+    private final double[] sums = new double[Metric.COUNT];
+    private final float[] lasts = new float[Metric.COUNT];
+    
+    public void reset(long bucketStart) {
+        this.bucketStart = bucketStart;
+        samples = 0;
+        falls = 0;
+        for (int i = 0; i < Metric.COUNT; i++) {
+            counts[i] = 0;
+            mins[i] = Float.MAX_VALUE;
+            maxs[i] = -Float.MAX_VALUE;
+            sums[i] = 0;
+            lasts[i] = 0;
+        }
+    }
+    
+    public long getBucketStart() {
+        return bucketStart;
+    }
+    
+    public int getSamples() {
+        return samples;
+    }
+    
+    public boolean isEmpty() {
+        return samples == 0;
+    }
+    
+    // Adds one raw record read from the buffer at the given offset
+    public void addRaw(ByteBuffer raw, int offset) {
+        samples++;
+        if (RawRecord.motion(raw, offset) == FALL_ORDINAL) {
+            falls++;
+        }
+        for (Metric metric : METRICS) {
+            float value = RawRecord.value(raw, offset, metric);
+            if (metric.isPresent(value)) {
+                accumulate(metric.ordinal(), 1, value, value, value, value);
+            }
+        }
+    }
+    
+    // Merges a finer rollup record read from the buffer at the given offset. Rollups must be
+    // merged in time order for the last reading of cumulative metrics to hold.
+    public void addRollup(ByteBuffer rollup, int offset) {
+        samples += samples(rollup, offset);
+        falls += falls(rollup, offset);
+        for (Metric metric : METRICS) {
+            int count = count(rollup, offset, metric);
+            if (count > 0) {
+                accumulate(metric.ordinal(), count,
+                    min(rollup, offset, metric), max(rollup, offset, metric),
+                    (double) mean(rollup, offset, metric) * count, last(rollup, offset, metric));
+            }
+        }
+    }
+    
+    private void accumulate(int index, int count, float min, float max, double sum, float last) {
+        counts[index] += count;
+        if (min < mins[index]) mins[index] = min;
+        if (max > maxs[index]) maxs[index] = max;
+        sums[index] += sum;
+        lasts[index] = last;
+    }
+    
+    public void write(ByteBuffer buffer) {
+        buffer.putLong(bucketStart);
+        buffer.putInt(samples);
+        buffer.putInt(falls);
+        for (int i = 0; i < Metric.COUNT; i++) {
+            int count = counts[i];
+            buffer.putInt(count);
+            buffer.putFloat(count > 0 ? mins[i] : 0f);
+            buffer.putFloat(count > 0 ? maxs[i] : 0f);
+            if (count == 0) {
+                buffer.putFloat(0f);
+            } else {
+                buffer.putFloat(METRICS[i].isCumulative() ? lasts[i] : (float) (sums[i] / count));
+            }
+        }
+    }
+    
+    // Absolute accessors for a rollup record starting at the given buffer position
+    public static long bucketStart(ByteBuffer buffer, int recordOffset) {
+        return buffer.getLong(recordOffset);
+    }
+    
+    public static int samples(ByteBuffer buffer, int recordOffset) {
+        return buffer.getInt(recordOffset + OFFSET_SAMPLES);
+    }
+    
+    public static int falls(ByteBuffer buffer, int recordOffset) {
+        return buffer.getInt(recordOffset + OFFSET_FALLS);
+    }
+    
+    public static int count(ByteBuffer buffer, int recordOffset, Metric metric) {
+        return buffer.getInt(metricOffset(recordOffset, metric));
+    }
+    
+    public static float min(ByteBuffer buffer, int recordOffset, Metric metric) {
+        return buffer.getFloat(metricOffset(recordOffset, metric) + 4);
+    }
+    
+    public static float max(ByteBuffer buffer, int recordOffset, Metric metric) {
+        return buffer.getFloat(metricOffset(recordOffset, metric) + 8);
+    }
+    
+    public static float mean(ByteBuffer buffer, int recordOffset, Metric metric) {
+        return buffer.getFloat(metricOffset(recordOffset, metric) + 12);
+    }
+    
+    // Only meaningful for cumulative metrics, which store it where the others store the mean
+    public static float last(ByteBuffer buffer, int recordOffset, Metric metric) {
+        return buffer.getFloat(metricOffset(recordOffset, metric) + 12);
+    }
+    
+    // The value that stands for the bucket: the mean, or the last reading of a counter
+    public static float value(ByteBuffer buffer, int recordOffset, Metric metric) {
+        return metric.isCumulative() ? last(buffer, recordOffset, metric) : mean(buffer, recordOffset, metric);
+    }
+    
+    private static int metricOffset(int recordOffset, Metric metric) {
+        return recordOffset + OFFSET_METRICS + 16 * metric.ordinal();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,95 @@
+package com.example.health_check_app.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+// One append-only file of fixed-width records covering [start, start + tier span)
+public final class Segment implements Comparable<Segment> {
+    private static final String SUFFIX = ".seg";
+    
+    private final Tier tier;
+    private final long start;
+    private final File file;
+    private volatile long sizeBytes;
+    private SegmentIndex index;
+    
+    Segment(Tier tier, long start, File file) {
+        this.tier = tier;
+        this.start = start;
+        this.file = file;
+        this.sizeBytes = file.length();
+    }
+    
+    static String fileName(long start) {
+        return start + SUFFIX;
+    }
+    
+    // Returns null for files that are not segments (e.g. temp files)
+    static Segment fromFile(Tier tier, File file) {
+        String name = file.getName();
+        if (!name.endsWith(SUFFIX)) {
+            return null;
+        }
+        try {
+            long start = Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+            return new Segment(tier, start, file);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+    
+    public Tier getTier() {
+        return tier;
+    }
+    
+    public long getStart() {
+        return start;
+    }
+    
+    public long getEnd() {
+        return start + tier.getSegmentSpanMs();
+    }
+    
+    public File getFile() {
+        return file;
+    }
+    
+    public long getSizeBytes() {
+        return sizeBytes;
+    }
+    
+    void setSizeBytes(long sizeBytes) {
+        this.sizeBytes = sizeBytes;
+    }
+    
+    public int getRecordCount() {
+        return (int) (sizeBytes / tier.getRecordSize());
+    }
+    
+    // Builds the sparse index on first use; appends keep it current afterwards
+    public synchronized SegmentIndex getIndex() throws IOException {
+        if (index == null) {
+            index = SegmentIndex.build(this);
+        }
+        return index;
+    }
+    
+    // Called by the segment's writer while holding the segment's lock
+    void onRecordsAppended(ByteBuffer records) {
+        if (index != null) {
+            index.append(records);
+        }
+    }
+    
+    // Called by the segment's writer while holding the segment's lock after it rewrote or cut
+    // the file; the index is rebuilt on next use
+    void onRecordsRewritten() {
+        index = null;
+    }
+    
+    @Override
+    public int compareTo(Segment other) {
+        return Long.compare(start, other.start);
+    }
+}
\ No newline at end of file
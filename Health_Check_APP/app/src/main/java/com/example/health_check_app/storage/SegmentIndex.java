@@ -0,0 +1,143 @@
+package com.example.health_check_app.storage;
+
+import com.example.health_check_app.models.Metric;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+// Sparse index over one segment: one entry per BLOCK_RECORDS records holding the block's
+// first/last timestamp plus per-metric count and sum, so range queries can binary search
+// to the first block and aggregate whole blocks without reading them.
+// Single writer (whoever appends to the segment); readers only use the first getSize() entries
+// and only trust summaries of sealed blocks.
+public final class SegmentIndex {
+    public static final int BLOCK_RECORDS = 256;
+    
+    private static final Metric[] METRICS = Metric.values();
+    
+    private final Tier tier;
+    private long[] firstTimestamps = new long[4];
+    private long[] lastTimestamps = new long[4];
+    private int[][] counts = new int[Metric.COUNT][4];
+    private double[][] sums = new double[Metric.COUNT][4];
+    private int recordsInLastBlock = BLOCK_RECORDS;
+    private volatile int size;
+    private volatile int sealed;
+    
+    SegmentIndex(Tier tier) {
+        this.tier = tier;
+    }
+    
+    static SegmentIndex build(Segment segment) throws IOException {
+        SegmentIndex index = new SegmentIndex(segment.getTier());
+        int recordSize = segment.getTier().getRecordSize();
+        ByteBuffer chunk = ByteBuffer.allocate(BLOCK_RECORDS * 16 * recordSize);
+        try (RandomAccessFile file = new RandomAccessFile(segment.getFile(), "r");
+             FileChannel channel = file.getChannel()) {
+            long limit = segment.getRecordCount() * (long) recordSize;
+            long position = 0;
+            while (position < limit) {
+                chunk.clear();
+                chunk.limit((int) Math.min(chunk.capacity(), limit - position));
+                while (chunk.hasRemaining()) {
+                    if (channel.read(chunk, position + chunk.position()) < 0) {
+                        break;
+                    }
+                }
+                chunk.flip();
+                position += chunk.limit();
+                index.append(chunk);
+            }
+        }
+        return index;
+    }
+    
+    // Indexes the whole records between the buffer's position and limit
+    void append(ByteBuffer records) {
+        int recordSize = tier.getRecordSize();
+        for (int offset = records.position(); offset + recordSize <= records.limit(); offset += recordSize) {
+            long timestamp = records.getLong(offset);
+            if (recordsInLastBlock == BLOCK_RECORDS) {
+                openBlock(timestamp);
+            }
+            int block = size - 1;
+            lastTimestamps[block] = timestamp;
+            for (Metric metric : METRICS) {
+                int m = metric.ordinal();
+                if (tier == Tier.RAW) {
+                    float value = RawRecord.value(records, offset, metric);
+                    if (metric.isPresent(value)) {
+                        counts[m][block]++;
+                        sums[m][block] += value;
+                    }
+                } else {
+                    int count = Rollup.count(records, offset, metric);
+                    counts[m][block] += count;
+                    sums[m][block] += (double) Rollup.value(records, offset, metric) * count;
+                }
+            }
+            recordsInLastBlock++;
+            if (recordsInLastBlock == BLOCK_RECORDS) {
+                sealed = size;
+            }
+        }
+    }
+    
+    private void openBlock(long timestamp) {
+        int block = size;
+        if (block == firstTimestamps.length) {
+            int capacity = block * 2;
+            firstTimestamps = Arrays.copyOf(firstTimestamps, capacity);
+            lastTimestamps = Arrays.copyOf(lastTimestamps, capacity);
+            for (int m = 0; m < Metric.COUNT; m++) {
+                counts[m] = Arrays.copyOf(counts[m], capacity);
+                sums[m] = Arrays.copyOf(sums[m], capacity);
+            }
+        }
+        firstTimestamps[block] = timestamp;
+        lastTimestamps[block] = timestamp;
+        recordsInLastBlock = 0;
+        size = block + 1;
+    }
+    
+    public int getSize() {
+        return size;
+    }
+    
+    public boolean isSealed(int block) {
+        return block < sealed;
+    }
+    
+    // Last block whose first timestamp is <= time, or 0 if time precedes the segment
+    public int findBlock(long time) {
+        int low = 0;
+        int high = size - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (firstTimestamps[mid] <= time) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+    
+    public long getFirstTimestamp(int block) {
+        return firstTimestamps[block];
+    }
+    
+    public long getLastTimestamp(int block) {
+        return lastTimestamps[block];
+    }
+    
+    public int getCount(int block, Metric metric) {
+        return counts[metric.ordinal()][block];
+    }
+    
+    public double getSum(int block, Metric metric) {
+        return sums[metric.ordinal()][block];
+    }
+}
\ No newline at end of file
@@ -0,0 +1,58 @@
+package com.example.health_check_app.storage;
+
+import com.example.health_check_app.models.Metric;
+
+// Result of a range query: parallel primitive arrays, one point per non-empty bucket, with
+// the number of samples behind each mean so series can be merged with new samples
+public class Series {
+    private final Metric metric;
+    private final long from;
+    private final long to;
+    private final long bucketMs;
+    private final long[] timestamps;
+    private final float[] values;
+    private final int[] counts;
+    
+    public Series(Metric metric, long from, long to, long bucketMs, long[] timestamps, float[] values,
+            int[] counts) {
+        this.metric = metric;
+        this.from = from;
+        this.to = to;
+        this.bucketMs = bucketMs;
+        this.timestamps = timestamps;
+        this.values = values;
+        this.counts = counts;
+    }
+    
+    public Metric getMetric() {
+        return metric;
+    }
+    
+    public long getFrom() {
+        return from;
+    }
+    
+    public long getTo() {
+        return to;
+    }
+    
+    public long getBucketMs() {
+        return bucketMs;
+    }
+    
+    public int size() {
+        return timestamps.length;
+    }
+    
+    public long[] getTimestamps() {
+        return timestamps;
+    }
+    
+    public float[] getValues() {
+        return values;
+    }
+    
+    public int[] getCounts() {
+        return counts;
+    }
+}
\ No newline at end of file
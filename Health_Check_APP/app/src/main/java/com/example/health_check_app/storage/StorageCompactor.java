@@ -0,0 +1,150 @@
+package com.example.health_check_app.storage;
+
+import android.util.Log;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Rewrites aged segments into the next coarser tier: RAW -> MINUTE -> DAILY.
+// Runs on its own low-priority thread, one segment per step, reading in bounded chunks,
+// and holds no lock that ingestion or queries wait on while it reads and aggregates.
+public class StorageCompactor {
+    private static final String TAG = "StorageCompactor";
+    
+    private static final int CHUNK_RECORDS = 1024;
+    private static final long INITIAL_DELAY_MS = 60 * 1000L;
+    private static final long STEP_DELAY_MS = 500L;
+    private static final long IDLE_DELAY_MS = 30 * 60 * 1000L;
+    
+    public interface PolicySource {
+        RetentionPolicy getPolicy();
+    }
+    
+    private final VitalsStore store;
+    private final PolicySource policySource;
+    private final Rollup rollup = new Rollup();
+    private ScheduledExecutorService executor;
+    
+    public StorageCompactor(VitalsStore store, PolicySource policySource) {
+        this.store = store;
+        this.policySource = policySource;
+    }
+    
+    public void start() {
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "vitals-compactor");
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        executor.schedule(this::step, INITIAL_DELAY_MS, TimeUnit.MILLISECONDS);
+    }
+    
+    public void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+    
+    private void step() {
+        boolean moreWork;
+        try {
+            moreWork = compactOnce(System.currentTimeMillis());
+        } catch (IOException e) {
+            Log.e(TAG, "Compaction failed: " + e.getMessage());
+            moreWork = false;
+        }
+        if (!moreWork) {
+            logUsage();
+        }
+        if (!executor.isShutdown()) {
+            executor.schedule(this::step, moreWork ? STEP_DELAY_MS : IDLE_DELAY_MS,
+                TimeUnit.MILLISECONDS);
+        }
+    }
+    
+    // Compacts at most one aged segment. Returns false when nothing is due.
+    public boolean compactOnce(long now) throws IOException {
+        RetentionPolicy policy = policySource.getPolicy();
+        Segment raw = store.oldestSegmentEndingBefore(Tier.RAW, policy.compactBefore(Tier.RAW, now));
+        if (raw != null) {
+            compact(raw, Tier.MINUTE);
+            return true;
+        }
+        Segment minute = store.oldestSegmentEndingBefore(Tier.MINUTE,
+            policy.compactBefore(Tier.MINUTE, now));
+        if (minute != null) {
+            compact(minute, Tier.DAILY);
+            return true;
+        }
+        return false;
+    }
+    
+    private void compact(Segment source, Tier target) throws IOException {
+        long zoneOffsetMs = store.getZoneOffsetMs();
+        long targetStart = target.segmentStart(source.getStart(), zoneOffsetMs);
+        
+        // Sources are compacted oldest first, so target buckets at or after this source's start
+        // are left from an attempt that crashed before deleting the source, possibly halfway
+        // through appending. Drop them and compact the source again.
+        store.truncateSegment(target, targetStart, source.getStart());
+        
+        int maxBuckets = (int) (source.getTier().getSegmentSpanMs() / target.getBucketMs()) + 1;
+        ByteBuffer output = ByteBuffer.allocate(maxBuckets * Rollup.SIZE);
+        int recordSize = source.getTier().getRecordSize();
+        ByteBuffer chunk = ByteBuffer.allocate(CHUNK_RECORDS * recordSize);
+        boolean fromRaw = source.getTier() == Tier.RAW;
+        rollup.reset(Long.MIN_VALUE);
+        
+        try (RandomAccessFile file = new RandomAccessFile(source.getFile(), "r");
+             FileChannel channel = file.getChannel()) {
+            long limit = channel.size() - channel.size() % recordSize;
+            long position = 0;
+            while (position < limit) {
+                chunk.clear();
+                chunk.limit((int) Math.min(chunk.capacity(), limit - position));
+                while (chunk.hasRemaining()) {
+                    if (channel.read(chunk, position + chunk.position()) < 0) {
+                        break;
+                    }
+                }
+                chunk.flip();
+                for (int offset = 0; offset + recordSize <= chunk.limit(); offset += recordSize) {
+                    // Raw records and rollups both lead with their timestamp
+                    long bucket = target.bucketStart(chunk.getLong(offset), zoneOffsetMs);
+                    if (bucket != rollup.getBucketStart()) {
+                        if (!rollup.isEmpty() && output.hasRemaining()) {
+                            rollup.write(output);
+                        }
+                        rollup.reset(bucket);
+                    }
+                    if (fromRaw) {
+                        rollup.addRaw(chunk, offset);
+                    } else {
+                        rollup.addRollup(chunk, offset);
+                    }
+                }
+                position += chunk.limit();
+            }
+        }
+        if (!rollup.isEmpty() && output.hasRemaining()) {
+            rollup.write(output);
+        }
+        
+        output.flip();
+        if (output.hasRemaining()) {
+            store.appendRecords(target, targetStart, output);
+        }
+        store.deleteSegment(source);
+    }
+    
+    private void logUsage() {
+        for (TierUsage usage : store.getDiskUsage()) {
+            Log.d(TAG, "Tier " + usage.getTier() + ": " + usage.getSegmentCount() + " segments, "
+                + usage.getBytes() + " bytes, " + usage.getRecords() + " records");
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,52 @@
+package com.example.health_check_app.storage;
+
+public enum Tier {
+    // Raw samples, one file per hour
+    RAW("raw", 60 * 60 * 1000L, 0L, RawRecord.SIZE),
+    // 1-minute rollups, one file per day
+    MINUTE("minute", 24 * 60 * 60 * 1000L, 60 * 1000L, Rollup.SIZE),
+    // Daily aggregates, one file per 32 days, kept forever
+    DAILY("daily", 32 * 24 * 60 * 60 * 1000L, 24 * 60 * 60 * 1000L, Rollup.SIZE);
+    
+    private final String directoryName;
+    private final long segmentSpanMs;
+    private final long bucketMs;
+    private final int recordSize;
+    
+    Tier(String directoryName, long segmentSpanMs, long bucketMs, int recordSize) {
+        this.directoryName = directoryName;
+        this.segmentSpanMs = segmentSpanMs;
+        this.bucketMs = bucketMs;
+        this.recordSize = recordSize;
+    }
+    
+    public String getDirectoryName() {
+        return directoryName;
+    }
+    
+    public long getSegmentSpanMs() {
+        return segmentSpanMs;
+    }
+    
+    public long getBucketMs() {
+        return bucketMs;
+    }
+    
+    public int getRecordSize() {
+        return recordSize;
+    }
+    
+    // Start of the segment containing the timestamp, aligned to local midnight via zoneOffsetMs
+    public long segmentStart(long timestamp, long zoneOffsetMs) {
+        return floor(timestamp, segmentSpanMs, zoneOffsetMs);
+    }
+    
+    public long bucketStart(long timestamp, long zoneOffsetMs) {
+        return bucketMs == 0 ? timestamp : floor(timestamp, bucketMs, zoneOffsetMs);
+    }
+    
+    static long floor(long timestamp, long span, long zoneOffsetMs) {
+        long local = timestamp + zoneOffsetMs;
+        return local - Math.floorMod(local, span) - zoneOffsetMs;
+    }
+}
\ No newline at end of file
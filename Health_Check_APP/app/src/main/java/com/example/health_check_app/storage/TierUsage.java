@@ -0,0 +1,31 @@
+package com.example.health_check_app.storage;
+
+public class TierUsage {
+    private final Tier tier;
+    private final int segmentCount;
+    private final long bytes;
+    private final long records;
+    
+    public TierUsage(Tier tier, int segmentCount, long bytes, long records) {
+        this.tier = tier;
+        this.segmentCount = segmentCount;
+        this.bytes = bytes;
+        this.records = records;
+    }
+    
+    public Tier getTier() {
+        return tier;
+    }
+    
+    public int getSegmentCount() {
+        return segmentCount;
+    }
+    
+    public long getBytes() {
+        return bytes;
+    }
+    
+    public long getRecords() {
+        return records;
+    }
+}
\ No newline at end of file
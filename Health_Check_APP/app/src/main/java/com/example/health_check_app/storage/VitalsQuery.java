@@ -0,0 +1,154 @@
+package com.example.health_check_app.storage;
+
+import com.example.health_check_app.models.Metric;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+// Range queries over all tiers, each cut off where the next finer one starts (see
+// VitalsStore.coverageEnd). Within a segment the sparse index locates the first block;
+// sealed blocks that fall inside a single output bucket are aggregated from their index
+// summary and only the remaining blocks are read from disk.
+// Not thread-safe: use one instance per thread.
+public class VitalsQuery {
+    private final VitalsStore store;
+    private final ByteBuffer block;
+    
+    private long from;
+    private long bucketMs;
+    private double[] sums;
+    private int[] counts;
+    
+    public VitalsQuery(VitalsStore store) {
+        this.store = store;
+        int maxRecordSize = Math.max(RawRecord.SIZE, Rollup.SIZE);
+        this.block = ByteBuffer.allocate(SegmentIndex.BLOCK_RECORDS * maxRecordSize);
+    }
+    
+    // Mean of the metric over at most maxPoints equal buckets spanning [from, to)
+    public Series query(Metric metric, long from, long to, int maxPoints) throws IOException {
+        if (to <= from || maxPoints <= 0) {
+            return new Series(metric, from, to, 0, new long[0], new float[0], new int[0]);
+        }
+        long bucketMs = Math.max(1, (to - from + maxPoints - 1) / maxPoints);
+        int buckets = (int) ((to - from + bucketMs - 1) / bucketMs);
+        return queryBuckets(metric, from, bucketMs, buckets, to - 1);
+    }
+    
+    // Mean of the metric over the given buckets, counting only samples up to and including
+    // until, e.g. the timestamp VitalsStore.sync() returned
+    public Series queryBuckets(Metric metric, long from, long bucketMs, int buckets, long until)
+            throws IOException {
+        long to = from + buckets * bucketMs;
+        long limit = until < to ? until + 1 : to;
+        this.from = from;
+        this.bucketMs = bucketMs;
+        sums = new double[buckets];
+        counts = new int[buckets];
+        
+        for (Tier tier : RecordScanner.COARSE_TO_FINE) {
+            long upper = store.coverageEnd(tier, limit);
+            if (upper <= from) {
+                continue;
+            }
+            for (Segment segment : store.getSegments(tier, from, upper)) {
+                scanSegment(segment, metric, from, upper);
+            }
+        }
+        
+        int points = 0;
+        for (int b = 0; b < buckets; b++) {
+            if (counts[b] > 0) {
+                points++;
+            }
+        }
+        long[] timestamps = new long[points];
+        float[] values = new float[points];
+        int[] pointCounts = new int[points];
+        int p = 0;
+        for (int b = 0; b < buckets; b++) {
+            if (counts[b] > 0) {
+                timestamps[p] = from + b * bucketMs;
+                values[p] = (float) (sums[b] / counts[b]);
+                pointCounts[p] = counts[b];
+                p++;
+            }
+        }
+        return new Series(metric, from, to, bucketMs, timestamps, values, pointCounts);
+    }
+    
+    private void scanSegment(Segment segment, Metric metric, long lower, long upper) throws IOException {
+        SegmentIndex index = segment.getIndex();
+        int blocks = index.getSize();
+        if (blocks == 0) {
+            return;
+        }
+        int recordCount = segment.getRecordCount();
+        int recordSize = segment.getTier().getRecordSize();
+        boolean raw = segment.getTier() == Tier.RAW;
+        
+        FileChannel channel = null;
+        RandomAccessFile file = null;
+        try {
+            for (int b = index.findBlock(lower); b < blocks && index.getFirstTimestamp(b) < upper; b++) {
+                long first = index.getFirstTimestamp(b);
+                long last = index.getLastTimestamp(b);
+                if (last < lower) {
+                    continue;
+                }
+                if (index.isSealed(b) && first >= lower && last < upper
+                        && bucketOf(first) == bucketOf(last)) {
+                    int bucket = bucketOf(first);
+                    counts[bucket] += index.getCount(b, metric);
+                    sums[bucket] += index.getSum(b, metric);
+                    continue;
+                }
+                if (channel == null) {
+                    file = new RandomAccessFile(segment.getFile(), "r");
+                    channel = file.getChannel();
+                }
+                int startRecord = b * SegmentIndex.BLOCK_RECORDS;
+                int endRecord = Math.min(startRecord + SegmentIndex.BLOCK_RECORDS, recordCount);
+                readBlock(channel, (long) startRecord * recordSize, (endRecord - startRecord) * recordSize);
+                for (int offset = 0; offset + recordSize <= block.limit(); offset += recordSize) {
+                    long timestamp = block.getLong(offset);
+                    if (timestamp < lower || timestamp >= upper) {
+                        continue;
+                    }
+                    int bucket = bucketOf(timestamp);
+                    if (raw) {
+                        float value = RawRecord.value(block, offset, metric);
+                        if (metric.isPresent(value)) {
+                            counts[bucket]++;
+                            sums[bucket] += value;
+                        }
+                    } else {
+                        int count = Rollup.count(block, offset, metric);
+                        counts[bucket] += count;
+                        sums[bucket] += (double) Rollup.value(block, offset, metric) * count;
+                    }
+                }
+            }
+        } finally {
+            if (file != null) {
+                file.close();
+            }
+        }
+    }
+    
+    private void readBlock(FileChannel channel, long position, int length) throws IOException {
+        block.clear();
+        block.limit(Math.max(0, length));
+        while (block.hasRemaining()) {
+            if (channel.read(block, position + block.position()) < 0) {
+                break;
+            }
+        }
+        block.flip();
+    }
+    
+    private int bucketOf(long timestamp) {
+        return (int) ((timestamp - from) / bucketMs);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,503 @@
+package com.example.health_check_app.storage;
+
+import android.content.Context;
+import android.util.Log;
+import com.example.health_check_app.AppConfig;
+import com.example.health_check_app.models.SensorData;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+// Persists vitals as tiered, append-only segment files under files/vitals/<tier>/.
+// Ingestion only fills an in-memory block; blocks are written on a dedicated I/O thread.
+public class VitalsStore {
+    private static final String TAG = "VitalsStore";
+    private static final String DIRECTORY = "vitals";
+    
+    private static final int WRITE_BLOCK_RECORDS = 128;
+    private static final int SPARE_BLOCKS = 4;
+    private static final long FLUSH_INTERVAL_MS = 10_000;
+    // Samples at most this far behind the previous one are treated as jitter and clamped
+    static final long MAX_SKEW_MS = 2_000;
+    private static final String TEMP_SUFFIX = ".tmp";
+    
+    private static VitalsStore instance;
+    
+    private final File rootDir;
+    private final long zoneOffsetMs;
+    private final Map<Tier, TreeMap<Long, Segment>> catalog = new EnumMap<>(Tier.class);
+    private final ScheduledExecutorService ioExecutor;
+    private final ArrayBlockingQueue<ByteBuffer> spareBlocks = new ArrayBlockingQueue<>(SPARE_BLOCKS);
+    
+    private final Object writeLock = new Object();
+    private ScheduledFuture<?> periodicFlush;
+    private ByteBuffer pendingBlock;
+    private long pendingSegmentStart;
+    private long lastTimestamp;
+    private long newestTimestamp;
+    private boolean warnedCompacted;
+    // Raw samples before this time have been rolled up; the compactor raises it
+    private volatile long compactedUntil;
+    
+    private StorageCompactor compactor;
+    
+    public static synchronized VitalsStore getInstance(Context context) {
+        if (instance == null) {
+            Context appContext = context.getApplicationContext();
+            // Segments have fixed spans, so they are aligned to the zone's standard time; while
+            // daylight saving time is in effect a stored day runs from 01:00 to 01:00 local
+            instance = new VitalsStore(new File(appContext.getFilesDir(), DIRECTORY),
+                TimeZone.getDefault().getRawOffset());
+            instance.startCompactor(() -> RetentionPolicy.from(new AppConfig(appContext)));
+        }
+        return instance;
+    }
+    
+    public VitalsStore(File rootDir, long zoneOffsetMs) {
+        this.rootDir = rootDir;
+        this.zoneOffsetMs = zoneOffsetMs;
+        for (Tier tier : Tier.values()) {
+            catalog.put(tier, loadTier(tier));
+        }
+        pendingBlock = newBlock();
+        lastTimestamp = readLastTimestamp();
+        newestTimestamp = lastTimestamp;
+        compactedUntil = readCompactedUntil();
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, r -> new Thread(r, "vitals-io"));
+        // A cancelled periodic flush must not linger in the queue and still wake the thread
+        executor.setRemoveOnCancelPolicy(true);
+        ioExecutor = executor;
+        setPeriodicFlush(true);
+    }
+    
+    // Buffered samples are flushed every FLUSH_INTERVAL_MS. A caller that flushes on its own,
+    // coarser schedule can turn that off to save the wakeups.
+    public void setPeriodicFlush(boolean enabled) {
+        synchronized (writeLock) {
+            if (enabled == (periodicFlush != null)) {
+                return;
+            }
+            if (enabled) {
+                periodicFlush = ioExecutor.scheduleWithFixedDelay(this::flush,
+                    FLUSH_INTERVAL_MS, FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+            } else {
+                periodicFlush.cancel(false);
+                periodicFlush = null;
+            }
+        }
+    }
+    
+    private TreeMap<Long, Segment> loadTier(Tier tier) {
+        TreeMap<Long, Segment> segments = new TreeMap<>();
+        File dir = tierDir(tier);
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            Log.e(TAG, "Cannot create " + dir);
+            return segments;
+        }
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                Segment segment = Segment.fromFile(tier, file);
+                if (segment != null) {
+                    segments.put(segment.getStart(), segment);
+                }
+            }
+        }
+        return segments;
+    }
+    
+    // Where the previous run left off, so the skew clamp in append() holds across restarts
+    private long readLastTimestamp() {
+        Map.Entry<Long, Segment> newest = catalog.get(Tier.RAW).lastEntry();
+        if (newest == null) {
+            return 0;
+        }
+        try {
+            return Math.max(0, lastRecordTime(newest.getValue()));
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to read the last sample: " + e.getMessage());
+            return 0;
+        }
+    }
+    
+    // Each rollup covers whole segments of the next finer tier, so the finer tier has been
+    // compacted up to the end of the segment holding the newest rollup
+    private long readCompactedUntil() {
+        long until = Long.MIN_VALUE;
+        Tier[] tiers = Tier.values();
+        for (int i = 1; i < tiers.length; i++) {
+            Map.Entry<Long, Segment> newest = catalog.get(tiers[i]).lastEntry();
+            if (newest == null) {
+                continue;
+            }
+            try {
+                long last = lastRecordTime(newest.getValue());
+                if (last != Long.MIN_VALUE) {
+                    Tier source = tiers[i - 1];
+                    until = Math.max(until,
+                        source.segmentStart(last, zoneOffsetMs) + source.getSegmentSpanMs());
+                }
+            } catch (IOException e) {
+                Log.e(TAG, "Failed to read the last rollup: " + e.getMessage());
+            }
+        }
+        return until;
+    }
+    
+    // Timestamp of the segment's last whole record, or Long.MIN_VALUE when it has none
+    private static long lastRecordTime(Segment segment) throws IOException {
+        synchronized (segment) {
+            int count = segment.getRecordCount();
+            if (count == 0) {
+                return Long.MIN_VALUE;
+            }
+            try (RandomAccessFile file = new RandomAccessFile(segment.getFile(), "r")) {
+                file.seek((long) (count - 1) * segment.getTier().getRecordSize());
+                return file.readLong();
+            }
+        }
+    }
+    
+    void startCompactor(StorageCompactor.PolicySource policySource) {
+        compactor = new StorageCompactor(this, policySource);
+        compactor.start();
+    }
+    
+    public long getZoneOffsetMs() {
+        return zoneOffsetMs;
+    }
+    
+    // Called from the MQTT callback thread; never touches the disk
+    public void append(SensorData data) {
+        synchronized (writeLock) {
+            // Absorb jitter between samples; a real clock step keeps its timestamps and is
+            // sorted into place when the block is written
+            long timestamp = data.getTimestamp();
+            if (timestamp < lastTimestamp && lastTimestamp - timestamp <= MAX_SKEW_MS) {
+                timestamp = lastTimestamp;
+            }
+            if (timestamp < compactedUntil) {
+                // Its hour has already been rolled up and a new raw segment there would hide
+                // the rollups from queries
+                if (!warnedCompacted) {
+                    Log.w(TAG, "Dropping samples older than the compacted history");
+                    warnedCompacted = true;
+                }
+                return;
+            }
+            long segmentStart = Tier.RAW.segmentStart(timestamp, zoneOffsetMs);
+            if (pendingBlock.position() > 0 && segmentStart != pendingSegmentStart) {
+                handOffPending();
+            }
+            pendingSegmentStart = segmentStart;
+            RawRecord.write(pendingBlock, timestamp, data);
+            lastTimestamp = timestamp;
+            newestTimestamp = Math.max(newestTimestamp, timestamp);
+            if (!pendingBlock.hasRemaining()) {
+                handOffPending();
+            }
+        }
+    }
+    
+    // Queues buffered samples for writing without waiting for the disk
+    public void flush() {
+        synchronized (writeLock) {
+            if (pendingBlock.position() > 0) {
+                handOffPending();
+            }
+        }
+    }
+    
+    // Flushes and waits until everything appended so far is on disk. Returns the timestamp of
+    // the newest sample that made it, so callers can tell later samples apart from those on disk.
+    public long sync() {
+        long synced;
+        synchronized (writeLock) {
+            flush();
+            synced = newestTimestamp;
+        }
+        try {
+            ioExecutor.submit(() -> {}).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            Log.e(TAG, "Sync failed: " + e.getMessage());
+        }
+        return synced;
+    }
+    
+    private void handOffPending() {
+        ByteBuffer block = pendingBlock;
+        long segmentStart = pendingSegmentStart;
+        ByteBuffer spare = spareBlocks.poll();
+        pendingBlock = spare != null ? spare : newBlock();
+        block.flip();
+        ioExecutor.execute(() -> {
+            try {
+                appendRecords(Tier.RAW, segmentStart, block);
+            } catch (IOException e) {
+                Log.e(TAG, "Failed to write samples: " + e.getMessage());
+            }
+            block.clear();
+            spareBlocks.offer(block);
+        });
+    }
+    
+    private static ByteBuffer newBlock() {
+        return ByteBuffer.allocate(WRITE_BLOCK_RECORDS * RawRecord.SIZE);
+    }
+    
+    // Appends whole records to the tier segment starting at segmentStart, creating it if needed.
+    // Each tier has a single writer: the I/O thread for RAW, the compactor for the others.
+    void appendRecords(Tier tier, long segmentStart, ByteBuffer records) throws IOException {
+        Segment segment = getOrCreateSegment(tier, segmentStart);
+        ByteBuffer appended = records.duplicate();
+        int recordSize = tier.getRecordSize();
+        synchronized (segment) {
+            boolean inOrder;
+            try (RandomAccessFile file = new RandomAccessFile(segment.getFile(), "rw");
+                 FileChannel channel = file.getChannel()) {
+                // Drop a torn record left behind by a crash mid-write
+                long size = channel.size();
+                long aligned = size - size % recordSize;
+                if (aligned != size) {
+                    channel.truncate(aligned);
+                }
+                long previous = Long.MIN_VALUE;
+                if (aligned > 0) {
+                    ByteBuffer timestamp = ByteBuffer.allocate(8);
+                    channel.read(timestamp, aligned - recordSize);
+                    previous = timestamp.getLong(0);
+                }
+                inOrder = isSorted(records, recordSize, previous);
+                if (inOrder) {
+                    channel.position(aligned);
+                    while (records.hasRemaining()) {
+                        channel.write(records);
+                    }
+                    segment.setSizeBytes(channel.size());
+                }
+            }
+            if (inOrder) {
+                segment.onRecordsAppended(appended);
+            } else {
+                rewriteSorted(segment, records);
+            }
+        }
+    }
+    
+    private static boolean isSorted(ByteBuffer records, int recordSize, long previous) {
+        for (int offset = records.position(); offset + recordSize <= records.limit(); offset += recordSize) {
+            long timestamp = records.getLong(offset);
+            if (timestamp < previous) {
+                return false;
+            }
+            previous = timestamp;
+        }
+        return true;
+    }
+    
+    // Merges out-of-order records (e.g. after the clock stepped back) into the segment so it
+    // stays sorted for binary search. The merged file replaces the old one in a single rename.
+    private void rewriteSorted(Segment segment, ByteBuffer records) throws IOException {
+        int recordSize = segment.getTier().getRecordSize();
+        int existing = segment.getRecordCount();
+        ByteBuffer merged = ByteBuffer.allocate(existing * recordSize + records.remaining());
+        try (RandomAccessFile file = new RandomAccessFile(segment.getFile(), "r");
+             FileChannel channel = file.getChannel()) {
+            merged.limit(existing * recordSize);
+            while (merged.hasRemaining()) {
+                if (channel.read(merged, merged.position()) < 0) {
+                    break;
+                }
+            }
+            merged.limit(merged.capacity());
+        }
+        merged.put(records);
+        int count = merged.position() / recordSize;
+        
+        // Stable, so records with equal timestamps keep their arrival order
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(merged.getLong(a * recordSize), merged.getLong(b * recordSize)));
+        ByteBuffer sorted = ByteBuffer.allocate(count * recordSize);
+        for (int i : order) {
+            ByteBuffer record = merged.duplicate();
+            record.limit((i + 1) * recordSize).position(i * recordSize);
+            sorted.put(record);
+        }
+        sorted.flip();
+        
+        File temp = new File(segment.getFile().getPath() + TEMP_SUFFIX);
+        try (RandomAccessFile file = new RandomAccessFile(temp, "rw");
+             FileChannel channel = file.getChannel()) {
+            channel.truncate(0);
+            while (sorted.hasRemaining()) {
+                channel.write(sorted);
+            }
+            channel.force(false);
+        }
+        if (!temp.renameTo(segment.getFile())) {
+            throw new IOException("Cannot replace " + segment.getFile());
+        }
+        segment.setSizeBytes(count * (long) recordSize);
+        segment.onRecordsRewritten();
+    }
+    
+    // Drops the records at or after the given time, and any torn record, from the end of the
+    // tier segment starting at segmentStart. Only for the tier's writer.
+    void truncateSegment(Tier tier, long segmentStart, long from) throws IOException {
+        Segment segment;
+        synchronized (catalog) {
+            segment = catalog.get(tier).get(segmentStart);
+        }
+        if (segment == null) {
+            return;
+        }
+        int recordSize = tier.getRecordSize();
+        synchronized (segment) {
+            try (RandomAccessFile file = new RandomAccessFile(segment.getFile(), "rw");
+                 FileChannel channel = file.getChannel()) {
+                long size = channel.size();
+                long keep = size - size % recordSize;
+                ByteBuffer timestamp = ByteBuffer.allocate(8);
+                while (keep > 0) {
+                    timestamp.clear();
+                    channel.read(timestamp, keep - recordSize);
+                    if (timestamp.getLong(0) < from) {
+                        break;
+                    }
+                    keep -= recordSize;
+                }
+                if (keep == size) {
+                    return;
+                }
+                channel.truncate(keep);
+                segment.setSizeBytes(keep);
+            }
+            segment.onRecordsRewritten();
+        }
+    }
+    
+    private Segment getOrCreateSegment(Tier tier, long segmentStart) {
+        synchronized (catalog) {
+            TreeMap<Long, Segment> segments = catalog.get(tier);
+            Segment segment = segments.get(segmentStart);
+            if (segment == null) {
+                segment = new Segment(tier, segmentStart,
+                    new File(tierDir(tier), Segment.fileName(segmentStart)));
+                segments.put(segmentStart, segment);
+            }
+            return segment;
+        }
+    }
+    
+    void deleteSegment(Segment segment) {
+        synchronized (catalog) {
+            catalog.get(segment.getTier()).remove(segment.getStart());
+        }
+        if (segment.getTier() == Tier.RAW) {
+            compactedUntil = Math.max(compactedUntil, segment.getEnd());
+        }
+        if (!segment.getFile().delete() && segment.getFile().exists()) {
+            Log.e(TAG, "Failed to delete " + segment.getFile());
+        }
+    }
+    
+    // Snapshot of a tier's segments in time order
+    public List<Segment> getSegments(Tier tier) {
+        synchronized (catalog) {
+            return new ArrayList<>(catalog.get(tier).values());
+        }
+    }
+    
+    // Snapshot of the tier's segments overlapping [from, to), in time order
+    public List<Segment> getSegments(Tier tier, long from, long to) {
+        synchronized (catalog) {
+            TreeMap<Long, Segment> segments = catalog.get(tier);
+            Long first = segments.floorKey(from);
+            return new ArrayList<>(segments.subMap(first != null ? first : from, true, to, false).values());
+        }
+    }
+    
+    // Start of the tier's oldest segment, or Long.MAX_VALUE when the tier is empty
+    public long getEarliestStart(Tier tier) {
+        synchronized (catalog) {
+            TreeMap<Long, Segment> segments = catalog.get(tier);
+            return segments.isEmpty() ? Long.MAX_VALUE : segments.firstKey();
+        }
+    }
+    
+    // Tiers hold disjoint time spans because compaction moves data, so a tier's data is only
+    // authoritative up to where the next finer tier starts
+    public long coverageEnd(Tier tier, long to) {
+        long end = to;
+        for (Tier finer : Tier.values()) {
+            if (finer.ordinal() < tier.ordinal()) {
+                end = Math.min(end, getEarliestStart(finer));
+            }
+        }
+        return end;
+    }
+    
+    // Oldest segment of the tier that ends at or before the given time, or null
+    Segment oldestSegmentEndingBefore(Tier tier, long time) {
+        synchronized (catalog) {
+            TreeMap<Long, Segment> segments = catalog.get(tier);
+            if (segments.isEmpty()) {
+                return null;
+            }
+            Segment oldest = segments.firstEntry().getValue();
+            return oldest.getEnd() <= time ? oldest : null;
+        }
+    }
+    
+    public TierUsage getUsage(Tier tier) {
+        int count = 0;
+        long bytes = 0;
+        long records = 0;
+        for (Segment segment : getSegments(tier)) {
+            count++;
+            bytes += segment.getSizeBytes();
+            records += segment.getRecordCount();
+        }
+        return new TierUsage(tier, count, bytes, records);
+    }
+    
+    public List<TierUsage> getDiskUsage() {
+        List<TierUsage> usage = new ArrayList<>();
+        for (Tier tier : Tier.values()) {
+            usage.add(getUsage(tier));
+        }
+        return usage;
+    }
+    
+    private File tierDir(Tier tier) {
+        return new File(rootDir, tier.getDirectoryName());
+    }
+    
+    public void close() {
+        flush();
+        if (compactor != null) {
+            compactor.stop();
+        }
+        ioExecutor.shutdown();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,41 @@
+package com.example.health_check_app.sync;
+
+// Picks how many records go into the next upload batch from the measured throughput,
+// aiming for batches that take about TARGET_BATCH_MS on the wire: large on fast links so
+// the radio wakes up rarely, small on slow ones so a dropped connection loses little work.
+public class BatchSizer {
+    public static final int MIN_RECORDS = 256;
+    public static final int MAX_RECORDS = 64 * 1024;
+    public static final int INITIAL_RECORDS = 2048;
+    
+    private static final long TARGET_BATCH_MS = 2000;
+    // Weight of the newest measurement in the moving average
+    private static final double SMOOTHING = 0.5;
+    
+    private int batchRecords;
+    private double recordsPerMs;
+    
+    public BatchSizer(int initialRecords) {
+        batchRecords = clamp(initialRecords > 0 ? initialRecords : INITIAL_RECORDS);
+    }
+    
+    public int getBatchRecords() {
+        return batchRecords;
+    }
+    
+    public void onSuccess(int records, long elapsedMs) {
+        double measured = records / (double) Math.max(1, elapsedMs);
+        recordsPerMs = recordsPerMs == 0 ? measured : SMOOTHING * measured + (1 - SMOOTHING) * recordsPerMs;
+        long target = Math.round(recordsPerMs * TARGET_BATCH_MS);
+        // Grow at most 4x per batch so one lucky measurement can't produce a huge batch
+        batchRecords = clamp((int) Math.min(target, (long) batchRecords * 4));
+    }
+    
+    public void onFailure() {
+        batchRecords = clamp(batchRecords / 2);
+    }
+    
+    private static int clamp(int records) {
+        return Math.max(MIN_RECORDS, Math.min(MAX_RECORDS, records));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,196 @@
+package com.example.health_check_app.sync;
+
+import android.util.Log;
+import com.example.health_check_app.export.ChannelWriter;
+import com.example.health_check_app.export.ColumnarEncoder;
+import com.example.health_check_app.storage.RecordScanner;
+import com.example.health_check_app.storage.VitalsStore;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.channels.Channels;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+// Uploads stored history to a REST endpoint in large gzip-compressed batches, using the
+// columnar export format as the batch body. Each acknowledged batch advances a durable
+// checkpoint, so an interrupted run resumes after the last acknowledged record.
+public class HistoryUploader {
+    private static final String TAG = "HistoryUploader";
+    
+    public static final String CONTENT_TYPE = "application/vnd.healthcheck.columnar";
+    public static final String HEADER_BATCH_ID = "X-Batch-Id";
+    public static final String HEADER_BATCH_RECORDS = "X-Batch-Records";
+    public static final String HEADER_BATCH_FIRST = "X-Batch-First";
+    public static final String HEADER_BATCH_LAST = "X-Batch-Last";
+    
+    private static final int CONNECT_TIMEOUT_MS = 15_000;
+    private static final int READ_TIMEOUT_MS = 30_000;
+    
+    private final VitalsStore store;
+    private final URL endpoint;
+    private final UploadCheckpoint checkpoint;
+    private final BatchSizer batchSizer;
+    private final RecordScanner scanner;
+    private ScheduledExecutorService executor;
+    
+    public static class Result {
+        public int batches;
+        public long records;
+        public long compressedBytes;
+        public boolean caughtUp;
+    }
+    
+    public HistoryUploader(VitalsStore store, URL endpoint, UploadCheckpoint checkpoint) {
+        this.store = store;
+        this.endpoint = endpoint;
+        this.checkpoint = checkpoint;
+        this.batchSizer = new BatchSizer(checkpoint.getBatchRecords());
+        this.scanner = new RecordScanner(store);
+    }
+    
+    public void start(long intervalMs) {
+        executor = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "history-upload"));
+        executor.scheduleWithFixedDelay(() -> {
+            Result result = runOnce();
+            Log.d(TAG, "Uploaded " + result.records + " records in " + result.batches
+                + " batches, " + result.compressedBytes + " bytes");
+        }, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+    
+    public void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+    
+    public int getBatchRecords() {
+        return batchSizer.getBatchRecords();
+    }
+    
+    // Uploads batches until everything stored so far is acknowledged or a batch fails
+    public Result runOnce() {
+        Result result = new Result();
+        store.sync();
+        long until = System.currentTimeMillis() + 1;
+        while (true) {
+            long from = checkpoint.getLastAcknowledged() == Long.MIN_VALUE
+                ? Long.MIN_VALUE : checkpoint.getLastAcknowledged() + 1;
+            // A batch the server may have taken without acknowledging is resent as it was,
+            // whatever the batch size is now, so the server sees the same id and records
+            long retryLast = checkpoint.getUnacknowledgedLast();
+            boolean retry = retryLast != Long.MIN_VALUE && retryLast >= from;
+            Batch batch;
+            try {
+                batch = retry
+                    ? encodeBatch(from, retryLast + 1, Integer.MAX_VALUE)
+                    : encodeBatch(from, until, batchSizer.getBatchRecords());
+            } catch (IOException e) {
+                Log.e(TAG, "Failed to read history: " + e.getMessage());
+                return result;
+            }
+            if (batch.records == 0) {
+                result.caughtUp = true;
+                return result;
+            }
+            long started = System.nanoTime();
+            try {
+                post(batch);
+                long elapsedMs = (System.nanoTime() - started) / 1_000_000;
+                batchSizer.onSuccess(batch.records, elapsedMs);
+                checkpoint.save(batch.lastTimestamp, batchSizer.getBatchRecords());
+            } catch (IOException e) {
+                Log.w(TAG, "Upload stopped, will resume later: " + e.getMessage());
+                batchSizer.onFailure();
+                try {
+                    checkpoint.saveUnacknowledged(batch.lastTimestamp, batchSizer.getBatchRecords());
+                } catch (IOException saveFailure) {
+                    Log.e(TAG, "Failed to save the checkpoint: " + saveFailure.getMessage());
+                }
+                return result;
+            }
+            result.batches++;
+            result.records += batch.records;
+            result.compressedBytes += batch.body.length;
+        }
+    }
+    
+    private static class Batch {
+        byte[] body;
+        int records;
+        long firstTimestamp;
+        long lastTimestamp;
+    }
+    
+    private Batch encodeBatch(long from, long to, int maxRecords) throws IOException {
+        Batch batch = new Batch();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ColumnarEncoder encoder = new ColumnarEncoder(
+                new ChannelWriter(Channels.newChannel(new GZIPOutputStream(bytes))))) {
+            IOException[] failure = new IOException[1];
+            scanner.scan(from, to, (tier, records, offset) -> {
+                long timestamp = records.getLong(offset);
+                // Only end a batch between distinct timestamps so the cursor never splits them
+                if (batch.records >= maxRecords && timestamp != batch.lastTimestamp) {
+                    return false;
+                }
+                try {
+                    encoder.writeVital(tier, records, offset);
+                } catch (IOException e) {
+                    failure[0] = e;
+                    return false;
+                }
+                if (batch.records == 0) {
+                    batch.firstTimestamp = timestamp;
+                }
+                batch.lastTimestamp = timestamp;
+                batch.records++;
+                return true;
+            });
+            if (failure[0] != null) {
+                throw failure[0];
+            }
+        }
+        batch.body = bytes.toByteArray();
+        return batch;
+    }
+    
+    private void post(Batch batch) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) endpoint.openConnection();
+        try {
+            connection.setRequestMethod("POST");
+            connection.setDoOutput(true);
+            connection.setConnectTimeout(CONNECT_TIMEOUT_MS);
+            connection.setReadTimeout(READ_TIMEOUT_MS);
+            connection.setFixedLengthStreamingMode(batch.body.length);
+            connection.setRequestProperty("Content-Type", CONTENT_TYPE);
+            connection.setRequestProperty("Content-Encoding", "gzip");
+            // Same id when a batch is retried, so the server can drop the duplicate. Built from
+            // the bounds, which a retry keeps, not the record count.
+            connection.setRequestProperty(HEADER_BATCH_ID, batch.firstTimestamp + "-" + batch.lastTimestamp);
+            connection.setRequestProperty(HEADER_BATCH_RECORDS, String.valueOf(batch.records));
+            connection.setRequestProperty(HEADER_BATCH_FIRST, String.valueOf(batch.firstTimestamp));
+            connection.setRequestProperty(HEADER_BATCH_LAST, String.valueOf(batch.lastTimestamp));
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(batch.body);
+            }
+            int code = connection.getResponseCode();
+            if (code < 200 || code >= 300) {
+                throw new IOException("HTTP " + code);
+            }
+            try (InputStream in = connection.getInputStream()) {
+                byte[] discard = new byte[512];
+                while (in.read(discard) >= 0) {
+                    // Drain so the connection can be reused
+                }
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+}
\ No newline at end of file
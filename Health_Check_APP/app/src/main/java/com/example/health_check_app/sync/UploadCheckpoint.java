@@ -0,0 +1,89 @@
+package com.example.health_check_app.sync;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+// Durable upload cursor: every record with a timestamp at or before it has been acknowledged
+// by the server. Written to a temp file, synced and renamed so a crash never leaves it torn.
+// Also holds where a batch that was sent but not acknowledged ended, so its retry covers the
+// same records under the same batch id.
+public class UploadCheckpoint {
+    private static final int VERSION = 2;
+    
+    private final File file;
+    private long lastAcknowledged = Long.MIN_VALUE;
+    private int batchRecords;
+    private long unacknowledgedLast = Long.MIN_VALUE;
+    
+    public UploadCheckpoint(File file) {
+        this.file = file;
+        load();
+    }
+    
+    private void load() {
+        if (!file.exists()) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            int version = in.readInt();
+            if (version == 1 || version == VERSION) {
+                lastAcknowledged = in.readLong();
+                batchRecords = in.readInt();
+            }
+            if (version == VERSION) {
+                unacknowledgedLast = in.readLong();
+            }
+        } catch (IOException e) {
+            // Unreadable checkpoint: start over, the server dedupes by batch id
+            lastAcknowledged = Long.MIN_VALUE;
+            batchRecords = 0;
+            unacknowledgedLast = Long.MIN_VALUE;
+        }
+    }
+    
+    public long getLastAcknowledged() {
+        return lastAcknowledged;
+    }
+    
+    // Batch size learned in earlier runs, or 0 if none
+    public int getBatchRecords() {
+        return batchRecords;
+    }
+    
+    // Last timestamp of a batch sent but never acknowledged, or Long.MIN_VALUE if none
+    public long getUnacknowledgedLast() {
+        return unacknowledgedLast;
+    }
+    
+    public void save(long lastAcknowledged, int batchRecords) throws IOException {
+        write(lastAcknowledged, batchRecords, Long.MIN_VALUE);
+    }
+    
+    // After a failed batch: the cursor stays, the batch's end is kept for the retry
+    public void saveUnacknowledged(long unacknowledgedLast, int batchRecords) throws IOException {
+        write(lastAcknowledged, batchRecords, unacknowledgedLast);
+    }
+    
+    private void write(long lastAcknowledged, int batchRecords, long unacknowledgedLast) throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream stream = new FileOutputStream(temp);
+             DataOutputStream out = new DataOutputStream(stream)) {
+            out.writeInt(VERSION);
+            out.writeLong(lastAcknowledged);
+            out.writeInt(batchRecords);
+            out.writeLong(unacknowledgedLast);
+            out.flush();
+            stream.getFD().sync();
+        }
+        if (!temp.renameTo(file)) {
+            throw new IOException("Cannot replace " + file);
+        }
+        this.lastAcknowledged = lastAcknowledged;
+        this.batchRecords = batchRecords;
+        this.unacknowledgedLast = unacknowledgedLast;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,110 @@
+package com.example.health_check_app.timer;
+
+import android.util.Log;
+import java.util.List;
+
+// App-wide scheduler for timers that are mostly cancelled or pushed back before they fire:
+// reminders, staleness checks, cooldowns. One daemon thread sleeps until the wheel's next
+// event, so timers due in the same tick share a wakeup and an empty wheel never wakes it.
+// Tasks run on that thread and must be short; UI work has to be posted to the main thread.
+public class TimerService {
+    private static final String TAG = "TimerService";
+    public static final long TICK_MS = 100;
+    
+    private static TimerService instance;
+    
+    private final TimerWheel wheel = new TimerWheel(0);
+    private final long origin = System.nanoTime();
+    // Tick the thread is sleeping until; Long.MIN_VALUE while it is awake
+    private long plannedWakeTick = Long.MIN_VALUE;
+    private long wakeups;
+    
+    public static synchronized TimerService getInstance() {
+        if (instance == null) {
+            instance = new TimerService();
+            instance.start();
+        }
+        return instance;
+    }
+    
+    TimerService() {
+    }
+    
+    void start() {
+        Thread thread = new Thread(this::run, "timer-wheel");
+        thread.setDaemon(true);
+        thread.start();
+    }
+    
+    // Milliseconds on the scheduler's monotonic clock
+    public long now() {
+        return (System.nanoTime() - origin) / 1_000_000;
+    }
+    
+    // Runs the task on the timer thread after the delay, rounded up to the next tick
+    public TimerWheel.Timer schedule(Runnable task, long delayMs) {
+        long deadline = (now() + Math.max(0, delayMs) + TICK_MS - 1) / TICK_MS;
+        synchronized (wheel) {
+            TimerWheel.Timer timer = wheel.schedule(task, deadline);
+            if (plannedWakeTick != Long.MIN_VALUE && wheel.nextEventTick() < plannedWakeTick) {
+                wheel.notify();
+            }
+            return timer;
+        }
+    }
+    
+    // Accepts null so callers can cancel whatever they hold; false if it already fired
+    public boolean cancel(TimerWheel.Timer timer) {
+        if (timer == null) {
+            return false;
+        }
+        synchronized (wheel) {
+            return wheel.cancel(timer);
+        }
+    }
+    
+    public int getPendingCount() {
+        synchronized (wheel) {
+            return wheel.size();
+        }
+    }
+    
+    // Times the thread woke up; stays flat while nothing is scheduled
+    public long getWakeups() {
+        synchronized (wheel) {
+            return wakeups;
+        }
+    }
+    
+    private void run() {
+        while (true) {
+            List<Runnable> expired;
+            synchronized (wheel) {
+                try {
+                    while ((expired = wheel.advance(now() / TICK_MS)) == null) {
+                        plannedWakeTick = wheel.nextEventTick();
+                        if (plannedWakeTick == Long.MAX_VALUE) {
+                            wheel.wait();
+                        } else {
+                            long waitMs = plannedWakeTick * TICK_MS - now();
+                            if (waitMs > 0) {
+                                wheel.wait(waitMs);
+                            }
+                        }
+                        plannedWakeTick = Long.MIN_VALUE;
+                        wakeups++;
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+            for (Runnable task : expired) {
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    Log.e(TAG, "Timer task failed: " + e.getMessage());
+                }
+            }
+        }
+    }
+}
\ No newline at end of file
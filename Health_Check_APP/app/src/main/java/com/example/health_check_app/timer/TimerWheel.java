@@ -0,0 +1,193 @@
+package com.example.health_check_app.timer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Hierarchical timing wheel. Level 0 has a slot per tick and every level above is 64 times
+// coarser, so four levels reach 64^4 ticks ahead; anything further is parked in the top level
+// and re-filed when its slot comes up. Slots are addressed by absolute deadline, and a coarse
+// slot is re-filed one level down when the block it covers begins, so scheduling and
+// cancelling are O(1) whatever the number of timers. A 64-bit occupancy mask per level lets
+// advance() jump straight to the next tick that has work instead of stepping through idle ones.
+// Not thread-safe; TimerService synchronizes.
+public class TimerWheel {
+    private static final int LEVELS = 4;
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final long HORIZON = 1L << (SLOT_BITS * LEVELS);
+    
+    public static final class Timer {
+        private final Runnable task;
+        private final long deadline;
+        private Timer prev;
+        private Timer next;
+        private int level;
+        private int slot = -1;
+        
+        private Timer(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+        
+        public boolean isPending() {
+            return slot >= 0;
+        }
+        
+        public long getDeadlineTick() {
+            return deadline;
+        }
+    }
+    
+    private final Timer[][] slots = new Timer[LEVELS][SLOTS];
+    private final long[] occupied = new long[LEVELS];
+    private long current;
+    private int size;
+    
+    public TimerWheel(long startTick) {
+        this.current = startTick;
+    }
+    
+    public long getCurrentTick() {
+        return current;
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    // Deadlines at or before the current tick fire at the next one
+    public Timer schedule(Runnable task, long deadlineTick) {
+        Timer timer = new Timer(task, deadlineTick);
+        file(timer);
+        size++;
+        return timer;
+    }
+    
+    public boolean cancel(Timer timer) {
+        if (timer.slot < 0) {
+            return false;
+        }
+        unlink(timer);
+        size--;
+        return true;
+    }
+    
+    // Tick at which advance() next has something to do, either a level-0 slot expiring or a
+    // coarser slot being re-filed; Long.MAX_VALUE when the wheel is empty
+    public long nextEventTick() {
+        long next = Long.MAX_VALUE;
+        for (int level = 0; level < LEVELS; level++) {
+            long mask = occupied[level];
+            if (mask == 0) {
+                continue;
+            }
+            int shift = SLOT_BITS * level;
+            long block = current >>> shift;
+            // Distance to the first occupied slot after the cursor; the cursor's own slot is
+            // next due a full turn from now
+            int cursor = (int) (block & SLOT_MASK);
+            int distance = Long.numberOfTrailingZeros(Long.rotateRight(mask, cursor + 1)) + 1;
+            next = Math.min(next, (block + distance) << shift);
+        }
+        return next;
+    }
+    
+    // Moves the wheel to the tick and returns the tasks of the timers that expired on the way,
+    // or null if none, for the caller to run once it has released its lock
+    public List<Runnable> advance(long tick) {
+        List<Runnable> expired = null;
+        long next;
+        while ((next = nextEventTick()) <= tick) {
+            current = next;
+            // Coarse slots whose block starts now move down, top level first
+            for (int level = LEVELS - 1; level > 0; level--) {
+                int shift = SLOT_BITS * level;
+                if ((current & ((1L << shift) - 1)) != 0) {
+                    continue;
+                }
+                Timer timer = detach(level, (int) (current >>> shift) & SLOT_MASK);
+                while (timer != null) {
+                    Timer following = timer.next;
+                    timer.next = null;
+                    if (timer.deadline <= current) {
+                        expired = expire(timer, expired);
+                    } else {
+                        file(timer);
+                    }
+                    timer = following;
+                }
+            }
+            Timer timer = detach(0, (int) current & SLOT_MASK);
+            while (timer != null) {
+                Timer following = timer.next;
+                timer.next = null;
+                expired = expire(timer, expired);
+                timer = following;
+            }
+        }
+        current = Math.max(current, tick);
+        return expired;
+    }
+    
+    private List<Runnable> expire(Timer timer, List<Runnable> expired) {
+        timer.slot = -1;
+        size--;
+        if (expired == null) {
+            expired = new ArrayList<>();
+        }
+        expired.add(timer.task);
+        return expired;
+    }
+    
+    private void file(Timer timer) {
+        long deadline = Math.max(timer.deadline, current + 1);
+        long delta = deadline - current;
+        if (delta >= HORIZON) {
+            deadline = current + HORIZON - 1;
+            delta = HORIZON - 1;
+        }
+        int level = 0;
+        while (delta >= 1L << (SLOT_BITS * (level + 1))) {
+            level++;
+        }
+        int slot = (int) (deadline >>> (SLOT_BITS * level)) & SLOT_MASK;
+        timer.level = level;
+        timer.slot = slot;
+        timer.prev = null;
+        timer.next = slots[level][slot];
+        if (timer.next != null) {
+            timer.next.prev = timer;
+        }
+        slots[level][slot] = timer;
+        occupied[level] |= 1L << slot;
+    }
+    
+    // Empties the slot and returns its former chain, still linked through next
+    private Timer detach(int level, int slot) {
+        Timer head = slots[level][slot];
+        slots[level][slot] = null;
+        occupied[level] &= ~(1L << slot);
+        for (Timer timer = head; timer != null; timer = timer.next) {
+            timer.prev = null;
+        }
+        return head;
+    }
+    
+    private void unlink(Timer timer) {
+        if (timer.prev != null) {
+            timer.prev.next = timer.next;
+        } else {
+            slots[timer.level][timer.slot] = timer.next;
+            if (timer.next == null) {
+                occupied[timer.level] &= ~(1L << timer.slot);
+            }
+        }
+        if (timer.next != null) {
+            timer.next.prev = timer.prev;
+        }
+        timer.prev = null;
+        timer.next = null;
+        timer.slot = -1;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,141 @@
+package com.example.health_check_app.trace;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+// Decodes FlightRecorder dumps. Has no Android dependencies so pulled dumps can be read on a
+// workstation, e.g. java -cp classes com.example.health_check_app.trace.FlightRecordReader x.hcfr
+public class FlightRecordReader {
+    
+    public static final class Record {
+        private final long wallClockMs;
+        private final long threadId;
+        private final String event;
+        private final String text;
+        
+        Record(long wallClockMs, long threadId, String event, String text) {
+            this.wallClockMs = wallClockMs;
+            this.threadId = threadId;
+            this.event = event;
+            this.text = text;
+        }
+        
+        public long getWallClockMs() {
+            return wallClockMs;
+        }
+        
+        public long getThreadId() {
+            return threadId;
+        }
+        
+        public String getEvent() {
+            return event;
+        }
+        
+        // Arguments as label=value, strings resolved
+        public String getText() {
+            return text;
+        }
+        
+        @Override
+        public String toString() {
+            SimpleDateFormat format = new SimpleDateFormat("HH:mm:ss.SSS", Locale.US);
+            return format.format(new Date(wallClockMs)) + " [" + threadId + "] " + event
+                + (text.isEmpty() ? "" : " " + text);
+        }
+    }
+    
+    public static List<Record> read(File file) throws IOException {
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+            return read(in);
+        }
+    }
+    
+    public static List<Record> read(InputStream stream) throws IOException {
+        DataInputStream in = new DataInputStream(stream);
+        byte[] magic = new byte[FlightRecorder.MAGIC.length()];
+        in.readFully(magic);
+        if (!FlightRecorder.MAGIC.equals(new String(magic, "US-ASCII"))) {
+            throw new IOException("Not a flight recording");
+        }
+        int version = in.readUnsignedByte();
+        if (version != FlightRecorder.VERSION) {
+            throw new IOException("Unsupported flight recording version " + version);
+        }
+        long dumpWallClock = in.readLong();
+        long dumpNanos = in.readLong();
+        
+        // The dump carries its own event table, so older dumps decode after events are added
+        int eventCount = in.readUnsignedShort();
+        String[][] events = new String[eventCount][];
+        for (int i = 0; i < eventCount; i++) {
+            events[i] = new String[] {in.readUTF(), in.readUTF(), in.readUTF()};
+        }
+        String[] strings = new String[in.readInt()];
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = in.readUTF();
+        }
+        
+        int count = in.readInt();
+        List<Record> records = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            long nanos = in.readLong();
+            long meta = in.readLong();
+            long a = in.readLong();
+            long b = in.readLong();
+            int ordinal = (int) (meta >>> 48);
+            long threadId = meta & ((1L << 48) - 1);
+            long wallClock = dumpWallClock - (dumpNanos - nanos) / 1_000_000;
+            if (ordinal >= eventCount) {
+                records.add(new Record(wallClock, threadId, "EVENT_" + ordinal, "a=" + a + " b=" + b));
+                continue;
+            }
+            String[] event = events[ordinal];
+            StringBuilder text = new StringBuilder();
+            appendArgument(text, event[1], a, strings);
+            appendArgument(text, event[2], b, strings);
+            records.add(new Record(wallClock, threadId, event[0], text.toString()));
+        }
+        return records;
+    }
+    
+    private static void appendArgument(StringBuilder text, String label, long value, String[] strings) {
+        if (label.isEmpty()) {
+            return;
+        }
+        if (text.length() > 0) {
+            text.append(' ');
+        }
+        if (label.charAt(0) == '@') {
+            text.append(label, 1, label.length()).append('=');
+            if (value >= 0 && value < strings.length) {
+                text.append(strings[(int) value]);
+            } else {
+                text.append('#').append(value);
+            }
+        } else {
+            text.append(label).append('=').append(value);
+        }
+    }
+    
+    public static void main(String[] args) throws IOException {
+        PrintStream out = System.out;
+        for (String path : args) {
+            List<Record> records = read(new File(path));
+            out.println("# " + path + ": " + records.size() + " records");
+            for (Record record : records) {
+                out.println(record);
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,211 @@
+package com.example.health_check_app.trace;
+
+import android.util.Log;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Always-on, in-memory record of recent pipeline events, meant to replace per-message logging.
+// Each event is an id plus two longs written into a fixed ring, with no locks, allocation or
+// string formatting. The ring keeps the newest CAPACITY events (over an hour at the usual
+// message rate) and is written to a file on demand or when an alert fires.
+//
+// Writers claim a sequence number and fill that slot. The slot's stamp is cleared first and
+// set to the sequence number last, so a dump taken while writers are active skips the slots
+// that are mid-write instead of reporting half-written records. Dump layout, big-endian:
+//   header: "HCFR" | version (1) | wall clock ms (8) | nanoTime (8), both taken at the dump
+//           | event count (2) | per event: name, label A, label B (UTF, "" for none)
+//           | string count (4) | strings (UTF)
+//           | record count (4) | records: nanoTime (8) | event << 48 | thread id (8) | a (8) | b (8)
+public final class FlightRecorder {
+    private static final String TAG = "FlightRecorder";
+    
+    static final String MAGIC = "HCFR";
+    static final int VERSION = 1;
+    static final String SUFFIX = ".hcfr";
+    
+    private static final int CAPACITY = 8192;
+    private static final int FIELDS = 5;
+    private static final int STAMP = 0;
+    private static final int TIME = 1;
+    private static final int META = 2;
+    private static final int ARG_A = 3;
+    private static final int ARG_B = 4;
+    private static final long THREAD_MASK = (1L << 48) - 1;
+    private static final int MAX_DUMPS = 10;
+    
+    private static final FlightRecorder instance = new FlightRecorder(CAPACITY);
+    
+    private final int mask;
+    private final AtomicLongArray ring;
+    private final AtomicLong cursor = new AtomicLong();
+    private final Map<String, Integer> stringIds = new ConcurrentHashMap<>();
+    private final List<String> strings = new ArrayList<>();
+    private ExecutorService dumper;
+    
+    public static FlightRecorder getInstance() {
+        return instance;
+    }
+    
+    // Capacity is rounded up to a power of two
+    FlightRecorder(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        mask = size - 1;
+        ring = new AtomicLongArray(size * FIELDS);
+    }
+    
+    public int getCapacity() {
+        return mask + 1;
+    }
+    
+    // Events recorded since start, including those the ring has since overwritten
+    public long getRecordedCount() {
+        return cursor.get();
+    }
+    
+    // Small id for a string, for use as an '@' argument. The first call for each string takes
+    // a lock, so intern once up front where possible; later calls are a map lookup.
+    public int intern(String value) {
+        Integer id = stringIds.get(value);
+        if (id != null) {
+            return id;
+        }
+        synchronized (strings) {
+            id = stringIds.get(value);
+            if (id == null) {
+                id = strings.size();
+                strings.add(value);
+                stringIds.put(value, id);
+            }
+            return id;
+        }
+    }
+    
+    public void record(TraceEvent event) {
+        record(event, 0, 0);
+    }
+    
+    public void record(TraceEvent event, long a) {
+        record(event, a, 0);
+    }
+    
+    public void record(TraceEvent event, long a, long b) {
+        long seq = cursor.getAndIncrement();
+        int base = (int) (seq & mask) * FIELDS;
+        ring.set(base + STAMP, 0);
+        ring.set(base + TIME, System.nanoTime());
+        ring.set(base + META, (long) event.ordinal() << 48 | (Thread.currentThread().getId() & THREAD_MASK));
+        ring.set(base + ARG_A, a);
+        ring.set(base + ARG_B, b);
+        ring.set(base + STAMP, seq + 1);
+    }
+    
+    // Consistent copy of the ring, oldest first, four longs per record: time, meta, a, b
+    long[] snapshot() {
+        long end = cursor.get();
+        long start = Math.max(0, end - (mask + 1));
+        long[] records = new long[(int) (end - start) * 4];
+        int count = 0;
+        for (long seq = start; seq < end; seq++) {
+            int base = (int) (seq & mask) * FIELDS;
+            if (ring.get(base + STAMP) != seq + 1) {
+                continue;
+            }
+            long time = ring.get(base + TIME);
+            long meta = ring.get(base + META);
+            long a = ring.get(base + ARG_A);
+            long b = ring.get(base + ARG_B);
+            // Overwritten or still being written while we read it
+            if (ring.get(base + STAMP) != seq + 1) {
+                continue;
+            }
+            int offset = count++ * 4;
+            records[offset] = time;
+            records[offset + 1] = meta;
+            records[offset + 2] = a;
+            records[offset + 3] = b;
+        }
+        return Arrays.copyOf(records, count * 4);
+    }
+    
+    public void dump(File file) throws IOException {
+        long[] records = snapshot();
+        long wallClock = System.currentTimeMillis();
+        long nanoTime = System.nanoTime();
+        String[] names;
+        synchronized (strings) {
+            names = strings.toArray(new String[0]);
+        }
+        File dir = file.getParentFile();
+        if (dir != null && !dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create " + dir);
+        }
+        try (DataOutputStream out = new DataOutputStream(
+            new BufferedOutputStream(new FileOutputStream(file), 64 * 1024))) {
+            out.writeBytes(MAGIC);
+            out.writeByte(VERSION);
+            out.writeLong(wallClock);
+            out.writeLong(nanoTime);
+            TraceEvent[] events = TraceEvent.values();
+            out.writeShort(events.length);
+            for (TraceEvent event : events) {
+                out.writeUTF(event.name());
+                out.writeUTF(event.getLabelA() != null ? event.getLabelA() : "");
+                out.writeUTF(event.getLabelB() != null ? event.getLabelB() : "");
+            }
+            out.writeInt(names.length);
+            for (String name : names) {
+                out.writeUTF(name);
+            }
+            out.writeInt(records.length / 4);
+            for (long value : records) {
+                out.writeLong(value);
+            }
+        }
+    }
+    
+    // Dumps to dir/<reason>-<time>.hcfr on a background thread and deletes all but the newest
+    // MAX_DUMPS dumps in dir. The future yields the file.
+    public synchronized Future<File> dumpAsync(File dir, String reason) {
+        record(TraceEvent.DUMP_REQUESTED, intern(reason));
+        if (dumper == null) {
+            dumper = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, "flight-dump");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        File file = new File(dir, reason + "-" + System.currentTimeMillis() + SUFFIX);
+        return dumper.submit(() -> {
+            dump(file);
+            prune(dir);
+            Log.d(TAG, "Dumped " + file);
+            return file;
+        });
+    }
+    
+    private static void prune(File dir) {
+        File[] dumps = dir.listFiles((d, name) -> name.endsWith(SUFFIX));
+        if (dumps == null || dumps.length <= MAX_DUMPS) {
+            return;
+        }
+        Arrays.sort(dumps, (x, y) -> Long.compare(y.lastModified(), x.lastModified()));
+        for (int i = MAX_DUMPS; i < dumps.length; i++) {
+            if (!dumps[i].delete()) {
+                Log.w(TAG, "Failed to delete " + dumps[i]);
+            }
+        }
+    }
+}
\ No newline at end of file
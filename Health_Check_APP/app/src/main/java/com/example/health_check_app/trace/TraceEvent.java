@@ -0,0 +1,41 @@
+package com.example.health_check_app.trace;
+
+// Events the flight recorder knows, each with labels for its two arguments (null if unused).
+// A label starting with '@' marks an argument that is a FlightRecorder.intern() id; dumps
+// carry the strings so the decoder can print them. Only append new events: the ordinal is
+// what gets recorded.
+public enum TraceEvent {
+    MESSAGE_ARRIVED("@topic", "bytes"),
+    SAMPLE_DELIVERED("bpm", "temp_x10"),
+    DUPLICATE_DROPPED("@device", "seq"),
+    DELIVERY_COMPLETE("message_id", null),
+    SUBSCRIBED("@topic", null),
+    COMMAND_PUBLISHED("@command", "call"),
+    COMMAND_COMPLETED("call", "round_trip_ms"),
+    COMMAND_FAILED("@command", "call"),
+    COMMAND_REPLY_UNMATCHED("call", null),
+    CONNECTED("@broker", "tls_connect_ms"),
+    CONNECTION_LOST("@broker", null),
+    RETRY_SCHEDULED("attempt", "delay_ms"),
+    DISCONNECTED(null, null),
+    ALERT_RAISED("@type", "severity"),
+    ALERT_SUPPRESSED("@type", "severity"),
+    DATA_STALE("silent_ms", null),
+    DUMP_REQUESTED("@reason", null);
+    
+    private final String labelA;
+    private final String labelB;
+    
+    TraceEvent(String labelA, String labelB) {
+        this.labelA = labelA;
+        this.labelB = labelB;
+    }
+    
+    public String getLabelA() {
+        return labelA;
+    }
+    
+    public String getLabelB() {
+        return labelB;
+    }
+}
\ No newline at end of file
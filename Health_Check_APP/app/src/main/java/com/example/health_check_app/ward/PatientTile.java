@@ -0,0 +1,104 @@
+package com.example.health_check_app.ward;
+
+import com.example.health_check_app.models.SensorData;
+
+// What one patient tile shows. Owned and mutated by WardModel on the UI thread only.
+public final class PatientTile {
+    // Bits of the change mask passed to WardModel.Listener.onTileChanged and used as the
+    // RecyclerView bind payload, so only the views for changed vitals are rebound
+    public static final int CHANGED_HEART_RATE = 1;
+    public static final int CHANGED_BLOOD_OXYGEN = 1 << 1;
+    public static final int CHANGED_TEMPERATURE = 1 << 2;
+    public static final int CHANGED_MOTION = 1 << 3;
+    public static final int CHANGED_ALERT = 1 << 4;
+    public static final int CHANGED_ALL = (1 << 5) - 1;
+    
+    // A single abnormal sample keeps the tile in alert state this long, so a fall that is
+    // reported once does not vanish from the top of the grid a second later
+    static final long ALERT_HOLD_MS = 30 * 1000L;
+    
+    private final long id;
+    private final String deviceId;
+    private int heartRate;
+    private int bloodOxygen;
+    private int temperatureTenths;
+    private SensorData.MotionStatus motionStatus = SensorData.MotionStatus.SEDENTARY;
+    private long alertUntil = Long.MIN_VALUE;
+    private boolean alerting;
+    private long alertSince;
+    int position;
+    
+    PatientTile(long id, String deviceId) {
+        this.id = id;
+        this.deviceId = deviceId;
+    }
+    
+    // Applies a sample and returns which displayed values changed
+    int update(SensorData data, boolean abnormal) {
+        int changes = 0;
+        if (data.getHeartRate() != heartRate) {
+            heartRate = data.getHeartRate();
+            changes |= CHANGED_HEART_RATE;
+        }
+        if (data.getBloodOxygen() != bloodOxygen) {
+            bloodOxygen = data.getBloodOxygen();
+            changes |= CHANGED_BLOOD_OXYGEN;
+        }
+        int tenths = Math.round(data.getBodyTemperature() * 10f);
+        if (tenths != temperatureTenths) {
+            temperatureTenths = tenths;
+            changes |= CHANGED_TEMPERATURE;
+        }
+        SensorData.MotionStatus motion = data.getMotionStatus() != null
+            ? data.getMotionStatus() : SensorData.MotionStatus.SEDENTARY;
+        if (motion != motionStatus) {
+            motionStatus = motion;
+            changes |= CHANGED_MOTION;
+        }
+        long now = data.getTimestamp();
+        if (abnormal) {
+            alertUntil = now + ALERT_HOLD_MS;
+        }
+        boolean nowAlerting = now < alertUntil;
+        if (nowAlerting != alerting) {
+            alerting = nowAlerting;
+            alertSince = now;
+            changes |= CHANGED_ALERT;
+        }
+        return changes;
+    }
+    
+    // Stable RecyclerView id, assigned in order of first appearance
+    public long getId() {
+        return id;
+    }
+    
+    public String getDeviceId() {
+        return deviceId;
+    }
+    
+    public int getHeartRate() {
+        return heartRate;
+    }
+    
+    public int getBloodOxygen() {
+        return bloodOxygen;
+    }
+    
+    public int getTemperatureTenths() {
+        return temperatureTenths;
+    }
+    
+    public SensorData.MotionStatus getMotionStatus() {
+        return motionStatus;
+    }
+    
+    public boolean isAlerting() {
+        return alerting;
+    }
+    
+    // When the tile last entered or left alert state
+    public long getAlertSince() {
+        return alertSince;
+    }
+}
\ No newline at end of file
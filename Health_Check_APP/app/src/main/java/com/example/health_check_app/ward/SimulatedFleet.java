@@ -0,0 +1,119 @@
+package com.example.health_check_app.ward;
+
+import com.example.health_check_app.models.SensorData;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Local stand-in for a ward of wearables: every device reports once a second, spread evenly
+// over the second like unsynchronised devices would be, with occasional fever, tachycardia
+// and fall episodes so the grid has alerts to raise and clear.
+public class SimulatedFleet {
+    private static final long TICK_MS = 20;
+    private static final int SLOTS = (int) (1000 / TICK_MS);
+    
+    public interface Sink {
+        void onSample(String deviceId, SensorData data);
+    }
+    
+    private final Device[] devices;
+    private final Sink sink;
+    private final Random random;
+    private ScheduledExecutorService executor;
+    private int slot;
+    
+    private static final class Device {
+        final String id;
+        int restingHeartRate;
+        float heartRate;
+        float bloodOxygen;
+        float temperature;
+        int feverSeconds;
+        int tachycardiaSeconds;
+        boolean walking;
+        
+        Device(String id) {
+            this.id = id;
+        }
+    }
+    
+    public SimulatedFleet(int size, long seed, Sink sink) {
+        this.sink = sink;
+        this.random = new Random(seed);
+        devices = new Device[size];
+        for (int i = 0; i < size; i++) {
+            Device device = new Device(String.format(Locale.ROOT, "bed-%03d", i + 1));
+            device.restingHeartRate = 60 + random.nextInt(25);
+            device.heartRate = device.restingHeartRate;
+            device.bloodOxygen = 95 + random.nextInt(4);
+            device.temperature = 36.2f + random.nextInt(8) / 10f;
+            devices[i] = device;
+        }
+    }
+    
+    public int size() {
+        return devices.length;
+    }
+    
+    public synchronized void start() {
+        if (executor != null) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "ward-simulator");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleAtFixedRate(this::tick, 0, TICK_MS, TimeUnit.MILLISECONDS);
+    }
+    
+    public synchronized void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+    
+    // Reports every device in the current slot; each device sits in one slot per second
+    private void tick() {
+        long now = System.currentTimeMillis();
+        for (int i = slot; i < devices.length; i += SLOTS) {
+            sink.onSample(devices[i].id, sample(devices[i], now));
+        }
+        slot = (slot + 1) % SLOTS;
+    }
+    
+    private SensorData sample(Device device, long now) {
+        if (device.feverSeconds == 0 && random.nextInt(3000) == 0) {
+            device.feverSeconds = 60 + random.nextInt(120);
+        }
+        if (device.tachycardiaSeconds == 0 && random.nextInt(2000) == 0) {
+            device.tachycardiaSeconds = 20 + random.nextInt(40);
+        }
+        if (random.nextInt(30) == 0) {
+            device.walking = !device.walking;
+        }
+        
+        float targetHeartRate = device.restingHeartRate + (device.walking ? 20 : 0)
+            + (device.tachycardiaSeconds > 0 ? 50 : 0);
+        device.heartRate += (targetHeartRate - device.heartRate) * 0.2f + random.nextFloat() * 4 - 2;
+        float targetTemperature = device.feverSeconds > 0 ? 38.4f : 36.6f;
+        device.temperature += (targetTemperature - device.temperature) * 0.05f
+            + (random.nextFloat() - 0.5f) * 0.04f;
+        device.bloodOxygen = Math.max(88, Math.min(100,
+            device.bloodOxygen + (random.nextFloat() - 0.5f) * 0.6f));
+        if (device.feverSeconds > 0) device.feverSeconds--;
+        if (device.tachycardiaSeconds > 0) device.tachycardiaSeconds--;
+        
+        SensorData data = new SensorData();
+        data.setHeartRate(Math.round(device.heartRate));
+        data.setBloodOxygen(Math.round(device.bloodOxygen));
+        data.setBodyTemperature(device.temperature);
+        data.setMotionStatus(random.nextInt(20000) == 0 ? SensorData.MotionStatus.FALL_DETECTED
+            : device.walking ? SensorData.MotionStatus.WALKING : SensorData.MotionStatus.SEDENTARY);
+        data.setTimestamp(now);
+        return data;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,123 @@
+package com.example.health_check_app.ward;
+
+import com.example.health_check_app.models.SensorData;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Display order of the patient grid. Tiles in alert state form a block at the top, newest
+// alert first; the rest follow in order of first appearance. A tile changing state is moved
+// across the block boundary on its own and only the tiles between its old and new position
+// are renumbered, so the grid is never re-sorted as a whole. UI thread only.
+public class WardModel {
+    public interface Listener {
+        void onTileInserted(int position);
+        void onTileMoved(int from, int to);
+        void onTileChanged(int position, int changes);
+    }
+    
+    private final List<PatientTile> tiles = new ArrayList<>();
+    private final Map<String, PatientTile> byDevice = new HashMap<>();
+    private Listener listener;
+    private int alertCount;
+    private long nextId;
+    
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+    
+    public int size() {
+        return tiles.size();
+    }
+    
+    public PatientTile get(int position) {
+        return tiles.get(position);
+    }
+    
+    public int getAlertCount() {
+        return alertCount;
+    }
+    
+    // abnormal is whether the sample itself broke a rule; the tile latches it for a while
+    public void apply(String deviceId, SensorData data, boolean abnormal) {
+        PatientTile tile = byDevice.get(deviceId);
+        if (tile == null) {
+            tile = new PatientTile(nextId++, deviceId);
+            byDevice.put(deviceId, tile);
+            tile.update(data, abnormal);
+            insert(tile);
+            return;
+        }
+        int changes = tile.update(data, abnormal);
+        if (changes == 0) {
+            return;
+        }
+        if ((changes & PatientTile.CHANGED_ALERT) != 0) {
+            int from = tile.position;
+            int to;
+            if (tile.isAlerting()) {
+                to = 0;
+                alertCount++;
+            } else {
+                alertCount--;
+                to = normalPosition(tile);
+            }
+            move(from, to);
+        }
+        if (listener != null) {
+            listener.onTileChanged(tile.position, changes);
+        }
+    }
+    
+    private void insert(PatientTile tile) {
+        int position;
+        if (tile.isAlerting()) {
+            position = 0;
+            alertCount++;
+        } else {
+            // Ids grow with every new device, so a new normal tile always goes last
+            position = tiles.size();
+        }
+        tiles.add(position, tile);
+        renumber(position, tiles.size() - 1);
+        if (listener != null) {
+            listener.onTileInserted(position);
+        }
+    }
+    
+    // Where a tile that just left alert state belongs among the normal tiles, by id. The
+    // normal block is [alertCount + 1, size) until the tile is moved out of the alert block.
+    private int normalPosition(PatientTile tile) {
+        int low = alertCount + 1;
+        int high = tiles.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (tiles.get(mid).getId() < tile.getId()) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        // Positions are counted after the tile is taken out
+        return low - 1;
+    }
+    
+    private void move(int from, int to) {
+        if (from == to) {
+            return;
+        }
+        PatientTile tile = tiles.remove(from);
+        tiles.add(to, tile);
+        renumber(Math.min(from, to), Math.max(from, to));
+        if (listener != null) {
+            listener.onTileMoved(from, to);
+        }
+    }
+    
+    private void renumber(int first, int last) {
+        for (int i = first; i <= last; i++) {
+            tiles.get(i).position = i;
+        }
+    }
+}
\ No newline at end of file
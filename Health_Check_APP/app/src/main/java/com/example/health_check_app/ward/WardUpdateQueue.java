@@ -0,0 +1,79 @@
+package com.example.health_check_app.ward;
+
+import com.example.health_check_app.models.SensorData;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Hands samples from any number of producer threads to the UI thread. Only the latest sample
+// per device is kept, so a device that updates faster than the UI drains costs one tile bind.
+// The consumer is woken once when the queue goes from empty to non-empty, not per sample.
+public class WardUpdateQueue {
+    public interface Consumer {
+        void accept(String deviceId, SensorData data);
+    }
+    
+    private final ConcurrentHashMap<String, SensorData> latest = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<String> dirty = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean armed = new AtomicBoolean();
+    private final AtomicLong conflated = new AtomicLong();
+    private final Runnable wakeUp;
+    
+    public WardUpdateQueue(Runnable wakeUp) {
+        this.wakeUp = wakeUp;
+    }
+    
+    // Any thread
+    public void offer(String deviceId, SensorData data) {
+        if (latest.put(deviceId, data) != null) {
+            // Still queued: the pending entry now carries the newer sample
+            conflated.incrementAndGet();
+            return;
+        }
+        dirty.offer(deviceId);
+        if (armed.compareAndSet(false, true)) {
+            wakeUp.run();
+        }
+    }
+    
+    // Consumer thread. Hands over devices until the queue is empty or deadlineNanos
+    // (System.nanoTime) passes. Returns false when it stopped at the deadline with devices
+    // left; the wake-up is only re-armed once the queue is empty, so the caller must then
+    // schedule the next drain itself.
+    public boolean drain(Consumer consumer, long deadlineNanos) {
+        String deviceId;
+        while ((deviceId = dirty.poll()) != null) {
+            consumer.accept(deviceId, latest.remove(deviceId));
+            if (System.nanoTime() >= deadlineNanos && !dirty.isEmpty()) {
+                return false;
+            }
+        }
+        armed.set(false);
+        // A producer may have queued a device after the poll above but seen the wake-up armed
+        if (!dirty.isEmpty() && armed.compareAndSet(false, true)) {
+            wakeUp.run();
+        }
+        return true;
+    }
+    
+    public boolean isEmpty() {
+        return dirty.isEmpty();
+    }
+    
+    public int size() {
+        return latest.size();
+    }
+    
+    // Samples replaced by a newer one before the UI got to them
+    public long getConflatedCount() {
+        return conflated.get();
+    }
+    
+    // Call only once producers have stopped
+    public void clear() {
+        dirty.clear();
+        latest.clear();
+        armed.set(false);
+    }
+}
\ No newline at end of file
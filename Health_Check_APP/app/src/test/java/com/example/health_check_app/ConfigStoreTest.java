@@ -0,0 +1,230 @@
+package com.example.health_check_app;
+
+import android.content.SharedPreferences;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ConfigStoreTest {
+    private static final int CHANGES = 2000;
+    
+    // Snapshots one listener was handed, as {heart rate max, raw days, minute days}
+    private static final class Recorder implements ConfigStore.Listener {
+        final List<int[]> seen = new ArrayList<>();
+        
+        @Override
+        public synchronized void onConfigChanged(AppConfig config) {
+            seen.add(new int[] {config.getHeartRateMax(), config.getRawRetentionDays(),
+                config.getMinuteRetentionDays()});
+        }
+        
+        synchronized int[] last() {
+            return seen.get(seen.size() - 1);
+        }
+        
+        // Each setting only ever goes up, so an older snapshot shows as one going down
+        synchronized void assertInOrder() {
+            for (int i = 1; i < seen.size(); i++) {
+                for (int key = 0; key < 3; key++) {
+                    assertTrue("snapshot " + i + " is older than the one before",
+                        seen.get(i)[key] >= seen.get(i - 1)[key]);
+                }
+            }
+        }
+    }
+    
+    @Test
+    public void concurrentChangesReachListenersInOrder() throws InterruptedException {
+        ConfigStore store = new ConfigStore(new MemoryPreferences());
+        Recorder first = new Recorder();
+        Recorder second = new Recorder();
+        store.addListener(first);
+        store.addListener(second);
+        
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int key = 0; key < 3; key++) {
+            int setting = key;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int value = 1; value <= CHANGES; value++) {
+                    AppConfig config = store.get();
+                    if (setting == 0) {
+                        config.setHeartRateMax(1000 + value);
+                    } else if (setting == 1) {
+                        config.setRawRetentionDays(1000 + value);
+                    } else {
+                        config.setMinuteRetentionDays(1000 + value);
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        
+        for (Recorder recorder : new Recorder[] {first, second}) {
+            recorder.assertInOrder();
+            // Whatever was skipped, the last snapshot handed out is the final state
+            assertArrayEquals(new int[] {1000 + CHANGES, 1000 + CHANGES, 1000 + CHANGES}, recorder.last());
+        }
+    }
+    
+    @Test
+    public void changeMadeByAListenerOvertakesTheOneBeingDelivered() {
+        ConfigStore store = new ConfigStore(new MemoryPreferences());
+        Recorder before = new Recorder();
+        Recorder after = new Recorder();
+        store.addListener(before);
+        store.addListener(config -> {
+            if (config.getHeartRateMax() == 1150 && config.getMinuteRetentionDays() != 1999) {
+                config.setMinuteRetentionDays(1999);
+            }
+        });
+        store.addListener(after);
+        
+        store.get().setMinuteRetentionDays(1000);
+        store.get().setRawRetentionDays(1000);
+        store.get().setHeartRateMax(1150);
+        
+        before.assertInOrder();
+        after.assertInOrder();
+        assertEquals(1999, before.last()[2]);
+        assertEquals(1999, after.last()[2]);
+        // The listener after the one that made the change only hears of the newer snapshot
+        assertEquals(3, after.seen.size());
+        assertEquals(4, before.seen.size());
+    }
+    
+    // Just enough of SharedPreferences for ConfigStore: starts empty, takes writes
+    private static final class MemoryPreferences implements SharedPreferences {
+        private final Map<String, Object> values = new HashMap<>();
+        
+        @Override
+        public synchronized Map<String, ?> getAll() {
+            return new HashMap<>(values);
+        }
+        
+        @Override
+        public String getString(String key, String defValue) {
+            return defValue;
+        }
+        
+        @Override
+        public Set<String> getStringSet(String key, Set<String> defValues) {
+            return defValues;
+        }
+        
+        @Override
+        public int getInt(String key, int defValue) {
+            return defValue;
+        }
+        
+        @Override
+        public long getLong(String key, long defValue) {
+            return defValue;
+        }
+        
+        @Override
+        public float getFloat(String key, float defValue) {
+            return defValue;
+        }
+        
+        @Override
+        public boolean getBoolean(String key, boolean defValue) {
+            return defValue;
+        }
+        
+        @Override
+        public boolean contains(String key) {
+            return false;
+        }
+        
+        @Override
+        public Editor edit() {
+            Map<String, Object> changes = new HashMap<>();
+            return new Editor() {
+                @Override
+                public Editor putString(String key, String value) {
+                    changes.put(key, value);
+                    return this;
+                }
+                
+                @Override
+                public Editor putStringSet(String key, Set<String> value) {
+                    changes.put(key, value);
+                    return this;
+                }
+                
+                @Override
+                public Editor putInt(String key, int value) {
+                    changes.put(key, value);
+                    return this;
+                }
+                
+                @Override
+                public Editor putLong(String key, long value) {
+                    changes.put(key, value);
+                    return this;
+                }
+                
+                @Override
+                public Editor putFloat(String key, float value) {
+                    changes.put(key, value);
+                    return this;
+                }
+                
+                @Override
+                public Editor putBoolean(String key, boolean value) {
+                    changes.put(key, value);
+                    return this;
+                }
+                
+                @Override
+                public Editor remove(String key) {
+                    changes.put(key, null);
+                    return this;
+                }
+                
+                @Override
+                public Editor clear() {
+                    return this;
+                }
+                
+                @Override
+                public boolean commit() {
+                    synchronized (MemoryPreferences.this) {
+                        values.putAll(changes);
+                    }
+                    return true;
+                }
+                
+                @Override
+                public void apply() {
+                    commit();
+                }
+            };
+        }
+        
+        @Override
+        public void registerOnSharedPreferenceChangeListener(OnSharedPreferenceChangeListener listener) {
+        }
+        
+        @Override
+        public void unregisterOnSharedPreferenceChangeListener(OnSharedPreferenceChangeListener listener) {
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,90 @@
+package com.example.health_check_app;
+
+import com.github.mikephil.charting.data.Entry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SlidingLineDataSetTest {
+    @Test
+    public void boundsMatchBruteForceOverRandomAppends() {
+        Random random = new Random(46);
+        for (int round = 0; round < 20; round++) {
+            int capacity = 1 + random.nextInt(200);
+            float windowX = 1 + random.nextInt(300);
+            SlidingLineDataSet data = new SlidingLineDataSet(new ArrayList<>(), "test", capacity, windowX);
+            // The same window kept by brute force, as {x, y}
+            List<float[]> expected = new ArrayList<>();
+            float x = random.nextInt(100);
+            for (int step = 0; step < 5000; step++) {
+                int move = random.nextInt(10);
+                float y = random.nextInt(4) == 0 ? (float) random.nextGaussian() * 1000 : random.nextInt(50);
+                if (move == 0 && !expected.isEmpty()) {
+                    // Before the last point: refused
+                    assertFalse(data.put(x - 1 - random.nextInt(5), y));
+                } else if (move < 3 && !expected.isEmpty()) {
+                    // The open bucket's mean moves
+                    assertTrue(data.put(x, y));
+                    expected.get(expected.size() - 1)[1] = y;
+                } else {
+                    x += move == 9 ? random.nextInt((int) windowX * 2) + 1 : 1 + random.nextInt(3);
+                    assertTrue(data.put(x, y));
+                    expected.add(new float[] {x, y});
+                    while (expected.size() > capacity || expected.get(0)[0] < x - windowX) {
+                        expected.remove(0);
+                    }
+                }
+                assertMatches("round " + round + " step " + step, expected, data);
+            }
+        }
+    }
+    
+    @Test
+    public void initialEntriesAreWindowedLikeAppends() {
+        List<Entry> initial = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            initial.add(new Entry(i, i % 7 == 0 ? -i : i));
+        }
+        SlidingLineDataSet data = new SlidingLineDataSet(initial, "test", 50, 30);
+        
+        assertEquals(31, data.getEntryCount());
+        assertEquals(69, data.getXMin(), 0f);
+        assertEquals(99, data.getXMax(), 0f);
+        assertEquals(-98, data.getYMin(), 0f);
+        assertEquals(99, data.getYMax(), 0f);
+    }
+    
+    @Test
+    public void clearEmptiesTheWindow() {
+        SlidingLineDataSet data = new SlidingLineDataSet(new ArrayList<>(), "test", 10, 100);
+        data.put(1, 5);
+        data.put(2, -5);
+        data.clear();
+        assertEquals(0, data.getEntryCount());
+        
+        data.put(3, 1);
+        data.put(4, 2);
+        assertEquals(1, data.getYMin(), 0f);
+        assertEquals(2, data.getYMax(), 0f);
+    }
+    
+    private static void assertMatches(String message, List<float[]> expected, SlidingLineDataSet data) {
+        assertEquals(message, expected.size(), data.getEntryCount());
+        float yMin = Float.MAX_VALUE;
+        float yMax = -Float.MAX_VALUE;
+        for (int i = 0; i < expected.size(); i++) {
+            Entry entry = data.getEntryForIndex(i);
+            assertEquals(message, expected.get(i)[0], entry.getX(), 0f);
+            assertEquals(message, expected.get(i)[1], entry.getY(), 0f);
+            yMin = Math.min(yMin, expected.get(i)[1]);
+            yMax = Math.max(yMax, expected.get(i)[1]);
+        }
+        assertEquals(message, yMin, data.getYMin(), 0f);
+        assertEquals(message, yMax, data.getYMax(), 0f);
+        assertEquals(message, expected.get(0)[0], data.getXMin(), 0f);
+        assertEquals(message, expected.get(expected.size() - 1)[0], data.getXMax(), 0f);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,88 @@
+package com.example.health_check_app;
+
+import java.util.Locale;
+import java.util.Random;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TextFieldTest {
+    private static final char[] PERCENT = {'%'};
+    private static final char[] CELSIUS = {'°', 'C'};
+    
+    // Only the buffer is exercised, so no view is needed
+    private final TextField field = new TextField(null);
+    
+    @Test
+    public void intsMatchLongToString() {
+        long[] edges = {0, 1, -1, 9, -9, 10, -10, Integer.MAX_VALUE, Integer.MIN_VALUE, Long.MAX_VALUE,
+            Long.MIN_VALUE};
+        for (long value : edges) {
+            field.setInt(value, null);
+            assertEquals(Long.toString(value), field.toString());
+        }
+        Random random = new Random(5);
+        for (int i = 0; i < 10_000; i++) {
+            long value = random.nextLong() >> random.nextInt(64);
+            field.setInt(value, null);
+            assertEquals(Long.toString(value), field.toString());
+        }
+    }
+    
+    @Test
+    public void tenthsMatchStringFormat() {
+        Random random = new Random(9);
+        for (int i = 0; i < 10_000; i++) {
+            float value = (random.nextFloat() - 0.5f) * 120f;
+            assertTenths(value);
+        }
+        // Exact halves round away from zero either side
+        for (float value : new float[] {36.25f, -36.25f, 0.75f, -0.75f, 99.95f, 36.05f, 0f, 45.5f}) {
+            assertTenths(value);
+        }
+        // Nothing left to be negative after rounding, unlike "%.1f"
+        field.setTenths(TextField.toTenths(-0.04f), null);
+        assertEquals("0.0", field.toString());
+        field.setTenths(TextField.toTenths(-0.05f), null);
+        assertEquals("-0.1", field.toString());
+    }
+    
+    @Test
+    public void suffixesAndThePlaceholderReplaceWhatWasThere() {
+        field.setInt(72, PERCENT);
+        assertEquals("72%", field.toString());
+        field.setMissing();
+        assertEquals("--", field.toString());
+        field.setTenths(365, CELSIUS);
+        assertEquals("36.5°C", field.toString());
+        field.setTenths(-5, CELSIUS);
+        assertEquals("-0.5°C", field.toString());
+        field.setInt(-3, null);
+        assertEquals("-3", field.toString());
+        field.setMissing();
+        assertEquals("--", field.toString());
+        
+        // The longest value plus a suffix still fits the buffer
+        field.setInt(Long.MIN_VALUE, " steps".toCharArray());
+        assertEquals(Long.MIN_VALUE + " steps", field.toString());
+        field.setTenths(Long.MIN_VALUE, CELSIUS);
+        assertEquals("-922337203685477580.8°C", field.toString());
+    }
+    
+    @Test
+    public void placeholderKeyDiffersFromEveryValue() {
+        assertNotEquals(TextField.UNSET, TextField.MISSING);
+        // Ints and the tenths of any sensor reading stay clear of the reserved keys
+        assertTrue(TextField.MISSING < Integer.MIN_VALUE);
+        assertTrue(TextField.MISSING < TextField.toTenths(-1e9f));
+    }
+    
+    private void assertTenths(float value) {
+        String expected = String.format(Locale.US, "%.1f", value);
+        if (expected.equals("-0.0")) {
+            expected = "0.0";
+        }
+        field.setTenths(TextField.toTenths(value), null);
+        assertEquals(Float.toString(value), expected, field.toString());
+    }
+}
\ No newline at end of file
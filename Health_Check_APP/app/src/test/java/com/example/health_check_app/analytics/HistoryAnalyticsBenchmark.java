@@ -0,0 +1,101 @@
+package com.example.health_check_app.analytics;
+
+import com.example.health_check_app.models.SensorData;
+import com.example.health_check_app.storage.RawRecord;
+import com.example.health_check_app.storage.RecordScanner;
+import com.example.health_check_app.storage.Tier;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.Assume;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+// A year of per-second samples, single-threaded and on every core. Generating 31.5 million
+// samples costs more than analysing them, so one generated day is replayed with its
+// timestamps shifted and the timings cover the analytics alone.
+//
+// Slow and prints its timings instead of checking them, so it is skipped unless asked for:
+//   ./gradlew :app:testDebugUnitTest -Pbenchmarks --tests '*HistoryAnalyticsBenchmark'
+// The results are checked by HistoryAnalyticsTest on every run.
+public class HistoryAnalyticsBenchmark {
+    private static final long DAY_MS = SyntheticHistory.DAY_MS;
+    private static final long START = 1_704_067_200_000L;
+    private static final int DAYS = 365;
+    
+    @Test
+    public void analyzesYearOfPerSecondSamples() throws IOException {
+        Assume.assumeTrue("benchmarks not requested", Boolean.getBoolean("benchmarks"));
+        HistorySource year = new RepeatedDay(START);
+        int cores = Runtime.getRuntime().availableProcessors();
+        ForkJoinPool single = new ForkJoinPool(1);
+        ForkJoinPool parallel = new ForkJoinPool(cores);
+        try {
+            // Warm up so both runs are compiled code
+            new HistoryAnalytics(year, 0, single, 1).analyze(START, START + 60 * DAY_MS);
+            new HistoryAnalytics(year, 0, parallel, 1).analyze(START, START + 60 * DAY_MS);
+            
+            long started = System.nanoTime();
+            AnalyticsReport sequential = new HistoryAnalytics(year, 0, single, 1).analyze(START, START + DAYS * DAY_MS);
+            long sequentialNanos = System.nanoTime() - started;
+            started = System.nanoTime();
+            AnalyticsReport split = new HistoryAnalytics(year, 0, parallel, 1).analyze(START, START + DAYS * DAY_MS);
+            long parallelNanos = System.nanoTime() - started;
+            
+            HistoryAnalyticsTest.assertSameReport(sequential, split);
+            assertEquals((DAYS - 1) * (long) SyntheticHistory.STEPS_PER_DAY, split.getTotalSteps() - split.getSteps(0));
+            assertEquals(DAYS * 120, split.getTotalActiveMinutes());
+            
+            double samples = DAYS * (DAY_MS / 1000.0);
+            System.out.println(String.format(Locale.US,
+                "%d days, %.1fM samples: 1 thread %d ms (%.1fM/s), %d threads %d ms (%.1fM/s), speedup %.2fx",
+                DAYS, samples / 1e6, sequentialNanos / 1_000_000, samples / sequentialNanos * 1e3,
+                cores, parallelNanos / 1_000_000, samples / parallelNanos * 1e3,
+                (double) sequentialNanos / parallelNanos));
+        } finally {
+            single.shutdown();
+            parallel.shutdown();
+        }
+    }
+    
+    // The first day of SyntheticHistory at one sample a second, repeated every day
+    private static class RepeatedDay implements HistorySource {
+        private final long origin;
+        private final ByteBuffer day;
+        private final ThreadLocal<ByteBuffer> blocks = ThreadLocal.withInitial(
+            () -> ByteBuffer.allocate(256 * RawRecord.SIZE));
+        
+        RepeatedDay(long origin) {
+            this.origin = origin;
+            SyntheticHistory history = new SyntheticHistory(origin, 1000);
+            SensorData data = new SensorData();
+            day = ByteBuffer.allocate((int) (DAY_MS / 1000) * RawRecord.SIZE);
+            for (long t = origin; t < origin + DAY_MS; t += 1000) {
+                history.fill(data, t);
+                RawRecord.write(day, t, data);
+            }
+        }
+        
+        @Override
+        public void scan(long from, long to, RecordScanner.Visitor visitor) {
+            ByteBuffer block = blocks.get();
+            long t = Math.floorDiv(from + 999, 1000) * 1000;
+            while (t < to) {
+                block.clear();
+                while (t < to && block.hasRemaining()) {
+                    int record = (int) (Math.floorMod(t - origin, DAY_MS) / 1000);
+                    int offset = block.position();
+                    block.put(day.array(), record * RawRecord.SIZE, RawRecord.SIZE);
+                    block.putLong(offset, t);
+                    t += 1000;
+                }
+                block.flip();
+                for (int offset = 0; offset < block.limit(); offset += RawRecord.SIZE) {
+                    visitor.onRecord(Tier.RAW, block, offset);
+                }
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,100 @@
+package com.example.health_check_app.analytics;
+
+import com.example.health_check_app.storage.VitalsStore;
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+public class HistoryAnalyticsTest {
+    private static final long DAY_MS = SyntheticHistory.DAY_MS;
+    private static final long HOUR_MS = SyntheticHistory.HOUR_MS;
+    // A Monday at 00:00 UTC
+    private static final long START = 1_704_067_200_000L;
+    
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    
+    private final ForkJoinPool parallel = new ForkJoinPool(4);
+    private final ForkJoinPool single = new ForkJoinPool(1);
+    
+    @After
+    public void tearDown() {
+        parallel.shutdown();
+        single.shutdown();
+    }
+    
+    @Test
+    public void parallelRunMatchesOnePass() throws IOException {
+        // Starts and ends mid-day, so the first and last stretches are partial
+        SyntheticHistory history = new SyntheticHistory(START, 1000);
+        long from = START + 5 * HOUR_MS + 123_000;
+        long to = from + 20 * DAY_MS + 7 * HOUR_MS;
+        AnalyticsReport split = new HistoryAnalytics(history, 0, parallel, 1).analyze(from, to);
+        AnalyticsReport onePass = new HistoryAnalytics(history, 0, single, Integer.MAX_VALUE).analyze(from, to);
+        assertSameReport(onePass, split);
+    }
+    
+    @Test
+    public void reportsKnownFigures() throws IOException {
+        SyntheticHistory history = new SyntheticHistory(START, 10_000);
+        AnalyticsReport report = new HistoryAnalytics(history, 0, parallel, 1).analyze(START, START + 14 * DAY_MS);
+        assertEquals(14, report.getDays());
+        for (int day = 1; day < report.getDays(); day++) {
+            assertEquals(SyntheticHistory.STEPS_PER_DAY, report.getSteps(day));
+            assertEquals(120, report.getActiveMinutes(day));
+            assertEquals(60f, report.getRestingHeartRate(day), 0.01f);
+        }
+        // The dip around midnight is split between two daily stretches but counts once
+        for (int night = 1; night < report.getDays(); night++) {
+            assertEquals(2, report.getDipEpisodes(night));
+            assertEquals(88f, report.getLowestSpo2(night), 0f);
+        }
+        assertEquals(1, report.getDipEpisodes(report.getDays()));
+        assertEquals(1.0, report.getBodyVsEnvironmentTemperature(), 1e-3);
+        assertEquals(0.0, report.getBodyVsHumidity(), 0.05);
+        assertEquals(0.0, report.getRestingTrendPerWeek(), 1e-9);
+    }
+    
+    @Test
+    public void followsRestingTrendOverMonths() throws IOException {
+        SyntheticHistory history = new SyntheticHistory(START, 60_000);
+        AnalyticsReport report = new HistoryAnalytics(history, 0, parallel, 1).analyze(START, START + 180 * DAY_MS);
+        assertEquals(0.14, report.getRestingTrendPerWeek(), 0.01);
+    }
+    
+    @Test
+    public void readsStoredHistoryLikeGenerated() throws IOException {
+        SyntheticHistory history = new SyntheticHistory(START, 10_000);
+        long to = START + 3 * DAY_MS;
+        VitalsStore store = new VitalsStore(folder.newFolder("vitals"), 0);
+        history.appendTo(store, START, to);
+        store.sync();
+        AnalyticsReport stored = new HistoryAnalytics(store).analyze(START, to);
+        AnalyticsReport generated = new HistoryAnalytics(history, 0, single, 1).analyze(START, to);
+        assertSameReport(generated, stored);
+        store.close();
+    }
+    
+    // Counts must match exactly; correlations only up to the order of floating-point merges
+    static void assertSameReport(AnalyticsReport expected, AnalyticsReport actual) {
+        assertEquals(expected.getDays(), actual.getDays());
+        for (int day = 0; day < expected.getDays(); day++) {
+            assertEquals("steps " + day, expected.getSteps(day), actual.getSteps(day));
+            assertEquals("active " + day, expected.getActiveMinutes(day), actual.getActiveMinutes(day));
+            assertEquals("resting " + day, expected.getRestingHeartRate(day), actual.getRestingHeartRate(day), 1e-4f);
+        }
+        for (int night = 0; night <= expected.getDays(); night++) {
+            assertEquals("dips " + night, expected.getDipEpisodes(night), actual.getDipEpisodes(night));
+            assertEquals("lowest " + night, expected.getLowestSpo2(night), actual.getLowestSpo2(night), 0f);
+        }
+        assertEquals(expected.getBodyVsEnvironmentTemperature(), actual.getBodyVsEnvironmentTemperature(), 1e-9);
+        assertEquals(expected.getBodyVsHumidity(), actual.getBodyVsHumidity(), 1e-9);
+        assertEquals(expected.getStepsVsActiveMinutes(), actual.getStepsVsActiveMinutes(), 1e-9);
+        assertEquals(expected.getRestingTrendPerWeek(), actual.getRestingTrendPerWeek(), 1e-9);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,88 @@
+package com.example.health_check_app.analytics;
+
+import com.example.health_check_app.models.SensorData;
+import com.example.health_check_app.storage.RawRecord;
+import com.example.health_check_app.storage.RecordScanner;
+import com.example.health_check_app.storage.Tier;
+import com.example.health_check_app.storage.VitalsStore;
+import java.nio.ByteBuffer;
+
+// Generated raw history, a pure function of the timestamp so any range can be produced on its
+// own and concurrently. In UTC, every day:
+// - walking 07:00-08:00 and 18:00-19:00 at 2 steps a second, otherwise sedentary
+// - heart rate 100 walking, resting 60 + 0.02 per day since the origin plus a zero-mean wobble
+// - SpO2 97, dropping to 88 for 23:59:50-00:00:10 and 02:00:00-02:00:30
+// - room temperature swinging 15-25 over the day, body temperature following it exactly
+class SyntheticHistory implements HistorySource {
+    static final long DAY_MS = 24 * 60 * 60 * 1000L;
+    static final long HOUR_MS = 60 * 60 * 1000L;
+    static final int STEPS_PER_DAY = 2 * 2 * 3600;
+    
+    private final long origin;
+    private final long stepMs;
+    
+    SyntheticHistory(long origin, long stepMs) {
+        this.origin = origin;
+        this.stepMs = stepMs;
+    }
+    
+    @Override
+    public void scan(long from, long to, RecordScanner.Visitor visitor) {
+        ByteBuffer block = ByteBuffer.allocate(256 * RawRecord.SIZE);
+        SensorData data = new SensorData();
+        long t = Math.floorDiv(from + stepMs - 1, stepMs) * stepMs;
+        while (t < to) {
+            block.clear();
+            while (t < to && block.remaining() >= RawRecord.SIZE) {
+                fill(data, t);
+                RawRecord.write(block, t, data);
+                t += stepMs;
+            }
+            block.flip();
+            for (int offset = 0; offset < block.limit(); offset += RawRecord.SIZE) {
+                visitor.onRecord(Tier.RAW, block, offset);
+            }
+        }
+    }
+    
+    void appendTo(VitalsStore store, long from, long to) {
+        SensorData data = new SensorData();
+        for (long t = from; t < to; t += stepMs) {
+            fill(data, t);
+            data.setTimestamp(t);
+            store.append(data);
+        }
+    }
+    
+    void fill(SensorData data, long t) {
+        long day = Math.floorDiv(t - origin, DAY_MS);
+        long ofDay = Math.floorMod(t, DAY_MS);
+        boolean walking = isWalking(ofDay);
+        data.setMotionStatus(walking ? SensorData.MotionStatus.WALKING : SensorData.MotionStatus.SEDENTARY);
+        // Cycles through -2..2 by the minute; every sedentary stretch is a multiple of 5 minutes
+        long wobble = (ofDay / 60_000) % 5 - 2;
+        data.setHeartRate(walking ? 100 : (int) Math.round(60 + 0.02 * day + wobble));
+        data.setSteps((int) (2 * walkedSeconds(ofDay)));
+        boolean dip = ofDay >= DAY_MS - 10_000 || ofDay < 10_000
+            || (ofDay >= 2 * HOUR_MS && ofDay < 2 * HOUR_MS + 30_000);
+        data.setBloodOxygen(dip ? 88 : 97);
+        double swing = Math.sin(2 * Math.PI * ofDay / DAY_MS);
+        data.setEnvironmentTemperature((float) (20 + 5 * swing));
+        data.setBodyTemperature((float) (36.5 + 0.1 * swing));
+        data.setHumidity((int) (50 + 10 * Math.sin(2 * Math.PI * ofDay / (7 * 60 * 1000L))));
+    }
+    
+    static boolean isWalking(long ofDay) {
+        return (ofDay >= 7 * HOUR_MS && ofDay < 8 * HOUR_MS) || (ofDay >= 18 * HOUR_MS && ofDay < 19 * HOUR_MS);
+    }
+    
+    // Seconds walked today before ofDay
+    private static long walkedSeconds(long ofDay) {
+        long walked = clamp(ofDay - 7 * HOUR_MS, HOUR_MS) + clamp(ofDay - 18 * HOUR_MS, HOUR_MS);
+        return walked / 1000;
+    }
+    
+    private static long clamp(long value, long max) {
+        return Math.max(0, Math.min(value, max));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,87 @@
+package com.example.health_check_app.export;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ChannelWriterTest {
+    private static final DateTimeFormatter DATE_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    
+    private interface Writes {
+        void to(ChannelWriter writer) throws IOException;
+    }
+    
+    @Test
+    public void dateTimesMatchJavaTime() throws IOException {
+        Random random = new Random(7);
+        for (int i = 0; i < 10_000; i++) {
+            // 1900 to 2100, with offsets either side of UTC
+            long epochMs = -2_208_988_800_000L + (long) (random.nextDouble() * 6_311_433_600_000L);
+            int offsetMs = (random.nextInt(27 * 4) - 12 * 4) * 15 * 60 * 1000;
+            String expected = Instant.ofEpochMilli(epochMs)
+                .atOffset(ZoneOffset.ofTotalSeconds(offsetMs / 1000)).format(DATE_TIME);
+            assertEquals(epochMs + " at " + offsetMs, expected, write(w -> w.putDateTime(epochMs, offsetMs)));
+        }
+        // Leap days
+        assertEquals("2024-02-29 23:59:59", write(w -> w.putDateTime(1_709_251_199_000L, 0)));
+        assertEquals("2000-02-29 00:00:00", write(w -> w.putDateTime(951_782_400_000L, 0)));
+    }
+    
+    @Test
+    public void decimalsRoundHalfAwayFromZero() throws IOException {
+        assertEquals("36.8", write(w -> w.putDecimal(36.75f, 1)));
+        assertEquals("10.0", write(w -> w.putDecimal(9.96f, 1)));
+        assertEquals("72", write(w -> w.putDecimal(71.5f, 0)));
+        assertEquals("-3.25", write(w -> w.putDecimal(-3.25f, 2)));
+        // Nothing left to be negative after rounding
+        assertEquals("0.0", write(w -> w.putDecimal(-0.04f, 1)));
+        assertEquals("", write(w -> w.putDecimal(Float.NaN, 1)));
+        assertEquals("-9223372036854775807", write(w -> w.putDecimal(-Long.MAX_VALUE)));
+        assertEquals("0", write(w -> w.putDecimal(0L)));
+    }
+    
+    @Test
+    public void csvTextIsQuotedOnlyWhenNeeded() throws IOException {
+        assertEquals("plain", write(w -> w.putCsvText("plain")));
+        assertEquals("\"a,b\"", write(w -> w.putCsvText("a,b")));
+        assertEquals("\"say \"\"hi\"\"\"", write(w -> w.putCsvText("say \"hi\"")));
+        assertEquals("体温", write(w -> w.putCsvText("体温")));
+    }
+    
+    @Test
+    public void writesLargerThanTheBufferArriveWhole() throws IOException {
+        byte[] bytes = new byte[200_000];
+        new Random(3).nextBytes(bytes);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ChannelWriter writer = new ChannelWriter(Channels.newChannel(out));
+        writer.putByte('x');
+        writer.putBytes(bytes);
+        for (int i = 0; i < 20_000; i++) {
+            writer.putLong(i);
+        }
+        assertEquals(1 + bytes.length + 20_000 * 8, writer.getBytesWritten());
+        writer.close();
+        
+        byte[] written = out.toByteArray();
+        assertEquals(1 + bytes.length + 20_000 * 8, written.length);
+        assertEquals('x', written[0]);
+        assertArrayEquals(bytes, Arrays.copyOfRange(written, 1, 1 + bytes.length));
+    }
+    
+    private static String write(Writes writes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ChannelWriter writer = new ChannelWriter(Channels.newChannel(out))) {
+            writes.to(writer);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,409 @@
+package com.example.health_check_app.export;
+
+import com.example.health_check_app.models.AlertRecord;
+import com.example.health_check_app.models.Metric;
+import com.example.health_check_app.models.SensorData;
+import com.example.health_check_app.rules.Alert;
+import com.example.health_check_app.storage.AlertStore;
+import com.example.health_check_app.storage.RetentionPolicy;
+import com.example.health_check_app.storage.StorageCompactor;
+import com.example.health_check_app.storage.VitalsStore;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TimeZone;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+public class HistoryExporterTest {
+    private static final long MINUTE_MS = 60 * 1000L;
+    private static final long HOUR_MS = 60 * MINUTE_MS;
+    // A UTC day boundary
+    private static final long START = 1_699_920_000_000L;
+    // The first hour is compacted into minute rollups, the second stays raw
+    private static final long END = START + 2 * HOUR_MS;
+    private static final Metric[] METRICS = Metric.values();
+    private static final SensorData.MotionStatus[] MOTIONS = SensorData.MotionStatus.values();
+    private static final DateTimeFormatter CSV_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    
+    private TimeZone defaultZone;
+    private VitalsStore vitalsStore;
+    private AlertStore alertStore;
+    private File exportDir;
+    private final List<SensorData> samples = new ArrayList<>();
+    private final List<AlertRecord> alerts = new ArrayList<>();
+    
+    private static class Listener implements HistoryExporter.ProgressListener {
+        final List<Integer> progress = new ArrayList<>();
+        List<File> completed;
+        boolean cancelled;
+        String error;
+        
+        @Override
+        public void onProgress(int percent) {
+            progress.add(percent);
+        }
+        
+        @Override
+        public void onComplete(List<File> files) {
+            completed = files;
+        }
+        
+        @Override
+        public void onCancelled() {
+            cancelled = true;
+        }
+        
+        @Override
+        public void onError(String error) {
+            this.error = error;
+        }
+    }
+    
+    @Before
+    public void setUp() throws IOException {
+        // The CSV encoder writes local times
+        defaultZone = TimeZone.getDefault();
+        TimeZone.setDefault(TimeZone.getTimeZone("UTC"));
+        
+        vitalsStore = new VitalsStore(folder.newFolder("vitals"), 0);
+        for (int i = 0; i < 2 * 3600; i++) {
+            SensorData data = new SensorData();
+            data.setTimestamp(START + i * 1000L);
+            data.setHeartRate(i % 10 == 0 ? 0 : 55 + (i * 7) % 60);
+            data.setBloodOxygen(90 + (i * 3) % 10);
+            data.setBodyTemperature(35.5f + (i % 23) * 0.1f);
+            data.setEnvironmentTemperature(i % 4 == 0 ? 0f : 20f + (i % 7) * 0.5f);
+            data.setHumidity(40 + i % 20);
+            data.setSteps(1_000 + i / 2);
+            data.setMotionStatus(MOTIONS[i % MOTIONS.length]);
+            data.setBatteryLevel(90 - i / 1000);
+            vitalsStore.append(data);
+            samples.add(data);
+        }
+        vitalsStore.sync();
+        new StorageCompactor(vitalsStore, () -> new RetentionPolicy(HOUR_MS, 30 * 24 * HOUR_MS))
+            .compactOnce(END);
+        
+        alertStore = new AlertStore(folder.newFile("alerts.bin"), TimeZone.getTimeZone("UTC"));
+        Alert.Type[] types = {Alert.Type.FEVER, Alert.Type.HIGH_HEART_RATE, Alert.Type.FALL};
+        Alert.Severity[] severities = Alert.Severity.values();
+        for (int i = 0; i < types.length; i++) {
+            AlertRecord alert = new AlertRecord(types[i], severities[i % severities.length],
+                i == 0 ? 38.4f : i == 1 ? 131f : 1f, START + (i + 1) * 1_800_000L + 500L);
+            alertStore.append(alert);
+            alerts.add(alert);
+        }
+        // Outside the exported range
+        alertStore.append(new AlertRecord(Alert.Type.FALL, severities[0], 1f, END + 1_000L));
+        alertStore.sync();
+        
+        exportDir = new File(folder.getRoot(), "exports");
+    }
+    
+    @After
+    public void tearDown() {
+        vitalsStore.close();
+        TimeZone.setDefault(defaultZone);
+    }
+    
+    @Test
+    public void csvRoundTripsTheStoredSamples() throws IOException {
+        Listener listener = new Listener();
+        new HistoryExporter(vitalsStore, alertStore).export(START, END, ExportFormat.CSV, exportDir, "h", listener);
+        assertNull(listener.error);
+        assertEquals(2, listener.completed.size());
+        
+        List<String> lines = readLines(listener.completed.get(0));
+        assertEquals("time,resolution,samples,heart_rate,blood_oxygen,body_temperature,"
+            + "environment_temperature,humidity,steps,motion,falls,battery", lines.get(0));
+        assertEquals(1 + 60 + 3600, lines.size());
+        for (int minute = 0; minute < 60; minute++) {
+            String[] row = lines.get(1 + minute).split(",", -1);
+            long bucket = START + minute * MINUTE_MS;
+            List<SensorData> inBucket = samples.subList(minute * 60, minute * 60 + 60);
+            assertEquals(12, row.length);
+            assertEquals(bucket, parseTime(row[0]));
+            assertEquals("1min", row[1]);
+            assertEquals("60", row[2]);
+            for (Metric metric : METRICS) {
+                // One more decimal than raw values
+                assertCsvValue(metric + " at " + bucket, expectedRollup(inBucket, metric),
+                    row[3 + metric.ordinal()], decimals(metric) + 1);
+            }
+            assertEquals("", row[9]);
+            assertEquals(String.valueOf(countFalls(inBucket)), row[10]);
+            assertEquals("", row[11]);
+        }
+        for (int i = 0; i < 3600; i++) {
+            String[] row = lines.get(61 + i).split(",", -1);
+            SensorData data = samples.get(3600 + i);
+            assertEquals(data.getTimestamp(), parseTime(row[0]));
+            assertEquals("raw", row[1]);
+            assertEquals("1", row[2]);
+            for (Metric metric : METRICS) {
+                float value = metric.valueOf(data);
+                String cell = row[3 + metric.ordinal()];
+                if (metric.isPresent(value)) {
+                    assertCsvValue(metric + " at " + i, value, cell, decimals(metric));
+                } else {
+                    assertEquals(metric + " at " + i, "", cell);
+                }
+            }
+            assertEquals(data.getMotionStatus().name(), row[9]);
+            assertEquals(data.getMotionStatus() == SensorData.MotionStatus.FALL_DETECTED ? "1" : "0", row[10]);
+            assertEquals(String.valueOf(data.getBatteryLevel()), row[11]);
+        }
+        
+        List<String> alertLines = readLines(listener.completed.get(1));
+        assertEquals("time,type,severity,value", alertLines.get(0));
+        assertEquals(1 + alerts.size(), alertLines.size());
+        for (int i = 0; i < alerts.size(); i++) {
+            AlertRecord alert = alerts.get(i);
+            String[] row = alertLines.get(1 + i).split(",", -1);
+            // Whole seconds only
+            assertEquals(alert.getTimestamp() / 1000 * 1000, parseTime(row[0]));
+            assertEquals(alert.getType().name(), row[1]);
+            assertEquals(alert.getSeverity().name(), row[2]);
+            assertEquals(alert.getValue(), Float.parseFloat(row[3]), 0.051f);
+        }
+    }
+    
+    @Test
+    public void columnarRoundTripsTheStoredSamples() throws IOException {
+        Listener listener = new Listener();
+        new HistoryExporter(vitalsStore, alertStore).export(START, END, ExportFormat.COLUMNAR, exportDir, "h",
+            listener);
+        assertNull(listener.error);
+        assertEquals(1, listener.completed.size());
+        
+        DataInputStream in = new DataInputStream(
+            new ByteArrayInputStream(Files.readAllBytes(listener.completed.get(0).toPath())));
+        assertEquals("HCVC", readAscii(in, 4));
+        assertEquals(2, in.readByte());
+        assertEquals(Metric.COUNT, in.readByte());
+        
+        int row = 0;
+        int alertsRead = 0;
+        for (int tag = in.read(); tag != 'E'; tag = in.read()) {
+            if (tag == 'A') {
+                int count = in.readInt();
+                for (int i = 0; i < count; i++) {
+                    AlertRecord alert = alerts.get(alertsRead++);
+                    assertEquals(alert.getTimestamp(), in.readLong());
+                    assertEquals(alert.getType().name(), readString(in));
+                    assertEquals(alert.getSeverity().name(), readString(in));
+                    assertEquals(alert.getValue(), in.readFloat(), 0f);
+                }
+                continue;
+            }
+            assertEquals('G', tag);
+            int tier = in.readByte();
+            int rows = in.readInt();
+            long[] timestamps = new long[rows];
+            timestamps[0] = in.readLong();
+            for (int i = 1; i < rows; i++) {
+                timestamps[i] = timestamps[i - 1] + readVarLong(in);
+            }
+            float[][] values = new float[Metric.COUNT][rows];
+            for (int m = 0; m < Metric.COUNT; m++) {
+                for (int i = 0; i < rows; i++) {
+                    values[m][i] = in.readFloat();
+                }
+            }
+            long[] sampleCounts = new long[rows];
+            for (int i = 0; i < rows; i++) {
+                sampleCounts[i] = readVarLong(in);
+            }
+            byte[] motion = new byte[rows];
+            in.readFully(motion);
+            byte[] battery = new byte[rows];
+            in.readFully(battery);
+            
+            for (int i = 0; i < rows; i++, row++) {
+                if (row < 60) {
+                    assertEquals("minute rows come first", 1, tier);
+                    List<SensorData> inBucket = samples.subList(row * 60, row * 60 + 60);
+                    assertEquals(START + row * MINUTE_MS, timestamps[i]);
+                    assertEquals(60, sampleCounts[i]);
+                    for (Metric metric : METRICS) {
+                        assertEquals(metric + " at " + row, expectedRollup(inBucket, metric),
+                            values[metric.ordinal()][i], 1e-3f);
+                    }
+                    assertEquals(countFalls(inBucket), motion[i]);
+                    assertEquals(0, battery[i]);
+                } else {
+                    assertEquals(0, tier);
+                    SensorData data = samples.get(3600 + row - 60);
+                    assertEquals(data.getTimestamp(), timestamps[i]);
+                    assertEquals(1, sampleCounts[i]);
+                    for (Metric metric : METRICS) {
+                        float value = metric.valueOf(data);
+                        float expected = metric.isPresent(value) ? value : Float.NaN;
+                        assertEquals(metric + " at " + row, expected, values[metric.ordinal()][i], 0f);
+                    }
+                    assertEquals(data.getMotionStatus().ordinal(), motion[i]);
+                    assertEquals(data.getBatteryLevel(), battery[i]);
+                }
+            }
+        }
+        assertEquals(60 + 3600, row);
+        assertEquals(alerts.size(), alertsRead);
+        assertEquals(-1, in.read());
+    }
+    
+    @Test
+    public void cancellingDeletesThePartialFiles() throws IOException {
+        for (ExportFormat format : ExportFormat.values()) {
+            HistoryExporter exporter = new HistoryExporter(vitalsStore, alertStore);
+            List<File> seen = new ArrayList<>();
+            Listener listener = new Listener() {
+                @Override
+                public void onProgress(int percent) {
+                    super.onProgress(percent);
+                    if (percent >= 50 && seen.isEmpty()) {
+                        for (File file : exportDir.listFiles()) {
+                            seen.add(file);
+                        }
+                        exporter.cancel();
+                    }
+                }
+            };
+            exporter.export(START, END, format, exportDir, "h", listener);
+            
+            assertTrue(format + " cancelled", listener.cancelled);
+            assertNull(listener.completed);
+            assertFalse(format + " had started writing", seen.isEmpty());
+            for (File file : seen) {
+                assertFalse(file + " left behind", file.exists());
+            }
+            assertTrue(listener.progress.get(listener.progress.size() - 1) < 100);
+        }
+    }
+    
+    @Test
+    public void progressClimbsTo100() throws IOException {
+        for (ExportFormat format : ExportFormat.values()) {
+            Listener listener = new Listener();
+            new HistoryExporter(vitalsStore, alertStore).export(START, END, format, exportDir, format.name(),
+                listener);
+            assertNotNull(format + " completed", listener.completed);
+            List<Integer> progress = listener.progress;
+            assertTrue(format + " reports along the way", progress.size() > 10);
+            for (int i = 1; i < progress.size(); i++) {
+                assertTrue(format + " went back at " + i, progress.get(i) > progress.get(i - 1));
+            }
+            assertEquals(100, (int) progress.get(progress.size() - 1));
+        }
+    }
+    
+    @Test
+    public void emptyRangeStillCompletes() throws IOException {
+        Listener listener = new Listener();
+        new HistoryExporter(vitalsStore, alertStore).export(END + HOUR_MS, END + 2 * HOUR_MS, ExportFormat.CSV,
+            exportDir, "empty", listener);
+        assertEquals(1, readLines(listener.completed.get(0)).size());
+        assertEquals(1, readLines(listener.completed.get(1)).size());
+        assertEquals(100, (int) listener.progress.get(listener.progress.size() - 1));
+    }
+    
+    // Mean of the present readings, or the last one for a counter; NaN when there are none
+    private static float expectedRollup(List<SensorData> samples, Metric metric) {
+        double sum = 0;
+        int count = 0;
+        float last = Float.NaN;
+        for (SensorData data : samples) {
+            float value = metric.valueOf(data);
+            if (metric.isPresent(value)) {
+                sum += value;
+                count++;
+                last = value;
+            }
+        }
+        if (count == 0) {
+            return Float.NaN;
+        }
+        return metric.isCumulative() ? last : (float) (sum / count);
+    }
+    
+    private static int countFalls(List<SensorData> samples) {
+        int falls = 0;
+        for (SensorData data : samples) {
+            if (data.getMotionStatus() == SensorData.MotionStatus.FALL_DETECTED) {
+                falls++;
+            }
+        }
+        return falls;
+    }
+    
+    private static int decimals(Metric metric) {
+        return metric == Metric.BODY_TEMPERATURE || metric == Metric.ENVIRONMENT_TEMPERATURE ? 1 : 0;
+    }
+    
+    private static void assertCsvValue(String where, float expected, String cell, int decimals) {
+        if (Float.isNaN(expected)) {
+            assertEquals(where, "", cell);
+            return;
+        }
+        int dot = cell.indexOf('.');
+        assertEquals(where + ": " + cell, decimals, dot < 0 ? 0 : cell.length() - dot - 1);
+        assertEquals(where, expected, Double.parseDouble(cell), 0.5 * Math.pow(10, -decimals) + 1e-4);
+    }
+    
+    private static long parseTime(String cell) {
+        return LocalDateTime.parse(cell, CSV_TIME).toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+    
+    private static List<String> readLines(File file) throws IOException {
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        assertEquals((byte) 0xEF, bytes[0]);
+        assertEquals((byte) 0xBB, bytes[1]);
+        assertEquals((byte) 0xBF, bytes[2]);
+        String text = new String(bytes, 3, bytes.length - 3, StandardCharsets.UTF_8);
+        assertTrue(text.endsWith("\n"));
+        List<String> lines = new ArrayList<>();
+        for (String line : text.substring(0, text.length() - 1).split("\n", -1)) {
+            lines.add(line);
+        }
+        return lines;
+    }
+    
+    private static String readAscii(DataInputStream in, int length) throws IOException {
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+    
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[(int) readVarLong(in)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+    
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+    }
+}
\ No newline at end of file
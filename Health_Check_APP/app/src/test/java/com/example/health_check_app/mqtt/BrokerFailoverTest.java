@@ -0,0 +1,376 @@
+package com.example.health_check_app.mqtt;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class BrokerFailoverTest {
+    private final List<BrokerStandIn> brokers = new ArrayList<>();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    
+    @After
+    public void tearDown() throws IOException {
+        scheduler.shutdownNow();
+        for (BrokerStandIn broker : brokers) {
+            broker.close();
+        }
+    }
+    
+    private BrokerStandIn broker(long delayMs) throws IOException {
+        BrokerStandIn broker = new BrokerStandIn();
+        broker.delayMs = delayMs;
+        brokers.add(broker);
+        return broker;
+    }
+    
+    private static BrokerEndpoint endpoint(BrokerSelector selector, BrokerStandIn broker) {
+        for (BrokerEndpoint endpoint : selector.getEndpoints()) {
+            if (endpoint.getUri().equals(broker.getUri())) {
+                return endpoint;
+            }
+        }
+        throw new AssertionError("No endpoint for " + broker.getUri());
+    }
+    
+    @Test
+    public void picksFastestHealthyBroker() throws IOException {
+        BrokerStandIn slow = broker(200);
+        BrokerStandIn fast = broker(0);
+        BrokerStandIn down = broker(0);
+        down.close();
+        BrokerSelector selector = new BrokerSelector(
+            Arrays.asList(slow.getUri(), down.getUri(), fast.getUri()), new BrokerProber(1000));
+        
+        selector.probeAll();
+        
+        assertSame(endpoint(selector, fast), selector.pickBest(null));
+        assertFalse(endpoint(selector, down).isHealthy());
+        assertTrue(endpoint(selector, slow).getRoundTripMs() >= 200);
+        // Excluding the best falls back to the next healthy one, never the dead one
+        assertSame(endpoint(selector, slow), selector.pickBest(endpoint(selector, fast)));
+    }
+    
+    @Test
+    public void degradedBrokerLosesPreference() throws IOException {
+        BrokerStandIn a = broker(150);
+        BrokerStandIn b = broker(0);
+        BrokerSelector selector = new BrokerSelector(Arrays.asList(a.getUri(), b.getUri()),
+            new BrokerProber(2000));
+        selector.probeAll();
+        assertSame(endpoint(selector, b), selector.pickBest(null));
+        
+        b.delayMs = 300;
+        a.delayMs = 0;
+        for (int i = 0; i < 3; i++) {
+            selector.probeAll();
+        }
+        
+        assertSame(endpoint(selector, a), selector.pickBest(null));
+    }
+    
+    @Test
+    public void unresponsiveBrokerTimesOut() throws IOException {
+        BrokerStandIn blackHole = broker(0);
+        blackHole.blackHole = true;
+        BrokerEndpoint endpoint = new BrokerEndpoint(blackHole.getUri());
+        
+        long started = System.nanoTime();
+        assertFalse(new BrokerProber(300).probe(endpoint));
+        long elapsedMs = (System.nanoTime() - started) / 1_000_000;
+        
+        assertFalse(endpoint.isHealthy());
+        assertTrue("took " + elapsedMs + " ms", elapsedMs < 1500);
+    }
+    
+    @Test
+    public void failsOverWhenConnectedBrokerDies() throws Exception {
+        BrokerStandIn primary = broker(0);
+        BrokerStandIn secondary = broker(50);
+        BrokerStandIn tertiary = broker(250);
+        BrokerSelector selector = new BrokerSelector(
+            Arrays.asList(tertiary.getUri(), secondary.getUri(), primary.getUri()), new BrokerProber(1000));
+        selector.probeAll();
+        BlockingQueue<BrokerEndpoint> connected = new LinkedBlockingQueue<>();
+        BrokerFailover failover = newFailover(selector, connected, new ArrayList<>());
+        
+        failover.start();
+        assertSame(endpoint(selector, primary), connected.poll(2, TimeUnit.SECONDS));
+        
+        long killed = System.nanoTime();
+        primary.close();
+        assertSame(endpoint(selector, secondary), connected.poll(2, TimeUnit.SECONDS));
+        long failoverMs = (System.nanoTime() - killed) / 1_000_000;
+        
+        // First retry waits at most the backoff base, plus the secondary's connect time
+        assertTrue("failover took " + failoverMs + " ms", failoverMs < 1000);
+        assertFalse(endpoint(selector, primary).isHealthy());
+        failover.stop();
+    }
+    
+    @Test
+    public void leavesABrokerItsProbeFindsDownWhileTheSessionIsOpen() throws Exception {
+        BrokerStandIn primary = broker(0);
+        BrokerStandIn secondary = broker(50);
+        BrokerSelector selector = new BrokerSelector(
+            Arrays.asList(primary.getUri(), secondary.getUri()), new BrokerProber(300));
+        selector.probeAll();
+        BlockingQueue<BrokerEndpoint> connected = new LinkedBlockingQueue<>();
+        List<Long> delays = new ArrayList<>();
+        BrokerFailover failover = newFailover(selector, connected, delays);
+        failover.start();
+        assertSame(endpoint(selector, primary), connected.poll(2, TimeUnit.SECONDS));
+        
+        // New connections hang, but the established session stays up
+        primary.blackHole = true;
+        selector.probeAll();
+        
+        assertSame(endpoint(selector, secondary), connected.poll(2, TimeUnit.SECONDS));
+        assertEquals(1, delays.size());
+        assertEquals(1, secondary.getConnectionCount());
+        // The session to the primary was closed, leaving only the hanging probe
+        long deadline = System.currentTimeMillis() + 2000;
+        while (primary.getConnectionCount() > 1 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(primary.getConnectionCount() <= 1);
+        failover.stop();
+    }
+    
+    @Test
+    public void keepsAnOpenSessionWhenNoOtherBrokerIsHealthy() throws Exception {
+        BrokerStandIn only = broker(0);
+        BrokerSelector selector = new BrokerSelector(Arrays.asList(only.getUri()), new BrokerProber(300));
+        selector.probeAll();
+        BlockingQueue<BrokerEndpoint> connected = new LinkedBlockingQueue<>();
+        BrokerFailover failover = newFailover(selector, connected, new ArrayList<>());
+        failover.start();
+        assertNotNull(connected.poll(2, TimeUnit.SECONDS));
+        
+        only.blackHole = true;
+        selector.probeAll();
+        
+        assertFalse(endpoint(selector, only).isHealthy());
+        assertSame(endpoint(selector, only), failover.getCurrent());
+        assertNull(connected.poll(300, TimeUnit.MILLISECONDS));
+        failover.stop();
+    }
+    
+    @Test
+    public void movesToABrokerThatBecameMuchFaster() throws Exception {
+        BrokerStandIn a = broker(0);
+        BrokerStandIn b = broker(100);
+        BrokerSelector selector = new BrokerSelector(Arrays.asList(a.getUri(), b.getUri()),
+            new BrokerProber(2000));
+        selector.probeAll();
+        BlockingQueue<BrokerEndpoint> connected = new LinkedBlockingQueue<>();
+        List<Long> delays = new ArrayList<>();
+        BrokerFailover failover = newFailover(selector, connected, delays);
+        failover.start();
+        assertSame(endpoint(selector, a), connected.poll(2, TimeUnit.SECONDS));
+        
+        // Slightly slower is not enough to move
+        a.delayMs = 30;
+        selector.probeAll();
+        assertSame(endpoint(selector, a), failover.getCurrent());
+        
+        a.delayMs = 400;
+        b.delayMs = 0;
+        for (int i = 0; i < 5 && failover.getCurrent() == endpoint(selector, a); i++) {
+            selector.probeAll();
+        }
+        
+        assertSame(endpoint(selector, b), connected.poll(2, TimeUnit.SECONDS));
+        // A planned move is not a failure
+        assertTrue(endpoint(selector, a).isHealthy());
+        assertTrue(delays.isEmpty());
+        failover.stop();
+    }
+    
+    @Test
+    public void retriesWithGrowingJitteredBackoffUntilABrokerReturns() throws Exception {
+        BrokerStandIn only = broker(0);
+        int port = only.getPort();
+        only.close();
+        BrokerSelector selector = new BrokerSelector(Arrays.asList(only.getUri()), new BrokerProber(500));
+        BlockingQueue<BrokerEndpoint> connected = new LinkedBlockingQueue<>();
+        List<Long> delays = new ArrayList<>();
+        BrokerFailover failover = newFailover(selector, connected, delays);
+        
+        failover.start();
+        Thread.sleep(700);
+        synchronized (delays) {
+            assertTrue(delays.size() >= 3);
+            for (int i = 0; i < delays.size(); i++) {
+                long ceiling = Math.min(400, 50L << i);
+                assertTrue("retry " + i + " waited " + delays.get(i),
+                    delays.get(i) >= ceiling / 2 && delays.get(i) <= ceiling);
+            }
+        }
+        
+        BrokerStandIn revived = new BrokerStandIn(port);
+        brokers.add(revived);
+        assertNotNull(connected.poll(2, TimeUnit.SECONDS));
+        failover.stop();
+    }
+    
+    @Test
+    public void stopIsNotHeldUpByAConnectorThatBlocks() throws Exception {
+        BrokerSelector selector = new BrokerSelector(Arrays.asList("tcp://127.0.0.1:1"), new BrokerProber(100));
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger disconnects = new AtomicInteger();
+        BrokerFailover failover = new BrokerFailover(selector, new BrokerFailover.Connector() {
+            @Override
+            public void connect(BrokerEndpoint endpoint, BrokerFailover.ConnectCallback callback) {
+                // Connects synchronously, on the scheduler thread
+                entered.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                callback.onConnected();
+            }
+            
+            @Override
+            public void disconnect() {
+                disconnects.incrementAndGet();
+            }
+        }, new Backoff(50, 400, new Random(7)), scheduler);
+        BlockingQueue<BrokerEndpoint> connected = new LinkedBlockingQueue<>();
+        failover.setListener(new BrokerFailover.Listener() {
+            @Override
+            public void onConnected(BrokerEndpoint endpoint) {
+                connected.add(endpoint);
+            }
+            
+            @Override
+            public void onRetryScheduled(BrokerEndpoint failed, int attempt, long delayMs) {
+            }
+        });
+        
+        failover.start();
+        assertTrue(entered.await(2, TimeUnit.SECONDS));
+        Thread stopper = new Thread(failover::stop);
+        stopper.start();
+        stopper.join(1000);
+        assertFalse("stop() waited for the connector", stopper.isAlive());
+        assertEquals(1, disconnects.get());
+        
+        // The abandoned attempt connects after all: it is torn down, not reported
+        release.countDown();
+        assertNull(connected.poll(300, TimeUnit.MILLISECONDS));
+        assertEquals(2, disconnects.get());
+        assertNull(failover.getCurrent());
+    }
+    
+    @Test
+    public void backoffStaysWithinJitterBounds() {
+        Backoff backoff = new Backoff(100, 5000, new Random(42));
+        for (int attempt = 0; attempt < 20; attempt++) {
+            long ceiling = Math.min(5000, 100L << Math.min(attempt, 40));
+            long delay = backoff.nextDelayMs();
+            assertTrue(delay >= ceiling / 2 && delay <= ceiling);
+        }
+        backoff.reset();
+        assertTrue(backoff.nextDelayMs() <= 100);
+    }
+    
+    // A failover whose connector performs the MQTT handshake itself and reports the
+    // connection lost when the socket closes, as Paho would
+    private BrokerFailover newFailover(BrokerSelector selector, BlockingQueue<BrokerEndpoint> connected,
+                                       List<Long> delays) {
+        SocketConnector connector = new SocketConnector();
+        BrokerFailover failover = new BrokerFailover(selector, connector,
+            new Backoff(50, 400, new Random(7)), scheduler);
+        connector.failover = failover;
+        failover.setListener(new BrokerFailover.Listener() {
+            @Override
+            public void onConnected(BrokerEndpoint endpoint) {
+                connected.add(endpoint);
+            }
+            
+            @Override
+            public void onRetryScheduled(BrokerEndpoint failed, int attempt, long delayMs) {
+                synchronized (delays) {
+                    delays.add(delayMs);
+                }
+            }
+        });
+        return failover;
+    }
+    
+    private static class SocketConnector implements BrokerFailover.Connector {
+        BrokerFailover failover;
+        private volatile Socket socket;
+        
+        @Override
+        public void connect(BrokerEndpoint endpoint, BrokerFailover.ConnectCallback callback) {
+            Thread thread = new Thread(() -> {
+                Socket s = new Socket();
+                try {
+                    s.connect(new InetSocketAddress(endpoint.getHost(), endpoint.getPort()), 500);
+                    s.setSoTimeout(500);
+                    s.getOutputStream().write(BrokerProber.connectPacket("test"));
+                    InputStream in = s.getInputStream();
+                    if (in.read() != 0x20) {
+                        throw new IOException("No CONNACK");
+                    }
+                    in.skip(3);
+                    s.setSoTimeout(0);
+                } catch (IOException e) {
+                    closeQuietly(s);
+                    callback.onFailed(e);
+                    return;
+                }
+                socket = s;
+                callback.onConnected();
+                try {
+                    while (s.getInputStream().read() >= 0) {
+                        // Wait for the broker to go away
+                    }
+                } catch (IOException e) {
+                    // Fall through
+                }
+                if (socket == s) {
+                    failover.onConnectionLost();
+                }
+            });
+            thread.setDaemon(true);
+            thread.start();
+        }
+        
+        @Override
+        public void disconnect() {
+            Socket s = socket;
+            socket = null;
+            if (s != null) {
+                closeQuietly(s);
+            }
+        }
+        
+        private static void closeQuietly(Socket s) {
+            try {
+                s.close();
+            } catch (IOException e) {
+                // Ignored
+            }
+        }
+    }
+}
\ No newline at end of file
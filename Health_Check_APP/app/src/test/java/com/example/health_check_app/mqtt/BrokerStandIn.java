@@ -0,0 +1,106 @@
+package com.example.health_check_app.mqtt;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// Minimal local MQTT broker stand-in: answers every CONNECT with a CONNACK, optionally after
+// a delay or never (black hole), and keeps the connection open until it is closed. Serves
+// plain TCP unless given a TLS server socket.
+class BrokerStandIn implements Closeable {
+    private final ServerSocket server;
+    private final List<Socket> clients = new CopyOnWriteArrayList<>();
+    volatile long delayMs;
+    volatile boolean blackHole;
+    
+    BrokerStandIn() throws IOException {
+        this(0);
+    }
+    
+    BrokerStandIn(int port) throws IOException {
+        this(new ServerSocket(), port);
+    }
+    
+    // Takes an unbound server socket and binds it to the loopback address
+    BrokerStandIn(ServerSocket server, int port) throws IOException {
+        this.server = server;
+        server.setReuseAddress(true);
+        server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        Thread acceptor = new Thread(this::acceptLoop, "broker-stand-in");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+    
+    int getPort() {
+        return server.getLocalPort();
+    }
+    
+    String getUri() {
+        return "tcp://127.0.0.1:" + getPort();
+    }
+    
+    int getConnectionCount() {
+        return clients.size();
+    }
+    
+    private void acceptLoop() {
+        while (!server.isClosed()) {
+            try {
+                Socket socket = server.accept();
+                clients.add(socket);
+                Thread handler = new Thread(() -> serve(socket), "broker-stand-in-client");
+                handler.setDaemon(true);
+                handler.start();
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+    
+    private void serve(Socket socket) {
+        try (Socket s = socket) {
+            InputStream in = s.getInputStream();
+            OutputStream out = s.getOutputStream();
+            if (in.read() != 0x10) {
+                return;
+            }
+            int remaining = in.read();
+            for (int i = 0; i < remaining; i++) {
+                in.read();
+            }
+            if (blackHole) {
+                while (in.read() >= 0) {
+                    // Swallow everything, answer nothing
+                }
+                return;
+            }
+            if (delayMs > 0) {
+                Thread.sleep(delayMs);
+            }
+            out.write(new byte[] {0x20, 2, 0, 0});
+            out.flush();
+            while (in.read() >= 0) {
+                // Hold the connection until the client or close() ends it
+            }
+        } catch (IOException | InterruptedException e) {
+            // Connection closed
+        } finally {
+            clients.remove(socket);
+        }
+    }
+    
+    @Override
+    public void close() throws IOException {
+        server.close();
+        for (Socket client : clients) {
+            client.close();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,138 @@
+package com.example.health_check_app.mqtt;
+
+import com.example.health_check_app.timer.TimerService;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CommandRpcTest {
+    private final TimerService timers = TimerService.getInstance();
+    
+    private static Throwable failure(CommandRpc.Call call) throws Exception {
+        try {
+            call.getFuture().get(2, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            return e.getCause();
+        }
+        throw new AssertionError("Call " + call.getId() + " completed normally");
+    }
+    
+    @Test
+    public void repliesCompleteTheirOwnCallsInAnyOrder() throws Exception {
+        CommandRpc rpc = new CommandRpc(timers);
+        List<Long> roundTrips = new ArrayList<>();
+        rpc.setRoundTripListener(roundTrips::add);
+        CommandRpc.Call[] calls = new CommandRpc.Call[5];
+        for (int i = 0; i < calls.length; i++) {
+            calls[i] = rpc.begin("CMD_" + i, 10_000);
+        }
+        assertEquals(calls.length, rpc.getInFlightCount());
+        
+        int[] order = {3, 0, 4, 2, 1};
+        for (int i : order) {
+            assertTrue(rpc.complete(calls[i].getId(), i % 2 == 0 ? "ok" : "error", "reply " + i));
+        }
+        
+        for (int i = 0; i < calls.length; i++) {
+            CommandResult result = calls[i].getFuture().get(1, TimeUnit.SECONDS);
+            assertEquals(calls[i].getId(), result.getId());
+            assertEquals("CMD_" + i, result.getCommand());
+            assertEquals("reply " + i, result.getMessage());
+            assertEquals(i % 2 == 0, result.isOk());
+        }
+        assertEquals(calls.length, roundTrips.size());
+        assertEquals(0, rpc.getInFlightCount());
+        // A second reply or an id nobody sent is not matched
+        assertFalse(rpc.complete(calls[0].getId(), "ok", ""));
+        assertFalse(rpc.complete("unknown-1", "ok", ""));
+    }
+    
+    @Test
+    public void unansweredCommandTimesOut() throws Exception {
+        CommandRpc rpc = new CommandRpc(timers);
+        CommandRpc.Call slow = rpc.begin("SLOW", 150);
+        CommandRpc.Call answered = rpc.begin("FAST", 150);
+        assertTrue(rpc.complete(answered.getId(), "ok", ""));
+        
+        long start = System.nanoTime();
+        assertTrue(failure(slow) instanceof TimeoutException);
+        long waitedMs = (System.nanoTime() - start) / 1_000_000;
+        assertTrue("timed out after " + waitedMs + " ms", waitedMs < 150 + 2 * TimerService.TICK_MS + 500);
+        
+        assertTrue(answered.getFuture().get().isOk());
+        assertEquals(0, rpc.getInFlightCount());
+        // The reply arriving after the deadline is ignored
+        assertFalse(rpc.complete(slow.getId(), "ok", ""));
+    }
+    
+    @Test
+    public void replyCancelsItsTimer() {
+        CommandRpc rpc = new CommandRpc(timers);
+        int before = timers.getPendingCount();
+        CommandRpc.Call call = rpc.begin("PING", 60_000);
+        assertEquals(before + 1, timers.getPendingCount());
+        
+        assertTrue(rpc.complete(call.getId(), "ok", ""));
+        
+        assertEquals(before, timers.getPendingCount());
+    }
+    
+    @Test
+    public void refusesCommandsBeyondMaxInFlight() throws Exception {
+        CommandRpc rpc = new CommandRpc(timers);
+        CommandRpc.Call[] calls = new CommandRpc.Call[CommandRpc.MAX_IN_FLIGHT];
+        for (int i = 0; i < calls.length; i++) {
+            calls[i] = rpc.begin("CMD", 60_000);
+            assertNotNull(calls[i]);
+        }
+        
+        assertNull(rpc.begin("CMD", 60_000));
+        assertEquals(CommandRpc.MAX_IN_FLIGHT, rpc.getInFlightCount());
+        
+        // A failed publish frees a slot just as a reply does
+        rpc.fail(calls[0].getId(), new IllegalStateException("publish failed"));
+        assertNotNull(rpc.begin("CMD", 60_000));
+        assertNull(rpc.begin("CMD", 60_000));
+        assertTrue(rpc.complete(calls[1].getId(), "ok", ""));
+        assertNotNull(rpc.begin("CMD", 60_000));
+        rpc.failAll(new IllegalStateException("done"));
+    }
+    
+    @Test
+    public void failAllCompletesEveryPendingCall() throws Exception {
+        CommandRpc rpc = new CommandRpc(timers);
+        int before = timers.getPendingCount();
+        CommandRpc.Call[] calls = new CommandRpc.Call[4];
+        for (int i = 0; i < calls.length; i++) {
+            calls[i] = rpc.begin("CMD_" + i, 60_000);
+        }
+        IllegalStateException disconnected = new IllegalStateException("Disconnected");
+        
+        rpc.failAll(disconnected);
+        
+        for (CommandRpc.Call call : calls) {
+            assertSame(disconnected, failure(call));
+            assertFalse(rpc.complete(call.getId(), "ok", ""));
+        }
+        assertEquals(0, rpc.getInFlightCount());
+        assertEquals(before, timers.getPendingCount());
+    }
+    
+    @Test
+    public void closeFailsPendingCallsAndRefusesNewOnes() throws Exception {
+        CommandRpc rpc = new CommandRpc(timers);
+        int before = timers.getPendingCount();
+        CommandRpc.Call call = rpc.begin("CMD", 60_000);
+        
+        rpc.close();
+        
+        assertTrue(failure(call) instanceof IllegalStateException);
+        assertNull(rpc.begin("CMD", 60_000));
+        assertEquals(before, timers.getPendingCount());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,198 @@
+package com.example.health_check_app.mqtt;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SequenceWindowTest {
+    private final List<Long> delivered = new ArrayList<>();
+    private final SequenceStats stats = new SequenceStats();
+    private final SequenceWindow<Long> window = new SequenceWindow<>(delivered::add, stats);
+    
+    @Test
+    public void dropsRedeliveriesInsideTheWindow() {
+        offerAll(0, 1, 2, 1, 3, 2, 0);
+        
+        assertEquals(Arrays.asList(0L, 1L, 2L, 3L), delivered);
+        assertEquals(3, stats.getDuplicates());
+    }
+    
+    @Test
+    public void holdsReorderedMessagesUntilTheGapFills() {
+        offerAll(0, 2, 3, 1);
+        
+        assertEquals(Arrays.asList(0L, 1L, 2L, 3L), delivered);
+        assertEquals(2, stats.getReordered());
+    }
+    
+    @Test
+    public void releasesHeldMessagesOnceTheHoldTimeRunsOut() {
+        offerAll(0, 2);
+        assertEquals(SequenceWindow.MAX_HOLD_MS, window.expire(0));
+        assertEquals(Arrays.asList(0L), delivered);
+        
+        assertEquals(-1, window.expire(SequenceWindow.MAX_HOLD_MS));
+        assertEquals(Arrays.asList(0L, 2L), delivered);
+        assertEquals(1, stats.getSkipped());
+        
+        // The gap turns up after all: delivered late rather than dropped
+        window.offer(1, 1L, SequenceWindow.MAX_HOLD_MS);
+        assertEquals(Arrays.asList(0L, 2L, 1L), delivered);
+        assertEquals(1, stats.getLate());
+    }
+    
+    @Test
+    public void dropsStaleRedeliveryFromBelowTheWindowWithoutRestarting() {
+        offerRange(0, 200);
+        window.offer(10, 10L, 0);
+        window.offer(200, 200L, 0);
+        window.offer(201, 201L, 0);
+        
+        assertEquals(202, delivered.size());
+        assertEquals(Long.valueOf(201), delivered.get(delivered.size() - 1));
+        assertEquals(0, stats.getResets());
+        assertEquals(1, stats.getStale());
+        
+        // The window still knows what it has seen
+        window.offer(199, 199L, 0);
+        assertEquals(202, delivered.size());
+        assertEquals(1, stats.getDuplicates());
+    }
+    
+    @Test
+    public void dropsStaleBurstShorterThanAResetRun() {
+        offerRange(0, 200);
+        offerRange(50, 50 + SequenceWindow.RESET_RUN - 1);
+        offerRange(200, 210);
+        
+        assertEquals(210, delivered.size());
+        for (int i = 0; i < delivered.size(); i++) {
+            assertEquals(Long.valueOf(i), delivered.get(i));
+        }
+        assertEquals(0, stats.getResets());
+        assertEquals(SequenceWindow.RESET_RUN - 1, stats.getStale());
+    }
+    
+    @Test
+    public void restartsOnARunFromAResetCounterAndKeepsItsFirstMessages() {
+        offerRange(1000, 1200);
+        delivered.clear();
+        offerRange(0, 20);
+        
+        List<Long> expected = new ArrayList<>();
+        for (long seq = 0; seq < 20; seq++) {
+            expected.add(seq);
+        }
+        assertEquals(expected, delivered);
+        assertEquals(1, stats.getResets());
+        assertEquals(0, stats.getStale());
+        assertEquals(0, stats.getDuplicates());
+    }
+    
+    @Test
+    public void restartsWhenACounterStillInsideTheWindowJumpsBackToItsStart() {
+        offerRange(0, 40);
+        delivered.clear();
+        offerRange(0, 10);
+        
+        List<Long> expected = new ArrayList<>();
+        for (long seq = 0; seq < 10; seq++) {
+            expected.add(seq);
+        }
+        assertEquals(expected, delivered);
+        assertEquals(1, stats.getResets());
+        assertEquals(0, stats.getDuplicates());
+    }
+    
+    @Test
+    public void earlyRedeliveryIsNotTakenForARestart() {
+        offerRange(0, 40);
+        offerAll(38, 39, 2, 40, 41);
+        
+        assertEquals(42, delivered.size());
+        assertEquals(Long.valueOf(41), delivered.get(41));
+        assertEquals(0, stats.getResets());
+        assertEquals(2, stats.getDuplicates());
+        assertEquals(1, stats.getStale());
+    }
+    
+    @Test
+    public void newEpochRestartsAtWhateverNumberItStartsFrom() {
+        for (long seq = 0; seq < 30; seq++) {
+            window.offer(1, seq, seq, 0);
+        }
+        // Held behind the gap at 30 when the device reboots
+        window.offer(1, 31, 31L, 0);
+        delivered.clear();
+        for (long seq = 5; seq < 8; seq++) {
+            window.offer(2, seq, seq, 0);
+        }
+        
+        assertEquals(Arrays.asList(31L, 5L, 6L, 7L), delivered);
+        assertEquals(1, stats.getResets());
+        assertEquals(1, stats.getSkipped());
+        assertEquals(0, stats.getDuplicates());
+    }
+    
+    @Test
+    public void incompleteRunFromACounterStartIsDeliveredAfterTheHoldTime() {
+        offerRange(0, 40);
+        delivered.clear();
+        window.offer(0, 0L, 1_000);
+        window.offer(1, 1L, 2_000);
+        assertTrue(delivered.isEmpty());
+        
+        long deadline = 1_000 + SequenceWindow.RESET_RUN_HOLD_MS;
+        assertEquals(deadline, window.expire(deadline - 1));
+        assertTrue(delivered.isEmpty());
+        assertEquals(-1, window.expire(deadline));
+        assertEquals(Arrays.asList(0L, 1L), delivered);
+        assertEquals(1, stats.getResets());
+        
+        window.offer(2, 2L, deadline);
+        assertEquals(Arrays.asList(0L, 1L, 2L), delivered);
+    }
+    
+    @Test
+    public void incompleteRunFromBelowTheWindowIsDroppedAfterTheHoldTime() {
+        offerRange(0, 200);
+        window.offer(50, 50L, 0);
+        window.offer(51, 51L, 0);
+        
+        assertEquals(SequenceWindow.RESET_RUN_HOLD_MS, window.expire(0));
+        assertEquals(-1, window.expire(SequenceWindow.RESET_RUN_HOLD_MS));
+        assertEquals(200, delivered.size());
+        assertEquals(0, stats.getResets());
+        assertEquals(2, stats.getStale());
+        
+        // The window carries on where it was
+        window.offer(200, 200L, SequenceWindow.RESET_RUN_HOLD_MS);
+        assertEquals(201, delivered.size());
+    }
+    
+    @Test
+    public void slidesUpToAMessageFarAhead() {
+        offerAll(0, 1, 2);
+        window.offer(2 + SequenceWindow.WINDOW * 3, 0L, 0);
+        window.offer(3 + SequenceWindow.WINDOW * 3, 0L, 0);
+        
+        assertEquals(5, delivered.size());
+        assertEquals(0, stats.getResets());
+        assertEquals(SequenceWindow.WINDOW * 3 - 1, stats.getSkipped());
+    }
+    
+    private void offerAll(long... seqs) {
+        for (long seq : seqs) {
+            window.offer(seq, seq, 0);
+        }
+    }
+    
+    private void offerRange(long from, long to) {
+        for (long seq = from; seq < to; seq++) {
+            window.offer(seq, seq, 0);
+        }
+    }
+}
\ No newline at end of file
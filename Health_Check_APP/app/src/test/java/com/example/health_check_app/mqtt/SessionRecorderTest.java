@@ -0,0 +1,78 @@
+package com.example.health_check_app.mqtt;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+public class SessionRecorderTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+    
+    @Test
+    public void readsBackWhatWasRecorded() throws IOException {
+        File file = new File(folder.getRoot(), "recordings/session.hcsr");
+        SessionRecorder recorder = new SessionRecorder(file, 1_000);
+        recorder.record("sensor/data", bytes("{\"seq\":1}"), 1_000);
+        recorder.record("device/status", bytes("{\"battery\":80}"), 1_250);
+        recorder.record("sensor/data", bytes("{\"seq\":2}"), 300_000);
+        // Clock went backwards: kept in order rather than stored as a negative delta
+        recorder.record("sensor/data", new byte[0], 299_000);
+        recorder.close();
+        
+        try (SessionReader reader = new SessionReader(file)) {
+            assertEquals(1_000, reader.getStartTime());
+            assertTrue(reader.next());
+            assertEquals(1_000, reader.getArrivalTime());
+            assertEquals("sensor/data", reader.getTopic());
+            assertArrayEquals(bytes("{\"seq\":1}"), reader.getPayload());
+            assertTrue(reader.next());
+            assertEquals(1_250, reader.getArrivalTime());
+            assertEquals("device/status", reader.getTopic());
+            assertArrayEquals(bytes("{\"battery\":80}"), reader.getPayload());
+            assertTrue(reader.next());
+            assertEquals(300_000, reader.getArrivalTime());
+            assertEquals("sensor/data", reader.getTopic());
+            assertTrue(reader.next());
+            assertEquals(300_000, reader.getArrivalTime());
+            assertEquals(0, reader.getPayload().length);
+            assertFalse(reader.next());
+        }
+    }
+    
+    @Test
+    public void recordingCutShortEndsAtLastWholeMessage() throws IOException {
+        File file = folder.newFile("torn.hcsr");
+        SessionRecorder recorder = new SessionRecorder(file, 0);
+        recorder.record("sensor/data", bytes("{\"seq\":1}"), 10);
+        recorder.record("sensor/data", bytes("{\"seq\":2}"), 20);
+        recorder.close();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() - 3);
+        }
+        
+        try (SessionReader reader = new SessionReader(file)) {
+            assertTrue(reader.next());
+            assertArrayEquals(bytes("{\"seq\":1}"), reader.getPayload());
+            assertFalse(reader.next());
+        }
+    }
+    
+    @Test(expected = IOException.class)
+    public void rejectsOtherFiles() throws IOException {
+        File file = folder.newFile("other.bin");
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.writeBytes("not a recording");
+        }
+        new SessionReader(file).close();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,37 @@
+package com.example.health_check_app.mqtt;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.Locale;
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+// Replay throughput of a recording given as -Dreplay.recording=<file>, or of a synthetic hour.
+// Timing depends on the machine, so it is skipped unless asked for:
+//   ./gradlew :app:testDebugUnitTest -Pbenchmarks --tests '*SessionReplayBenchmark'
+// What a replay delivers is checked by SessionReplayTest on every run.
+public class SessionReplayBenchmark {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    
+    @Test
+    public void replayThroughput() throws Exception {
+        Assume.assumeTrue("benchmarks not requested", Boolean.getBoolean("benchmarks"));
+        String path = System.getProperty("replay.recording");
+        File recording = path != null ? new File(path)
+            : SessionReplayTest.syntheticRecording(folder.newFile("synthetic.hcsr"), 3_600);
+        MqttManager manager = new MqttManager(null, Collections.singletonList("tcp://127.0.0.1:1883"));
+        
+        SessionReplayer.Result result = new SessionReplayer(recording).replay(manager, 0);
+        
+        String summary = String.format(Locale.US, "Replayed %d messages (%d bytes) in %.1f ms: %.0f msg/s",
+            result.messages, result.payloadBytes, result.elapsedNanos / 1e6, result.getMessagesPerSecond());
+        assertTrue(summary, result.messages > 0);
+        // Far below what a laptop manages; catches an accidental sleep or O(n^2) path
+        assertTrue(summary, result.getMessagesPerSecond() > 2_000);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,154 @@
+package com.example.health_check_app.mqtt;
+
+import com.example.health_check_app.models.SensorData;
+import com.example.health_check_app.rules.Alert;
+import com.example.health_check_app.rules.RuleEngine;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+// Alert regression tests driven by recorded sessions. Each replay goes through the same
+// parsing, de-duplication and reordering as live traffic, then through the rule engine.
+public class SessionReplayTest {
+    private static final long START = 1_700_000_000_000L;
+    
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    
+    private static class AlertCollector implements MqttManager.MqttDataListener {
+        final RuleEngine rules = new RuleEngine();
+        final List<String> alerts = new ArrayList<>();
+        final List<Long> sampleTimes = new ArrayList<>();
+        
+        @Override
+        public void onSensorDataReceived(SensorData data) {
+            sampleTimes.add(data.getTimestamp());
+            for (Alert alert : rules.evaluate(data)) {
+                alerts.add(alert.toString());
+            }
+        }
+        
+        @Override
+        public void onBatteryLevelReceived(int level) {
+        }
+    }
+    
+    private static String sample(long seq, int heartRate, float temperature, String motion) {
+        return "{\"deviceId\":\"wrist-1\",\"seq\":" + seq + ",\"heartRate\":" + heartRate
+            + ",\"bodyTemperature\":" + temperature + ",\"motionStatus\":\"" + motion + "\"}";
+    }
+    
+    private static void record(SessionRecorder recorder, long offset, String topic, String payload) {
+        recorder.record(topic, payload.getBytes(StandardCharsets.UTF_8), START + offset);
+    }
+    
+    // A fall, a fever and tachycardia, delivered with a redelivery, a swap and a lost message
+    private File incidentRecording() throws IOException {
+        File file = folder.newFile("incident.hcsr");
+        SessionRecorder recorder = new SessionRecorder(file, START);
+        record(recorder, 0, "sensor/data", sample(1, 72, 36.6f, "WALKING"));
+        record(recorder, 1_000, "device/status", "{\"battery\":64}");
+        record(recorder, 1_000, "sensor/data", sample(2, 75, 36.6f, "WALKING"));
+        record(recorder, 2_000, "sensor/data", sample(2, 75, 36.6f, "WALKING"));
+        record(recorder, 3_000, "sensor/data", sample(4, 88, 38.2f, "SEDENTARY"));
+        record(recorder, 3_100, "sensor/data", sample(3, 131, 36.9f, "WALKING"));
+        record(recorder, 4_000, "sensor/data", sample(5, 90, 37.0f, "FALL"));
+        record(recorder, 5_000, "sensor/data", sample(7, 142, 37.1f, "SEDENTARY"));
+        recorder.close();
+        return file;
+    }
+    
+    private static AlertCollector replay(File recording, double speed) throws Exception {
+        MqttManager manager = new MqttManager(null, Collections.singletonList("tcp://127.0.0.1:1883"));
+        AlertCollector collector = new AlertCollector();
+        manager.setDataListener(collector);
+        SessionReplayer.Result result = new SessionReplayer(recording).replay(manager, speed);
+        assertEquals(8, result.messages);
+        assertEquals(1, manager.getSequenceStats().getDuplicates());
+        return collector;
+    }
+    
+    @Test
+    public void incidentRaisesExpectedAlerts() throws Exception {
+        AlertCollector collector = replay(incidentRecording(), 0);
+        
+        assertEquals(Arrays.asList(
+            "HIGH_HEART_RATE@" + (START + 3_100) + "=131.0!",
+            "FEVER@" + (START + 3_000) + "=38.2",
+            "FALL@" + (START + 4_000) + "=1.0!",
+            // seq 6 never arrives; seq 7 is released once its hold time runs out
+            "HIGH_HEART_RATE@" + (START + 5_000) + "=142.0!"),
+            collector.alerts);
+        assertEquals(6, collector.sampleTimes.size());
+    }
+    
+    @Test
+    public void replayIsIdenticalAtAnySpeed() throws Exception {
+        File recording = incidentRecording();
+        
+        AlertCollector fastest = replay(recording, 0);
+        AlertCollector paced = replay(recording, SessionReplayer.MAX_SPEED);
+        
+        assertEquals(fastest.alerts, paced.alerts);
+        assertEquals(fastest.sampleTimes, paced.sampleTimes);
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsSpeedAboveMaximum() throws Exception {
+        new SessionReplayer(incidentRecording()).replay(
+            new MqttManager(null, Collections.singletonList("tcp://127.0.0.1:1883")),
+            SessionReplayer.MAX_SPEED * 2);
+    }
+    
+    @Test
+    public void syntheticHourDeliversEverySampleOnce() throws Exception {
+        File recording = syntheticRecording(folder.newFile("synthetic.hcsr"), 3_600);
+        MqttManager manager = new MqttManager(null, Collections.singletonList("tcp://127.0.0.1:1883"));
+        AlertCollector collector = new AlertCollector();
+        manager.setDataListener(collector);
+        
+        SessionReplayer.Result result = new SessionReplayer(recording).replay(manager, 0);
+        
+        long duplicates = manager.getSequenceStats().getDuplicates();
+        assertTrue(duplicates > 0);
+        assertTrue(manager.getSequenceStats().getReordered() > 0);
+        assertEquals(3_600 + duplicates, result.messages);
+        assertEquals(3_600, collector.sampleTimes.size());
+    }
+    
+    // A synthetic stretch of one-second samples with occasional redeliveries and swaps
+    static File syntheticRecording(File file, int seconds) throws IOException {
+        Random random = new Random(42);
+        SessionRecorder recorder = new SessionRecorder(file, START);
+        for (int i = 1; i <= seconds; i++) {
+            long offset = i * 1_000L;
+            String payload = sample(i, 60 + random.nextInt(80), 36f + random.nextInt(30) / 10f,
+                random.nextInt(500) == 0 ? "FALL" : "WALKING");
+            int roll = random.nextInt(100);
+            if (roll == 0 && i < seconds) {
+                // Swap with the next sample
+                String next = sample(i + 1, 70, 36.5f, "WALKING");
+                record(recorder, offset, "sensor/data", next);
+                record(recorder, offset + 10, "sensor/data", payload);
+                i++;
+                continue;
+            }
+            record(recorder, offset, "sensor/data", payload);
+            if (roll == 1) {
+                record(recorder, offset + 5, "sensor/data", payload);
+            }
+        }
+        recorder.close();
+        return file;
+    }
+}
\ No newline at end of file
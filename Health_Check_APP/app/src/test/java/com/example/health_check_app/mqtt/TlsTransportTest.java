@@ -0,0 +1,232 @@
+package com.example.health_check_app.mqtt;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.security.KeyStore;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSocket;
+import org.eclipse.paho.client.mqttv3.MqttAsyncClient;
+import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
+import org.eclipse.paho.client.mqttv3.MqttException;
+import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+// TLS connects against a local broker stand-in whose certificate, for "localhost" only, is
+// signed by a self-signed test CA (src/test/resources/tls). Paho is driven the same way
+// MqttManager drives it: an IP-literal URI from the DNS cache plus the transport's factory.
+public class TlsTransportTest {
+    private static final char[] PASSWORD = "changeit".toCharArray();
+    
+    private BrokerStandIn broker;
+    private final AtomicInteger lookups = new AtomicInteger();
+    private TlsTransport transport;
+    
+    @Before
+    public void setUp() throws Exception {
+        KeyStore keys = KeyStore.getInstance("PKCS12");
+        try (InputStream in = getClass().getResourceAsStream("/tls/broker.p12")) {
+            keys.load(in, PASSWORD);
+        }
+        KeyManagerFactory keyManagers = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        keyManagers.init(keys, PASSWORD);
+        SSLContext serverContext = SSLContext.getInstance("TLS");
+        serverContext.init(keyManagers.getKeyManagers(), null, null);
+        broker = new BrokerStandIn(serverContext.getServerSocketFactory().createServerSocket(), 0);
+        
+        transport = new TlsTransport(trustedCa(), new DnsCache(host -> {
+            lookups.incrementAndGet();
+            return InetAddress.getByName(host);
+        }, DnsCache.DEFAULT_TTL_MS));
+        transport.warmUp();
+    }
+    
+    @After
+    public void tearDown() throws IOException {
+        broker.close();
+    }
+    
+    private KeyStore trustedCa() throws Exception {
+        try (InputStream in = getClass().getResourceAsStream("/tls/ca.pem")) {
+            return TlsTransport.loadCertificates(in);
+        }
+    }
+    
+    private BrokerEndpoint endpoint(String host) {
+        return new BrokerEndpoint("ssl://" + host + ":" + broker.getPort());
+    }
+    
+    private static void connectAndDisconnect(TlsTransport transport, BrokerEndpoint endpoint)
+        throws IOException, MqttException {
+        MqttAsyncClient client = new MqttAsyncClient(transport.connectUri(endpoint),
+            "tls-test-" + System.nanoTime(), new MemoryPersistence());
+        MqttConnectOptions options = new MqttConnectOptions();
+        options.setSocketFactory(transport.socketFactory(endpoint));
+        options.setCleanSession(true);
+        options.setConnectionTimeout(5);
+        // The default would retry a failed connect as MQTT 3.1 and handshake twice
+        options.setMqttVersion(MqttConnectOptions.MQTT_VERSION_3_1_1);
+        try {
+            client.connect(options).waitForCompletion(5000);
+            assertTrue(client.isConnected());
+            client.disconnect().waitForCompletion(5000);
+        } finally {
+            client.close();
+        }
+    }
+    
+    // Handshakes over the protocol on a socket from the factory Paho is given. TLS 1.3 sends
+    // its session ticket after the handshake, so the socket is read briefly to take it, as
+    // Paho does when it waits for CONNACK.
+    private SSLSession handshake(BrokerEndpoint endpoint, String protocol) throws IOException {
+        try (SSLSocket socket = (SSLSocket) transport.socketFactory(endpoint).createSocket()) {
+            socket.setEnabledProtocols(new String[] {protocol});
+            socket.connect(transport.resolve(endpoint), 5000);
+            socket.startHandshake();
+            socket.setSoTimeout(300);
+            try {
+                socket.getInputStream().read();
+            } catch (SocketTimeoutException expected) {
+                // The stand-in waits for CONNECT
+            }
+            return socket.getSession();
+        }
+    }
+    
+    @Test
+    public void reconnectsResumeTheFirstSession() throws Exception {
+        BrokerEndpoint endpoint = endpoint("localhost");
+        
+        for (int i = 0; i < 4; i++) {
+            connectAndDisconnect(transport, endpoint);
+        }
+        
+        TlsStats stats = transport.getStats();
+        assertEquals(1, stats.getFullHandshakes());
+        assertEquals(3, stats.getResumedHandshakes());
+        assertEquals(0, stats.getFailures());
+        assertTrue(stats.isLastResumed());
+        assertTrue(stats.getAverageConnectMs(true) >= 0);
+    }
+    
+    @Test
+    public void resumedTls12HandshakeReusesTheSessionId() throws Exception {
+        BrokerEndpoint endpoint = endpoint("localhost");
+        
+        SSLSession first = handshake(endpoint, "TLSv1.2");
+        SSLSession second = handshake(endpoint, "TLSv1.2");
+        
+        assertTrue(first.getId().length > 0);
+        assertArrayEquals(first.getId(), second.getId());
+        assertEquals(1, transport.getStats().getFullHandshakes());
+        assertEquals(1, transport.getStats().getResumedHandshakes());
+    }
+    
+    @Test
+    public void resumedTls13HandshakeContinuesTheFirstSession() throws Exception {
+        BrokerEndpoint endpoint = endpoint("localhost");
+        
+        SSLSession first = handshake(endpoint, "TLSv1.3");
+        SSLSession second = handshake(endpoint, "TLSv1.3");
+        
+        // TLS 1.3 gives every handshake a new ID; a resumed one keeps the original creation time
+        assertEquals("TLSv1.3", second.getProtocol());
+        assertEquals(first.getCreationTime(), second.getCreationTime());
+        assertEquals(1, transport.getStats().getFullHandshakes());
+        assertEquals(1, transport.getStats().getResumedHandshakes());
+        assertTrue(transport.getStats().isLastResumed());
+    }
+    
+    @Test
+    public void pahoIsGivenTheCachedAddressAndResolvesNothing() throws Exception {
+        BrokerEndpoint endpoint = endpoint("localhost");
+        
+        String uri = transport.connectUri(endpoint);
+        connectAndDisconnect(transport, endpoint);
+        connectAndDisconnect(transport, endpoint);
+        
+        assertTrue(uri, uri.matches("ssl://(127\\.0\\.0\\.1|\\[[0-9a-f:]+\\]):" + broker.getPort()));
+        assertEquals(1, lookups.get());
+        assertEquals(1, transport.getDnsCache().getMisses());
+        assertEquals(2, transport.getDnsCache().getHits());
+    }
+    
+    @Test
+    public void probeWarmsTheSessionCacheForTheConnection() throws Exception {
+        BrokerEndpoint endpoint = endpoint("localhost");
+        
+        assertTrue(new BrokerProber(2000, transport).probe(endpoint));
+        connectAndDisconnect(transport, endpoint);
+        
+        assertEquals(1, transport.getStats().getFullHandshakes());
+        assertEquals(1, transport.getStats().getResumedHandshakes());
+    }
+    
+    @Test
+    public void rejectsBrokerSignedByUnknownCa() throws Exception {
+        TlsTransport systemTrust = new TlsTransport(new DnsCache());
+        
+        try {
+            connectAndDisconnect(systemTrust, endpoint("localhost"));
+            fail("Connected to a broker the system CAs do not vouch for");
+        } catch (MqttException expected) {
+            // Handshake failed
+        }
+        assertEquals(1, systemTrust.getStats().getFailures());
+        assertEquals(0, systemTrust.getStats().getFullHandshakes());
+    }
+    
+    @Test
+    public void checksCertificateAgainstHostNameNotAddress() throws Exception {
+        // The certificate only names localhost, so the same broker reached by IP must fail
+        assertFalse(new BrokerProber(2000, transport).probe(endpoint("127.0.0.1")));
+        try {
+            connectAndDisconnect(transport, endpoint("127.0.0.1"));
+            fail("Accepted a certificate that does not name the host");
+        } catch (MqttException expected) {
+            // Host name check failed
+        }
+        assertEquals(2, transport.getStats().getFailures());
+    }
+    
+    @Test
+    public void dnsEntriesExpireAndServeStaleWhenResolverFails() throws Exception {
+        InetAddress address = InetAddress.getByName("10.0.0.7");
+        AtomicInteger calls = new AtomicInteger();
+        boolean[] resolverUp = {true};
+        DnsCache cache = new DnsCache(host -> {
+            calls.incrementAndGet();
+            if (!resolverUp[0]) {
+                throw new UnknownHostException(host);
+            }
+            return address;
+        }, 1000);
+        
+        assertSame(address, cache.lookup("broker", 0));
+        assertSame(address, cache.lookup("broker", 999));
+        assertEquals(1, calls.get());
+        assertSame(address, cache.lookup("broker", 1000));
+        assertEquals(2, calls.get());
+        
+        resolverUp[0] = false;
+        assertSame(address, cache.lookup("broker", 5000));
+        assertEquals(1, cache.getStaleHits());
+        
+        cache.invalidate("broker");
+        try {
+            cache.lookup("broker", 5000);
+            fail("Served an invalidated entry");
+        } catch (UnknownHostException expected) {
+            // Nothing left to fall back on
+        }
+    }
+}
\ No newline at end of file
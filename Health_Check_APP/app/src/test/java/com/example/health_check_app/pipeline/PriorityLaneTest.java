@@ -0,0 +1,128 @@
+package com.example.health_check_app.pipeline;
+
+import com.example.health_check_app.models.SensorData;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.io.File;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+public class PriorityLaneTest {
+    private static final int CAPACITY = 16;
+    private static final int SAMPLES = 10_000;
+    
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    
+    private final List<SensorData> received = new ArrayList<>();
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    
+    @Test
+    public void stalledConsumerCostsDiskNotMemory() throws Exception {
+        PriorityLane lane = newLane();
+        for (int i = 0; i < SAMPLES; i++) {
+            lane.offer(SpillingLaneTest.sample(i));
+        }
+        assertTrue(started.await(2, TimeUnit.SECONDS));
+        
+        long deadline = System.currentTimeMillis() + 5000;
+        while (lane.depth() > CAPACITY && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue("still holding " + lane.depth(), lane.depth() <= CAPACITY);
+        
+        release.countDown();
+        awaitReceived(SAMPLES);
+        synchronized (received) {
+            for (int i = 0; i < SAMPLES; i++) {
+                assertEquals("sample " + i, i, received.get(i).getTimestamp());
+            }
+        }
+        lane.close();
+    }
+    
+    @Test
+    public void fallJumpsABacklogEvenWhenSpilled() throws Exception {
+        PriorityLane lane = newLane();
+        for (int i = 0; i < SAMPLES; i++) {
+            lane.offer(SpillingLaneTest.sample(i));
+        }
+        assertTrue(started.await(2, TimeUnit.SECONDS));
+        SensorData fall = SpillingLaneTest.sample(SAMPLES);
+        fall.setMotionStatus(SensorData.MotionStatus.FALL_DETECTED);
+        lane.offer(fall);
+        
+        release.countDown();
+        awaitReceived(SAMPLES + 1);
+        synchronized (received) {
+            // The consumer was busy with the first sample when the fall came
+            assertEquals(0, received.get(0).getTimestamp());
+            assertSame(fall, received.get(1));
+            for (int i = 2; i <= SAMPLES; i++) {
+                assertEquals("sample " + i, i - 1, received.get(i).getTimestamp());
+            }
+        }
+        assertTrue(lane.toString(), lane.toString().contains("1 urgent"));
+        lane.close();
+    }
+    
+    @Test
+    public void backlogOfAnEarlierRunIsDiscarded() throws Exception {
+        File directory = folder.newFolder("alerts");
+        SpillJournal earlier = new SpillJournal(directory, false);
+        for (int i = 0; i < 100; i++) {
+            earlier.append(SpillingLaneTest.sample(i));
+        }
+        earlier.release();
+        
+        PriorityLane lane = new PriorityLane("alerts", CAPACITY, new SpillJournal(directory, false),
+            data -> false, data -> {
+                synchronized (received) {
+                    received.add(data);
+                    received.notifyAll();
+                }
+            });
+        lane.offer(SpillingLaneTest.sample(1000));
+        awaitReceived(1);
+        lane.close();
+        
+        synchronized (received) {
+            assertEquals(1, received.size());
+            assertEquals(1000, received.get(0).getTimestamp());
+        }
+        assertEquals(0, directory.list().length);
+    }
+    
+    // A lane whose consumer stalls on the first sample until released
+    private PriorityLane newLane() throws Exception {
+        return new PriorityLane("alerts", CAPACITY, new SpillJournal(folder.newFolder("spill")),
+            data -> data.getMotionStatus() == SensorData.MotionStatus.FALL_DETECTED,
+            data -> {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                synchronized (received) {
+                    received.add(data);
+                    received.notifyAll();
+                }
+            });
+    }
+    
+    private void awaitReceived(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        synchronized (received) {
+            while (received.size() < count && System.currentTimeMillis() < deadline) {
+                received.wait(100);
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,155 @@
+package com.example.health_check_app.pipeline;
+
+import com.example.health_check_app.models.SensorData;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+public class SpillingLaneTest {
+    private static final int CAPACITY = 16;
+    private static final int SAMPLES = 3 * SpillJournal.SEGMENT_RECORDS + 123;
+    
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    
+    private final List<Long> received = new ArrayList<>();
+    
+    @Test
+    public void keepsArrivalOrderAcrossSpillAndDrain() throws Exception {
+        SpillingLane lane = new SpillingLane("storage", CAPACITY, new SpillJournal(folder.newFolder("spill")),
+            this::receive);
+        // Asleep, as with the screen off, so nearly everything spills
+        lane.setAutoDrain(false);
+        for (int i = 0; i < SAMPLES / 2; i++) {
+            lane.offer(sample(i));
+        }
+        lane.requestDrain();
+        // More arrive while the backlog is read back
+        for (int i = SAMPLES / 2; i < SAMPLES; i++) {
+            lane.offer(sample(i));
+        }
+        lane.setAutoDrain(true);
+        lane.requestDrain();
+        
+        awaitReceived(SAMPLES);
+        assertInOrder(SAMPLES);
+        assertTrue(lane.toString(), lane.toString().contains(" read back"));
+        assertFalse("nothing spilled: " + lane, lane.toString().contains(", 0 spilled"));
+        lane.close();
+    }
+    
+    @Test
+    public void offerNeverWaitsForTheJournal() throws Exception {
+        SpillJournal journal = new SpillJournal(folder.newFolder("spill"));
+        SpillingLane lane = new SpillingLane("storage", CAPACITY, journal, this::receive);
+        lane.setAutoDrain(false);
+        Thread offering = new Thread(() -> {
+            for (int i = 0; i < SAMPLES; i++) {
+                lane.offer(sample(i));
+            }
+        });
+        // With the journal held, a spill in offer() would block the offering thread
+        synchronized (journal) {
+            offering.start();
+            offering.join(5000);
+            assertFalse("offer waited for the journal", offering.isAlive());
+            assertEquals(SAMPLES, lane.depth());
+        }
+        
+        // Once the spill thread gets the journal, memory drops back to the queue's capacity
+        long deadline = System.currentTimeMillis() + 5000;
+        while (lane.depth() > CAPACITY && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue("still holding " + lane.depth(), lane.depth() <= CAPACITY);
+        
+        lane.requestDrain();
+        awaitReceived(SAMPLES);
+        assertInOrder(SAMPLES);
+        lane.close();
+    }
+    
+    @Test
+    public void closeHandsOnEverythingHeld() throws IOException, InterruptedException {
+        File directory = folder.newFolder("spill");
+        SpillingLane lane = new SpillingLane("storage", CAPACITY, new SpillJournal(directory), this::receive);
+        lane.setAutoDrain(false);
+        for (int i = 0; i < SAMPLES; i++) {
+            lane.offer(sample(i));
+        }
+        lane.close();
+        
+        awaitReceived(SAMPLES);
+        assertInOrder(SAMPLES);
+        // Every spill file is removed once read back
+        long deadline = System.currentTimeMillis() + 5000;
+        while (directory.list().length > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, directory.list().length);
+    }
+    
+    @Test
+    public void releasedFilesGoToTheNextJournalInTheSameProcess() throws IOException {
+        File directory = folder.newFolder("spill");
+        SpillJournal first = new SpillJournal(directory);
+        int count = SpillJournal.SEGMENT_RECORDS + 5;
+        for (int i = 0; i < count; i++) {
+            first.append(sample(i));
+        }
+        
+        // Still owned by the first journal, which may be draining them
+        assertTrue(new SpillJournal(directory).isEmpty());
+        
+        first.release();
+        SpillJournal next = new SpillJournal(directory);
+        File file;
+        while ((file = next.next()) != null) {
+            receive(SpillJournal.read(file));
+            next.remove(file);
+        }
+        assertInOrder(count);
+        assertEquals(0, directory.list().length);
+    }
+    
+    static SensorData sample(long timestamp) {
+        SensorData data = new SensorData();
+        data.setTimestamp(timestamp);
+        data.setHeartRate(60 + (int) (timestamp % 40));
+        data.setMotionStatus(SensorData.MotionStatus.WALKING);
+        return data;
+    }
+    
+    private void receive(List<SensorData> samples) {
+        synchronized (received) {
+            for (SensorData data : samples) {
+                received.add(data.getTimestamp());
+            }
+            received.notifyAll();
+        }
+    }
+    
+    private void awaitReceived(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        synchronized (received) {
+            while (received.size() < count && System.currentTimeMillis() < deadline) {
+                received.wait(100);
+            }
+        }
+    }
+    
+    private void assertInOrder(int count) {
+        synchronized (received) {
+            assertEquals(count, received.size());
+            for (int i = 0; i < count; i++) {
+                assertEquals("sample " + i, Long.valueOf(i), received.get(i));
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,127 @@
+package com.example.health_check_app.rules;
+
+import com.example.health_check_app.models.Metric;
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import java.util.TimeZone;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+public class BaselineModelTest {
+    private static final long DAY_MS = 24 * 60 * 60 * 1000L;
+    private static final int PER_DAY = 3600;
+    
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    
+    private final Random random = new Random(43);
+    private final BaselineModel model = new BaselineModel(TimeZone.getTimeZone("UTC"));
+    // Samples so far, all at one a second in the hour after midnight
+    private long samples;
+    
+    @Test
+    public void learnsAStepChangeAfterAboutAWeek() {
+        feed(60, 14 * PER_DAY);
+        assertEquals(60, model.getMean(Metric.HEART_RATE, 0), 0.2);
+        
+        // The resting rate moves up for good, ten deviations away
+        int alarmed = 0;
+        long shiftStarted = samples;
+        long quietFrom = -1;
+        while (samples - shiftStarted < 10 * PER_DAY) {
+            Alert.Severity severity = next(80);
+            if (severity != null) {
+                alarmed++;
+                quietFrom = -1;
+            } else if (quietFrom < 0) {
+                quietFrom = samples - shiftStarted;
+            }
+        }
+        
+        assertTrue("never alarmed", alarmed > PER_DAY);
+        assertTrue("still alarming", quietFrom >= 0);
+        assertEquals(BaselineModel.RELEARN_WEIGHT, quietFrom, PER_DAY);
+        assertEquals(80, model.getMean(Metric.HEART_RATE, 0), 0.2);
+        // And the old level is now the unusual one
+        assertNull(feed(60, BaselineModel.SUSTAINED_SAMPLES - 1));
+        assertNotNull(next(60));
+    }
+    
+    @Test
+    public void episodeOfAFewDaysIsNotLearned() {
+        feed(60, 14 * PER_DAY);
+        for (int i = 0; i < 3 * PER_DAY; i++) {
+            next(80);
+        }
+        assertEquals(60, model.getMean(Metric.HEART_RATE, 0), 0.2);
+        
+        // Back to normal for as long, which clears the tally, then a second episode alarms
+        // from the start again
+        feed(60, 3 * PER_DAY);
+        assertNull(feed(80, BaselineModel.SUSTAINED_SAMPLES - 1));
+        assertNotNull(next(80));
+        assertEquals(60, model.getMean(Metric.HEART_RATE, 0), 0.2);
+    }
+    
+    @Test
+    public void mixOfOrdinaryAndUnusualReadingsIsNotLearned() {
+        feed(60, 14 * PER_DAY);
+        for (int i = 0; i < 30 * PER_DAY; i++) {
+            next(i % 2 == 0 ? 80 : 60);
+        }
+        assertEquals(60, model.getMean(Metric.HEART_RATE, 0), 0.2);
+    }
+    
+    @Test
+    public void tallyOfUnusualReadingsSurvivesARestart() throws IOException {
+        feed(60, 14 * PER_DAY);
+        for (int i = 0; i < 5 * PER_DAY; i++) {
+            next(80);
+        }
+        File file = folder.newFile("baseline.bin");
+        model.save(file);
+        BaselineModel reloaded = new BaselineModel(TimeZone.getTimeZone("UTC"));
+        assertTrue(reloaded.load(file));
+        
+        // The week completes on the reloaded model
+        Alert.Severity severity = null;
+        for (int i = 0; i < 3 * PER_DAY; i++) {
+            severity = reloaded.observe(Metric.HEART_RATE, 80 + gaussian(), timestamp(samples++));
+        }
+        assertNull("not relearned after the restart", severity);
+        assertEquals(80, reloaded.getMean(Metric.HEART_RATE, 0), 0.2);
+    }
+    
+    @Test
+    public void hourFollowsDaylightSavingTime() {
+        BaselineModel newYork = new BaselineModel(TimeZone.getTimeZone("America/New_York"));
+        // 12:00 local on 2024-03-09 (UTC-5) and on 2024-03-11 (UTC-4)
+        assertEquals(12, newYork.hourOf(1_710_003_600_000L));
+        assertEquals(12, newYork.hourOf(1_710_172_800_000L));
+    }
+    
+    // Feeds readings around the mean and returns the severity of the last one
+    private Alert.Severity feed(double mean, int count) {
+        Alert.Severity severity = null;
+        for (int i = 0; i < count; i++) {
+            severity = next(mean);
+        }
+        return severity;
+    }
+    
+    private Alert.Severity next(double mean) {
+        return model.observe(Metric.HEART_RATE, (float) (mean + gaussian()), timestamp(samples++));
+    }
+    
+    private float gaussian() {
+        return (float) (random.nextGaussian() * 2);
+    }
+    
+    private static long timestamp(long sample) {
+        return sample / PER_DAY * DAY_MS + sample % PER_DAY * 1000;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,165 @@
+package com.example.health_check_app.state;
+
+import com.example.health_check_app.models.SensorData;
+import com.example.health_check_app.models.VitalsSnapshot;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class VitalsStateTest {
+    private static final int WRITERS = 4;
+    private static final int PER_WRITER = 10_000;
+    
+    // Runs queued deliveries only when the test says so
+    private static final class ManualExecutor implements Executor {
+        final Queue<Runnable> tasks = new ArrayDeque<>();
+        
+        @Override
+        public void execute(Runnable task) {
+            tasks.add(task);
+        }
+        
+        void runAll() {
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                task.run();
+            }
+        }
+    }
+    
+    @Test
+    public void concurrentPublishersLoseNoUpdates() throws InterruptedException {
+        VitalsState state = new VitalsState();
+        CountDownLatch go = new CountDownLatch(1);
+        Thread[] threads = new Thread[WRITERS];
+        for (int w = 0; w < WRITERS; w++) {
+            int writer = w;
+            threads[w] = new Thread(() -> {
+                try {
+                    go.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < PER_WRITER; i++) {
+                    if (writer == 0 && i % 10 == 0) {
+                        state.publishBatteryLevel(1 + i % 100);
+                    } else {
+                        state.publishSample(sample(60 + writer, i + 1));
+                    }
+                }
+            });
+            threads[w].start();
+        }
+        go.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(WRITERS * PER_WRITER, state.get().getVersion());
+    }
+    
+    @Test
+    public void batteryLevelCarriesOverSamplesWithoutOne() {
+        VitalsState state = new VitalsState();
+        assertSame(VitalsSnapshot.EMPTY, state.get());
+        state.publishBatteryLevel(80);
+        VitalsSnapshot snapshot = state.publishSample(sample(72, 1));
+        assertSame(snapshot, state.get());
+        assertEquals(72, snapshot.getHeartRate());
+        assertEquals(80, snapshot.getBatteryLevel());
+        assertEquals(2, snapshot.getVersion());
+    }
+    
+    @Test
+    public void queuedNotificationsAreConflatedPerSubscriber() {
+        VitalsState state = new VitalsState();
+        ManualExecutor eager = new ManualExecutor();
+        ManualExecutor slow = new ManualExecutor();
+        List<Long> eagerSeen = new ArrayList<>();
+        List<Long> slowSeen = new ArrayList<>();
+        VitalsState.Subscription eagerSubscription = state.subscribe(eager, s -> eagerSeen.add(s.getVersion()));
+        VitalsState.Subscription slowSubscription = state.subscribe(slow, s -> slowSeen.add(s.getVersion()));
+        eager.runAll();
+        slow.runAll();
+        
+        for (int i = 1; i <= 5; i++) {
+            state.publishSample(sample(70, i));
+            eager.runAll();
+        }
+        // However many publishes, one delivery is queued
+        assertEquals(1, slow.tasks.size());
+        slow.runAll();
+        
+        assertEquals(Arrays.asList(0L, 1L, 2L, 3L, 4L, 5L), eagerSeen);
+        assertEquals(Arrays.asList(0L, 5L), slowSeen);
+        assertEquals(0, eagerSubscription.getConflatedCount());
+        assertEquals(4, slowSubscription.getConflatedCount());
+        
+        // Nothing new, nothing delivered
+        slow.runAll();
+        assertEquals(2, slowSeen.size());
+    }
+    
+    @Test
+    public void cancelledSubscriptionsAreNotCalled() {
+        VitalsState state = new VitalsState();
+        ManualExecutor executor = new ManualExecutor();
+        List<Long> seen = new ArrayList<>();
+        VitalsState.Subscription subscription = state.subscribe(executor, s -> seen.add(s.getVersion()));
+        executor.runAll();
+        state.publishSample(sample(70, 1));
+        // Cancelled with a delivery already queued
+        subscription.cancel();
+        executor.runAll();
+        state.publishSample(sample(70, 2));
+        assertTrue(executor.tasks.isEmpty());
+        assertEquals(Collections.singletonList(0L), seen);
+    }
+    
+    @Test
+    public void subscriberKeepsUpWithConcurrentPublishers() throws InterruptedException {
+        VitalsState state = new VitalsState();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        List<Long> seen = new ArrayList<>();
+        VitalsState.Subscription subscription = state.subscribe(executor, s -> seen.add(s.getVersion()));
+        Thread[] threads = new Thread[WRITERS];
+        for (int w = 0; w < WRITERS; w++) {
+            threads[w] = new Thread(() -> {
+                for (int i = 0; i < PER_WRITER; i++) {
+                    state.publishSample(sample(70, i + 1));
+                }
+            });
+            threads[w].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        
+        // Versions only ever move forward and the last one is always delivered
+        for (int i = 1; i < seen.size(); i++) {
+            assertTrue(seen.get(i) > seen.get(i - 1));
+        }
+        long last = WRITERS * PER_WRITER;
+        assertEquals(last, (long) seen.get(seen.size() - 1));
+        assertEquals(last + 1, seen.size() + subscription.getConflatedCount());
+    }
+    
+    private static SensorData sample(int heartRate, long timestamp) {
+        SensorData data = new SensorData();
+        data.setHeartRate(heartRate);
+        data.setTimestamp(timestamp);
+        return data;
+    }
+}
\ No newline at end of file
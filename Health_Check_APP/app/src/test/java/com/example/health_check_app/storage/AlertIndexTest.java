@@ -0,0 +1,130 @@
+package com.example.health_check_app.storage;
+
+import com.example.health_check_app.models.AlertRecord;
+import com.example.health_check_app.rules.Alert;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TimeZone;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class AlertIndexTest {
+    private static final long HOUR_MS = 60 * 60 * 1000L;
+    private static final long DAY_MS = 24 * HOUR_MS;
+    // 2024-03-01 00:00 UTC; the records run past both 2024 changeovers in New York
+    private static final long START = 1_709_251_200_000L;
+    private static final TimeZone ZONE = TimeZone.getTimeZone("America/New_York");
+    private static final Alert.Type[] TYPES = Alert.Type.values();
+    private static final Alert.Severity[] SEVERITIES = Alert.Severity.values();
+    
+    private static final class Stored {
+        final long timestamp;
+        final Alert.Type type;
+        final Alert.Severity severity;
+        final float value;
+        
+        Stored(long timestamp, Alert.Type type, Alert.Severity severity, float value) {
+            this.timestamp = timestamp;
+            this.type = type;
+            this.severity = severity;
+            this.value = value;
+        }
+    }
+    
+    @Test
+    public void matchesLinearScanForRandomQueries() {
+        Random random = new Random(37);
+        AlertIndex index = new AlertIndex(ZONE);
+        List<Stored> log = new ArrayList<>();
+        long timestamp = START;
+        for (int i = 0; i < 5000; i++) {
+            timestamp += random.nextInt((int) (2 * HOUR_MS));
+            // Now and then a late sample, logged after newer ones
+            long at = random.nextInt(20) == 0 ? timestamp - random.nextInt((int) DAY_MS) : timestamp;
+            Stored stored = new Stored(at, TYPES[random.nextInt(TYPES.length)],
+                SEVERITIES[random.nextInt(SEVERITIES.length)], 35 + random.nextInt(1500) / 10f);
+            log.add(stored);
+            index.add(stored.timestamp, stored.type, stored.severity, stored.value);
+        }
+        long end = timestamp;
+        
+        for (int q = 0; q < 2000; q++) {
+            AlertQuery query = new AlertQuery();
+            if (random.nextInt(4) > 0) {
+                long from = START - DAY_MS + (long) (random.nextDouble() * (end - START + 2 * DAY_MS));
+                long to = from + (long) (random.nextDouble() * 60 * DAY_MS);
+                query.between(from, to);
+            }
+            if (random.nextBoolean()) {
+                Set<Alert.Type> types = EnumSet.noneOf(Alert.Type.class);
+                for (Alert.Type type : TYPES) {
+                    if (random.nextBoolean()) {
+                        types.add(type);
+                    }
+                }
+                query.ofTypes(types);
+            }
+            query.atLeast(SEVERITIES[random.nextInt(SEVERITIES.length)]);
+            if (random.nextBoolean()) {
+                query.duringHours(random.nextInt(24), random.nextInt(24));
+            }
+            if (random.nextBoolean()) {
+                query.minValue(35 + random.nextInt(150));
+            }
+            if (random.nextBoolean()) {
+                query.limit(1 + random.nextInt(50));
+            }
+            assertSameRecords("query " + q, scan(log, query), index.query(query));
+        }
+    }
+    
+    @Test
+    public void bucketsByLocalHourOnBothSidesOfAChangeover() {
+        AlertIndex index = new AlertIndex(ZONE);
+        // 2024-03-09 and 2024-03-11, 12:00 New York time: 17:00 UTC before, 16:00 UTC after
+        long winterNoon = 1_710_003_600_000L;
+        long summerNoon = 1_710_172_800_000L;
+        index.add(winterNoon, Alert.Type.FEVER, Alert.Severity.WARNING, 38.5f);
+        index.add(summerNoon, Alert.Type.FEVER, Alert.Severity.WARNING, 38.6f);
+        
+        List<AlertRecord> noon = index.query(new AlertQuery().duringHours(12, 13));
+        assertEquals(2, noon.size());
+        assertTrue(index.query(new AlertQuery().duringHours(11, 12)).isEmpty());
+        assertTrue(index.query(new AlertQuery().duringHours(13, 14)).isEmpty());
+    }
+    
+    // The same query answered by checking every record, newest first
+    private static List<Stored> scan(List<Stored> log, AlertQuery query) {
+        List<Stored> matches = new ArrayList<>();
+        for (int i = log.size() - 1; i >= 0 && matches.size() < query.limit; i--) {
+            Stored stored = log.get(i);
+            int hour = (int) (Math.floorMod(stored.timestamp + ZONE.getOffset(stored.timestamp), DAY_MS) / HOUR_MS);
+            if (stored.timestamp >= query.from && stored.timestamp < query.to
+                    && query.types.contains(stored.type)
+                    && stored.severity.ordinal() >= query.minSeverity.ordinal()
+                    && (query.hourMask & (1 << hour)) != 0
+                    && stored.value >= query.minValue) {
+                matches.add(stored);
+            }
+        }
+        Collections.sort(matches, (a, b) -> Long.compare(b.timestamp, a.timestamp));
+        return matches;
+    }
+    
+    private static void assertSameRecords(String message, List<Stored> expected, List<AlertRecord> actual) {
+        assertEquals(message, expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Stored stored = expected.get(i);
+            AlertRecord record = actual.get(i);
+            assertEquals(message, stored.timestamp, record.getTimestamp());
+            assertEquals(message, stored.type, record.getType());
+            assertEquals(message, stored.severity, record.getSeverity());
+            assertEquals(message, stored.value, record.getValue(), 0f);
+        }
+    }
+}
\ No newline at end of file
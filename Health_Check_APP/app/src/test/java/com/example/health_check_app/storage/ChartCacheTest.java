@@ -0,0 +1,125 @@
+package com.example.health_check_app.storage;
+
+import com.example.health_check_app.models.Metric;
+import com.example.health_check_app.models.SensorData;
+import java.io.File;
+import java.io.IOException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+public class ChartCacheTest {
+    private static final long SAMPLE_MS = 10_000L;
+    private static final long MINUTE_MS = 60 * 1000L;
+    private static final long HOUR_MS = 60 * MINUTE_MS;
+    private static final int MAX_POINTS = 50;
+    
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    
+    // Feeds samples to the cache from inside the build's sync, as the ingest thread would
+    // while a window is being read: one that the sync covers and one that arrives just after
+    private static final class RacingStore extends VitalsStore {
+        ChartCache cache;
+        long before;
+        long after;
+        
+        RacingStore(File rootDir) {
+            super(rootDir, 0);
+        }
+        
+        @Override
+        public long sync() {
+            if (cache == null || before == 0) {
+                return super.sync();
+            }
+            feed(this, cache, before);
+            before = 0;
+            long synced = super.sync();
+            feed(this, cache, after);
+            return synced;
+        }
+    }
+    
+    @Test
+    public void samplesArrivingDuringABuildAreCountedOnce() throws Exception {
+        RacingStore store = new RacingStore(folder.newFolder("vitals"));
+        long now = System.currentTimeMillis();
+        for (long t = now - 2 * HOUR_MS; t < now - MINUTE_MS; t += SAMPLE_MS) {
+            store.append(sample(t));
+        }
+        store.sync();
+        ChartCache cache = new ChartCache(store, MAX_POINTS, Long.MAX_VALUE);
+        store.cache = cache;
+        store.before = now - 30_000L;
+        store.after = now - 20_000L;
+        
+        cache.load(Metric.HEART_RATE, HOUR_MS).get();
+        assertEquals(0, store.before);
+        store.sync();
+        assertMatchesQuery(store, cache.peek(Metric.HEART_RATE, HOUR_MS, now), now);
+        
+        // And samples after the build are added live
+        long later = now + 5 * MINUTE_MS;
+        for (long t = now; t <= later; t += SAMPLE_MS) {
+            feed(store, cache, t);
+        }
+        store.sync();
+        assertMatchesQuery(store, cache.peek(Metric.HEART_RATE, HOUR_MS, later), later);
+        store.close();
+    }
+    
+    @Test
+    public void leastRecentlyUsedWindowsAreEvictedOverBudget() throws Exception {
+        VitalsStore store = new VitalsStore(folder.newFolder("vitals"), 0);
+        long size = new ChartSnapshot(Metric.HEART_RATE, HOUR_MS, MAX_POINTS).sizeBytes();
+        ChartCache cache = new ChartCache(store, MAX_POINTS, 2 * size);
+        long now = System.currentTimeMillis();
+        
+        cache.load(Metric.HEART_RATE, HOUR_MS).get();
+        cache.load(Metric.BODY_TEMPERATURE, HOUR_MS).get();
+        assertNotNull(cache.peek(Metric.HEART_RATE, HOUR_MS, now));
+        cache.load(Metric.BLOOD_OXYGEN, HOUR_MS).get();
+        
+        assertEquals(1, cache.getEvictions());
+        assertEquals(2 * size, cache.getSizeBytes());
+        assertNull(cache.peek(Metric.BODY_TEMPERATURE, HOUR_MS, now));
+        assertNotNull(cache.peek(Metric.HEART_RATE, HOUR_MS, now));
+        assertNotNull(cache.peek(Metric.BLOOD_OXYGEN, HOUR_MS, now));
+        
+        // A window bigger than the budget on its own is still kept
+        cache = new ChartCache(store, MAX_POINTS, size / 2);
+        cache.load(Metric.HEART_RATE, HOUR_MS).get();
+        assertNotNull(cache.peek(Metric.HEART_RATE, HOUR_MS, now));
+        cache.clear();
+        assertEquals(0, cache.getSizeBytes());
+        assertNull(cache.peek(Metric.HEART_RATE, HOUR_MS, now));
+        store.close();
+    }
+    
+    private static void feed(VitalsStore store, ChartCache cache, long timestamp) {
+        SensorData data = sample(timestamp);
+        store.append(data);
+        cache.onSample(data);
+    }
+    
+    private static SensorData sample(long timestamp) {
+        SensorData data = new SensorData();
+        data.setTimestamp(timestamp);
+        data.setHeartRate(50 + (int) (timestamp / SAMPLE_MS % 70));
+        return data;
+    }
+    
+    private static void assertMatchesQuery(VitalsStore store, Series actual, long now) throws IOException {
+        assertNotNull(actual);
+        long bucketMs = actual.getBucketMs();
+        int buckets = (int) ((actual.getTo() - actual.getFrom()) / bucketMs);
+        Series expected = new VitalsQuery(store).queryBuckets(Metric.HEART_RATE, actual.getFrom(), bucketMs,
+            buckets, now);
+        assertArrayEquals(expected.getTimestamps(), actual.getTimestamps());
+        assertArrayEquals(expected.getCounts(), actual.getCounts());
+        assertArrayEquals(expected.getValues(), actual.getValues(), 1e-3f);
+    }
+}
\ No newline at end of file
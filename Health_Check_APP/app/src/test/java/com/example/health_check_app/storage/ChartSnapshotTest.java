@@ -0,0 +1,127 @@
+package com.example.health_check_app.storage;
+
+import com.example.health_check_app.models.Metric;
+import com.example.health_check_app.models.SensorData;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+public class ChartSnapshotTest {
+    private static final long SAMPLE_MS = 10_000L;
+    private static final long MINUTE_MS = 60 * 1000L;
+    private static final long HOUR_MS = 60 * MINUTE_MS;
+    // A UTC day boundary
+    private static final long START = 1_699_920_000_000L;
+    
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    
+    private VitalsStore store;
+    private VitalsQuery query;
+    private final List<SensorData> samples = new ArrayList<>();
+    
+    @Before
+    public void setUp() throws IOException {
+        store = new VitalsStore(folder.newFolder("vitals"), 0);
+        query = new VitalsQuery(store);
+    }
+    
+    @After
+    public void tearDown() {
+        store.close();
+    }
+    
+    @Test
+    public void slidesShorterAndLongerThanTheWindowMatchAQuery() throws IOException {
+        // Two stretches of samples with a gap longer than the window between them
+        append(START, START + 3 * HOUR_MS);
+        append(START + 5 * HOUR_MS, START + 6 * HOUR_MS);
+        store.sync();
+        
+        ChartSnapshot snapshot = new ChartSnapshot(Metric.HEART_RATE, HOUR_MS, 50);
+        long now = START + HOUR_MS;
+        snapshot.load(query, now, now);
+        assertMatchesQuery(snapshot, now);
+        
+        Random random = new Random(11);
+        long[] slides = {1_000L, 50_000L, 7 * MINUTE_MS, 50 * MINUTE_MS, 90 * MINUTE_MS, 3 * HOUR_MS};
+        int next = (int) ((now - START) / SAMPLE_MS) + 1;
+        while (now < START + 9 * HOUR_MS) {
+            now += slides[random.nextInt(slides.length)];
+            for (; next < samples.size() && samples.get(next).getTimestamp() <= now; next++) {
+                SensorData data = samples.get(next);
+                snapshot.add(data.getTimestamp(), Metric.HEART_RATE.valueOf(data));
+            }
+            assertMatchesQuery(snapshot, now);
+        }
+    }
+    
+    @Test
+    public void loadMergedWithLaterSamplesMatchesAQuery() throws IOException {
+        append(START, START + 2 * HOUR_MS);
+        long synced = store.sync();
+        // Appended while the window was being read, so not part of the load
+        int unsynced = samples.size();
+        append(START + 2 * HOUR_MS, START + 2 * HOUR_MS + 20 * MINUTE_MS);
+        long now = START + 2 * HOUR_MS + 20 * MINUTE_MS;
+        
+        ChartSnapshot snapshot = new ChartSnapshot(Metric.HEART_RATE, HOUR_MS, 50);
+        snapshot.load(query, now, synced);
+        for (SensorData data : samples.subList(unsynced, samples.size())) {
+            snapshot.add(data.getTimestamp(), Metric.HEART_RATE.valueOf(data));
+        }
+        store.sync();
+        assertMatchesQuery(snapshot, now);
+        
+        // Too old for the window, or missing
+        assertFalse(snapshot.add(START, 70f));
+        assertFalse(snapshot.add(now, 0f));
+        assertTrue(snapshot.add(now, 70f));
+    }
+    
+    @Test
+    public void seriesIsSharedUntilTheWindowChanges() throws IOException {
+        ChartSnapshot snapshot = new ChartSnapshot(Metric.HEART_RATE, HOUR_MS, 50);
+        snapshot.load(query, START, START);
+        Series series = snapshot.series(START);
+        assertSame(series, snapshot.series(START + 1));
+        snapshot.add(START + 2, 70f);
+        Series updated = snapshot.series(START + 2);
+        assertNotSame(series, updated);
+        assertEquals(1, updated.size());
+        assertNotSame(updated, snapshot.series(START + snapshot.getBucketMs()));
+    }
+    
+    // One sample every SAMPLE_MS in [from, to), with gaps in the heart rate
+    private void append(long from, long to) {
+        for (long t = from; t < to; t += SAMPLE_MS) {
+            int i = (int) ((t - START) / SAMPLE_MS);
+            SensorData data = new SensorData();
+            data.setTimestamp(t);
+            data.setHeartRate(i % 7 == 0 ? 0 : 50 + (i * 13) % 70);
+            store.append(data);
+            samples.add(data);
+        }
+    }
+    
+    // The snapshot's window ends at now and holds what a query of the same buckets finds
+    private void assertMatchesQuery(ChartSnapshot snapshot, long now) throws IOException {
+        Series actual = snapshot.series(now);
+        long bucketMs = snapshot.getBucketMs();
+        assertEquals(now / bucketMs * bucketMs + bucketMs, actual.getTo());
+        int buckets = (int) ((actual.getTo() - actual.getFrom()) / bucketMs);
+        Series expected = query.queryBuckets(Metric.HEART_RATE, actual.getFrom(), bucketMs, buckets, now);
+        String where = "at " + (now - START);
+        assertArrayEquals(where, expected.getTimestamps(), actual.getTimestamps());
+        assertArrayEquals(where, expected.getCounts(), actual.getCounts());
+        assertArrayEquals(where, expected.getValues(), actual.getValues(), 1e-3f);
+    }
+}
\ No newline at end of file
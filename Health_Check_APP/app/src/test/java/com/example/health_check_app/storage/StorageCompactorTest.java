@@ -0,0 +1,239 @@
+package com.example.health_check_app.storage;
+
+import com.example.health_check_app.models.Metric;
+import com.example.health_check_app.models.SensorData;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+public class StorageCompactorTest {
+    private static final long MINUTE_MS = 60 * 1000L;
+    private static final long HOUR_MS = 60 * MINUTE_MS;
+    private static final long DAY_MS = 24 * HOUR_MS;
+    // A UTC day boundary
+    private static final long START = 1_699_920_000_000L;
+    
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    
+    @Test
+    public void minuteRollupsMatchTheRawSamples() throws IOException {
+        VitalsStore store = new VitalsStore(folder.newFolder("vitals"), 0);
+        List<SensorData> samples = hourOfSamples(START);
+        appendAll(store, samples);
+        StorageCompactor compactor = new StorageCompactor(store,
+            () -> new RetentionPolicy(HOUR_MS, 30 * DAY_MS));
+        
+        assertTrue(compactor.compactOnce(START + 2 * HOUR_MS));
+        assertFalse(compactor.compactOnce(START + 2 * HOUR_MS));
+        assertTrue(store.getSegments(Tier.RAW).isEmpty());
+        
+        List<Segment> segments = store.getSegments(Tier.MINUTE);
+        assertEquals(1, segments.size());
+        ByteBuffer rollups = readAll(segments.get(0).getFile());
+        assertEquals(60 * Rollup.SIZE, rollups.limit());
+        for (int minute = 0; minute < 60; minute++) {
+            long bucket = START + minute * MINUTE_MS;
+            assertRollup(rollups, minute * Rollup.SIZE, bucket, samplesBetween(samples, bucket, bucket + MINUTE_MS));
+        }
+        store.close();
+    }
+    
+    @Test
+    public void dailyRollupMatchesTheRawSamples() throws IOException {
+        VitalsStore store = new VitalsStore(folder.newFolder("vitals"), 0);
+        List<SensorData> samples = new ArrayList<>(hourOfSamples(START));
+        samples.addAll(hourOfSamples(START + 5 * HOUR_MS));
+        appendAll(store, samples);
+        StorageCompactor compactor = new StorageCompactor(store, () -> new RetentionPolicy(0, 0));
+        
+        int steps = 0;
+        while (compactor.compactOnce(START + 2 * DAY_MS)) {
+            steps++;
+        }
+        // Two raw hours, then the one minute segment
+        assertEquals(3, steps);
+        assertTrue(store.getSegments(Tier.RAW).isEmpty());
+        assertTrue(store.getSegments(Tier.MINUTE).isEmpty());
+        
+        List<Segment> segments = store.getSegments(Tier.DAILY);
+        assertEquals(1, segments.size());
+        ByteBuffer rollups = readAll(segments.get(0).getFile());
+        assertEquals(Rollup.SIZE, rollups.limit());
+        assertRollup(rollups, 0, START, samples);
+        store.close();
+    }
+    
+    @Test
+    public void stepsKeepTheLastCounterReadingInsteadOfAMean() throws IOException {
+        VitalsStore store = new VitalsStore(folder.newFolder("vitals"), 0);
+        for (int i = 0; i < 60; i++) {
+            SensorData data = new SensorData();
+            data.setTimestamp(START + i * 1000L);
+            data.setSteps(100 + i);
+            store.append(data);
+        }
+        store.sync();
+        new StorageCompactor(store, () -> new RetentionPolicy(HOUR_MS, 30 * DAY_MS))
+            .compactOnce(START + 2 * HOUR_MS);
+        
+        ByteBuffer rollups = readAll(store.getSegments(Tier.MINUTE).get(0).getFile());
+        assertEquals(100f, Rollup.min(rollups, 0, Metric.STEPS), 0f);
+        assertEquals(159f, Rollup.max(rollups, 0, Metric.STEPS), 0f);
+        assertEquals(159f, Rollup.last(rollups, 0, Metric.STEPS), 0f);
+        assertEquals(159f, Rollup.value(rollups, 0, Metric.STEPS), 0f);
+        store.close();
+    }
+    
+    @Test
+    public void sourceLeftBehindAfterACompletedAppendIsNotCountedTwice() throws IOException {
+        recoverFromCrash(false);
+    }
+    
+    @Test
+    public void compactionCutShortMidAppendIsRedone() throws IOException {
+        recoverFromCrash(true);
+    }
+    
+    // Compacts two hours cleanly, then rebuilds the state a crash while compacting the second
+    // hour would have left behind and checks that compaction ends up with the same rollups
+    private void recoverFromCrash(boolean tornTarget) throws IOException {
+        File root = folder.newFolder("vitals");
+        VitalsStore store = new VitalsStore(root, 0);
+        appendAll(store, hourOfSamples(START));
+        appendAll(store, hourOfSamples(START + HOUR_MS));
+        File secondHour = store.getSegments(Tier.RAW).get(1).getFile();
+        byte[] secondHourBytes = Files.readAllBytes(secondHour.toPath());
+        StorageCompactor compactor = new StorageCompactor(store,
+            () -> new RetentionPolicy(HOUR_MS, 30 * DAY_MS));
+        while (compactor.compactOnce(START + 3 * HOUR_MS)) {
+            // Drain
+        }
+        store.close();
+        File minuteFile = store.getSegments(Tier.MINUTE).get(0).getFile();
+        byte[] expected = Files.readAllBytes(minuteFile.toPath());
+        assertEquals(120 * Rollup.SIZE, expected.length);
+        
+        Files.write(secondHour.toPath(), secondHourBytes);
+        if (tornTarget) {
+            try (RandomAccessFile file = new RandomAccessFile(minuteFile, "rw")) {
+                file.setLength(85L * Rollup.SIZE + Rollup.SIZE / 2);
+            }
+        }
+        
+        VitalsStore reopened = new VitalsStore(root, 0);
+        StorageCompactor recovering = new StorageCompactor(reopened,
+            () -> new RetentionPolicy(HOUR_MS, 30 * DAY_MS));
+        assertTrue(recovering.compactOnce(START + 3 * HOUR_MS));
+        assertFalse(recovering.compactOnce(START + 3 * HOUR_MS));
+        assertTrue(reopened.getSegments(Tier.RAW).isEmpty());
+        assertArrayEquals(expected, Files.readAllBytes(minuteFile.toPath()));
+        assertEquals(120, reopened.getSegments(Tier.MINUTE).get(0).getRecordCount());
+        reopened.close();
+    }
+    
+    @Test
+    public void coarserTiersOnlyCountUpToTheNextFinerTier() throws IOException {
+        VitalsStore store = new VitalsStore(folder.newFolder("vitals"), 0);
+        assertEquals(START, store.coverageEnd(Tier.DAILY, START));
+        appendAll(store, hourOfSamples(START + HOUR_MS));
+        assertEquals(START + HOUR_MS, store.coverageEnd(Tier.MINUTE, START + DAY_MS));
+        assertEquals(START + HOUR_MS, store.coverageEnd(Tier.DAILY, START + DAY_MS));
+        assertEquals(START + DAY_MS, store.coverageEnd(Tier.RAW, START + DAY_MS));
+        
+        new StorageCompactor(store, () -> new RetentionPolicy(HOUR_MS, 30 * DAY_MS))
+            .compactOnce(START + 3 * HOUR_MS);
+        assertEquals(START + DAY_MS, store.coverageEnd(Tier.MINUTE, START + DAY_MS));
+        assertEquals(START, store.coverageEnd(Tier.DAILY, START + DAY_MS));
+        store.close();
+    }
+    
+    // One sample a second with every metric varying, some readings missing, a few falls and
+    // a step counter that resets halfway
+    private static List<SensorData> hourOfSamples(long start) {
+        List<SensorData> samples = new ArrayList<>();
+        for (int i = 0; i < 3600; i++) {
+            SensorData data = new SensorData();
+            data.setTimestamp(start + i * 1000L);
+            data.setHeartRate(i % 10 == 0 ? 0 : 55 + (i * 7) % 60);
+            data.setBloodOxygen(90 + (i * 3) % 10);
+            data.setBodyTemperature(35.5f + (i % 23) * 0.1f);
+            data.setEnvironmentTemperature(i % 4 == 0 ? 0f : 20f + (i % 7) * 0.5f);
+            data.setHumidity(40 + i % 20);
+            data.setSteps(i < 1800 ? 5_000 + i / 2 : (i - 1800) / 3);
+            data.setMotionStatus(i % 500 == 7 ? SensorData.MotionStatus.FALL_DETECTED
+                : SensorData.MotionStatus.values()[0]);
+            samples.add(data);
+        }
+        return samples;
+    }
+    
+    private static void appendAll(VitalsStore store, List<SensorData> samples) {
+        for (SensorData data : samples) {
+            store.append(data);
+        }
+        store.sync();
+    }
+    
+    private static List<SensorData> samplesBetween(List<SensorData> samples, long from, long to) {
+        List<SensorData> between = new ArrayList<>();
+        for (SensorData data : samples) {
+            if (data.getTimestamp() >= from && data.getTimestamp() < to) {
+                between.add(data);
+            }
+        }
+        return between;
+    }
+    
+    // Brute-force aggregate of the samples, compared field by field
+    private static void assertRollup(ByteBuffer rollups, int offset, long bucket, List<SensorData> samples) {
+        assertEquals(bucket, Rollup.bucketStart(rollups, offset));
+        assertEquals(samples.size(), Rollup.samples(rollups, offset));
+        int falls = 0;
+        for (SensorData data : samples) {
+            if (data.getMotionStatus() == SensorData.MotionStatus.FALL_DETECTED) {
+                falls++;
+            }
+        }
+        assertEquals(falls, Rollup.falls(rollups, offset));
+        for (Metric metric : Metric.values()) {
+            int count = 0;
+            float min = Float.MAX_VALUE;
+            float max = -Float.MAX_VALUE;
+            double sum = 0;
+            float last = 0;
+            for (SensorData data : samples) {
+                float value = metric.valueOf(data);
+                if (metric.isPresent(value)) {
+                    count++;
+                    min = Math.min(min, value);
+                    max = Math.max(max, value);
+                    sum += value;
+                    last = value;
+                }
+            }
+            String where = metric + " at " + bucket;
+            assertEquals(where, count, Rollup.count(rollups, offset, metric));
+            assertEquals(where, min, Rollup.min(rollups, offset, metric), 0f);
+            assertEquals(where, max, Rollup.max(rollups, offset, metric), 0f);
+            if (metric.isCumulative()) {
+                assertEquals(where, last, Rollup.last(rollups, offset, metric), 0f);
+            } else {
+                assertEquals(where, sum / count, Rollup.mean(rollups, offset, metric), 1e-3);
+            }
+        }
+    }
+    
+    private static ByteBuffer readAll(File file) throws IOException {
+        return ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+    }
+}
\ No newline at end of file
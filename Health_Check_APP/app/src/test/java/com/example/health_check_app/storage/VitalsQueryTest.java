@@ -0,0 +1,210 @@
+package com.example.health_check_app.storage;
+
+import com.example.health_check_app.models.Metric;
+import com.example.health_check_app.models.SensorData;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+public class VitalsQueryTest {
+    private static final long SAMPLE_MS = 10_000L;
+    private static final long MINUTE_MS = 60 * 1000L;
+    private static final long HOUR_MS = 60 * MINUTE_MS;
+    private static final long DAY_MS = 24 * HOUR_MS;
+    // A UTC day boundary
+    private static final long START = 1_699_920_000_000L;
+    // Days 0-1 end up as daily rollups, day 2 as minute rollups and day 3 stays raw
+    private static final long NOW = START + 3 * DAY_MS + 6 * HOUR_MS;
+    
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    
+    private VitalsStore store;
+    private final List<SensorData> samples = new ArrayList<>();
+    
+    @Before
+    public void setUp() throws IOException {
+        store = new VitalsStore(folder.newFolder("vitals"), 0);
+        append(START, NOW);
+        StorageCompactor compactor = new StorageCompactor(store,
+            () -> new RetentionPolicy(6 * HOUR_MS, DAY_MS + 6 * HOUR_MS));
+        while (compactor.compactOnce(NOW)) {
+            // Drain
+        }
+        assertEquals(Tier.DAILY.segmentStart(START, 0), store.getEarliestStart(Tier.DAILY));
+        assertEquals(START + 2 * DAY_MS, store.getEarliestStart(Tier.MINUTE));
+        assertEquals(START + 3 * DAY_MS, store.getEarliestStart(Tier.RAW));
+    }
+    
+    @After
+    public void tearDown() {
+        store.close();
+    }
+    
+    @Test
+    public void matchesALinearScanAcrossTiersAndBlocks() throws IOException {
+        VitalsQuery query = new VitalsQuery(store);
+        Random random = new Random(42);
+        long[] bucketSizes = {SAMPLE_MS, 37_000L, MINUTE_MS, 7 * MINUTE_MS, HOUR_MS, 5 * HOUR_MS, DAY_MS};
+        for (int i = 0; i < 300; i++) {
+            long bucketMs = bucketSizes[random.nextInt(bucketSizes.length)];
+            int buckets = 1 + random.nextInt(200);
+            long from = START - DAY_MS + (long) (random.nextDouble() * (NOW - START + DAY_MS));
+            long until = random.nextBoolean() ? Long.MAX_VALUE
+                : from + (long) (random.nextDouble() * buckets * bucketMs);
+            Metric metric = random.nextBoolean() ? Metric.HEART_RATE : Metric.BODY_TEMPERATURE;
+            String where = metric + " from " + (from - START) + " by " + bucketMs + " x " + buckets
+                + " until " + (until - START);
+            assertSeriesEquals(where, linearScan(metric, from, bucketMs, buckets, until),
+                query.queryBuckets(metric, from, bucketMs, buckets, until));
+        }
+    }
+    
+    @Test
+    public void alignedBucketsMatchTheOriginalSamples() throws IOException {
+        VitalsQuery query = new VitalsQuery(store);
+        // Day buckets line up with every tier; minute buckets with every tier but the daily one
+        assertSeriesEquals("days", fromSamples(Metric.HEART_RATE, START, DAY_MS, 4, Long.MAX_VALUE),
+            query.queryBuckets(Metric.HEART_RATE, START, DAY_MS, 4, Long.MAX_VALUE));
+        long from = START + 2 * DAY_MS;
+        assertSeriesEquals("minutes", fromSamples(Metric.HEART_RATE, from, MINUTE_MS, 1800, Long.MAX_VALUE),
+            query.queryBuckets(Metric.HEART_RATE, from, MINUTE_MS, 1800, Long.MAX_VALUE));
+    }
+    
+    @Test
+    public void samplesAfterTheSyncedCutoffAreLeftOut() throws IOException {
+        long synced = store.sync();
+        assertEquals(NOW - SAMPLE_MS, synced);
+        append(NOW, NOW + HOUR_MS);
+        store.sync();
+        
+        VitalsQuery query = new VitalsQuery(store);
+        long from = START + 3 * DAY_MS;
+        Series series = query.queryBuckets(Metric.HEART_RATE, from, HOUR_MS, 8, synced);
+        assertSeriesEquals("synced", fromSamples(Metric.HEART_RATE, from, HOUR_MS, 8, synced), series);
+        assertEquals(6, series.size());
+        
+        // A cutoff inside a sealed block must not take the block's summary
+        long until = from + 200 * SAMPLE_MS + 5_000L;
+        assertSeriesEquals("mid-block", fromSamples(Metric.HEART_RATE, from, HOUR_MS, 1, until),
+            query.queryBuckets(Metric.HEART_RATE, from, HOUR_MS, 1, until));
+    }
+    
+    @Test
+    public void indexKeptCurrentByAppendsMatchesALinearScan() throws IOException {
+        VitalsQuery query = new VitalsQuery(store);
+        long from = NOW - HOUR_MS;
+        // Builds the index of the newest hour while its last block is still open
+        query.queryBuckets(Metric.HEART_RATE, from, MINUTE_MS, 120, Long.MAX_VALUE);
+        append(NOW, NOW + HOUR_MS / 2);
+        store.sync();
+        for (long bucketMs : new long[] {SAMPLE_MS, MINUTE_MS, HOUR_MS}) {
+            int buckets = (int) (2 * HOUR_MS / bucketMs);
+            assertSeriesEquals("by " + bucketMs,
+                linearScan(Metric.HEART_RATE, from, bucketMs, buckets, Long.MAX_VALUE),
+                query.queryBuckets(Metric.HEART_RATE, from, bucketMs, buckets, Long.MAX_VALUE));
+        }
+    }
+    
+    // One sample every SAMPLE_MS in [from, to), with gaps in the heart rate
+    private void append(long from, long to) {
+        for (long t = from; t < to; t += SAMPLE_MS) {
+            int i = (int) ((t - START) / SAMPLE_MS);
+            SensorData data = new SensorData();
+            data.setTimestamp(t);
+            data.setHeartRate(i % 7 == 0 ? 0 : 50 + (i * 13) % 70);
+            data.setBodyTemperature(35.8f + (i % 17) * 0.1f);
+            store.append(data);
+            samples.add(data);
+        }
+        store.sync();
+    }
+    
+    // Reads every record of every segment front to back, without the index
+    private Series linearScan(Metric metric, long from, long bucketMs, int buckets, long until)
+            throws IOException {
+        long to = from + buckets * bucketMs;
+        long limit = until < to ? until + 1 : to;
+        double[] sums = new double[buckets];
+        int[] counts = new int[buckets];
+        for (Tier tier : Tier.values()) {
+            long upper = store.coverageEnd(tier, limit);
+            int recordSize = tier.getRecordSize();
+            for (Segment segment : store.getSegments(tier)) {
+                ByteBuffer records = ByteBuffer.wrap(Files.readAllBytes(segment.getFile().toPath()));
+                for (int offset = 0; offset + recordSize <= records.limit(); offset += recordSize) {
+                    long timestamp = records.getLong(offset);
+                    if (timestamp < from || timestamp >= upper) {
+                        continue;
+                    }
+                    int bucket = (int) ((timestamp - from) / bucketMs);
+                    if (tier == Tier.RAW) {
+                        float value = RawRecord.value(records, offset, metric);
+                        if (metric.isPresent(value)) {
+                            counts[bucket]++;
+                            sums[bucket] += value;
+                        }
+                    } else {
+                        int count = Rollup.count(records, offset, metric);
+                        counts[bucket] += count;
+                        sums[bucket] += (double) Rollup.value(records, offset, metric) * count;
+                    }
+                }
+            }
+        }
+        return toSeries(metric, from, bucketMs, buckets, sums, counts);
+    }
+    
+    private Series fromSamples(Metric metric, long from, long bucketMs, int buckets, long until) {
+        double[] sums = new double[buckets];
+        int[] counts = new int[buckets];
+        for (SensorData data : samples) {
+            long timestamp = data.getTimestamp();
+            float value = metric.valueOf(data);
+            if (timestamp >= from && timestamp <= until && timestamp < from + buckets * bucketMs
+                    && metric.isPresent(value)) {
+                int bucket = (int) ((timestamp - from) / bucketMs);
+                counts[bucket]++;
+                sums[bucket] += value;
+            }
+        }
+        return toSeries(metric, from, bucketMs, buckets, sums, counts);
+    }
+    
+    private static Series toSeries(Metric metric, long from, long bucketMs, int buckets, double[] sums,
+            int[] counts) {
+        List<Integer> filled = new ArrayList<>();
+        for (int b = 0; b < buckets; b++) {
+            if (counts[b] > 0) {
+                filled.add(b);
+            }
+        }
+        long[] timestamps = new long[filled.size()];
+        float[] values = new float[filled.size()];
+        int[] pointCounts = new int[filled.size()];
+        for (int p = 0; p < filled.size(); p++) {
+            int b = filled.get(p);
+            timestamps[p] = from + b * bucketMs;
+            values[p] = (float) (sums[b] / counts[b]);
+            pointCounts[p] = counts[b];
+        }
+        return new Series(metric, from, from + buckets * bucketMs, bucketMs, timestamps, values, pointCounts);
+    }
+    
+    private static void assertSeriesEquals(String where, Series expected, Series actual) {
+        assertArrayEquals(where, expected.getTimestamps(), actual.getTimestamps());
+        assertArrayEquals(where, expected.getCounts(), actual.getCounts());
+        // Rollup means are stored as floats
+        assertArrayEquals(where, expected.getValues(), actual.getValues(), 1e-3f);
+    }
+}
\ No newline at end of file
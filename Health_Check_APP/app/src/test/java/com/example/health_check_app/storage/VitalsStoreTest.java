@@ -0,0 +1,145 @@
+package com.example.health_check_app.storage;
+
+import com.example.health_check_app.models.Metric;
+import com.example.health_check_app.models.SensorData;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+public class VitalsStoreTest {
+    private static final long HOUR_MS = 60 * 60 * 1000L;
+    // A UTC day boundary
+    private static final long START = 1_699_920_000_000L;
+    
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    
+    @Test
+    public void clockSteppedBackAcrossARestartKeepsItsTimestamps() throws IOException {
+        File root = folder.newFolder("vitals");
+        VitalsStore store = new VitalsStore(root, 0);
+        long[] expected = new long[200];
+        for (int i = 0; i < 100; i++) {
+            expected[i] = START + i * 1000L;
+            store.append(sample(expected[i]));
+        }
+        store.sync();
+        store.close();
+        
+        // A new process whose device clock is a minute behind
+        VitalsStore reopened = new VitalsStore(root, 0);
+        assertEquals(START + 99_000L, reopened.sync());
+        for (int i = 0; i < 100; i++) {
+            expected[100 + i] = START + 40_000L + i * 1000L;
+            reopened.append(sample(expected[100 + i]));
+        }
+        assertEquals(START + 139_000L, reopened.sync());
+        
+        List<Segment> segments = reopened.getSegments(Tier.RAW);
+        assertEquals(1, segments.size());
+        Arrays.sort(expected);
+        assertArrayEquals(expected, readTimestamps(segments.get(0).getFile()));
+        
+        // The index is rebuilt from the sorted file, so queries see every sample
+        Series series = new VitalsQuery(reopened).queryBuckets(Metric.HEART_RATE, START, HOUR_MS, 1,
+            Long.MAX_VALUE);
+        assertEquals(200, series.getCounts()[0]);
+        reopened.close();
+    }
+    
+    @Test
+    public void stepBackWithinOneBlockIsSortedOnWrite() throws IOException {
+        VitalsStore store = new VitalsStore(folder.newFolder("vitals"), 0);
+        store.append(sample(START + 10_000L));
+        store.append(sample(START + 11_000L));
+        store.append(sample(START + 5_000L));
+        store.append(sample(START + 6_000L));
+        store.sync();
+        
+        long[] timestamps = readTimestamps(store.getSegments(Tier.RAW).get(0).getFile());
+        assertArrayEquals(new long[] {START + 5_000L, START + 6_000L, START + 10_000L, START + 11_000L},
+            timestamps);
+        store.close();
+    }
+    
+    @Test
+    public void jitterWithinTheSkewIsClampedToThePreviousSample() throws IOException {
+        VitalsStore store = new VitalsStore(folder.newFolder("vitals"), 0);
+        store.append(sample(START + 10_000L));
+        store.append(sample(START + 10_000L - VitalsStore.MAX_SKEW_MS));
+        store.append(sample(START + 11_000L));
+        store.sync();
+        
+        long[] timestamps = readTimestamps(store.getSegments(Tier.RAW).get(0).getFile());
+        assertArrayEquals(new long[] {START + 10_000L, START + 10_000L, START + 11_000L}, timestamps);
+        store.close();
+    }
+    
+    @Test
+    public void stepBackIntoAnEarlierHourLandsInThatHoursSegment() throws IOException {
+        VitalsStore store = new VitalsStore(folder.newFolder("vitals"), 0);
+        store.append(sample(START + HOUR_MS + 1_000L));
+        store.append(sample(START + 30_000L));
+        store.sync();
+        
+        List<Segment> segments = store.getSegments(Tier.RAW);
+        assertEquals(2, segments.size());
+        assertArrayEquals(new long[] {START + 30_000L}, readTimestamps(segments.get(0).getFile()));
+        assertArrayEquals(new long[] {START + HOUR_MS + 1_000L}, readTimestamps(segments.get(1).getFile()));
+        store.close();
+    }
+    
+    @Test
+    public void samplesInAnAlreadyCompactedHourAreDropped() throws IOException {
+        File root = folder.newFolder("vitals");
+        VitalsStore store = new VitalsStore(root, 0);
+        store.append(sample(START + 1_000L));
+        store.append(sample(START + 2 * HOUR_MS));
+        store.sync();
+        StorageCompactor compactor = new StorageCompactor(store,
+            () -> new RetentionPolicy(HOUR_MS, 30 * 24 * HOUR_MS));
+        assertTrue(compactor.compactOnce(START + 2 * HOUR_MS));
+        assertFalse(compactor.compactOnce(START + 2 * HOUR_MS));
+        
+        store.append(sample(START + 2_000L));
+        store.sync();
+        store.close();
+        assertEquals(1, store.getSegments(Tier.RAW).size());
+        
+        // Also after a restart, from the rollups alone
+        VitalsStore reopened = new VitalsStore(root, 0);
+        reopened.append(sample(START + 3_000L));
+        reopened.append(sample(START + HOUR_MS + 3_000L));
+        reopened.sync();
+        List<Segment> segments = reopened.getSegments(Tier.RAW);
+        assertEquals(2, segments.size());
+        assertEquals(START + HOUR_MS, segments.get(0).getStart());
+        assertEquals(START + 2 * HOUR_MS, segments.get(1).getStart());
+        reopened.close();
+    }
+    
+    private static SensorData sample(long timestamp) {
+        SensorData data = new SensorData();
+        data.setTimestamp(timestamp);
+        data.setHeartRate(70);
+        return data;
+    }
+    
+    private static long[] readTimestamps(File file) throws IOException {
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            long[] timestamps = new long[(int) (in.length() / RawRecord.SIZE)];
+            for (int i = 0; i < timestamps.length; i++) {
+                in.seek((long) i * RawRecord.SIZE);
+                timestamps[i] = in.readLong();
+            }
+            return timestamps;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,209 @@
+package com.example.health_check_app.sync;
+
+import com.example.health_check_app.models.SensorData;
+import com.example.health_check_app.storage.VitalsStore;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+public class HistoryUploaderTest {
+    private static final int RECORDS = 20_000;
+    
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    
+    private HttpServer server;
+    private VitalsStore store;
+    private URL endpoint;
+    private File checkpointFile;
+    private long firstTimestamp;
+    
+    // Batches the stand-in server accepted, as {first, last, records}
+    private final List<long[]> accepted = new ArrayList<>();
+    // Batch id of every request, in the order they came, and of those taken
+    private final List<String> requestIds = new ArrayList<>();
+    private final Set<String> acceptedIds = new HashSet<>();
+    private volatile int failAfterBatches = Integer.MAX_VALUE;
+    // Index of an accepted batch whose acknowledgement never reaches the uploader
+    private volatile int loseAckOfBatch = -1;
+    
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/upload", exchange -> {
+            byte[] body;
+            try (InputStream in = new GZIPInputStream(exchange.getRequestBody())) {
+                body = readAll(in);
+            }
+            boolean valid = "gzip".equals(exchange.getRequestHeaders().getFirst("Content-Encoding"))
+                && new String(body, 0, 4, StandardCharsets.US_ASCII).equals("HCVC")
+                && body[body.length - 1] == 'E';
+            String id = exchange.getRequestHeaders().getFirst(HistoryUploader.HEADER_BATCH_ID);
+            int status;
+            synchronized (accepted) {
+                requestIds.add(id);
+                if (!valid) {
+                    status = 400;
+                } else if (accepted.size() >= failAfterBatches) {
+                    status = 503;
+                } else if (!acceptedIds.add(id)) {
+                    // Taken before, dropped as a duplicate
+                    status = 200;
+                } else {
+                    accepted.add(new long[] {
+                        Long.parseLong(exchange.getRequestHeaders().getFirst(HistoryUploader.HEADER_BATCH_FIRST)),
+                        Long.parseLong(exchange.getRequestHeaders().getFirst(HistoryUploader.HEADER_BATCH_LAST)),
+                        Long.parseLong(exchange.getRequestHeaders().getFirst(HistoryUploader.HEADER_BATCH_RECORDS))
+                    });
+                    status = accepted.size() - 1 == loseAckOfBatch ? 503 : 200;
+                }
+            }
+            exchange.sendResponseHeaders(status, -1);
+            exchange.close();
+        });
+        server.start();
+        endpoint = new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/upload");
+        
+        store = new VitalsStore(folder.newFolder("vitals"), 0);
+        firstTimestamp = System.currentTimeMillis() - RECORDS * 100L;
+        for (int i = 0; i < RECORDS; i++) {
+            SensorData data = new SensorData();
+            data.setHeartRate(60 + i % 40);
+            data.setBloodOxygen(97);
+            data.setTimestamp(firstTimestamp + i * 100L);
+            store.append(data);
+        }
+        store.sync();
+        checkpointFile = new File(folder.getRoot(), "upload.checkpoint");
+    }
+    
+    @After
+    public void tearDown() {
+        server.stop(0);
+        store.close();
+    }
+    
+    @Test
+    public void uploadsEveryRecordOnceInOrder() {
+        HistoryUploader uploader = new HistoryUploader(store, endpoint, new UploadCheckpoint(checkpointFile));
+        HistoryUploader.Result result = uploader.runOnce();
+        
+        assertTrue(result.caughtUp);
+        assertEquals(RECORDS, result.records);
+        assertEquals(RECORDS, acceptedRecords());
+        assertContiguous();
+        
+        // Nothing new, nothing sent
+        assertEquals(0, uploader.runOnce().batches);
+    }
+    
+    @Test
+    public void resumesFromCheckpointAfterFailure() {
+        failAfterBatches = 2;
+        HistoryUploader uploader = new HistoryUploader(store, endpoint, new UploadCheckpoint(checkpointFile));
+        HistoryUploader.Result interrupted = uploader.runOnce();
+        assertFalse(interrupted.caughtUp);
+        assertEquals(2, interrupted.batches);
+        long acknowledged = accepted.get(1)[1];
+        
+        // A fresh uploader, as after a process restart, starts right after the last acknowledgement
+        failAfterBatches = Integer.MAX_VALUE;
+        UploadCheckpoint reloaded = new UploadCheckpoint(checkpointFile);
+        assertEquals(acknowledged, reloaded.getLastAcknowledged());
+        HistoryUploader.Result resumed = new HistoryUploader(store, endpoint, reloaded).runOnce();
+        
+        assertTrue(resumed.caughtUp);
+        assertEquals(RECORDS, interrupted.records + resumed.records);
+        assertEquals(RECORDS, acceptedRecords());
+        assertContiguous();
+    }
+    
+    @Test
+    public void retriesBatchTakenWithoutAcknowledgementUnderSameId() {
+        loseAckOfBatch = 1;
+        HistoryUploader uploader = new HistoryUploader(store, endpoint, new UploadCheckpoint(checkpointFile));
+        HistoryUploader.Result interrupted = uploader.runOnce();
+        assertEquals(1, interrupted.batches);
+        assertEquals(2, accepted.size());
+        long[] taken = accepted.get(1);
+        
+        // Batch size halved after the failure, and the process restarted
+        UploadCheckpoint reloaded = new UploadCheckpoint(checkpointFile);
+        assertEquals(accepted.get(0)[1], reloaded.getLastAcknowledged());
+        assertEquals(taken[1], reloaded.getUnacknowledgedLast());
+        assertTrue(reloaded.getBatchRecords() < taken[2]);
+        HistoryUploader.Result resumed = new HistoryUploader(store, endpoint, reloaded).runOnce();
+        
+        assertTrue(resumed.caughtUp);
+        assertEquals(requestIds.get(1), requestIds.get(2));
+        assertEquals(Long.MIN_VALUE, new UploadCheckpoint(checkpointFile).getUnacknowledgedLast());
+        assertEquals(RECORDS, interrupted.records + resumed.records);
+        assertEquals(RECORDS, acceptedRecords());
+        assertContiguous();
+    }
+    
+    @Test
+    public void growsBatchesOnFastLink() {
+        HistoryUploader uploader = new HistoryUploader(store, endpoint, new UploadCheckpoint(checkpointFile));
+        uploader.runOnce();
+        
+        assertTrue(accepted.size() > 1);
+        assertEquals(BatchSizer.INITIAL_RECORDS, accepted.get(0)[2]);
+        assertTrue(accepted.get(1)[2] > accepted.get(0)[2]);
+        assertTrue(new UploadCheckpoint(checkpointFile).getBatchRecords() > BatchSizer.INITIAL_RECORDS);
+    }
+    
+    @Test
+    public void shrinksBatchesAfterFailure() {
+        failAfterBatches = 0;
+        HistoryUploader uploader = new HistoryUploader(store, endpoint, new UploadCheckpoint(checkpointFile));
+        HistoryUploader.Result result = uploader.runOnce();
+        
+        assertEquals(0, result.batches);
+        assertEquals(BatchSizer.INITIAL_RECORDS / 2, uploader.getBatchRecords());
+        assertEquals(Long.MIN_VALUE, new UploadCheckpoint(checkpointFile).getLastAcknowledged());
+    }
+    
+    private long acceptedRecords() {
+        long total = 0;
+        for (long[] batch : accepted) {
+            total += batch[2];
+        }
+        return total;
+    }
+    
+    private void assertContiguous() {
+        assertEquals(firstTimestamp, accepted.get(0)[0]);
+        for (int i = 1; i < accepted.size(); i++) {
+            assertEquals(accepted.get(i - 1)[1] + 100, accepted.get(i)[0]);
+        }
+        assertEquals(firstTimestamp + (RECORDS - 1) * 100L, accepted.get(accepted.size() - 1)[1]);
+    }
+    
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) > 0) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+}
\ No newline at end of file
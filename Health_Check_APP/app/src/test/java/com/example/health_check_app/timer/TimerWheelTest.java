@@ -0,0 +1,159 @@
+package com.example.health_check_app.timer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TimerWheelTest {
+    private static final long HORIZON = 1L << 24;
+    
+    // What the wheel should hold, kept as a list sorted by when each timer is due
+    private static final class Expected {
+        final int id;
+        final long due;
+        final TimerWheel.Timer timer;
+        
+        Expected(int id, long due, TimerWheel.Timer timer) {
+            this.id = id;
+            this.due = due;
+            this.timer = timer;
+        }
+    }
+    
+    private final List<Integer> fired = new ArrayList<>();
+    
+    @Test
+    public void firesExactlyAtTheDeadlineAcrossLevels() {
+        TimerWheel wheel = new TimerWheel(1000);
+        long[] deadlines = {1001, 1063, 1064, 1065, 1000 + 64 * 64, 1000 + 64 * 64 * 64 + 5, 1000 + HORIZON - 1};
+        for (int i = 0; i < deadlines.length; i++) {
+            schedule(wheel, i, deadlines[i]);
+        }
+        for (int i = 0; i < deadlines.length; i++) {
+            fired.clear();
+            run(wheel.advance(deadlines[i] - 1));
+            assertTrue("timer " + i + " fired early", fired.isEmpty());
+            run(wheel.advance(deadlines[i]));
+            assertEquals(Collections.singletonList(i), fired);
+        }
+        assertEquals(0, wheel.size());
+        assertEquals(Long.MAX_VALUE, wheel.nextEventTick());
+    }
+    
+    @Test
+    public void parksTimersBeyondTheHorizonUntilTheirDeadline() {
+        TimerWheel wheel = new TimerWheel(0);
+        long deadline = 3 * HORIZON + 12345;
+        schedule(wheel, 7, deadline);
+        
+        // Jump from event to event, as TimerService does; the re-filings never fire it early
+        long tick;
+        while ((tick = wheel.nextEventTick()) < deadline) {
+            run(wheel.advance(tick));
+            assertTrue(fired.isEmpty());
+            assertEquals(1, wheel.size());
+        }
+        run(wheel.advance(deadline));
+        assertEquals(Collections.singletonList(7), fired);
+    }
+    
+    @Test
+    public void pastDeadlineFiresAtTheNextTick() {
+        TimerWheel wheel = new TimerWheel(500);
+        schedule(wheel, 1, 10);
+        assertEquals(501, wheel.nextEventTick());
+        run(wheel.advance(501));
+        assertEquals(Collections.singletonList(1), fired);
+    }
+    
+    @Test
+    public void cancelledTimerNeverFires() {
+        TimerWheel wheel = new TimerWheel(0);
+        TimerWheel.Timer a = schedule(wheel, 1, 100);
+        schedule(wheel, 2, 100);
+        assertTrue(wheel.cancel(a));
+        assertFalse(wheel.cancel(a));
+        assertFalse(a.isPending());
+        run(wheel.advance(1000));
+        assertEquals(Collections.singletonList(2), fired);
+    }
+    
+    @Test
+    public void matchesSortedListUnderRandomScheduleCancelAndAdvance() {
+        Random random = new Random(20240611);
+        TimerWheel wheel = new TimerWheel(random.nextInt(1 << 20));
+        List<Expected> pending = new ArrayList<>();
+        int nextId = 0;
+        for (int step = 0; step < 20_000; step++) {
+            int action = random.nextInt(10);
+            if (action < 5) {
+                long now = wheel.getCurrentTick();
+                long deadline = now + randomDelay(random);
+                int id = nextId++;
+                TimerWheel.Timer timer = schedule(wheel, id, deadline);
+                insertSorted(pending, new Expected(id, Math.max(deadline, now + 1), timer));
+            } else if (action < 7 && !pending.isEmpty()) {
+                Expected victim = pending.remove(random.nextInt(pending.size()));
+                assertTrue(wheel.cancel(victim.timer));
+            } else {
+                long tick = action == 9 && !pending.isEmpty()
+                    ? wheel.nextEventTick()
+                    : wheel.getCurrentTick() + randomDelay(random);
+                fired.clear();
+                run(wheel.advance(tick));
+                List<Integer> due = new ArrayList<>();
+                while (!pending.isEmpty() && pending.get(0).due <= tick) {
+                    Expected expired = pending.remove(0);
+                    assertFalse(expired.timer.isPending());
+                    due.add(expired.id);
+                }
+                Collections.sort(due);
+                Collections.sort(fired);
+                assertEquals("advance to " + tick, due, fired);
+            }
+            assertEquals(pending.size(), wheel.size());
+            if (!pending.isEmpty()) {
+                // Never later than the earliest deadline; earlier only for a re-filing
+                assertTrue(wheel.nextEventTick() <= pending.get(0).due);
+            }
+        }
+    }
+    
+    // Mostly near deadlines, some on the coarser levels, the odd one past or beyond the horizon
+    private static long randomDelay(Random random) {
+        switch (random.nextInt(8)) {
+            case 0:
+                return -random.nextInt(100);
+            case 1:
+                return random.nextInt(64 * 64 * 64);
+            case 2:
+                return (long) (random.nextDouble() * 2 * HORIZON);
+            default:
+                return random.nextInt(200);
+        }
+    }
+    
+    private static void insertSorted(List<Expected> pending, Expected expected) {
+        int i = pending.size();
+        while (i > 0 && pending.get(i - 1).due > expected.due) {
+            i--;
+        }
+        pending.add(i, expected);
+    }
+    
+    private TimerWheel.Timer schedule(TimerWheel wheel, int id, long deadline) {
+        return wheel.schedule(() -> fired.add(id), deadline);
+    }
+    
+    private static void run(List<Runnable> tasks) {
+        if (tasks != null) {
+            for (Runnable task : tasks) {
+                task.run();
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,163 @@
+package com.example.health_check_app.trace;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+public class FlightRecorderTest {
+    private static final int WRITERS = 4;
+    private static final int PER_WRITER = 20_000;
+    private static final long THREAD_MASK = (1L << 48) - 1;
+    
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    
+    @Test
+    public void capacityIsRoundedUpToAPowerOfTwo() {
+        assertEquals(1024, new FlightRecorder(1000).getCapacity());
+        assertEquals(1024, new FlightRecorder(1024).getCapacity());
+        assertEquals(4, new FlightRecorder(3).getCapacity());
+    }
+    
+    @Test
+    public void concurrentWritersLeaveTheNewestRecordsInOrder() throws InterruptedException {
+        FlightRecorder recorder = new FlightRecorder(1024);
+        Thread[] threads = startWriters(recorder, new CountDownLatch(1), null);
+        join(threads);
+        assertEquals(WRITERS * PER_WRITER, recorder.getRecordedCount());
+        
+        // Quiet ring: every slot holds one of the last capacity records, none skipped
+        long[] records = recorder.snapshot();
+        assertEquals(recorder.getCapacity() * 4, records.length);
+        // A writer's sequence numbers rise with its i, so whatever is left of it is the
+        // unbroken run up to its last record
+        long[] lastSeen = new long[WRITERS];
+        Arrays.fill(lastSeen, -1);
+        for (int offset = 0; offset < records.length; offset += 4) {
+            int writer = assertConsistent(records, offset, threads);
+            long i = records[offset + 2] & 0xFFFFFFFFL;
+            assertTrue("writer " + writer + " has a gap", lastSeen[writer] < 0 || i == lastSeen[writer] + 1);
+            lastSeen[writer] = i;
+        }
+        for (int writer = 0; writer < WRITERS; writer++) {
+            assertTrue("writer " + writer + " lost its newest record",
+                lastSeen[writer] < 0 || lastSeen[writer] == PER_WRITER - 1);
+        }
+    }
+    
+    @Test
+    public void snapshotsTakenDuringWritesHoldNoTornRecords() throws InterruptedException {
+        FlightRecorder recorder = new FlightRecorder(256);
+        CountDownLatch go = new CountDownLatch(1);
+        AtomicBoolean done = new AtomicBoolean();
+        Thread[] threads = startWriters(recorder, go, done);
+        go.countDown();
+        int snapshots = 0;
+        while (!done.get() || snapshots == 0) {
+            long[] records = recorder.snapshot();
+            assertTrue(records.length <= recorder.getCapacity() * 4);
+            for (int offset = 0; offset < records.length; offset += 4) {
+                assertConsistent(records, offset, threads);
+            }
+            snapshots++;
+        }
+        join(threads);
+    }
+    
+    @Test
+    public void dumpDecodesAfterWraparound() throws IOException {
+        FlightRecorder recorder = new FlightRecorder(16);
+        int topic = recorder.intern("sensor/data");
+        assertEquals(topic, recorder.intern("sensor/data"));
+        long before = System.currentTimeMillis();
+        for (int i = 0; i < 40; i++) {
+            recorder.record(TraceEvent.MESSAGE_ARRIVED, topic, i);
+        }
+        recorder.record(TraceEvent.CONNECTION_LOST, 99);
+        recorder.record(TraceEvent.DISCONNECTED);
+        File file = new File(folder.getRoot(), "dumps/test" + FlightRecorder.SUFFIX);
+        recorder.dump(file);
+        long after = System.currentTimeMillis();
+        
+        List<FlightRecordReader.Record> records = FlightRecordReader.read(file);
+        assertEquals(16, records.size());
+        for (int i = 0; i < 14; i++) {
+            FlightRecordReader.Record record = records.get(i);
+            assertEquals("MESSAGE_ARRIVED", record.getEvent());
+            assertEquals("topic=sensor/data bytes=" + (26 + i), record.getText());
+            assertEquals(Thread.currentThread().getId(), record.getThreadId());
+            // Rebuilt from nanoTime, so allow for the millisecond truncation
+            assertTrue(record.getWallClockMs() >= before - 1 && record.getWallClockMs() <= after);
+        }
+        // An id that was never interned decodes as a number instead of failing
+        assertEquals("CONNECTION_LOST", records.get(14).getEvent());
+        assertEquals("broker=#99", records.get(14).getText());
+        assertEquals("DISCONNECTED", records.get(15).getEvent());
+        assertEquals("", records.get(15).getText());
+    }
+    
+    @Test(expected = IOException.class)
+    public void readerRejectsOtherFiles() throws IOException {
+        File file = folder.newFile("other" + FlightRecorder.SUFFIX);
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write("HCSV0000".getBytes("US-ASCII"));
+        }
+        FlightRecordReader.read(file);
+    }
+    
+    // Each writer records (writer << 32 | i, ~a) so a torn record shows up as a mismatch
+    private static Thread[] startWriters(FlightRecorder recorder, CountDownLatch go, AtomicBoolean done) {
+        Thread[] threads = new Thread[WRITERS];
+        CountDownLatch finished = new CountDownLatch(WRITERS);
+        for (int w = 0; w < WRITERS; w++) {
+            long writer = w;
+            threads[w] = new Thread(() -> {
+                try {
+                    go.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < PER_WRITER; i++) {
+                    long a = writer << 32 | i;
+                    recorder.record(TraceEvent.SAMPLE_DELIVERED, a, ~a);
+                }
+                finished.countDown();
+                if (done != null && finished.getCount() == 0) {
+                    done.set(true);
+                }
+            });
+            threads[w].start();
+        }
+        if (done == null) {
+            go.countDown();
+        }
+        return threads;
+    }
+    
+    private static int assertConsistent(long[] records, int offset, Thread[] threads) {
+        long meta = records[offset + 1];
+        long a = records[offset + 2];
+        long b = records[offset + 3];
+        assertEquals(TraceEvent.SAMPLE_DELIVERED.ordinal(), (int) (meta >>> 48));
+        assertEquals(~a, b);
+        int writer = (int) (a >>> 32);
+        assertTrue(writer >= 0 && writer < WRITERS);
+        assertEquals(threads[writer].getId() & THREAD_MASK, meta & THREAD_MASK);
+        return writer;
+    }
+    
+    private static void join(Thread[] threads) throws InterruptedException {
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+}
\ No newline at end of file